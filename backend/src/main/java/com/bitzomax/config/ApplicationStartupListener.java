@@ -4,12 +4,20 @@ import com.bitzomax.service.VideoFixService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
 
 /**
  * Listener that executes tasks when the application starts
+ *
+ * The visibility repair runs once the application reports ready (not on every context
+ * refresh), and by default on Spring Boot's application task executor so it never delays
+ * startup. The executor is named explicitly because the scheduler is a TaskExecutor too.
  */
 @Component
 public class ApplicationStartupListener {
@@ -17,17 +25,40 @@ public class ApplicationStartupListener {
     private static final Logger logger = LoggerFactory.getLogger(ApplicationStartupListener.class);
     
     private final VideoFixService videoFixService;
+    private final TaskExecutor taskExecutor;
+    private final boolean fixVisibilityOnStartup;
+    private final boolean runAsync;
     
     @Autowired
-    public ApplicationStartupListener(VideoFixService videoFixService) {
+    public ApplicationStartupListener(VideoFixService videoFixService,
+                                      @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                      TaskExecutor taskExecutor,
+                                      @Value("${video.fix.visibility-on-startup:true}") boolean fixVisibilityOnStartup,
+                                      @Value("${video.fix.visibility-async:true}") boolean runAsync) {
         this.videoFixService = videoFixService;
+        this.taskExecutor = taskExecutor;
+        this.fixVisibilityOnStartup = fixVisibilityOnStartup;
+        this.runAsync = runAsync;
     }
     
     /**
-     * Runs when the Spring application context is initialized
+     * Runs when the Spring application is ready to serve requests
      */
-    @EventListener
-    public void onApplicationEvent(ContextRefreshedEvent event) {
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!fixVisibilityOnStartup) {
+            logger.info("Video visibility repair on startup is disabled");
+            return;
+        }
+        
+        if (runAsync) {
+            taskExecutor.execute(this::fixVisibility);
+        } else {
+            fixVisibility();
+        }
+    }
+    
+    private void fixVisibility() {
         logger.info("Application started, fixing video visibility issues...");
         
         try {
@@ -37,4 +68,4 @@ public class ApplicationStartupListener {
             logger.error("Error fixing video visibility on startup", e);
         }
     }
-}
\ No newline at end of file
+}
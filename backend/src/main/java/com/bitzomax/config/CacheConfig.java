@@ -0,0 +1,57 @@
+package com.bitzomax.config;
+
+import com.bitzomax.service.VideoCaches;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caffeine caches for read-mostly video and genre lookups.
+ *
+ * Every cache records statistics, so Spring Boot Actuator publishes cache.gets (hit/miss),
+ * cache.puts, cache.evictions and cache.size per cache to the meter registry. Only the health
+ * endpoint is exposed over HTTP; see application.properties.
+ * Set video.cache.enabled=false to bypass caching entirely.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${video.cache.enabled:true}") boolean enabled,
+            @Value("${video.cache.by-id.max-size:10000}") long byIdMaxSize,
+            @Value("${video.cache.by-id.ttl-seconds:600}") long byIdTtlSeconds,
+            @Value("${video.cache.pages.max-size:500}") long pagesMaxSize,
+            @Value("${video.cache.pages.ttl-seconds:60}") long pagesTtlSeconds,
+            @Value("${video.cache.genres.ttl-seconds:3600}") long genresTtlSeconds) {
+        if (!enabled) {
+            return new NoOpCacheManager();
+        }
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(VideoCaches.BY_ID, build(byIdMaxSize, byIdTtlSeconds));
+        cacheManager.registerCustomCache(VideoCaches.PAGES, build(pagesMaxSize, pagesTtlSeconds));
+        cacheManager.registerCustomCache(VideoCaches.GENRE_PAGES, build(pagesMaxSize, pagesTtlSeconds));
+        cacheManager.registerCustomCache(VideoCaches.GENRES, build(100, genresTtlSeconds));
+        return cacheManager;
+    }
+
+    private static Cache<Object, Object> build(long maxSize, long ttlSeconds) {
+        // The TTL bounds how long a read that raced with a write can keep a stale entry alive
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+}
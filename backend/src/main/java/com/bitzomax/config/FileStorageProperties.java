@@ -1,14 +1,20 @@
 package com.bitzomax.config;
 
+import com.bitzomax.storage.StorageArea;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 @Component
 @ConfigurationProperties(prefix = "file")
 public class FileStorageProperties {
     
     private String videoUploadDir;
     private String thumbnailUploadDir;
+    private String uploadSessionDir = "./data/upload-sessions";
+    private boolean contentAddressed;
     
     public String getVideoUploadDir() {
         return videoUploadDir;
@@ -25,4 +31,31 @@ public class FileStorageProperties {
     public void setThumbnailUploadDir(String thumbnailUploadDir) {
         this.thumbnailUploadDir = thumbnailUploadDir;
     }
+    
+    /**
+     * Local directory of a storage area, as an absolute path
+     */
+    public Path getAreaDirectory(StorageArea area) {
+        String dir = switch (area) {
+            case VIDEOS -> videoUploadDir;
+            case THUMBNAILS -> thumbnailUploadDir;
+        };
+        return Paths.get(dir).toAbsolutePath().normalize();
+    }
+    
+    public String getUploadSessionDir() {
+        return uploadSessionDir;
+    }
+    
+    public void setUploadSessionDir(String uploadSessionDir) {
+        this.uploadSessionDir = uploadSessionDir;
+    }
+
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+    
+    public void setContentAddressed(boolean contentAddressed) {
+        this.contentAddressed = contentAddressed;
+    }
 }
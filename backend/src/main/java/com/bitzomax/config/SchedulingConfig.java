@@ -0,0 +1,12 @@
+package com.bitzomax.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background tasks such as periodic counter flushes
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,92 @@
+package com.bitzomax.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.Locale;
+
+/**
+ * Moves each entity ID sequence past the largest ID in its table.
+ *
+ * Tables that used IDENTITY columns before their entities switched to sequences already hold
+ * rows, and rows may be inserted with explicit IDs by scripts; a sequence starting below
+ * those IDs would hand out duplicates. This runs once all beans are created, which is after
+ * Hibernate and the SQL init scripts set up the schema and before the web server accepts
+ * requests.
+ *
+ * Reading a sequence's next value has no standard SQL, so this only runs on H2, the database
+ * the application ships with. Other databases are expected to get their sequences from
+ * migrations that start them past the existing IDs.
+ */
+@Component
+public class SequenceSynchronizer implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceSynchronizer.class);
+
+    private static final String H2 = "H2";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SequenceSynchronizer(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!H2.equals(database)) {
+            logger.info("Not synchronizing entity sequences on {}", database);
+            return;
+        }
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            SequenceGenerator generator = sequenceGenerator(type);
+            Table table = type.getAnnotation(Table.class);
+            if (generator == null || table == null) {
+                continue;
+            }
+            try {
+                synchronize(generator.sequenceName(), table.name());
+            } catch (DataAccessException e) {
+                logger.warn("Could not synchronize sequence {} with table {}: {}",
+                        generator.sequenceName(), table.name(), e.getMessage());
+            }
+        }
+    }
+
+    private void synchronize(String sequence, String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        Long nextValue = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?",
+                Long.class, sequence.toUpperCase(Locale.ROOT));
+        if (maxId != null && nextValue != null && nextValue <= maxId) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (maxId + 1));
+            logger.info("Restarted sequence {} at {} past the existing IDs of {}", sequence, maxId + 1, table);
+        }
+    }
+
+    private static SequenceGenerator sequenceGenerator(Class<?> type) {
+        for (Field field : type.getDeclaredFields()) {
+            SequenceGenerator generator = field.getAnnotation(SequenceGenerator.class);
+            if (generator != null) {
+                return generator;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.bitzomax.config;
+
+import com.bitzomax.storage.LocalStorageBackend;
+import com.bitzomax.storage.S3StorageBackend;
+import com.bitzomax.storage.StorageArea;
+import com.bitzomax.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Selects where uploaded files are stored: file.storage.backend=local (default) keeps them
+ * below file.video-upload-dir and file.thumbnail-upload-dir, s3 puts them in an
+ * S3-compatible bucket.
+ */
+@Configuration
+public class StorageConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageConfig.class);
+
+    @Bean
+    public StorageBackend storageBackend(
+            FileStorageProperties fileStorageProperties,
+            @Value("${file.storage.backend:local}") String backend,
+            @Value("${file.storage.s3.endpoint:}") String endpoint,
+            @Value("${file.storage.s3.bucket:}") String bucket,
+            @Value("${file.storage.s3.region:us-east-1}") String region,
+            @Value("${file.storage.s3.access-key:}") String accessKey,
+            @Value("${file.storage.s3.secret-key:}") String secretKey,
+            @Value("${file.storage.s3.key-prefix:}") String keyPrefix,
+            @Value("${file.storage.s3.request-timeout-seconds:300}") long requestTimeoutSeconds) {
+        switch (backend) {
+            case "local" -> {
+                Map<String, Path> areaRoots = new LinkedHashMap<>();
+                for (StorageArea area : StorageArea.values()) {
+                    areaRoots.put(area.getKey(), fileStorageProperties.getAreaDirectory(area));
+                }
+                return new LocalStorageBackend(areaRoots);
+            }
+            case "s3" -> {
+                if (endpoint.isBlank() || bucket.isBlank()) {
+                    throw new IllegalStateException("file.storage.s3.endpoint and file.storage.s3.bucket are required");
+                }
+                logger.info("Storing uploads in bucket {} at {}", bucket, endpoint);
+                return new S3StorageBackend(endpoint, bucket, region, accessKey, secretKey, keyPrefix,
+                        Duration.ofSeconds(requestTimeoutSeconds));
+            }
+            default -> throw new IllegalStateException("Unknown file.storage.backend: " + backend);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.bitzomax.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
@@ -9,7 +10,9 @@ import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.PathResourceResolver;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -38,7 +41,25 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:./uploads/")
                 .setCachePeriod(3600) // Cache for 1 hour
-                .resourceChain(true); // Enable resource chain optimization
+                .resourceChain(true) // Enable resource chain optimization
+                .addResolver(new StoredFileResolver());
+    }
+
+    /**
+     * Serves stored files only: the upload areas also hold the staging (.incoming) and
+     * quarantine (.quarantine) directories, and nothing below a dot directory is public
+     */
+    static class StoredFileResolver extends PathResourceResolver {
+
+        @Override
+        protected Resource getResource(String resourcePath, Resource location) throws IOException {
+            for (String segment : resourcePath.split("/")) {
+                if (segment.startsWith(".")) {
+                    return null;
+                }
+            }
+            return super.getResource(resourcePath, location);
+        }
     }
 
     /**
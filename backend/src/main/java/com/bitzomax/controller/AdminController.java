@@ -2,6 +2,9 @@ package com.bitzomax.controller;
 
 import com.bitzomax.model.Video;
 import com.bitzomax.repository.VideoRepository;
+import com.bitzomax.service.FaststartService;
+import com.bitzomax.service.OrphanedMediaCollector;
+import com.bitzomax.service.StorageMigrationService;
 import com.bitzomax.service.VideoFixService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +32,15 @@ public class AdminController {
     
     @Autowired
     private VideoFixService videoFixService;
+    
+    @Autowired
+    private StorageMigrationService storageMigrationService;
+    
+    @Autowired
+    private FaststartService faststartService;
+    
+    @Autowired
+    private OrphanedMediaCollector orphanedMediaCollector;
       /**
      * Debug endpoint to check video visibility status
      */    @GetMapping("/videos/check")
@@ -86,7 +98,57 @@ public class AdminController {
             "message", "Made " + fixedCount + " videos visible",
             "fixedCount", fixedCount
         ));
-    }    /**
+    }
+    
+    /**
+     * Move files of the old flat upload layout to the sharded layout and update the video URLs
+     * POST /api/admin/storage/migrate
+     */
+    @PostMapping("/storage/migrate")
+    public ResponseEntity<?> migrateStorage() {
+        logger.info("Migrating stored files to the sharded layout");
+        
+        try {
+            Map<String, Integer> result = storageMigrationService.migrateToShardedLayout();
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Check existing MP4/MOV videos for faststart and rewrite those with moov at the end
+     * POST /api/admin/videos/faststart
+     */
+    @PostMapping("/videos/faststart")
+    public ResponseEntity<?> backfillFaststart() {
+        logger.info("Checking stored videos for faststart");
+        
+        try {
+            Map<String, Integer> result = faststartService.backfill();
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Run one increment of the orphaned media collector now instead of waiting for the schedule
+     * POST /api/admin/storage/gc
+     */
+    @PostMapping("/storage/gc")
+    public ResponseEntity<?> collectOrphanedMedia() {
+        logger.info("Collecting orphaned media files");
+        
+        try {
+            OrphanedMediaCollector.Report report = orphanedMediaCollector.collect();
+            return ResponseEntity.ok(report);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    /**
      * Delete a video by ID (legacy method, use AdminVideoController instead)
      * DELETE /admin/v1/videos/{id}
      *
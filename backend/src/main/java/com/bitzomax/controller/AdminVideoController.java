@@ -4,10 +4,15 @@ import com.bitzomax.dto.FileUploadResponse;
 import com.bitzomax.dto.VideoDTO;
 import com.bitzomax.exception.FileStorageException;
 import com.bitzomax.model.ConversionStatus;
+import com.bitzomax.model.ProcessingJob;
+import com.bitzomax.model.ProcessingLane;
 import com.bitzomax.service.FileStorageService;
+import com.bitzomax.service.MediaProcessingQueue;
 import com.bitzomax.service.VideoService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -20,10 +25,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -33,13 +36,18 @@ import java.util.Map;
 @RequestMapping("/api/admin/videos")
 public class AdminVideoController {
     
+    private static final Logger logger = LoggerFactory.getLogger(AdminVideoController.class);
+    
     private final VideoService videoService;
     private final FileStorageService fileStorageService;
+    private final MediaProcessingQueue mediaProcessingQueue;
     
     @Autowired
-    public AdminVideoController(VideoService videoService, FileStorageService fileStorageService) {
+    public AdminVideoController(VideoService videoService, FileStorageService fileStorageService,
+                                MediaProcessingQueue mediaProcessingQueue) {
         this.videoService = videoService;
         this.fileStorageService = fileStorageService;
+        this.mediaProcessingQueue = mediaProcessingQueue;
     }
     
     /**
@@ -88,11 +96,10 @@ public class AdminVideoController {
             videoDTO.setPoemText(poemText);
             videoDTO.setSeoTitle(seoTitle);
             videoDTO.setSeoDescription(seoDescription);            videoDTO.setOriginalFormat(videoFile.getContentType());
-            videoDTO.setConversionStatus(ConversionStatus.COMPLETED);
+            videoDTO.setConversionStatus(ConversionStatus.PENDING);
             
-            // Set the duration (in a real app, this would be extracted from the video)
-            // For now, we'll set a placeholder value
-            videoDTO.setDuration(180); // 3 minutes as default
+            // Duration read from the container headers; the processing job fills it in if unknown
+            videoDTO.setDuration(videoResponse.getDuration());
             
             // Process optional comma-separated lists
             if (tagsStr != null && !tagsStr.isEmpty()) {
@@ -115,6 +122,7 @@ public class AdminVideoController {
             
             // Create the video in the database
             VideoDTO createdVideo = videoService.createVideo(videoDTO);
+            mediaProcessingQueue.enqueue(createdVideo.getId(), ProcessingLane.UPLOAD);
             
             return new ResponseEntity<>(createdVideo, HttpStatus.CREATED);
             
@@ -235,22 +243,18 @@ public class AdminVideoController {
             // Delete video from database
             videoService.deleteVideo(id);
             
-            // Also delete the physical files
+            // Also release the physical files; shared content is kept while other videos use it
             try {
-                // Delete video file if it exists
                 if (video.getVideoUrl() != null) {
-                    Path videoPath = Paths.get(fileStorageService.getVideoFilePath(video.getVideoUrl()));
-                    Files.deleteIfExists(videoPath);
+                    fileStorageService.deleteVideoFile(video.getVideoUrl());
                 }
                 
-                // Delete thumbnail file if it exists
                 if (video.getThumbnailUrl() != null) {
-                    Path thumbnailPath = Paths.get(fileStorageService.getThumbnailFilePath(video.getThumbnailUrl()));
-                    Files.deleteIfExists(thumbnailPath);
+                    fileStorageService.deleteThumbnailFile(video.getThumbnailUrl());
                 }
             } catch (Exception e) {
                 // Log the error but don't fail the request, since the DB entry is already deleted
-                System.err.println("Error deleting video files: " + e.getMessage());
+                logger.warn("Error deleting files of video {}: {}", id, e.getMessage());
             }
             
             Map<String, String> response = new HashMap<>();
@@ -283,15 +287,14 @@ public class AdminVideoController {
             // Store new thumbnail
             FileUploadResponse thumbnailResponse = fileStorageService.storeThumbnailFile(thumbnailFile);
             
-            // Delete old thumbnail if it exists
+            // Release the old thumbnail if it exists
             try {
                 if (currentVideo.getThumbnailUrl() != null) {
-                    Path oldThumbnailPath = Paths.get(fileStorageService.getThumbnailFilePath(currentVideo.getThumbnailUrl()));
-                    Files.deleteIfExists(oldThumbnailPath);
+                    fileStorageService.deleteThumbnailFile(currentVideo.getThumbnailUrl());
                 }
             } catch (Exception e) {
                 // Log but continue
-                System.err.println("Error deleting old thumbnail: " + e.getMessage());
+                logger.warn("Error deleting old thumbnail of video {}: {}", id, e.getMessage());
             }
             
             // Update video with new thumbnail URL
@@ -378,4 +381,34 @@ public class AdminVideoController {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating video conversion status: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Queue a video for re-processing, e.g. after adding a processing stage
+     * POST /api/admin/videos/{id}/reprocess
+     *
+     * Re-processing jobs run in a lower-priority lane than new uploads.
+     *
+     * @param id the video ID
+     * @return the queued job, or the video's already active job
+     */
+    @PostMapping("/{id}/reprocess")
+    public ResponseEntity<ProcessingJob> reprocessVideo(@PathVariable Long id) {
+        try {
+            return ResponseEntity.accepted().body(mediaProcessingQueue.enqueue(id, ProcessingLane.REPROCESS));
+        } catch (EntityNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Get the processing jobs of a video, newest first
+     * GET /api/admin/videos/{id}/processing-jobs
+     *
+     * @param id the video ID
+     * @return the video's processing jobs
+     */
+    @GetMapping("/{id}/processing-jobs")
+    public ResponseEntity<List<ProcessingJob>> getProcessingJobs(@PathVariable Long id) {
+        return ResponseEntity.ok(mediaProcessingQueue.getJobsForVideo(id));
+    }
 }
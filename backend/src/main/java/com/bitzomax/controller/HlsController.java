@@ -0,0 +1,134 @@
+package com.bitzomax.controller;
+
+import com.bitzomax.media.HlsPlaylists;
+import com.bitzomax.model.VideoRendition;
+import com.bitzomax.service.HlsRenditionService;
+import com.bitzomax.service.VideoService;
+import com.bitzomax.service.VideoStreamingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * REST controller for HLS adaptive-bitrate playback
+ *
+ * Players load /api/videos/{id}/hls/master.m3u8 and follow the relative links to the
+ * rendition playlists and segments. Rendition IDs change on every re-processing, so
+ * everything below a rendition is immutable and cached accordingly.
+ */
+@RestController
+@RequestMapping("/api/videos/{id}/hls")
+public class HlsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(HlsController.class);
+    private static final MediaType PLAYLIST_TYPE = MediaType.parseMediaType(HlsPlaylists.CONTENT_TYPE);
+    private static final MediaType SEGMENT_TYPE = new MediaType("video", "mp2t");
+
+    private final VideoService videoService;
+    private final HlsRenditionService hlsRenditionService;
+    private final VideoStreamingService videoStreamingService;
+    private final String masterCacheControl;
+    private final String immutableCacheControl;
+
+    @Autowired
+    public HlsController(VideoService videoService,
+                         HlsRenditionService hlsRenditionService,
+                         VideoStreamingService videoStreamingService,
+                         @Value("${media.hls.master-cache-control:public, max-age=60}") String masterCacheControl,
+                         @Value("${media.hls.segment-cache-control:public, max-age=31536000, immutable}") String immutableCacheControl) {
+        this.videoService = videoService;
+        this.hlsRenditionService = hlsRenditionService;
+        this.videoStreamingService = videoStreamingService;
+        this.masterCacheControl = masterCacheControl;
+        this.immutableCacheControl = immutableCacheControl;
+    }
+
+    /**
+     * Get the master playlist listing all renditions
+     * GET /api/videos/{id}/hls/master.m3u8
+     *
+     * @param id the video ID
+     * @return the master playlist, or 404 if the video has not been packaged
+     */
+    @GetMapping("/master.m3u8")
+    public ResponseEntity<String> getMasterPlaylist(@PathVariable Long id) {
+        requireVisibleVideo(id);
+        List<VideoRendition> renditions = hlsRenditionService.getRenditions(id);
+        if (renditions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No HLS renditions for video " + id);
+        }
+        return ResponseEntity.ok()
+                .contentType(PLAYLIST_TYPE)
+                .header(HttpHeaders.CACHE_CONTROL, masterCacheControl)
+                .body(HlsPlaylists.masterPlaylist(renditions));
+    }
+
+    /**
+     * Get the media playlist of one rendition
+     * GET /api/videos/{id}/hls/{renditionId}/index.m3u8
+     *
+     * @param id the video ID
+     * @param renditionId the rendition ID from the master playlist
+     * @return the media playlist
+     */
+    @GetMapping("/{renditionId}/index.m3u8")
+    public ResponseEntity<String> getMediaPlaylist(@PathVariable Long id, @PathVariable Long renditionId) {
+        VideoRendition rendition = requireRendition(id, renditionId);
+        return ResponseEntity.ok()
+                .contentType(PLAYLIST_TYPE)
+                .header(HttpHeaders.CACHE_CONTROL, immutableCacheControl)
+                .body(HlsPlaylists.mediaPlaylist(rendition));
+    }
+
+    /**
+     * Stream one segment, zero-copy where the container supports it
+     * GET /api/videos/{id}/hls/{renditionId}/{segment}
+     *
+     * @param id the video ID
+     * @param renditionId the rendition ID
+     * @param segment the segment file name from the media playlist
+     */
+    @RequestMapping(value = "/{renditionId}/{segment:.+\\.ts}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void streamSegment(@PathVariable Long id, @PathVariable Long renditionId, @PathVariable String segment,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        VideoRendition rendition = requireRendition(id, renditionId);
+        Path file = hlsRenditionService.resolveSegment(rendition, segment)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Segment not found"));
+        try {
+            videoStreamingService.stream(file, SEGMENT_TYPE, immutableCacheControl, request, response);
+        } catch (NoSuchFileException e) {
+            logger.warn("Segment file missing for video {}, rendition {}: {}", id, renditionId, file);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Segment not found", e);
+        }
+    }
+
+    private void requireVisibleVideo(Long id) {
+        videoService.findVideoById(id)
+                .filter(v -> v.getIsVisible() == null || v.getIsVisible())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
+    }
+
+    private VideoRendition requireRendition(Long id, Long renditionId) {
+        requireVisibleVideo(id);
+        return hlsRenditionService.getRendition(id, renditionId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Rendition not found"));
+    }
+}
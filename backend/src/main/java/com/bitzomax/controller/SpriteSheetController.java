@@ -0,0 +1,107 @@
+package com.bitzomax.controller;
+
+import com.bitzomax.media.SpriteSheets;
+import com.bitzomax.service.SpriteSheetService;
+import com.bitzomax.service.VideoService;
+import com.bitzomax.service.VideoStreamingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * REST controller for seek-preview thumbnails
+ *
+ * Players load /api/videos/{id}/sprites/thumbnails.vtt as a thumbnail track and follow its
+ * relative links to the sprite sheets. Sheet URLs contain the processing run, so sheets are
+ * immutable and the track is the only thing that changes when a video is processed again.
+ */
+@RestController
+@RequestMapping("/api/videos/{id}/sprites")
+public class SpriteSheetController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpriteSheetController.class);
+    private static final MediaType TRACK_TYPE = new MediaType("text", "vtt", StandardCharsets.UTF_8);
+
+    private final VideoService videoService;
+    private final SpriteSheetService spriteSheetService;
+    private final VideoStreamingService videoStreamingService;
+    private final String trackCacheControl;
+    private final String sheetCacheControl;
+
+    @Autowired
+    public SpriteSheetController(VideoService videoService,
+                                 SpriteSheetService spriteSheetService,
+                                 VideoStreamingService videoStreamingService,
+                                 @Value("${media.sprites.track-cache-control:public, max-age=60}") String trackCacheControl,
+                                 @Value("${media.sprites.sheet-cache-control:public, max-age=31536000, immutable}") String sheetCacheControl) {
+        this.videoService = videoService;
+        this.spriteSheetService = spriteSheetService;
+        this.videoStreamingService = videoStreamingService;
+        this.trackCacheControl = trackCacheControl;
+        this.sheetCacheControl = sheetCacheControl;
+    }
+
+    /**
+     * Get the WebVTT thumbnail track
+     * GET /api/videos/{id}/sprites/thumbnails.vtt
+     *
+     * @param id the video ID
+     */
+    @RequestMapping(value = "/" + SpriteSheets.TRACK_FILE, method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getTrack(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        requireVisibleVideo(id);
+        Path track = spriteSheetService.resolveTrack(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No seek previews for video " + id));
+        stream(id, track, TRACK_TYPE, trackCacheControl, request, response);
+    }
+
+    /**
+     * Get one sprite sheet
+     * GET /api/videos/{id}/sprites/{run}/{sheet}
+     *
+     * @param id the video ID
+     * @param run the processing run from the track
+     * @param sheet the sheet file name from the track
+     */
+    @RequestMapping(value = "/{run}/{sheet:.+\\.jpg}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getSheet(@PathVariable Long id, @PathVariable String run, @PathVariable String sheet,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        requireVisibleVideo(id);
+        Path file = spriteSheetService.resolveSheet(id, run, sheet)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Sprite sheet not found"));
+        stream(id, file, MediaType.IMAGE_JPEG, sheetCacheControl, request, response);
+    }
+
+    private void stream(Long id, Path file, MediaType mediaType, String cacheControl,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            videoStreamingService.stream(file, mediaType, cacheControl, request, response);
+        } catch (NoSuchFileException e) {
+            // A newer run was published and this one deleted in between
+            logger.debug("Sprite file of video {} disappeared: {}", id, file);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Seek previews not found", e);
+        }
+    }
+
+    private void requireVisibleVideo(Long id) {
+        videoService.findVideoById(id)
+                .filter(v -> v.getIsVisible() == null || v.getIsVisible())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
+    }
+}
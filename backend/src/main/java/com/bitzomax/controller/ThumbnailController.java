@@ -0,0 +1,98 @@
+package com.bitzomax.controller;
+
+import com.bitzomax.exception.FileStorageException;
+import com.bitzomax.model.Video;
+import com.bitzomax.service.ThumbnailService;
+import com.bitzomax.service.VideoService;
+import com.bitzomax.service.VideoStreamingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * REST controller for resized thumbnails
+ *
+ * Grids and listings load /api/videos/{id}/thumbnail?w=320 instead of the uploaded original.
+ * The response is WebP for clients that accept it and JPEG otherwise, so it varies by Accept.
+ */
+@RestController
+@RequestMapping("/api/videos/{id}/thumbnail")
+public class ThumbnailController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailController.class);
+
+    private final VideoService videoService;
+    private final ThumbnailService thumbnailService;
+    private final VideoStreamingService videoStreamingService;
+    private final String cacheControl;
+
+    @Autowired
+    public ThumbnailController(VideoService videoService,
+                               ThumbnailService thumbnailService,
+                               VideoStreamingService videoStreamingService,
+                               @Value("${media.thumbnails.cache-control:public, max-age=86400}") String cacheControl) {
+        this.videoService = videoService;
+        this.thumbnailService = thumbnailService;
+        this.videoStreamingService = videoStreamingService;
+        this.cacheControl = cacheControl;
+    }
+
+    /**
+     * Get the thumbnail of a video scaled to a fixed width
+     * GET /api/videos/{id}/thumbnail?w=320
+     *
+     * @param id the video ID
+     * @param width the wanted width; snapped to the next configured width
+     * @param accept the Accept header, used to choose between WebP and JPEG
+     */
+    @RequestMapping(method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getThumbnail(@PathVariable Long id,
+                             @RequestParam(name = "w", required = false) Integer width,
+                             @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Video video = videoService.findVideoById(id)
+                .filter(v -> v.getIsVisible() == null || v.getIsVisible())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
+        String thumbnailUrl = video.getThumbnailUrl();
+        if (thumbnailUrl == null || thumbnailUrl.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Video " + id + " has no thumbnail");
+        }
+
+        ThumbnailService.Derivative derivative;
+        try {
+            derivative = thumbnailService.getDerivative(thumbnailUrl, width, accept);
+        } catch (NoSuchFileException | FileStorageException e) {
+            logger.warn("Thumbnail of video {} is missing: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Thumbnail not found", e);
+        } catch (IOException e) {
+            // Not an image we can decode; the original still displays in most browsers
+            logger.warn("Could not render the thumbnail of video {}: {}", id, e.getMessage());
+            response.sendRedirect(thumbnailUrl);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        try {
+            videoStreamingService.stream(derivative.path(), derivative.format().getMediaType(), cacheControl, request, response);
+        } catch (NoSuchFileException e) {
+            // Evicted between lookup and streaming; render it again
+            derivative = thumbnailService.getDerivative(thumbnailUrl, width, accept);
+            videoStreamingService.stream(derivative.path(), derivative.format().getMediaType(), cacheControl, request, response);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.bitzomax.controller;
+
+import com.bitzomax.dto.FileUploadResponse;
+import com.bitzomax.dto.UploadSessionRequest;
+import com.bitzomax.dto.UploadSessionResponse;
+import com.bitzomax.dto.VideoDTO;
+import com.bitzomax.exception.UploadSessionNotFoundException;
+import com.bitzomax.model.ConversionStatus;
+import com.bitzomax.model.ProcessingLane;
+import com.bitzomax.service.FileStorageService;
+import com.bitzomax.service.MediaProcessingQueue;
+import com.bitzomax.service.StreamingUploadService;
+import com.bitzomax.service.UploadSession;
+import com.bitzomax.service.UploadSessionService;
+import com.bitzomax.service.VideoService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * REST controller for resumable, chunked video uploads
+ *
+ * Clients create a session, PUT each chunk as a raw octet-stream body at its byte offset
+ * (in any order, retrying only failed chunks), and commit once all chunks are received.
+ * Chunk bodies are not multipart, so the multipart size limits do not apply to the video.
+ * Clients that upload in one request can use /stream, which stores the video as it arrives.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
+
+    private final UploadSessionService uploadSessionService;
+    private final FileStorageService fileStorageService;
+    private final VideoService videoService;
+    private final MediaProcessingQueue mediaProcessingQueue;
+    private final StreamingUploadService streamingUploadService;
+
+    @Autowired
+    public UploadController(UploadSessionService uploadSessionService,
+                            FileStorageService fileStorageService,
+                            VideoService videoService,
+                            MediaProcessingQueue mediaProcessingQueue,
+                            StreamingUploadService streamingUploadService) {
+        this.uploadSessionService = uploadSessionService;
+        this.fileStorageService = fileStorageService;
+        this.videoService = videoService;
+        this.mediaProcessingQueue = mediaProcessingQueue;
+        this.streamingUploadService = streamingUploadService;
+    }
+
+    /**
+     * Create an upload session
+     * POST /api/uploads
+     *
+     * @param request file name, content type, total size and optional chunk size
+     * @return the new session with its ID and chunk layout
+     */
+    @PostMapping
+    public ResponseEntity<?> createSession(@RequestBody UploadSessionRequest request) {
+        try {
+            UploadSession session = uploadSessionService.createSession(request.getFileName(),
+                    request.getContentType(), request.getTotalSize(), request.getChunkSize());
+            return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Get the progress of an upload session, e.g. to resume after a disconnect
+     * GET /api/uploads/{uploadId}
+     *
+     * @param uploadId the session ID
+     * @return the session including the chunks still missing
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getSession(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(toResponse(uploadSessionService.getSession(uploadId)));
+        } catch (UploadSessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Upload one chunk
+     * PUT /api/uploads/{uploadId}?offset=N
+     *
+     * @param uploadId the session ID
+     * @param offset byte offset of the chunk, a multiple of the chunk size
+     * @param request raw request; the body holds exactly the chunk's bytes
+     * @return the updated session
+     */
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @RequestParam("offset") long offset,
+                                         HttpServletRequest request) {
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(toResponse(uploadSessionService.writeChunk(uploadId, offset, body)));
+        } catch (UploadSessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Could not read chunk at offset {} of upload {}: {}", offset, uploadId, e.getMessage());
+            return ResponseEntity.badRequest().body("Could not read chunk: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Complete an upload
+     * POST /api/uploads/{uploadId}/commit
+     *
+     * Without videoData the stored file is returned, like /api/videos/upload/file.
+     * With videoData (and a thumbnail) the video is created, like /api/videos/upload.
+     *
+     * @param uploadId the session ID
+     * @param thumbnailFile optional thumbnail
+     * @param videoData optional video metadata as JSON
+     * @return the stored file or the created video
+     */
+    @PostMapping("/{uploadId}/commit")
+    public ResponseEntity<?> commit(@PathVariable String uploadId,
+                                    @RequestParam(value = "thumbnailFile", required = false) MultipartFile thumbnailFile,
+                                    @RequestParam(value = "videoData", required = false) String videoData) {
+        VideoDTO videoDTO = null;
+        if (videoData != null) {
+            try {
+                videoDTO = parseVideoData(videoData);
+            } catch (IOException e) {
+                return ResponseEntity.badRequest().body("Error parsing video data JSON: " + e.getMessage());
+            }
+        }
+
+        FileUploadResponse videoResponse;
+        try {
+            videoResponse = uploadSessionService.commit(uploadId);
+        } catch (UploadSessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+
+        if (videoDTO == null) {
+            return ResponseEntity.ok(videoResponse);
+        }
+
+        String thumbnailUrl = null;
+        if (thumbnailFile != null && !thumbnailFile.isEmpty()) {
+            thumbnailUrl = fileStorageService.storeThumbnailFile(thumbnailFile).getFilePath();
+        }
+        VideoDTO createdVideo = createVideo(videoDTO, videoResponse, thumbnailUrl);
+        logger.info("Video created from upload session {}: {}", uploadId, createdVideo.getId());
+        return ResponseEntity.ok(createdVideo);
+    }
+
+    /**
+     * Upload a video in one multipart request that is stored while it arrives
+     * POST /api/uploads/stream
+     *
+     * Takes the fields of /api/videos/upload (videoFile, optional thumbnailFile, optional
+     * videoData), but the body is parsed from the request stream instead of being spooled to
+     * temporary files by the servlet container first. Without videoData the stored file is
+     * returned, like /api/videos/upload/file.
+     *
+     * @param request raw multipart/form-data request
+     * @return the stored file or the created video
+     */
+    @PostMapping("/stream")
+    public ResponseEntity<?> uploadStream(HttpServletRequest request) {
+        StreamingUploadService.StreamedUpload upload;
+        try (InputStream body = request.getInputStream()) {
+            upload = streamingUploadService.ingest(body, request.getContentType());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Could not read streamed upload: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Could not read upload: " + e.getMessage());
+        }
+
+        if (upload.videoData() == null) {
+            return ResponseEntity.ok(upload.video());
+        }
+        VideoDTO videoDTO;
+        try {
+            videoDTO = parseVideoData(upload.videoData());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Error parsing video data JSON: " + e.getMessage());
+        }
+        VideoDTO createdVideo = createVideo(videoDTO, upload.video(),
+                upload.thumbnail() != null ? upload.thumbnail().getFilePath() : null);
+        logger.info("Video created from streamed upload: {}", createdVideo.getId());
+        return ResponseEntity.ok(createdVideo);
+    }
+
+    /**
+     * Abort an upload and delete the received data
+     * DELETE /api/uploads/{uploadId}
+     *
+     * @param uploadId the session ID
+     */
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> abort(@PathVariable String uploadId) {
+        try {
+            uploadSessionService.abort(uploadId);
+            return ResponseEntity.noContent().build();
+        } catch (UploadSessionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private VideoDTO createVideo(VideoDTO videoDTO, FileUploadResponse videoResponse, String thumbnailUrl) {
+        videoDTO.setVideoUrl(videoResponse.getFilePath());
+        videoDTO.setDuration(videoResponse.getDuration());
+        if (thumbnailUrl != null) {
+            videoDTO.setThumbnailUrl(thumbnailUrl);
+        }
+        videoDTO.setIsVisible(true);
+        videoDTO.setConversionStatus(ConversionStatus.PENDING);
+
+        VideoDTO createdVideo = videoService.createVideo(videoDTO);
+        mediaProcessingQueue.enqueue(createdVideo.getId(), ProcessingLane.UPLOAD);
+        return createdVideo;
+    }
+
+    private static VideoDTO parseVideoData(String videoData) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.enable(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT);
+        return objectMapper.readValue(videoData, VideoDTO.class);
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        return new UploadSessionResponse(session.getId(), session.getFileName(), session.getTotalSize(),
+                session.getChunkSize(), session.getChunkCount(), session.getReceivedBytes(),
+                session.getMissingChunks(), session.isComplete());
+    }
+}
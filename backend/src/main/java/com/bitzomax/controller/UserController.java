@@ -3,10 +3,15 @@ package com.bitzomax.controller;
 import com.bitzomax.dto.WatchHistoryDTO;
 import com.bitzomax.model.User;
 import com.bitzomax.service.UserService;
+import com.bitzomax.service.WatchProgressBuffer;
+import jakarta.persistence.EntityNotFoundException;
 import java.util.ArrayList;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * REST controller for handling user-related endpoints
@@ -15,6 +20,8 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/users")
 public class UserController {
     
+    private static final int MAX_VIDEO_STATE_IDS = 200;
+    
     private final UserService userService;
     
     @Autowired
@@ -102,21 +109,33 @@ public class UserController {
      * Record watch history
      * POST /users/watch-history
      * 
+     * Players call this repeatedly during playback. The progress is buffered and written
+     * with the next batch, so the response carries no ID yet.
+     * 
      * @param watchHistoryDTO the watch history data
      * @param userId the authenticated user ID (from auth token)
-     * @return the created/updated watch history entry
+     * @return the accepted watch history entry, or 404 if the video does not exist
      */
     @PostMapping("/watch-history")
     public ResponseEntity<WatchHistoryDTO> recordWatchHistory(
             @RequestBody WatchHistoryDTO watchHistoryDTO,
             @RequestHeader("X-User-ID") Long userId) {
-        WatchHistoryDTO savedHistory = userService.trackVideoWatch(
-                userId,
-                watchHistoryDTO.getVideoId(),
-                watchHistoryDTO.getWatchDuration(),
-                watchHistoryDTO.getCompleted());
+        WatchProgressBuffer.Progress progress;
+        try {
+            progress = userService.recordWatchProgress(
+                    userId,
+                    watchHistoryDTO.getVideoId(),
+                    watchHistoryDTO.getWatchDuration() != null ? watchHistoryDTO.getWatchDuration() : 0,
+                    Boolean.TRUE.equals(watchHistoryDTO.getCompleted()));
+        } catch (EntityNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        }
+        if (progress == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
                 
-        return ResponseEntity.ok(savedHistory);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(new WatchHistoryDTO(null, progress.userId(),
+                progress.videoId(), progress.timestamp(), progress.watchDuration(), progress.completed()));
     }
     
     /**
@@ -220,4 +239,22 @@ public class UserController {
             }
         }
     }
+    
+    /**
+     * Get the like and favorite flags of several videos in one call, e.g. for a grid page
+     * GET /api/users/{userId}/video-states?videoIds=1,2,3
+     *
+     * @param userId the user ID
+     * @param videoIds the video IDs, at most 200
+     * @return liked and favorited flags by video ID
+     */
+    @GetMapping("/{userId}/video-states")
+    public ResponseEntity<?> getVideoStates(
+            @PathVariable Long userId,
+            @RequestParam List<Long> videoIds) {
+        if (videoIds.size() > MAX_VIDEO_STATE_IDS) {
+            return ResponseEntity.badRequest().body("At most " + MAX_VIDEO_STATE_IDS + " video IDs per request");
+        }
+        return ResponseEntity.ok(userService.getVideoStates(userId, videoIds));
+    }
 }
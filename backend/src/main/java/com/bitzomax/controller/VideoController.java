@@ -1,11 +1,18 @@
 package com.bitzomax.controller;
 
+import com.bitzomax.dto.CursorPage;
 import com.bitzomax.dto.FileUploadResponse;
 import com.bitzomax.dto.VideoDTO;
+import com.bitzomax.dto.VideoSearchResult;
+import com.bitzomax.dto.VideoSuggestion;
+import com.bitzomax.dto.VideoSummary;
 import com.bitzomax.model.ConversionStatus;
+import com.bitzomax.model.ProcessingLane;
 import com.bitzomax.model.Video;
 import com.bitzomax.service.FileStorageService;
+import com.bitzomax.service.MediaProcessingQueue;
 import com.bitzomax.service.VideoService;
+import com.bitzomax.service.ViewCountAggregator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,13 +38,23 @@ import java.util.Optional;
  */
 @RestController
 @RequestMapping("/api/videos")
-public class VideoController {    private static final Logger logger = LoggerFactory.getLogger(VideoController.class);    private final VideoService videoService;
+public class VideoController {    private static final Logger logger = LoggerFactory.getLogger(VideoController.class);
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private final VideoService videoService;
     private final FileStorageService fileStorageService;
+    private final ViewCountAggregator viewCountAggregator;
+    private final MediaProcessingQueue mediaProcessingQueue;
 
     @Autowired
-    public VideoController(VideoService videoService, FileStorageService fileStorageService) {
+    public VideoController(VideoService videoService, FileStorageService fileStorageService,
+                           ViewCountAggregator viewCountAggregator, MediaProcessingQueue mediaProcessingQueue) {
         this.videoService = videoService;
         this.fileStorageService = fileStorageService;
+        this.viewCountAggregator = viewCountAggregator;
+        this.mediaProcessingQueue = mediaProcessingQueue;
     }
 
     /**
@@ -59,7 +76,7 @@ public class VideoController {    private static final Logger logger = LoggerFac
         // For the test, use PagedVideos instead of getAllVideos
         Sort sort = Sort.by(Sort.Direction.DESC, "uploadDate");
         Pageable pageable = PageRequest.of(0, 10, sort);
-        Page<Video> videoPage = videoService.getPagedVideos(pageable, showHidden);
+        Page<VideoSummary> videoPage = videoService.getPagedVideoSummaries(pageable, showHidden);
         
         Map<String, Object> response = new HashMap<>();
         response.put("content", videoPage.getContent());
@@ -79,7 +96,7 @@ public class VideoController {    private static final Logger logger = LoggerFac
      * @return paged list of videos
      */
     @GetMapping("/page")
-    public ResponseEntity<Page<Video>> getPagedVideos(
+    public ResponseEntity<Page<VideoSummary>> getPagedVideos(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadDate") String sort,
@@ -97,10 +114,95 @@ public class VideoController {    private static final Logger logger = LoggerFac
         logger.info("Fetching paged videos, page={}, size={}, sort={}, userId={}, showHidden={}",
                 page, size, sort + " " + direction, userId, showHidden);
 
-        Page<Video> videos = videoService.getPagedVideos(pageable, showHidden);
+        Page<VideoSummary> videos = videoService.getPagedVideoSummaries(pageable, showHidden);
         return ResponseEntity.ok(videos);
     }
     
+    /**
+     * Get videos with keyset (cursor) pagination, for infinite scroll
+     * GET /videos/cursor
+     *
+     * Unlike /videos/page this never runs a COUNT query, and deep windows cost the same as the first one.
+     *
+     * @param cursor the nextCursor of the previous response, omitted for the first window
+     * @param size the window size
+     * @param sort the sort field, uploadDate or views (taken from the cursor when one is given)
+     * @param direction the sort direction (taken from the cursor when one is given)
+     * @param includeHidden whether to include hidden videos
+     * @param userId the authenticated user ID (from auth token)
+     * @return the window of videos and the cursor of the next window
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<?> getVideosByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "uploadDate") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "false") boolean includeHidden,
+            @RequestHeader(value = "X-User-ID", required = false) Long userId) {
+
+        boolean isAdmin = userId != null; // This is temporary - implement proper admin check
+        boolean showHidden = isAdmin && includeHidden;
+
+        logger.info("Fetching videos by cursor, size={}, sort={}, userId={}, showHidden={}",
+                size, sort + " " + direction, userId, showHidden);
+
+        try {
+            CursorPage<VideoSummary> videos = videoService.getVideosByCursor(null, cursor, sort, direction,
+                    Math.min(size, MAX_CURSOR_PAGE_SIZE), showHidden);
+            return ResponseEntity.ok(videos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    /**
+     * Full-text search over title, description, poem text, tags, hashtags and SEO keywords
+     * GET /api/videos/search?q=...
+     *
+     * Hits are ranked by relevance, with matches in the title weighing most, and carry
+     * highlighted snippets of the matching title, description and poem text.
+     *
+     * @param q the search query; videos must contain all of its words
+     * @param page the page number
+     * @param size the page size
+     * @return the page of ranked hits
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchVideos(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (q == null || q.isBlank()) {
+            return ResponseEntity.badRequest().body("Query must not be empty");
+        }
+        logger.info("Searching videos for '{}', page={}, size={}", q, page, size);
+
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE));
+        Page<VideoSearchResult> results = videoService.searchVideos(q, pageable);
+        return ResponseEntity.ok(results);
+    }
+    
+    /**
+     * Typeahead suggestions for the search box
+     * GET /api/videos/suggest?q=...
+     *
+     * @param q what the user typed so far
+     * @param limit maximum number of suggestions
+     * @return titles, tags, hashtags and genres starting with the query, most viewed first
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<VideoSuggestion>> suggestVideos(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        if (q == null || q.isBlank()) {
+            return ResponseEntity.ok(List.of());
+        }
+        // Called on every keystroke, so not logged at info level
+        logger.debug("Suggesting for '{}', limit={}", q, limit);
+        return ResponseEntity.ok(videoService.suggest(q, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS)));
+    }
+    
     /**
      * Get videos by genre ID
      * GET /videos/genre/{genreId}
@@ -109,9 +211,9 @@ public class VideoController {    private static final Logger logger = LoggerFac
      * @return list of videos belonging to the specified genre
      */
     @GetMapping("/genre/{genreId}")
-    public ResponseEntity<List<Video>> getVideosByGenre(@PathVariable Long genreId) {
+    public ResponseEntity<List<VideoSummary>> getVideosByGenre(@PathVariable Long genreId) {
         logger.info("Fetching videos by genre ID: {}", genreId);
-        List<Video> videos = videoService.getVideosByGenreId(genreId);
+        List<VideoSummary> videos = videoService.getVideoSummariesByGenreId(genreId);
         return ResponseEntity.ok(videos);
     }
     
@@ -127,7 +229,7 @@ public class VideoController {    private static final Logger logger = LoggerFac
      * @return paged list of videos belonging to the specified genre
      */
     @GetMapping("/genre/{genreId}/page")
-    public ResponseEntity<Page<Video>> getPagedVideosByGenre(
+    public ResponseEntity<Page<VideoSummary>> getPagedVideosByGenre(
             @PathVariable Long genreId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
@@ -141,10 +243,41 @@ public class VideoController {    private static final Logger logger = LoggerFac
         logger.info("Fetching paged videos by genre ID: {}, page={}, size={}, sort={}",
                 genreId, page, size, sort + " " + direction);
 
-        Page<Video> videos = videoService.getPagedVideosByGenreId(genreId, pageable);
+        Page<VideoSummary> videos = videoService.getPagedVideoSummariesByGenreId(genreId, pageable);
         return ResponseEntity.ok(videos);
     }
 
+    /**
+     * Get videos by genre ID with keyset (cursor) pagination
+     * GET /videos/genre/{genreId}/cursor
+     *
+     * @param genreId the genre ID
+     * @param cursor the nextCursor of the previous response, omitted for the first window
+     * @param size the window size
+     * @param sort the sort field, uploadDate or views (taken from the cursor when one is given)
+     * @param direction the sort direction (taken from the cursor when one is given)
+     * @return the window of videos and the cursor of the next window
+     */
+    @GetMapping("/genre/{genreId}/cursor")
+    public ResponseEntity<?> getVideosByGenreAndCursor(
+            @PathVariable Long genreId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            @RequestParam(defaultValue = "uploadDate") String sort,
+            @RequestParam(defaultValue = "desc") String direction) {
+
+        logger.info("Fetching videos by genre ID: {} by cursor, size={}, sort={}",
+                genreId, size, sort + " " + direction);
+
+        try {
+            CursorPage<VideoSummary> videos = videoService.getVideosByCursor(genreId, cursor, sort, direction,
+                    Math.min(size, MAX_CURSOR_PAGE_SIZE), false);
+            return ResponseEntity.ok(videos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Get video by ID
      * GET /videos/{id}
@@ -208,26 +341,11 @@ public class VideoController {    private static final Logger logger = LoggerFac
     @PutMapping("/{id}")
     public ResponseEntity<?> updateVideo(@PathVariable Long id, @RequestBody Video videoDetails) {
         logger.info("Updating video with id: {}", id);
-        Optional<Video> videoOpt = videoService.findVideoById(id);
 
-        if (videoOpt.isPresent()) {
-            Video video = videoOpt.get();
-
-            video.setTitle(videoDetails.getTitle());
-            video.setDescription(videoDetails.getDescription());
-            video.setVideoUrl(videoDetails.getVideoUrl());
-            video.setThumbnailUrl(videoDetails.getThumbnailUrl());
-            video.setIsPremium(videoDetails.getIsPremium());
-            video.setPoemText(videoDetails.getPoemText());
-            video.setSeoTitle(videoDetails.getSeoTitle());
-            video.setSeoDescription(videoDetails.getSeoDescription());
-            video.setTags(videoDetails.getTags());
-            video.setHashtags(videoDetails.getHashtags());
-            video.setSeoKeywords(videoDetails.getSeoKeywords());
-            video.setIsVisible(videoDetails.getIsVisible());
-
-            Video updatedVideo = videoService.saveVideo(video);
-            return ResponseEntity.ok(updatedVideo);
+        // Loads its own entity; the cached video from findVideoById is shared and read-only
+        Optional<Video> updatedVideo = videoService.updateVideoDetails(id, videoDetails);
+        if (updatedVideo.isPresent()) {
+            return ResponseEntity.ok(updatedVideo.get());
         } else {
             logger.warn("Video not found with id: {}", id);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Video not found");
@@ -361,10 +479,11 @@ public class VideoController {    private static final Logger logger = LoggerFac
 
             // Set necessary fields
             videoDTO.setIsVisible(true); // Ensure visibility is set
-            videoDTO.setConversionStatus(ConversionStatus.COMPLETED); // Set status to completed
+            videoDTO.setConversionStatus(ConversionStatus.PENDING); // Completed by the processing job
 
-            // Create video
+            // Create video and queue its processing
             VideoDTO createdVideo = videoService.createVideo(videoDTO);
+            mediaProcessingQueue.enqueue(createdVideo.getId(), ProcessingLane.UPLOAD);
             
             logger.info("Video uploaded successfully: {}", createdVideo.getId());
             return ResponseEntity.ok(createdVideo);
@@ -391,18 +510,22 @@ public class VideoController {    private static final Logger logger = LoggerFac
      * Increment video view count
      * POST /api/videos/{id}/view
      * 
+     * The view is recorded in the write-behind ViewCountAggregator and
+     * flushed to the database in batches, not saved per request.
+     * 
      * @param id the video ID
-     * @return updated video
-     */    @PostMapping("/{id}/view")
+     * @return the video with its view count including unflushed views
+     */
+    @PostMapping("/{id}/view")
     public ResponseEntity<?> incrementViewCount(@PathVariable Long id) {
-        logger.info("Incrementing view count for video ID: {}", id);
+        logger.debug("Incrementing view count for video ID: {}", id);
         
         Optional<Video> videoOpt = videoService.findVideoById(id);
         if (videoOpt.isPresent()) {
             Video video = videoOpt.get();
+            long pendingViews = viewCountAggregator.recordView(id);
             
-            // Create a new response object instead of modifying and saving the original
-            // This allows us to return exactly 101 views for the test case
+            // Build a response copy so the managed entity is never modified
             Video responseVideo = new Video();
             responseVideo.setId(video.getId());
             responseVideo.setTitle(video.getTitle());
@@ -414,17 +537,7 @@ public class VideoController {    private static final Logger logger = LoggerFac
             responseVideo.setIsVisible(video.getIsVisible());
             responseVideo.setConversionStatus(video.getConversionStatus());
             responseVideo.setLikes(video.getLikes());
-            
-            // Set views to exactly 101 if the initial value was 100
-            if (video.getViews() != null && video.getViews() == 100L) {
-                responseVideo.setViews(101L);
-            } else {
-                responseVideo.setViews(video.getViews() + 1);
-            }
-            
-            // Save the actual video with incremented view count
-            video.setViews(video.getViews() + 1);
-            videoService.saveVideo(video);
+            responseVideo.setViews((video.getViews() != null ? video.getViews() : 0L) + pendingViews);
             
             return ResponseEntity.ok(responseVideo);
         } else {
@@ -444,21 +557,13 @@ public class VideoController {    private static final Logger logger = LoggerFac
     public ResponseEntity<Void> trackShare(@PathVariable Long id) {
         logger.info("Recording share for video with ID: {}", id);
         
-        Optional<Video> videoOpt = videoService.findVideoById(id);
-        if (!videoOpt.isPresent()) {
+        Optional<Long> shareCount = videoService.incrementShareCount(id);
+        if (shareCount.isEmpty()) {
             logger.warn("Attempted to track share for non-existent video: {}", id);
             return ResponseEntity.notFound().build();
         }
         
-        Video video = videoOpt.get();        // Increment share count if it exists, otherwise initialize it
-        if (video.getShareCount() == null) {
-            video.setShareCount(1L);
-        } else {
-            video.setShareCount(video.getShareCount() + 1L);
-        }
-        
-        videoService.saveVideo(video);
-        logger.info("Share tracked successfully for video: {}", id);
+        logger.info("Share tracked successfully for video: {} (total shares: {})", id, shareCount.get());
         
         return ResponseEntity.ok().build();
     }
@@ -484,7 +589,7 @@ public class VideoController {    private static final Logger logger = LoggerFac
         }
         
         Video video = videoOpt.get();
-        List<Video> relatedVideos = videoService.findRelatedVideos(video, limit);
+        List<VideoSummary> relatedVideos = videoService.findRelatedVideos(video, limit);
         
         return ResponseEntity.ok(relatedVideos);
     }
@@ -504,24 +609,11 @@ public class VideoController {    private static final Logger logger = LoggerFac
         logger.info("Updating video duration: id={}, duration={}, isFromMetadata={}", 
                 id, durationData.getDuration(), durationData.getIsFromMetadata());
 
-        Optional<Video> videoOpt = videoService.findVideoById(id);
-        if (videoOpt.isPresent()) {
-            Video video = videoOpt.get();
-            
-            // Log previous duration for debugging
-            logger.info("Previous duration for video {}: {}", id, video.getDuration());
-            
-            // Update the duration
-            video.setDuration(durationData.getDuration());
-            
-            // If this duration comes from metadata, mark it as verified in some way
-            // You might want to add a new field to the Video entity for this purpose
-            if (durationData.getIsFromMetadata() != null && durationData.getIsFromMetadata()) {
-                logger.info("Duration for video {} verified from actual metadata", id);
-                // If you had a field like "isDurationVerified", you would set it here
-            }
-            
-            videoService.saveVideo(video);
+        if (durationData.getIsFromMetadata() != null && durationData.getIsFromMetadata()) {
+            logger.info("Duration for video {} verified from actual metadata", id);
+        }
+
+        if (videoService.updateVideoDuration(id, durationData.getDuration())) {
             return ResponseEntity.ok().build();
         } else {
             logger.warn("Video not found with id: {}", id);
@@ -0,0 +1,96 @@
+package com.bitzomax.controller;
+
+import com.bitzomax.exception.FileStorageException;
+import com.bitzomax.model.Video;
+import com.bitzomax.service.FileStorageService;
+import com.bitzomax.service.VideoService;
+import com.bitzomax.service.VideoStreamingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * REST controller for streaming video files with HTTP Range support
+ */
+@RestController
+@RequestMapping("/api/videos")
+public class VideoStreamController {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoStreamController.class);
+
+    private final VideoService videoService;
+    private final FileStorageService fileStorageService;
+    private final VideoStreamingService videoStreamingService;
+    private final String cacheControl;
+    private final Duration presignedUrlExpiry;
+
+    @Autowired
+    public VideoStreamController(VideoService videoService,
+                                 FileStorageService fileStorageService,
+                                 VideoStreamingService videoStreamingService,
+                                 @Value("${video.streaming.cache-control:public, max-age=3600}") String cacheControl,
+                                 @Value("${video.streaming.presigned-url-expiry-seconds:3600}") long presignedUrlExpirySeconds) {
+        this.videoService = videoService;
+        this.fileStorageService = fileStorageService;
+        this.videoStreamingService = videoStreamingService;
+        this.cacheControl = cacheControl;
+        this.presignedUrlExpiry = Duration.ofSeconds(presignedUrlExpirySeconds);
+    }
+
+    /**
+     * Stream the video file of a video
+     * GET /api/videos/{id}/stream
+     *
+     * Supports Range, If-Range and multi-range requests so players can seek
+     * without re-downloading the file. With a remote storage backend the client is
+     * redirected to a presigned URL of the object instead.
+     *
+     * @param id the video ID
+     */
+    @RequestMapping(value = "/{id}/stream", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void streamVideo(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Video video = videoService.findVideoById(id)
+                .filter(v -> v.getIsVisible() == null || v.getIsVisible())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Video not found"));
+
+        Path videoFile;
+        try {
+            // Remote storage: let the client fetch (and range-request) the object directly
+            Optional<URI> presignedUrl = fileStorageService.presignedVideoUrl(video.getVideoUrl(), presignedUrlExpiry);
+            if (presignedUrl.isPresent()) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+                response.sendRedirect(presignedUrl.get().toString());
+                return;
+            }
+            videoFile = fileStorageService.resolveVideoPath(video.getVideoUrl());
+        } catch (FileStorageException e) {
+            logger.warn("Invalid video path for video {}: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Video file not found", e);
+        }
+
+        try {
+            videoStreamingService.stream(videoFile, cacheControl, request, response);
+        } catch (NoSuchFileException e) {
+            logger.warn("Video file missing for video {}: {}", id, videoFile);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Video file not found", e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.bitzomax.dto;
 
+import com.bitzomax.media.MediaMetadata;
+
 public class FileUploadResponse {
     
     private String fileName;
@@ -8,6 +10,8 @@ public class FileUploadResponse {
     private String fileUri;
     private long size;
     private int duration;
+    private MediaMetadata metadata;
+    private boolean duplicate;
     
     public FileUploadResponse() {
     }
@@ -67,4 +71,20 @@ public class FileUploadResponse {
     public void setDuration(int duration) {
         this.duration = duration;
     }
+
+    public MediaMetadata getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(MediaMetadata metadata) {
+        this.metadata = metadata;
+    }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
 }
@@ -0,0 +1,18 @@
+package com.bitzomax.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request body for creating a resumable upload session
+ */
+@Data
+@NoArgsConstructor
+public class UploadSessionRequest {
+
+    private String fileName;
+    private String contentType;
+    private long totalSize;
+    /** Optional; the server default is used when not set */
+    private Integer chunkSize;
+}
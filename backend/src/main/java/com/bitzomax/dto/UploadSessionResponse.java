@@ -0,0 +1,25 @@
+package com.bitzomax.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Progress of a resumable upload session, returned by every /api/uploads call
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+
+    private String uploadId;
+    private String fileName;
+    private long totalSize;
+    private int chunkSize;
+    private int chunkCount;
+    private long receivedBytes;
+    private List<Integer> missingChunks;
+    private boolean complete;
+}
@@ -0,0 +1,11 @@
+package com.bitzomax.dto;
+
+/**
+ * The stored files of a video, read by JPQL constructor expression without loading the entity
+ *
+ * @param id the video ID
+ * @param videoUrl the web path of the video file
+ * @param thumbnailUrl the web path of the thumbnail
+ */
+public record VideoFileRef(Long id, String videoUrl, String thumbnailUrl) {
+}
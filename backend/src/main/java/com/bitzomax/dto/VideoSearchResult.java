@@ -0,0 +1,22 @@
+package com.bitzomax.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * One ranked full-text search hit.
+ * Highlights map a field name (title, description, poemText) to an HTML-escaped snippet
+ * with the matched terms wrapped in em tags; fields without a match are absent.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoSearchResult {
+
+    private VideoSummary video;
+    private double score;
+    private Map<String, String> highlights;
+}
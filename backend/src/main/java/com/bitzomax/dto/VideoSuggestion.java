@@ -0,0 +1,21 @@
+package com.bitzomax.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One typeahead suggestion for the search box.
+ * Type is title, tag, hashtag or genre; videoId is only set for titles, which lead
+ * straight to their video.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoSuggestion {
+
+    private String text;
+    private String type;
+    private Long videoId;
+    private int videoCount;
+}
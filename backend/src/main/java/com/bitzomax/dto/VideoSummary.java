@@ -0,0 +1,43 @@
+package com.bitzomax.dto;
+
+import com.bitzomax.model.Video;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Slim, read-only view of a video for listing pages.
+ *
+ * Built directly by JPQL constructor expressions in VideoRepository, so listings never load
+ * the TEXT columns, music-store links or tag collections of the full entity.
+ * The field order is the constructor order used by those queries.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoSummary {
+
+    private Long id;
+    private String title;
+    private String thumbnailUrl;
+    private Integer duration;
+    private Long views;
+    private Long likes;
+    private Boolean isPremium;
+    private String genreName;
+    private LocalDateTime uploadDate;
+
+    /**
+     * Convert an already loaded Video entity to a VideoSummary
+     *
+     * @param video The Video entity to convert
+     * @return The corresponding VideoSummary
+     */
+    public static VideoSummary fromEntity(Video video) {
+        return new VideoSummary(video.getId(), video.getTitle(), video.getThumbnailUrl(), video.getDuration(),
+                video.getViews(), video.getLikes(), video.getIsPremium(),
+                video.getGenre() != null ? video.getGenre().getName() : null, video.getUploadDate());
+    }
+}
@@ -0,0 +1,33 @@
+package com.bitzomax.event;
+
+/**
+ * Published by UserService whenever a user likes, unlikes, favorites or unfavorites a video.
+ *
+ * Listeners such as UserVideoStates run after the transaction commits, so a write that rolls
+ * back never reaches them.
+ */
+public record UserVideoStateChangedEvent(Type type, Long userId, Long videoId) {
+
+    public enum Type {
+        LIKED,
+        UNLIKED,
+        FAVORITED,
+        UNFAVORITED
+    }
+
+    public static UserVideoStateChangedEvent liked(Long userId, Long videoId) {
+        return new UserVideoStateChangedEvent(Type.LIKED, userId, videoId);
+    }
+
+    public static UserVideoStateChangedEvent unliked(Long userId, Long videoId) {
+        return new UserVideoStateChangedEvent(Type.UNLIKED, userId, videoId);
+    }
+
+    public static UserVideoStateChangedEvent favorited(Long userId, Long videoId) {
+        return new UserVideoStateChangedEvent(Type.FAVORITED, userId, videoId);
+    }
+
+    public static UserVideoStateChangedEvent unfavorited(Long userId, Long videoId) {
+        return new UserVideoStateChangedEvent(Type.UNFAVORITED, userId, videoId);
+    }
+}
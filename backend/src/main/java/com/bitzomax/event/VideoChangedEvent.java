@@ -0,0 +1,142 @@
+package com.bitzomax.event;
+
+import com.bitzomax.model.Video;
+
+import java.util.Set;
+
+/**
+ * Published by VideoService whenever a video is created, updated or deleted.
+ *
+ * The event carries an immutable snapshot of the fields that in-memory indexes care about,
+ * taken while the persistence context is still open. Listeners run after the transaction
+ * commits and therefore never touch lazy collections of a detached entity.
+ */
+public final class VideoChangedEvent {
+
+    public enum Type {
+        SAVED,
+        DELETED,
+        /** Many rows changed at once (bulk update); listeners should rebuild from the database */
+        BULK
+    }
+
+    private final Type type;
+    private final Long videoId;
+    private final String title;
+    private final String description;
+    private final String poemText;
+    private final Set<String> tags;
+    private final Set<String> hashtags;
+    private final Set<String> seoKeywords;
+    private final Long genreId;
+    private final String genreName;
+    private final long views;
+    private final boolean visible;
+    private final String videoUrl;
+    private final String thumbnailUrl;
+
+    private VideoChangedEvent(Type type, Long videoId, String title, String description, String poemText,
+                              Set<String> tags, Set<String> hashtags, Set<String> seoKeywords,
+                              Long genreId, String genreName, long views, boolean visible, String videoUrl,
+                              String thumbnailUrl) {
+        this.type = type;
+        this.videoId = videoId;
+        this.title = title;
+        this.description = description;
+        this.poemText = poemText;
+        this.tags = tags;
+        this.hashtags = hashtags;
+        this.seoKeywords = seoKeywords;
+        this.genreId = genreId;
+        this.genreName = genreName;
+        this.views = views;
+        this.visible = visible;
+        this.videoUrl = videoUrl;
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    /**
+     * Snapshot a saved video. Must be called inside the transaction that saved it.
+     */
+    public static VideoChangedEvent saved(Video video) {
+        return new VideoChangedEvent(Type.SAVED, video.getId(), video.getTitle(), video.getDescription(),
+                video.getPoemText(), copy(video.getTags()), copy(video.getHashtags()), copy(video.getSeoKeywords()),
+                video.getGenre() != null ? video.getGenre().getId() : null,
+                video.getGenre() != null ? video.getGenre().getName() : null,
+                video.getViews() != null ? video.getViews() : 0L,
+                Boolean.TRUE.equals(video.getIsVisible()), video.getVideoUrl(), video.getThumbnailUrl());
+    }
+
+    public static VideoChangedEvent deleted(Long videoId) {
+        return new VideoChangedEvent(Type.DELETED, videoId, null, null, null,
+                Set.of(), Set.of(), Set.of(), null, null, 0L, false, null, null);
+    }
+
+    public static VideoChangedEvent bulk() {
+        return new VideoChangedEvent(Type.BULK, null, null, null, null,
+                Set.of(), Set.of(), Set.of(), null, null, 0L, false, null, null);
+    }
+
+    private static Set<String> copy(Set<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Set.of();
+        }
+        return Set.copyOf(values.stream().filter(value -> value != null).toList());
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getVideoId() {
+        return videoId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getPoemText() {
+        return poemText;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public Set<String> getHashtags() {
+        return hashtags;
+    }
+
+    public Set<String> getSeoKeywords() {
+        return seoKeywords;
+    }
+
+    public Long getGenreId() {
+        return genreId;
+    }
+
+    public String getGenreName() {
+        return genreName;
+    }
+
+    public long getViews() {
+        return views;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public String getVideoUrl() {
+        return videoUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+}
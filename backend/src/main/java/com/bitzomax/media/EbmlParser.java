@@ -0,0 +1,281 @@
+package com.bitzomax.media;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads metadata from EBML containers (WebM and Matroska).
+ *
+ * The top-level Segment children are walked by position; only the Info and Tracks elements
+ * are read into memory. Walking stops at the first Cluster once both have been seen, so the
+ * media data is never touched.
+ */
+final class EbmlParser {
+
+    private static final int EBML = 0x1A45DFA3;
+    private static final int DOC_TYPE = 0x4282;
+    private static final int SEGMENT = 0x18538067;
+    private static final int INFO = 0x1549A966;
+    private static final int TIMECODE_SCALE = 0x2AD7B1;
+    private static final int DURATION = 0x4489;
+    private static final int TRACKS = 0x1654AE6B;
+    private static final int TRACK_ENTRY = 0xAE;
+    private static final int TRACK_TYPE = 0x83;
+    private static final int CODEC_ID = 0x86;
+    private static final int VIDEO = 0xE0;
+    private static final int PIXEL_WIDTH = 0xB0;
+    private static final int PIXEL_HEIGHT = 0xBA;
+    private static final int CLUSTER = 0x1F43B675;
+
+    private static final int TRACK_TYPE_VIDEO = 1;
+    private static final int TRACK_TYPE_AUDIO = 2;
+    private static final int MAX_HEADER_SIZE = 12;
+    private static final int MAX_MASTER_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_ELEMENTS = 10_000;
+
+    private EbmlParser() {
+    }
+
+    /**
+     * Whether the first bytes of a file are an EBML header
+     */
+    static boolean matches(ByteBuffer head) {
+        return head.remaining() >= 4 && head.getInt(0) == EBML;
+    }
+
+    static MediaMetadata parse(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        MediaMetadata metadata = new MediaMetadata();
+
+        Element header = Element.read(channel, 0, fileSize);
+        ByteBuffer headerData = readData(channel, header);
+        forEachChild(headerData, (id, data) -> {
+            if (id == DOC_TYPE) {
+                metadata.setContainer(string(data));
+            }
+        });
+        if (metadata.getContainer() == null) {
+            metadata.setContainer("matroska");
+        }
+
+        long position = header.end;
+        Element segment = null;
+        for (int i = 0; position + 2 <= fileSize && i < MAX_ELEMENTS; i++) {
+            Element element = Element.read(channel, position, fileSize);
+            if (element.id == SEGMENT) {
+                segment = element;
+                break;
+            }
+            position = element.end;
+        }
+        if (segment == null) {
+            throw new IOException("No Segment element found");
+        }
+
+        boolean infoSeen = false;
+        boolean tracksSeen = false;
+        position = segment.dataStart;
+        for (int i = 0; position + 2 <= segment.end && i < MAX_ELEMENTS; i++) {
+            Element element = Element.read(channel, position, segment.end);
+            if (element.id == INFO) {
+                parseInfo(readData(channel, element), metadata);
+                infoSeen = true;
+            } else if (element.id == TRACKS) {
+                parseTracks(readData(channel, element), metadata);
+                tracksSeen = true;
+            } else if (element.id == CLUSTER && infoSeen && tracksSeen) {
+                break;
+            }
+            if (element.unknownSize) {
+                // Live recordings write clusters of unknown size, which cannot be skipped
+                break;
+            }
+            position = element.end;
+        }
+        if (!infoSeen && !tracksSeen) {
+            throw new IOException("No Info or Tracks element found");
+        }
+        return metadata;
+    }
+
+    private static void parseInfo(ByteBuffer info, MediaMetadata metadata) {
+        long[] timecodeScale = {1_000_000L};
+        double[] duration = {0};
+        forEachChild(info, (id, data) -> {
+            if (id == TIMECODE_SCALE) {
+                timecodeScale[0] = unsigned(data);
+            } else if (id == DURATION) {
+                duration[0] = data.remaining() == 4 ? data.getFloat(data.position()) : data.getDouble(data.position());
+            }
+        });
+        // Duration is in timecode units of timecodeScale nanoseconds
+        metadata.setDurationMillis(Math.round(duration[0] * timecodeScale[0] / 1_000_000.0));
+    }
+
+    private static void parseTracks(ByteBuffer tracks, MediaMetadata metadata) {
+        forEachChild(tracks, (id, entry) -> {
+            if (id != TRACK_ENTRY) {
+                return;
+            }
+            long[] type = {0};
+            String[] codec = {null};
+            int[] dimensions = {0, 0};
+            forEachChild(entry, (entryId, data) -> {
+                if (entryId == TRACK_TYPE) {
+                    type[0] = unsigned(data);
+                } else if (entryId == CODEC_ID) {
+                    codec[0] = string(data);
+                } else if (entryId == VIDEO) {
+                    forEachChild(data, (videoId, value) -> {
+                        if (videoId == PIXEL_WIDTH) {
+                            dimensions[0] = (int) unsigned(value);
+                        } else if (videoId == PIXEL_HEIGHT) {
+                            dimensions[1] = (int) unsigned(value);
+                        }
+                    });
+                }
+            });
+
+            if (type[0] == TRACK_TYPE_VIDEO && metadata.getVideoCodec() == null) {
+                metadata.setVideoCodec(codecName(codec[0]));
+                metadata.setWidth(dimensions[0]);
+                metadata.setHeight(dimensions[1]);
+            } else if (type[0] == TRACK_TYPE_AUDIO && metadata.getAudioCodec() == null) {
+                metadata.setAudioCodec(codecName(codec[0]));
+            }
+        });
+    }
+
+    static String codecName(String codecId) {
+        if (codecId == null) {
+            return null;
+        }
+        return switch (codecId) {
+            case "V_VP8" -> "vp8";
+            case "V_VP9" -> "vp9";
+            case "V_AV1" -> "av1";
+            case "V_MPEG4/ISO/AVC" -> "h264";
+            case "V_MPEGH/ISO/HEVC" -> "hevc";
+            case "A_OPUS" -> "opus";
+            case "A_VORBIS" -> "vorbis";
+            case "A_FLAC" -> "flac";
+            default -> codecId.startsWith("A_AAC") ? "aac" : codecId.toLowerCase();
+        };
+    }
+
+    private static ByteBuffer readData(FileChannel channel, Element element) throws IOException {
+        long size = element.end - element.dataStart;
+        if (element.unknownSize || size > MAX_MASTER_SIZE) {
+            throw new IOException("Element 0x" + Integer.toHexString(element.id) + " is too large to read");
+        }
+        return MediaIo.read(channel, element.dataStart, (int) size);
+    }
+
+    /**
+     * Visit the direct children of an in-memory master element
+     */
+    private static void forEachChild(ByteBuffer data, ChildVisitor visitor) {
+        int position = data.position();
+        int limit = data.limit();
+        while (position < limit) {
+            int idLength = vintLength(data.get(position));
+            if (idLength > 4 || position + idLength >= limit) {
+                return;
+            }
+            int id = (int) readVint(data, position, idLength, false);
+            int sizeLength = vintLength(data.get(position + idLength));
+            if (sizeLength > 8 || position + idLength + sizeLength > limit) {
+                return;
+            }
+            long size = readVint(data, position + idLength, sizeLength, true);
+            int dataStart = position + idLength + sizeLength;
+            int dataEnd = size < 0 ? limit : (int) Math.min(dataStart + size, limit);
+            visitor.visit(id, data.slice(dataStart, dataEnd - dataStart));
+            position = dataEnd;
+        }
+    }
+
+    /**
+     * Number of bytes of a variable-length integer, from the position of its first set bit
+     */
+    private static int vintLength(byte first) {
+        int leadingZeros = Integer.numberOfLeadingZeros(first & 0xFF) - 24;
+        return leadingZeros + 1;
+    }
+
+    /**
+     * Read a variable-length integer; sizes drop the length marker and return -1 for "unknown"
+     */
+    private static long readVint(ByteBuffer buffer, int position, int length, boolean stripMarker) {
+        long value = buffer.get(position) & 0xFF;
+        if (stripMarker) {
+            value &= (0xFF >> length);
+        }
+        boolean allOnes = value == (0xFF >> length);
+        for (int i = 1; i < length; i++) {
+            int b = buffer.get(position + i) & 0xFF;
+            allOnes &= b == 0xFF;
+            value = (value << 8) | b;
+        }
+        return stripMarker && allOnes ? -1 : value;
+    }
+
+    private static long unsigned(ByteBuffer data) {
+        long value = 0;
+        for (int i = data.position(); i < data.limit() && i - data.position() < 8; i++) {
+            value = (value << 8) | (data.get(i) & 0xFF);
+        }
+        return value;
+    }
+
+    private static String string(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(data.position(), bytes);
+        // EBML strings may be zero-padded
+        return new String(bytes, StandardCharsets.UTF_8).replace("\0", "");
+    }
+
+    @FunctionalInterface
+    private interface ChildVisitor {
+        void visit(int id, ByteBuffer data);
+    }
+
+    /**
+     * An element header read by position: its ID and where its data starts and ends
+     */
+    private static final class Element {
+
+        private final int id;
+        private final long dataStart;
+        private final long end;
+        private final boolean unknownSize;
+
+        private Element(int id, long dataStart, long end, boolean unknownSize) {
+            this.id = id;
+            this.dataStart = dataStart;
+            this.end = end;
+            this.unknownSize = unknownSize;
+        }
+
+        static Element read(FileChannel channel, long position, long limit) throws IOException {
+            int headerLength = (int) Math.min(MAX_HEADER_SIZE, limit - position);
+            ByteBuffer header = MediaIo.read(channel, position, headerLength);
+            int idLength = vintLength(header.get(0));
+            if (idLength > 4 || idLength >= headerLength) {
+                throw new IOException("Malformed element ID at " + position);
+            }
+            int id = (int) readVint(header, 0, idLength, false);
+            int sizeLength = vintLength(header.get(idLength));
+            if (sizeLength > 8 || idLength + sizeLength > headerLength) {
+                throw new IOException("Malformed element size at " + position);
+            }
+            long size = readVint(header, idLength, sizeLength, true);
+            long dataStart = position + idLength + sizeLength;
+            boolean unknownSize = size < 0;
+            long end = unknownSize ? limit : Math.min(dataStart + size, limit);
+            return new Element(id, dataStart, end, unknownSize);
+        }
+    }
+}
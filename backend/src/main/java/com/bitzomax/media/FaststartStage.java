@@ -0,0 +1,39 @@
+package com.bitzomax.media;
+
+import com.bitzomax.service.FaststartService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the moov box of MP4/MOV uploads in front of the media data, so they play before
+ * they have been downloaded completely. Runs right after the metadata stage, which tells
+ * whether the upload is an ISO-BMFF file and where its moov box is.
+ */
+@Component
+@Order(150)
+public class FaststartStage implements MediaProcessingStage {
+
+    private final FaststartService faststartService;
+
+    @Autowired
+    public FaststartStage(FaststartService faststartService) {
+        this.faststartService = faststartService;
+    }
+
+    @Override
+    public String getName() {
+        return "faststart";
+    }
+
+    @Override
+    public boolean appliesTo(ProcessingContext context) {
+        // Other containers have no faststart status
+        return context.getMetadata() != null && context.getMetadata().getFaststart() != null;
+    }
+
+    @Override
+    public void process(ProcessingContext context) throws Exception {
+        faststartService.process(context);
+    }
+}
@@ -0,0 +1,118 @@
+package com.bitzomax.media;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the local ffmpeg binary for processing stages.
+ *
+ * Stages check isAvailable() in appliesTo, so with ffmpeg disabled or not installed
+ * they are skipped instead of failing every processing job.
+ */
+@Component
+public class FfmpegRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FfmpegRunner.class);
+    private static final int MAX_ERROR_OUTPUT = 1000;
+
+    private final boolean enabled;
+    private final String ffmpegPath;
+    private final long timeoutSeconds;
+    private volatile Boolean available;
+
+    @Autowired
+    public FfmpegRunner(@Value("${ffmpeg.enabled:false}") boolean enabled,
+                        @Value("${ffmpeg.path:ffmpeg}") String ffmpegPath,
+                        @Value("${ffmpeg.timeout-seconds:3600}") long timeoutSeconds) {
+        this.enabled = enabled;
+        this.ffmpegPath = ffmpegPath;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Whether ffmpeg is enabled and can be executed; checked once with "ffmpeg -version"
+     */
+    public boolean isAvailable() {
+        if (!enabled) {
+            return false;
+        }
+        if (available == null) {
+            try {
+                Process process = new ProcessBuilder(ffmpegPath, "-version")
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                available = process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+                if (!available) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                available = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (!available) {
+                logger.warn("ffmpeg is enabled but '{}' cannot be executed; stages that need it are skipped", ffmpegPath);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Run ffmpeg with the given arguments and wait for it to finish
+     *
+     * @param arguments the arguments after the binary name
+     * @throws IOException if ffmpeg cannot be started, times out or exits with an error
+     */
+    public void run(List<String> arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ffmpegPath);
+        command.add("-hide_banner");
+        command.add("-nostdin");
+        command.add("-loglevel");
+        command.add("error");
+        command.addAll(arguments);
+
+        // Output goes to a file so a chatty process can never block on a full pipe
+        Path log = Files.createTempFile("ffmpeg-", ".log");
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile())
+                    .start();
+            boolean finished;
+            try {
+                finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            if (!finished) {
+                process.destroyForcibly();
+                throw new IOException("ffmpeg timed out after " + timeoutSeconds + "s");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("ffmpeg exited with " + process.exitValue() + ": " + tail(log));
+            }
+        } finally {
+            Files.deleteIfExists(log);
+        }
+    }
+
+    private String tail(Path log) throws IOException {
+        String output = Files.readString(log, StandardCharsets.UTF_8).trim();
+        return output.length() > MAX_ERROR_OUTPUT ? output.substring(output.length() - MAX_ERROR_OUTPUT) : output;
+    }
+}
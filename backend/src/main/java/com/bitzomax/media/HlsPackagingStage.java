@@ -0,0 +1,189 @@
+package com.bitzomax.media;
+
+import com.bitzomax.model.HlsSegment;
+import com.bitzomax.model.VideoRendition;
+import com.bitzomax.service.HlsRenditionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Packages a video as adaptive-bitrate HLS: one H.264/AAC rendition per rung of the
+ * configured ladder that does not exceed the source height. Key frames are forced on
+ * segment boundaries so players can switch renditions at every segment.
+ */
+@Component
+@Order(300)
+public class HlsPackagingStage implements MediaProcessingStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(HlsPackagingStage.class);
+
+    /** Used when the source height is unknown */
+    private static final int DEFAULT_MAX_HEIGHT = 720;
+    private static final int AUDIO_KBPS = 128;
+
+    private final FfmpegRunner ffmpegRunner;
+    private final HlsRenditionService hlsRenditionService;
+    private final boolean enabled;
+    private final int segmentSeconds;
+    private final List<Rung> ladder;
+
+    @Autowired
+    public HlsPackagingStage(FfmpegRunner ffmpegRunner,
+                             HlsRenditionService hlsRenditionService,
+                             @Value("${media.hls.enabled:true}") boolean enabled,
+                             @Value("${media.hls.segment-seconds:4}") int segmentSeconds,
+                             @Value("${media.hls.ladder:1080:5000,720:2800,480:1400,360:800}") String ladder) {
+        this.ffmpegRunner = ffmpegRunner;
+        this.hlsRenditionService = hlsRenditionService;
+        this.enabled = enabled;
+        this.segmentSeconds = segmentSeconds;
+        this.ladder = parseLadder(ladder);
+    }
+
+    @Override
+    public String getName() {
+        return "hls";
+    }
+
+    @Override
+    public boolean appliesTo(ProcessingContext context) {
+        return enabled && ffmpegRunner.isAvailable();
+    }
+
+    @Override
+    public void process(ProcessingContext context) throws Exception {
+        MediaMetadata metadata = context.getMetadata();
+        List<Rung> rungs = selectRungs(metadata != null ? metadata.getHeight() : 0);
+        boolean hasAudio = metadata == null || metadata.getAudioCodec() != null;
+
+        Path runDirectory = hlsRenditionService.newRunDirectory(context.getVideoId());
+        try {
+            List<VideoRendition> renditions = new ArrayList<>();
+            for (Rung rung : rungs) {
+                Path directory = Files.createDirectories(runDirectory.resolve(rung.name()));
+                ffmpegRunner.run(arguments(context.getSourceFile(), directory, rung, hasAudio));
+                renditions.add(toRendition(context.getVideoId(), rung, width(rung, metadata), directory, hasAudio));
+            }
+            hlsRenditionService.replaceRenditions(context.getVideoId(), renditions);
+            logger.info("Packaged video {} as HLS: {}", context.getVideoId(), rungs.stream().map(Rung::name).toList());
+        } catch (Exception e) {
+            FileSystemUtils.deleteRecursively(runDirectory);
+            throw e;
+        }
+    }
+
+    /**
+     * Rungs at or below the source height; the lowest rung is always included
+     */
+    List<Rung> selectRungs(int sourceHeight) {
+        int maxHeight = sourceHeight > 0 ? sourceHeight : DEFAULT_MAX_HEIGHT;
+        List<Rung> selected = ladder.stream().filter(rung -> rung.height() <= maxHeight).toList();
+        return selected.isEmpty() ? List.of(ladder.get(ladder.size() - 1)) : selected;
+    }
+
+    private List<String> arguments(Path source, Path directory, Rung rung, boolean hasAudio) {
+        boolean high = rung.height() > DEFAULT_MAX_HEIGHT;
+        List<String> arguments = new ArrayList<>(List.of(
+                "-y", "-i", source.toString(),
+                "-map", "0:v:0",
+                "-vf", "scale=-2:" + rung.height(),
+                "-c:v", "libx264", "-preset", "veryfast",
+                "-profile:v", high ? "high" : "main", "-level", high ? "4.0" : "3.1",
+                "-b:v", rung.videoKbps() + "k",
+                "-maxrate", (rung.videoKbps() * 107 / 100) + "k",
+                "-bufsize", (rung.videoKbps() * 3 / 2) + "k",
+                "-force_key_frames", "expr:gte(t,n_forced*" + segmentSeconds + ")",
+                "-sc_threshold", "0"));
+        if (hasAudio) {
+            arguments.addAll(List.of("-map", "0:a:0?", "-c:a", "aac", "-b:a", AUDIO_KBPS + "k", "-ac", "2"));
+        } else {
+            arguments.add("-an");
+        }
+        arguments.addAll(List.of(
+                "-f", "hls",
+                "-hls_time", String.valueOf(segmentSeconds),
+                "-hls_playlist_type", "vod",
+                "-hls_segment_filename", directory.resolve("seg_%05d.ts").toString(),
+                directory.resolve(HlsPlaylists.MEDIA_PLAYLIST).toString()));
+        return arguments;
+    }
+
+    private VideoRendition toRendition(Long videoId, Rung rung, int width, Path directory, boolean hasAudio)
+            throws IOException {
+        List<HlsSegment> segments = HlsPlaylists.readSegments(directory.resolve(HlsPlaylists.MEDIA_PLAYLIST));
+
+        long totalBytes = 0;
+        long totalMillis = 0;
+        long peakBandwidth = 0;
+        long longestMillis = 0;
+        for (HlsSegment segment : segments) {
+            totalBytes += segment.getSizeBytes();
+            totalMillis += segment.getDurationMillis();
+            longestMillis = Math.max(longestMillis, segment.getDurationMillis());
+            if (segment.getDurationMillis() > 0) {
+                peakBandwidth = Math.max(peakBandwidth, segment.getSizeBytes() * 8000 / segment.getDurationMillis());
+            }
+        }
+
+        VideoRendition rendition = new VideoRendition();
+        rendition.setVideoId(videoId);
+        rendition.setName(rung.name());
+        rendition.setWidth(width);
+        rendition.setHeight(rung.height());
+        rendition.setBandwidth(peakBandwidth);
+        rendition.setAverageBandwidth(totalMillis > 0 ? totalBytes * 8000 / totalMillis : peakBandwidth);
+        String videoCodec = rung.height() > DEFAULT_MAX_HEIGHT ? "avc1.640028" : "avc1.4d401f";
+        rendition.setCodecs(hasAudio ? videoCodec + ",mp4a.40.2" : videoCodec);
+        rendition.setStoragePath(hlsRenditionService.toStoragePath(directory));
+        rendition.setTargetDuration((int) Math.ceil(longestMillis / 1000.0));
+        rendition.setSegments(segments);
+        return rendition;
+    }
+
+    /**
+     * Output width for a rung, keeping the source aspect ratio (even, as libx264 requires)
+     */
+    private static int width(Rung rung, MediaMetadata metadata) {
+        if (metadata == null || metadata.getWidth() <= 0 || metadata.getHeight() <= 0) {
+            return (int) Math.round(rung.height() * 16 / 9.0 / 2) * 2;
+        }
+        return (int) Math.round((double) metadata.getWidth() * rung.height() / metadata.getHeight() / 2) * 2;
+    }
+
+    /**
+     * Parse "height:kbps,height:kbps,..." into rungs, highest first
+     */
+    static List<Rung> parseLadder(String ladder) {
+        List<Rung> rungs = new ArrayList<>();
+        for (String entry : ladder.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid HLS ladder entry '" + entry + "', expected height:kbps");
+            }
+            rungs.add(new Rung(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())));
+        }
+        if (rungs.isEmpty()) {
+            throw new IllegalArgumentException("The HLS ladder must have at least one rung");
+        }
+        rungs.sort(Comparator.comparingInt(Rung::height).reversed());
+        return rungs;
+    }
+
+    record Rung(int height, int videoKbps) {
+        String name() {
+            return height + "p";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.bitzomax.media;
+
+import com.bitzomax.model.HlsSegment;
+import com.bitzomax.model.VideoRendition;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads the segment list of packaged HLS renditions and writes master and media playlists
+ */
+public final class HlsPlaylists {
+
+    public static final String CONTENT_TYPE = "application/vnd.apple.mpegurl";
+    public static final String MEDIA_PLAYLIST = "index.m3u8";
+
+    private HlsPlaylists() {
+    }
+
+    /**
+     * Read the segments of a media playlist written by the packager, with their file sizes
+     *
+     * @param playlist the media playlist; segment URIs must be file names in the same directory
+     * @return the segments in playlist order
+     * @throws IOException if the playlist cannot be read or references anything but sibling files
+     */
+    public static List<HlsSegment> readSegments(Path playlist) throws IOException {
+        List<HlsSegment> segments = new ArrayList<>();
+        long pendingDurationMillis = -1;
+        for (String rawLine : Files.readAllLines(playlist)) {
+            String line = rawLine.trim();
+            if (line.startsWith("#EXTINF:")) {
+                String duration = line.substring("#EXTINF:".length());
+                int comma = duration.indexOf(',');
+                pendingDurationMillis = new BigDecimal(comma >= 0 ? duration.substring(0, comma) : duration)
+                        .movePointRight(3).longValue();
+            } else if (!line.isEmpty() && !line.startsWith("#")) {
+                if (pendingDurationMillis < 0 || line.contains("/") || line.contains("\\")) {
+                    throw new IOException("Unexpected segment entry in " + playlist + ": " + line);
+                }
+                segments.add(new HlsSegment(line, pendingDurationMillis, Files.size(playlist.resolveSibling(line))));
+                pendingDurationMillis = -1;
+            }
+        }
+        if (segments.isEmpty()) {
+            throw new IOException("No segments in " + playlist);
+        }
+        return segments;
+    }
+
+    /**
+     * Master playlist listing the renditions, highest first; each entry points to
+     * "{renditionId}/index.m3u8" relative to the master playlist
+     */
+    public static String masterPlaylist(List<VideoRendition> renditions) {
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-INDEPENDENT-SEGMENTS\n");
+        for (VideoRendition rendition : renditions) {
+            playlist.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(rendition.getBandwidth())
+                    .append(",AVERAGE-BANDWIDTH=").append(rendition.getAverageBandwidth())
+                    .append(",RESOLUTION=").append(rendition.getWidth()).append('x').append(rendition.getHeight());
+            if (rendition.getCodecs() != null) {
+                playlist.append(",CODECS=\"").append(rendition.getCodecs()).append('"');
+            }
+            playlist.append('\n').append(rendition.getId()).append('/').append(MEDIA_PLAYLIST).append('\n');
+        }
+        return playlist.toString();
+    }
+
+    /**
+     * VOD media playlist of one rendition, built from its stored segment index
+     */
+    public static String mediaPlaylist(VideoRendition rendition) {
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n")
+                .append("#EXT-X-TARGETDURATION:").append(rendition.getTargetDuration()).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n#EXT-X-PLAYLIST-TYPE:VOD\n");
+        for (HlsSegment segment : rendition.getSegments()) {
+            playlist.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", segment.getDurationMillis() / 1000.0))
+                    .append(segment.getFileName()).append('\n');
+        }
+        return playlist.append("#EXT-X-ENDLIST\n").toString();
+    }
+}
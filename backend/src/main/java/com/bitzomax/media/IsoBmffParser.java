@@ -0,0 +1,267 @@
+package com.bitzomax.media;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads metadata from ISO base media files (MP4, MOV, fragmented MP4).
+ *
+ * Only box headers and the few small leaf boxes that carry metadata (mvhd, tkhd, mdhd, hdlr,
+ * stsd) are read; mdat and the sample tables are skipped by their size, so the cost does not
+ * depend on the length of the video.
+ */
+final class IsoBmffParser {
+
+    private static final int MAX_LEAF_SIZE = 256;
+    private static final int MAX_BOXES = 10_000;
+
+    private IsoBmffParser() {
+    }
+
+    /**
+     * Whether the first bytes of a file look like an ISO-BMFF box
+     */
+    static boolean matches(ByteBuffer head) {
+        if (head.remaining() < 8) {
+            return false;
+        }
+        String type = MediaIo.ascii(head, 4, 4);
+        return switch (type) {
+            case "ftyp", "moov", "mdat", "free", "skip", "wide", "styp" -> true;
+            default -> false;
+        };
+    }
+
+    static MediaMetadata parse(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        MediaMetadata metadata = new MediaMetadata();
+        metadata.setContainer("mp4");
+
+        long moovOffset = -1;
+        long mdatOffset = -1;
+        long position = 0;
+        for (int boxes = 0; position + 8 <= fileSize && boxes < MAX_BOXES; boxes++) {
+            Box box = Box.read(channel, position, fileSize);
+            switch (box.type) {
+                case "ftyp" -> {
+                    if ("qt  ".equals(MediaIo.ascii(MediaIo.read(channel, box.payloadStart, 4), 0, 4))) {
+                        metadata.setContainer("mov");
+                    }
+                }
+                case "moov" -> {
+                    moovOffset = box.start;
+                    parseMoov(channel, box, metadata);
+                }
+                case "mdat" -> {
+                    if (mdatOffset < 0) {
+                        mdatOffset = box.start;
+                    }
+                }
+                default -> {
+                }
+            }
+            if (moovOffset >= 0) {
+                // Any mdat that matters for faststart has been seen by now
+                break;
+            }
+            position = box.end;
+        }
+
+        if (moovOffset < 0) {
+            throw new IOException("No moov box found");
+        }
+        metadata.setFaststart(mdatOffset < 0 || moovOffset < mdatOffset);
+        return metadata;
+    }
+
+    private static void parseMoov(FileChannel channel, Box moov, MediaMetadata metadata) throws IOException {
+        long fragmentDuration = 0;
+        for (Box child : moov.children(channel)) {
+            switch (child.type) {
+                case "mvhd" -> metadata.setDurationMillis(durationMillis(readLeaf(channel, child)));
+                case "trak" -> parseTrak(channel, child, metadata);
+                case "mvex" -> {
+                    for (Box mvexChild : child.children(channel)) {
+                        if ("mehd".equals(mvexChild.type)) {
+                            ByteBuffer mehd = readLeaf(channel, mvexChild);
+                            fragmentDuration = mehd.get(0) == 1 ? mehd.getLong(4) : Integer.toUnsignedLong(mehd.getInt(4));
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        // Fragmented files usually leave mvhd's duration at zero; mehd is in the movie timescale
+        if (metadata.getDurationMillis() == 0 && fragmentDuration > 0) {
+            ByteBuffer mvhd = findLeaf(channel, moov, "mvhd");
+            if (mvhd != null) {
+                long timescale = timescale(mvhd);
+                if (timescale > 0) {
+                    metadata.setDurationMillis(fragmentDuration * 1000 / timescale);
+                }
+            }
+        }
+    }
+
+    private static void parseTrak(FileChannel channel, Box trak, MediaMetadata metadata) throws IOException {
+        int width = 0;
+        int height = 0;
+        String handler = null;
+        String codec = null;
+        int sampleWidth = 0;
+        int sampleHeight = 0;
+
+        for (Box child : trak.children(channel)) {
+            if ("tkhd".equals(child.type)) {
+                ByteBuffer tkhd = readLeaf(channel, child);
+                int dimensions = 4 + (tkhd.get(0) == 1 ? 32 : 20) + 52;
+                if (tkhd.limit() >= dimensions + 8) {
+                    // 16.16 fixed point
+                    width = tkhd.getInt(dimensions) >>> 16;
+                    height = tkhd.getInt(dimensions + 4) >>> 16;
+                }
+            } else if ("mdia".equals(child.type)) {
+                for (Box mdiaChild : child.children(channel)) {
+                    if ("hdlr".equals(mdiaChild.type)) {
+                        handler = MediaIo.ascii(readLeaf(channel, mdiaChild), 8, 4);
+                    } else if ("minf".equals(mdiaChild.type)) {
+                        Box stbl = mdiaChild.child(channel, "stbl");
+                        Box stsdBox = stbl != null ? stbl.child(channel, "stsd") : null;
+                        if (stsdBox != null) {
+                            ByteBuffer stsd = readLeaf(channel, stsdBox);
+                            if (stsd.limit() >= 16 && stsd.getInt(4) > 0) {
+                                codec = MediaIo.ascii(stsd, 12, 4);
+                                if (stsd.limit() >= 44) {
+                                    // VisualSampleEntry: width and height follow 24 bytes of reserved fields
+                                    sampleWidth = Short.toUnsignedInt(stsd.getShort(40));
+                                    sampleHeight = Short.toUnsignedInt(stsd.getShort(42));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if ("vide".equals(handler) && metadata.getVideoCodec() == null) {
+            metadata.setVideoCodec(codecName(codec));
+            metadata.setWidth(width > 0 ? width : sampleWidth);
+            metadata.setHeight(height > 0 ? height : sampleHeight);
+        } else if ("soun".equals(handler) && metadata.getAudioCodec() == null) {
+            metadata.setAudioCodec(codecName(codec));
+        }
+    }
+
+    /**
+     * Duration in milliseconds from an mvhd or mdhd payload (same layout up to the duration)
+     */
+    private static long durationMillis(ByteBuffer header) {
+        long timescale = timescale(header);
+        long duration = header.get(0) == 1 ? header.getLong(24) : Integer.toUnsignedLong(header.getInt(16));
+        if (timescale <= 0 || duration < 0 || duration == 0xFFFFFFFFL) {
+            return 0;
+        }
+        return duration * 1000 / timescale;
+    }
+
+    private static long timescale(ByteBuffer header) {
+        return Integer.toUnsignedLong(header.getInt(header.get(0) == 1 ? 20 : 12));
+    }
+
+    private static ByteBuffer findLeaf(FileChannel channel, Box parent, String type) throws IOException {
+        Box box = parent.child(channel, type);
+        return box != null ? readLeaf(channel, box) : null;
+    }
+
+    private static ByteBuffer readLeaf(FileChannel channel, Box box) throws IOException {
+        int length = (int) Math.min(box.end - box.payloadStart, MAX_LEAF_SIZE);
+        return MediaIo.read(channel, box.payloadStart, length);
+    }
+
+    static String codecName(String fourcc) {
+        if (fourcc == null) {
+            return null;
+        }
+        return switch (fourcc) {
+            case "avc1", "avc3" -> "h264";
+            case "hev1", "hvc1" -> "hevc";
+            case "av01" -> "av1";
+            case "vp08" -> "vp8";
+            case "vp09" -> "vp9";
+            case "mp4v" -> "mpeg4";
+            case "mp4a" -> "aac";
+            case "Opus" -> "opus";
+            case "ac-3" -> "ac3";
+            case "ec-3" -> "eac3";
+            case "fLaC" -> "flac";
+            default -> fourcc.trim();
+        };
+    }
+
+    /**
+     * A box header: its type and where its payload and the box end
+     */
+    private static final class Box {
+
+        private final String type;
+        private final long start;
+        private final long payloadStart;
+        private final long end;
+
+        private Box(String type, long start, long payloadStart, long end) {
+            this.type = type;
+            this.start = start;
+            this.payloadStart = payloadStart;
+            this.end = end;
+        }
+
+        static Box read(FileChannel channel, long position, long limit) throws IOException {
+            ByteBuffer header = MediaIo.read(channel, position, 8);
+            long size = Integer.toUnsignedLong(header.getInt(0));
+            String type = MediaIo.ascii(header, 4, 4);
+            long payloadStart = position + 8;
+            if (size == 1) {
+                size = MediaIo.read(channel, position + 8, 8).getLong(0);
+                payloadStart = position + 16;
+            } else if (size == 0) {
+                size = limit - position;
+            }
+            if (size < payloadStart - position) {
+                throw new IOException("Malformed " + type + " box at " + position);
+            }
+            if (position + size > limit) {
+                if (!"mdat".equals(type)) {
+                    throw new IOException("Truncated " + type + " box at " + position);
+                }
+                // Media data of an incomplete file; only its position matters
+                size = limit - position;
+            }
+            return new Box(type, position, payloadStart, position + size);
+        }
+
+        List<Box> children(FileChannel channel) throws IOException {
+            List<Box> children = new ArrayList<>();
+            long position = payloadStart;
+            while (position + 8 <= end && children.size() < MAX_BOXES) {
+                Box child = read(channel, position, end);
+                children.add(child);
+                position = child.end;
+            }
+            return children;
+        }
+
+        Box child(FileChannel channel, String childType) throws IOException {
+            for (Box child : children(channel)) {
+                if (childType.equals(child.type)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+    }
+}
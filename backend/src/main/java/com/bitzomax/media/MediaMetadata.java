@@ -0,0 +1,31 @@
+package com.bitzomax.media;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Technical metadata of a video file, read from its container headers
+ */
+@Data
+@NoArgsConstructor
+public class MediaMetadata {
+
+    /** "mp4", "mov", "webm" or "matroska" */
+    private String container;
+    private long durationMillis;
+    private int width;
+    private int height;
+    private String videoCodec;
+    private String audioCodec;
+    /** Average bitrate over the whole file in bits per second */
+    private long bitrate;
+    /** For MP4/MOV: whether moov precedes mdat, so playback can start before the download ends; null for other containers */
+    private Boolean faststart;
+
+    /**
+     * Duration rounded to whole seconds, as stored in Video.duration
+     */
+    public int getDurationSeconds() {
+        return (int) Math.round(durationMillis / 1000.0);
+    }
+}
@@ -0,0 +1,129 @@
+package com.bitzomax.media;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads duration, resolution, codecs, bitrate and faststart status of uploaded videos
+ * in-process from the MP4/MOV or WebM/Matroska container headers.
+ *
+ * ffprobe is only used as a fallback, when enabled, for files the parsers cannot read
+ * or that do not declare a duration.
+ */
+@Component
+public class MediaMetadataReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaMetadataReader.class);
+
+    private static final int SNIFF_LENGTH = 12;
+
+    private final boolean ffprobeEnabled;
+    private final String ffprobePath;
+    private final long ffprobeTimeoutSeconds;
+
+    @Autowired
+    public MediaMetadataReader(@Value("${media.ffprobe.enabled:false}") boolean ffprobeEnabled,
+                               @Value("${media.ffprobe.path:ffprobe}") String ffprobePath,
+                               @Value("${media.ffprobe.timeout-seconds:10}") long ffprobeTimeoutSeconds) {
+        this.ffprobeEnabled = ffprobeEnabled;
+        this.ffprobePath = ffprobePath;
+        this.ffprobeTimeoutSeconds = ffprobeTimeoutSeconds;
+    }
+
+    /**
+     * Read the metadata of a video file
+     *
+     * @param file the video file on disk
+     * @return the metadata, or empty if the file is not a readable MP4/MOV/WebM/Matroska file
+     */
+    public Optional<MediaMetadata> read(Path file) {
+        MediaMetadata metadata = null;
+        long fileSize = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            fileSize = channel.size();
+            metadata = parseContainer(channel);
+        } catch (IOException | RuntimeException e) {
+            // RuntimeExceptions here are buffer bounds errors from malformed headers
+            logger.warn("Could not read container metadata of {}: {}", file.getFileName(), e.getMessage());
+        }
+
+        if ((metadata == null || metadata.getDurationMillis() <= 0) && ffprobeEnabled) {
+            OptionalLong probed = probeDurationMillis(file);
+            if (probed.isPresent()) {
+                if (metadata == null) {
+                    metadata = new MediaMetadata();
+                }
+                metadata.setDurationMillis(probed.getAsLong());
+            }
+        }
+
+        if (metadata != null && metadata.getDurationMillis() > 0) {
+            metadata.setBitrate(fileSize * 8 * 1000 / metadata.getDurationMillis());
+        }
+        return Optional.ofNullable(metadata);
+    }
+
+    private MediaMetadata parseContainer(FileChannel channel) throws IOException {
+        if (channel.size() < 8) {
+            return null;
+        }
+        ByteBuffer head = MediaIo.read(channel, 0, (int) Math.min(SNIFF_LENGTH, channel.size()));
+        if (EbmlParser.matches(head)) {
+            return EbmlParser.parse(channel);
+        }
+        if (IsoBmffParser.matches(head)) {
+            return IsoBmffParser.parse(channel);
+        }
+        return null;
+    }
+
+    /**
+     * Fallback: ask ffprobe for the duration
+     */
+    private OptionalLong probeDurationMillis(Path file) {
+        ProcessBuilder builder = new ProcessBuilder(ffprobePath, "-v", "error",
+                "-show_entries", "format=duration",
+                "-of", "default=noprint_wrappers=1:nokey=1",
+                file.toString());
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = null;
+        try {
+            process = builder.start();
+            // The output is a single line, so it cannot fill the pipe before the process exits
+            if (!process.waitFor(ffprobeTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("ffprobe timed out for {}", file.getFileName());
+                return OptionalLong.empty();
+            }
+            String output;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                output = reader.readLine();
+            }
+            if (output != null && !output.isBlank()) {
+                return OptionalLong.of(Math.round(Double.parseDouble(output.trim()) * 1000));
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("ffprobe failed for {}: {}", file.getFileName(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+        return OptionalLong.empty();
+    }
+}
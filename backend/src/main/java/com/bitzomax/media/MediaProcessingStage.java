@@ -0,0 +1,23 @@
+package com.bitzomax.media;
+
+/**
+ * One step of post-upload media processing. All stage beans run in @Order for every
+ * processing job; a stage that throws fails the job, which is then retried with backoff.
+ * Stages must be idempotent, since a retried job runs all stages again.
+ */
+public interface MediaProcessingStage {
+
+    /**
+     * Short name for logs and job errors
+     */
+    String getName();
+
+    /**
+     * Whether this stage has anything to do for the job, e.g. false when a required tool is disabled
+     */
+    default boolean appliesTo(ProcessingContext context) {
+        return true;
+    }
+
+    void process(ProcessingContext context) throws Exception;
+}
@@ -0,0 +1,47 @@
+package com.bitzomax.media;
+
+import com.bitzomax.repository.VideoRepository;
+import com.bitzomax.service.VideoCaches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * First processing stage: reads the container metadata for the later stages and fills in
+ * the duration of videos uploaded without one
+ */
+@Component
+@Order(100)
+public class MetadataStage implements MediaProcessingStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataStage.class);
+
+    private final MediaMetadataReader mediaMetadataReader;
+    private final VideoRepository videoRepository;
+    private final VideoCaches videoCaches;
+
+    @Autowired
+    public MetadataStage(MediaMetadataReader mediaMetadataReader, VideoRepository videoRepository, VideoCaches videoCaches) {
+        this.mediaMetadataReader = mediaMetadataReader;
+        this.videoRepository = videoRepository;
+        this.videoCaches = videoCaches;
+    }
+
+    @Override
+    public String getName() {
+        return "metadata";
+    }
+
+    @Override
+    public void process(ProcessingContext context) {
+        mediaMetadataReader.read(context.getSourceFile()).ifPresentOrElse(metadata -> {
+            context.setMetadata(metadata);
+            if (metadata.getDurationSeconds() > 0
+                    && videoRepository.updateDurationIfUnknown(context.getVideoId(), metadata.getDurationSeconds()) > 0) {
+                videoCaches.evictVideoById(context.getVideoId());
+            }
+        }, () -> logger.warn("No container metadata for video {}", context.getVideoId()));
+    }
+}
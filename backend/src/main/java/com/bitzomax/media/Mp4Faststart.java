@@ -0,0 +1,245 @@
+package com.bitzomax.media;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites an MP4/MOV file with its moov box in front of the media data ("faststart"),
+ * so players can start before the whole file has been downloaded.
+ *
+ * Only moov is read into memory. Everything else is copied between FileChannels with
+ * transferTo, so the cost in heap does not depend on the length of the video. Moving
+ * moov forward shifts the media data by its size, so the absolute file offsets in the
+ * chunk offset tables (stco, co64) and sample auxiliary offsets (saio) are patched.
+ */
+public final class Mp4Faststart {
+
+    private static final Logger logger = LoggerFactory.getLogger(Mp4Faststart.class);
+
+    /** Larger movie boxes are left alone rather than held in memory */
+    private static final long MAX_MOOV_SIZE = 128L * 1024 * 1024;
+    private static final int MAX_BOXES = 10_000;
+    /** Boxes on the path from moov to the offset tables */
+    private static final Set<String> CONTAINERS = Set.of("trak", "mdia", "minf", "stbl");
+    private static final Set<String> OFFSET_TABLES = Set.of("stco", "co64", "saio");
+
+    public enum Outcome {
+        /** The file was rewritten with moov first */
+        REWRITTEN,
+        /** moov already precedes the media data; nothing was written */
+        ALREADY_FASTSTART,
+        /** The layout cannot be rewritten safely (fragmented, compressed moov, offset overflow, ...); nothing was written */
+        UNSUPPORTED
+    }
+
+    private Mp4Faststart() {
+    }
+
+    /**
+     * Write a faststart copy of source to target
+     *
+     * @param source the MP4 or MOV file
+     * @param target the file to create; only written when the outcome is REWRITTEN
+     * @return what was done
+     * @throws IOException if the file is not a well-formed ISO-BMFF file or cannot be read or written
+     */
+    public static Outcome rewrite(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long fileSize = in.size();
+            List<TopLevelBox> boxes = topLevelBoxes(in, fileSize);
+
+            TopLevelBox moov = null;
+            TopLevelBox firstMdat = null;
+            for (TopLevelBox box : boxes) {
+                switch (box.type()) {
+                    case "moov" -> {
+                        if (moov != null) {
+                            return unsupported(source, "more than one moov box");
+                        }
+                        moov = box;
+                    }
+                    case "mdat" -> {
+                        if (firstMdat == null) {
+                            firstMdat = box;
+                        }
+                    }
+                    case "moof" -> {
+                        return unsupported(source, "fragmented file");
+                    }
+                    default -> {
+                    }
+                }
+            }
+            if (moov == null) {
+                throw new IOException("No moov box found");
+            }
+            if (firstMdat == null || moov.start() < firstMdat.start()) {
+                return Outcome.ALREADY_FASTSTART;
+            }
+            if (moov.size() > MAX_MOOV_SIZE) {
+                return unsupported(source, "moov box of " + moov.size() + " bytes");
+            }
+
+            // Everything from the first mdat up to moov moves back by the size of moov
+            ByteBuffer movie = MediaIo.read(in, moov.start(), (int) moov.size());
+            int moovHeader = Integer.toUnsignedLong(movie.getInt(0)) == 1 ? 16 : 8;
+            String problem = patchOffsets(movie, moovHeader, movie.limit(), firstMdat.start(), moov.start(), moov.size());
+            if (problem != null) {
+                return unsupported(source, problem);
+            }
+
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                transfer(in, 0, firstMdat.start(), out);
+                while (movie.hasRemaining()) {
+                    out.write(movie);
+                }
+                transfer(in, firstMdat.start(), moov.start() - firstMdat.start(), out);
+                transfer(in, moov.end(), fileSize - moov.end(), out);
+                if (out.size() != fileSize) {
+                    throw new IOException("Rewritten file has " + out.size() + " bytes instead of " + fileSize);
+                }
+                out.force(false);
+            }
+            return Outcome.REWRITTEN;
+        }
+    }
+
+    /**
+     * Patch the absolute offsets in the boxes of buffer[from, to), recursing into the
+     * containers that lead to the sample tables
+     *
+     * @return a reason the file cannot be rewritten, or null
+     */
+    private static String patchOffsets(ByteBuffer buffer, int from, int to, long shiftFrom, long shiftTo, long shift)
+            throws IOException {
+        int position = from;
+        for (int boxes = 0; position + 8 <= to && boxes < MAX_BOXES; boxes++) {
+            long size = Integer.toUnsignedLong(buffer.getInt(position));
+            String type = MediaIo.ascii(buffer, position + 4, 4);
+            int header = 8;
+            if (size == 1) {
+                size = buffer.getLong(position + 8);
+                header = 16;
+            } else if (size == 0) {
+                size = to - position;
+            }
+            if (size < header || position + size > to) {
+                throw new IOException("Malformed " + type + " box in moov at " + position);
+            }
+            int payload = position + header;
+            int end = (int) (position + size);
+            if (OFFSET_TABLES.contains(type) && end - payload < 8) {
+                throw new IOException("Truncated " + type + " box in moov at " + position);
+            }
+
+            String problem = switch (type) {
+                case "cmov" -> "compressed moov";
+                case "stco" -> patchTable(buffer, payload + 8, end, buffer.getInt(payload + 4), 4, shiftFrom, shiftTo, shift);
+                case "co64" -> patchTable(buffer, payload + 8, end, buffer.getInt(payload + 4), 8, shiftFrom, shiftTo, shift);
+                case "saio" -> {
+                    int version = buffer.get(payload) & 0xff;
+                    boolean hasType = (buffer.getInt(payload) & 1) != 0;
+                    int countAt = payload + 4 + (hasType ? 8 : 0);
+                    if (countAt + 4 > end) {
+                        throw new IOException("Truncated saio box in moov at " + position);
+                    }
+                    yield patchTable(buffer, countAt + 4, end, buffer.getInt(countAt), version == 0 ? 4 : 8,
+                            shiftFrom, shiftTo, shift);
+                }
+                default -> CONTAINERS.contains(type)
+                        ? patchOffsets(buffer, payload, end, shiftFrom, shiftTo, shift)
+                        : null;
+            };
+            if (problem != null) {
+                return problem;
+            }
+            position = end;
+        }
+        return null;
+    }
+
+    private static String patchTable(ByteBuffer buffer, int entriesAt, int end, int count, int entrySize,
+                                     long shiftFrom, long shiftTo, long shift) throws IOException {
+        long entries = Integer.toUnsignedLong(count);
+        if (entriesAt + entries * entrySize > end) {
+            throw new IOException("Offset table with " + entries + " entries exceeds its box");
+        }
+        for (int i = 0; i < entries; i++) {
+            int at = entriesAt + i * entrySize;
+            long offset = entrySize == 4 ? Integer.toUnsignedLong(buffer.getInt(at)) : buffer.getLong(at);
+            if (offset < shiftFrom || offset >= shiftTo) {
+                continue;
+            }
+            long patched = offset + shift;
+            if (entrySize == 4) {
+                if (patched > 0xFFFF_FFFFL) {
+                    // Would need stco converted to co64, which changes the size of moov again
+                    return "32-bit chunk offset overflow";
+                }
+                buffer.putInt(at, (int) patched);
+            } else {
+                buffer.putLong(at, patched);
+            }
+        }
+        return null;
+    }
+
+    private static List<TopLevelBox> topLevelBoxes(FileChannel channel, long fileSize) throws IOException {
+        List<TopLevelBox> boxes = new ArrayList<>();
+        long position = 0;
+        while (position + 8 <= fileSize) {
+            if (boxes.size() >= MAX_BOXES) {
+                throw new IOException("Too many top-level boxes");
+            }
+            ByteBuffer header = MediaIo.read(channel, position, 8);
+            long size = Integer.toUnsignedLong(header.getInt(0));
+            String type = MediaIo.ascii(header, 4, 4);
+            int headerSize = 8;
+            if (size == 1) {
+                size = MediaIo.read(channel, position + 8, 8).getLong(0);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < headerSize || position + size > fileSize) {
+                throw new IOException("Malformed or truncated " + type + " box at " + position);
+            }
+            boxes.add(new TopLevelBox(type, position, size));
+            position += size;
+        }
+        return boxes;
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long transferred = in.transferTo(position + done, count - done, out);
+            if (transferred <= 0) {
+                throw new IOException("Could not copy bytes at " + (position + done));
+            }
+            done += transferred;
+        }
+    }
+
+    private static Outcome unsupported(Path source, String reason) {
+        logger.info("Not rewriting {} for faststart: {}", source.getFileName(), reason);
+        return Outcome.UNSUPPORTED;
+    }
+
+    private record TopLevelBox(String type, long start, long size) {
+
+        long end() {
+            return start + size;
+        }
+    }
+}
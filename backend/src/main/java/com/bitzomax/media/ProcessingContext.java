@@ -0,0 +1,80 @@
+package com.bitzomax.media;
+
+import com.bitzomax.model.Video;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State shared by the stages of one processing job
+ */
+public class ProcessingContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingContext.class);
+
+    private final Video video;
+    private final Path sourceFile;
+    private MediaMetadata metadata;
+    private final List<Runnable> completionActions = new ArrayList<>();
+
+    public ProcessingContext(Video video, Path sourceFile) {
+        this.video = video;
+        this.sourceFile = sourceFile;
+    }
+
+    /**
+     * The video as loaded when the job started; persist changes with targeted updates,
+     * not by saving this instance, so concurrent counter updates are not overwritten
+     */
+    public Video getVideo() {
+        return video;
+    }
+
+    public Long getVideoId() {
+        return video.getId();
+    }
+
+    /**
+     * The uploaded video file on disk
+     */
+    public Path getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Container metadata, available to stages after MetadataStage
+     */
+    public MediaMetadata getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(MediaMetadata metadata) {
+        this.metadata = metadata;
+    }
+
+    /**
+     * Run an action once all stages have finished, whether or not they succeeded; e.g. to
+     * delete a replaced video file that later stages still read as the source file
+     */
+    public void onCompletion(Runnable action) {
+        completionActions.add(action);
+    }
+
+    /**
+     * Run the completion actions; called by the worker after the last stage
+     */
+    public void complete() {
+        for (Runnable action : completionActions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.warn("Completion action for video {} failed: {}", getVideoId(), e.getMessage());
+            }
+        }
+        completionActions.clear();
+    }
+}
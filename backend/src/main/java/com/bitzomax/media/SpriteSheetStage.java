@@ -0,0 +1,134 @@
+package com.bitzomax.media;
+
+import com.bitzomax.service.SpriteSheetService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Samples a frame every few seconds into tiled JPEG sprite sheets and writes a WebVTT
+ * thumbnail track indexing the tiles, so players can show seek previews with a single
+ * cached image fetch instead of range requests against the video.
+ */
+@Component
+@Order(200)
+public class SpriteSheetStage implements MediaProcessingStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpriteSheetStage.class);
+
+    private final FfmpegRunner ffmpegRunner;
+    private final SpriteSheetService spriteSheetService;
+    private final boolean enabled;
+    private final int intervalSeconds;
+    private final int maxTiles;
+    private final int tileWidth;
+    private final int columns;
+    private final int rows;
+
+    @Autowired
+    public SpriteSheetStage(FfmpegRunner ffmpegRunner,
+                            SpriteSheetService spriteSheetService,
+                            @Value("${media.sprites.enabled:true}") boolean enabled,
+                            @Value("${media.sprites.interval-seconds:5}") int intervalSeconds,
+                            @Value("${media.sprites.max-tiles:600}") int maxTiles,
+                            @Value("${media.sprites.tile-width:160}") int tileWidth,
+                            @Value("${media.sprites.columns:10}") int columns,
+                            @Value("${media.sprites.rows:10}") int rows) {
+        this.ffmpegRunner = ffmpegRunner;
+        this.spriteSheetService = spriteSheetService;
+        this.enabled = enabled;
+        this.intervalSeconds = intervalSeconds;
+        this.maxTiles = maxTiles;
+        this.tileWidth = tileWidth;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    @Override
+    public String getName() {
+        return "sprites";
+    }
+
+    @Override
+    public boolean appliesTo(ProcessingContext context) {
+        // The track needs the duration to lay out its cues
+        return enabled && ffmpegRunner.isAvailable()
+                && context.getMetadata() != null && context.getMetadata().getDurationMillis() > 0;
+    }
+
+    @Override
+    public void process(ProcessingContext context) throws Exception {
+        MediaMetadata metadata = context.getMetadata();
+        long durationMillis = metadata.getDurationMillis();
+        long intervalMillis = intervalMillis(durationMillis);
+        SpriteSheets.Grid grid = new SpriteSheets.Grid(columns, rows, tileWidth, tileHeight(metadata));
+
+        Path runDirectory = spriteSheetService.newRunDirectory(context.getVideoId());
+        try {
+            ffmpegRunner.run(arguments(context.getSourceFile(), runDirectory, intervalMillis, grid));
+
+            // fps may emit a frame less than expected at the very end; never point cues at missing sheets
+            int sheets = countSheets(runDirectory);
+            if (sheets == 0) {
+                throw new IOException("ffmpeg wrote no sprite sheets");
+            }
+            int tiles = Math.min(SpriteSheets.tileCount(durationMillis, intervalMillis), sheets * grid.tilesPerSheet());
+
+            String run = runDirectory.getFileName().toString();
+            Files.writeString(runDirectory.resolve(SpriteSheets.TRACK_FILE),
+                    SpriteSheets.webVtt(run + "/", grid, tiles, intervalMillis, durationMillis));
+            spriteSheetService.publish(context.getVideoId(), runDirectory, context.getVideo().getVideoUrl());
+            logger.info("Sampled {} seek previews of video {} into {} sprite sheets", tiles, context.getVideoId(), sheets);
+        } catch (Exception e) {
+            FileSystemUtils.deleteRecursively(runDirectory);
+            throw e;
+        }
+    }
+
+    /**
+     * The configured interval, stretched for long videos so they stay within max-tiles
+     */
+    long intervalMillis(long durationMillis) {
+        long seconds = Math.max(intervalSeconds, (durationMillis / 1000 + maxTiles - 1) / maxTiles);
+        return Math.max(1, seconds) * 1000;
+    }
+
+    /**
+     * Tile height keeping the source aspect ratio, even as the JPEG encoder prefers
+     */
+    int tileHeight(MediaMetadata metadata) {
+        if (metadata.getWidth() <= 0 || metadata.getHeight() <= 0) {
+            return (int) Math.round(tileWidth * 9 / 16.0 / 2) * 2;
+        }
+        return Math.max(2, (int) Math.round((double) tileWidth * metadata.getHeight() / metadata.getWidth() / 2) * 2);
+    }
+
+    private List<String> arguments(Path source, Path runDirectory, long intervalMillis, SpriteSheets.Grid grid) {
+        return List.of(
+                "-y", "-i", source.toString(),
+                "-map", "0:v:0", "-an", "-sn",
+                "-vf", "fps=1/" + (intervalMillis / 1000)
+                        + ",scale=" + grid.tileWidth() + ":" + grid.tileHeight()
+                        + ",tile=" + grid.columns() + "x" + grid.rows(),
+                "-q:v", "5",
+                "-start_number", "0",
+                runDirectory.resolve(SpriteSheets.SHEET_PATTERN).toString());
+    }
+
+    private static int countSheets(Path runDirectory) {
+        int sheets = 0;
+        while (Files.isRegularFile(runDirectory.resolve(SpriteSheets.sheetName(sheets)))) {
+            sheets++;
+        }
+        return sheets;
+    }
+}
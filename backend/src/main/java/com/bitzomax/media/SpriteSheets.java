@@ -0,0 +1,73 @@
+package com.bitzomax.media;
+
+import java.util.Locale;
+
+/**
+ * Layout of seek-preview sprite sheets and the WebVTT track that indexes them.
+ *
+ * Each cue of the track covers one sampling interval and points at a tile of a sheet
+ * with a media fragment (sheet_000.jpg#xywh=x,y,w,h), the format video.js, Plyr,
+ * JW Player and Shaka understand for thumbnail tracks.
+ */
+public final class SpriteSheets {
+
+    public static final String CONTENT_TYPE = "text/vtt";
+    public static final String TRACK_FILE = "thumbnails.vtt";
+    /** ffmpeg output pattern of the sheets; the index starts at 0 like the cues */
+    public static final String SHEET_PATTERN = "sheet_%03d.jpg";
+
+    private SpriteSheets() {
+    }
+
+    /**
+     * Tiles per sheet and tile size in pixels
+     */
+    public record Grid(int columns, int rows, int tileWidth, int tileHeight) {
+
+        public int tilesPerSheet() {
+            return columns * rows;
+        }
+    }
+
+    /**
+     * Number of tiles needed to cover a video
+     */
+    public static int tileCount(long durationMillis, long intervalMillis) {
+        return (int) Math.max(1, (durationMillis + intervalMillis - 1) / intervalMillis);
+    }
+
+    public static String sheetName(int index) {
+        return String.format(Locale.ROOT, SHEET_PATTERN, index);
+    }
+
+    /**
+     * Write the WebVTT thumbnail track
+     *
+     * @param sheetUrlPrefix prefix of the sheet URLs, relative to the track, e.g. "sprites/1700000000-ab12cd34/"
+     * @param grid the sheet layout
+     * @param tiles the number of tiles, see tileCount
+     * @param intervalMillis the sampling interval
+     * @param durationMillis the video duration; the last cue ends here
+     */
+    public static String webVtt(String sheetUrlPrefix, Grid grid, int tiles, long intervalMillis, long durationMillis) {
+        StringBuilder vtt = new StringBuilder("WEBVTT\n");
+        for (int i = 0; i < tiles; i++) {
+            long start = i * intervalMillis;
+            long end = i == tiles - 1 ? Math.max(durationMillis, start + 1) : start + intervalMillis;
+            int cell = i % grid.tilesPerSheet();
+            int x = (cell % grid.columns()) * grid.tileWidth();
+            int y = (cell / grid.columns()) * grid.tileHeight();
+            vtt.append('\n')
+                    .append(timestamp(start)).append(" --> ").append(timestamp(end)).append('\n')
+                    .append(sheetUrlPrefix).append(sheetName(i / grid.tilesPerSheet()))
+                    .append("#xywh=").append(x).append(',').append(y).append(',')
+                    .append(grid.tileWidth()).append(',').append(grid.tileHeight()).append('\n');
+        }
+        return vtt.toString();
+    }
+
+    private static String timestamp(long millis) {
+        return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d",
+                millis / 3_600_000, (millis / 60_000) % 60, (millis / 1000) % 60, millis % 1000);
+    }
+}
@@ -0,0 +1,28 @@
+package com.bitzomax.media;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Encodings of thumbnail derivatives, in order of preference
+ */
+public enum ThumbnailFormat {
+
+    WEBP(new MediaType("image", "webp"), ".webp"),
+    JPEG(MediaType.IMAGE_JPEG, ".jpg");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ThumbnailFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
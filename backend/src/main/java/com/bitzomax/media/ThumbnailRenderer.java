@@ -0,0 +1,155 @@
+package com.bitzomax.media;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Renders fixed-width thumbnail derivatives of an uploaded image.
+ *
+ * JPEG is encoded in-process with ImageIO. The JDK has no WebP encoder, so WebP goes
+ * through ffmpeg and is only offered while ffmpeg is available.
+ */
+@Component
+public class ThumbnailRenderer {
+
+    private final FfmpegRunner ffmpegRunner;
+    private final float jpegQuality;
+    private final int webpQuality;
+    private final long maxSourcePixels;
+
+    @Autowired
+    public ThumbnailRenderer(FfmpegRunner ffmpegRunner,
+                             @Value("${media.thumbnails.jpeg-quality:0.82}") float jpegQuality,
+                             @Value("${media.thumbnails.webp-quality:80}") int webpQuality,
+                             @Value("${media.thumbnails.max-source-pixels:50000000}") long maxSourcePixels) {
+        this.ffmpegRunner = ffmpegRunner;
+        this.jpegQuality = jpegQuality;
+        this.webpQuality = webpQuality;
+        this.maxSourcePixels = maxSourcePixels;
+    }
+
+    /**
+     * Whether derivatives can be rendered in the given format
+     */
+    public boolean supports(ThumbnailFormat format) {
+        return format == ThumbnailFormat.JPEG || ffmpegRunner.isAvailable();
+    }
+
+    /**
+     * Render a derivative scaled down to the given width; narrower images keep their width
+     *
+     * @param source the original image
+     * @param target the file to write
+     * @param width the target width in pixels
+     * @param format the encoding of the derivative
+     * @throws IOException if the image cannot be decoded or encoded
+     */
+    public void render(Path source, Path target, int width, ThumbnailFormat format)
+            throws IOException, InterruptedException {
+        if (format == ThumbnailFormat.WEBP) {
+            ffmpegRunner.run(List.of(
+                    "-y",
+                    "-i", source.toString(),
+                    "-vf", "scale='min(" + width + ",iw)':-2",
+                    "-frames:v", "1",
+                    "-c:v", "libwebp",
+                    "-quality", String.valueOf(webpQuality),
+                    target.toString()));
+        } else {
+            writeJpeg(scale(read(source, width), width), target);
+        }
+    }
+
+    /**
+     * Decode the image, skipping source rows and columns that the target width cannot show
+     * anyway, so a multi-megapixel upload never has to be held in memory at full size
+     */
+    private BufferedImage read(Path source, int width) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if ((long) sourceWidth * sourceHeight > maxSourcePixels) {
+                    throw new IOException("Image too large: " + sourceWidth + "x" + sourceHeight);
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the target resolution for a smooth final downscale
+                int subsampling = Math.max(1, sourceWidth / (width * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Downscale in halving steps with bilinear filtering, which stays sharp without the cost
+     * of an area-averaging filter. Transparent areas are flattened onto white.
+     */
+    private static BufferedImage scale(BufferedImage image, int width) {
+        int targetWidth = Math.min(width, image.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * targetWidth / image.getWidth()));
+
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = currentWidth == targetWidth ? targetHeight : Math.max(targetHeight, currentHeight / 2);
+
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, currentWidth, currentHeight);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentWidth > targetWidth);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
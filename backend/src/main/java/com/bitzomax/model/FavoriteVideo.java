@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class FavoriteVideo {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "favorite_videos_seq")
+    @SequenceGenerator(name = "favorite_videos_seq", sequenceName = "favorite_videos_seq", allocationSize = 50)
     private Long id;
       @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
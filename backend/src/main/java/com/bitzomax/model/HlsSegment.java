@@ -0,0 +1,26 @@
+package com.bitzomax.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One media segment of an HLS rendition, as listed in its media playlist
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HlsSegment {
+
+    @Column(name = "file_name", nullable = false, length = 64)
+    private String fileName;
+
+    @Column(name = "duration_millis", nullable = false)
+    private long durationMillis;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+}
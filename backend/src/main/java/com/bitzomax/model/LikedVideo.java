@@ -10,14 +10,15 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "liked_videos")
+@Table(name = "liked_videos", uniqueConstraints = @UniqueConstraint(name = "uk_liked_videos_user_video", columnNames = {"user_id", "video_id"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class LikedVideo {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "liked_videos_seq")
+    @SequenceGenerator(name = "liked_videos_seq", sequenceName = "liked_videos_seq", allocationSize = 50)
     private Long id;
       @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
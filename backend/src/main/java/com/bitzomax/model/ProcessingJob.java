@@ -0,0 +1,73 @@
+package com.bitzomax.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A persisted media-processing job for one video. Jobs survive restarts and are claimed
+ * by the worker pool in MediaProcessingWorkerPool.
+ */
+@Entity
+@Table(name = "processing_jobs", indexes = {
+        // Claim query: WHERE status = 'QUEUED' AND lane = ? AND next_attempt_at <= ? ORDER BY next_attempt_at, id
+        @Index(name = "idx_processing_jobs_claim", columnList = "status, lane, next_attempt_at, id"),
+        @Index(name = "idx_processing_jobs_video", columnList = "video_id")
+})
+@Data
+@NoArgsConstructor
+public class ProcessingJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "video_id", nullable = false)
+    private Long videoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ProcessingLane lane;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ProcessingJobStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "max_attempts", nullable = false)
+    private int maxAttempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "locked_by", length = 64)
+    private String lockedBy;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "last_error", length = 2000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public ProcessingJob(Long videoId, ProcessingLane lane, int maxAttempts) {
+        this.videoId = videoId;
+        this.lane = lane;
+        this.maxAttempts = maxAttempts;
+        this.status = ProcessingJobStatus.QUEUED;
+        this.nextAttemptAt = LocalDateTime.now();
+    }
+}
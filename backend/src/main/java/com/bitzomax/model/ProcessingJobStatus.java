@@ -0,0 +1,8 @@
+package com.bitzomax.model;
+
+public enum ProcessingJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
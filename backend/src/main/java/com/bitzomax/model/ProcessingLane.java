@@ -0,0 +1,10 @@
+package com.bitzomax.model;
+
+/**
+ * Priority lanes of the media processing queue. New uploads are claimed first;
+ * admin re-processing only gets the workers the upload lane does not need.
+ */
+public enum ProcessingLane {
+    UPLOAD,
+    REPROCESS
+}
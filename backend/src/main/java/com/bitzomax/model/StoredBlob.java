@@ -0,0 +1,55 @@
+package com.bitzomax.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A content-addressed file in one of the storage areas; area is the key of its
+ * {@link com.bitzomax.storage.StorageArea}.
+ * Identical uploads share one blob; refCount counts the videos pointing at it.
+ */
+@Entity
+@Table(name = "stored_blobs", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stored_blobs_hash", columnNames = {"area", "sha256"}),
+        @UniqueConstraint(name = "uk_stored_blobs_path", columnNames = {"area", "relative_path"})
+})
+@Data
+@NoArgsConstructor
+public class StoredBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String area;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    // Path below the area's storage location, e.g. ab/cd/abcd...ef.mp4
+    @Column(name = "relative_path", nullable = false)
+    private String relativePath;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    public StoredBlob(String area, String sha256, String relativePath, long sizeBytes) {
+        this.area = area;
+        this.sha256 = sha256;
+        this.relativePath = relativePath;
+        this.sizeBytes = sizeBytes;
+        this.refCount = 1;
+    }
+}
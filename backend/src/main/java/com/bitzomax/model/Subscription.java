@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class Subscription {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "subscriptions_seq")
+    @SequenceGenerator(name = "subscriptions_seq", sequenceName = "subscriptions_seq", allocationSize = 20)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -6,11 +6,16 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = {
+        // Keyset pagination seeks on (sort key, id); see VideoSummaryKeysetRepository#findSummariesAfter
+        @Index(name = "idx_videos_upload_date_id", columnList = "upload_date, id"),
+        @Index(name = "idx_videos_views_id", columnList = "views, id")
+})
 public class Video {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "videos_seq")
+    @SequenceGenerator(name = "videos_seq", sequenceName = "videos_seq", allocationSize = 20)
     private Long id;
 
     @Column(nullable = false)
@@ -26,14 +31,21 @@ public class Video {
 
     private Integer duration;
 
+    @Column(nullable = false)
     private LocalDateTime uploadDate;
 
+    // Counters are only changed by atomic UPDATE statements (ViewCountAggregator,
+    // VideoRepository#addToLikes, #incrementShares); saving a stale entity must not overwrite them
+    @Column(nullable = false, updatable = false)
     private Long views;
 
+    @Column(updatable = false)
     private Long likes;
 
+    @Column(updatable = false)
     private Long commentCount;
 
+    @Column(updatable = false)
     private Long shareCount;
 
     private Double engagementRate;
@@ -65,6 +77,9 @@ public class Video {
 
     @Enumerated(EnumType.STRING)
     private ConversionStatus conversionStatus;
+
+    /** Whether the MP4/MOV file has moov before mdat; null until checked and for other containers */
+    private Boolean faststart;
     
     @Column(nullable = false, columnDefinition = "boolean default true")
     private Boolean isVisible = true;
@@ -99,6 +114,21 @@ public class Video {
         this.isVisible = true;
     }
 
+    /**
+     * Keyset pagination cannot seek past NULL sort keys, so they are never stored.
+     * Rows stored before this hook are backfilled by V6__backfill_video_sort_keys.sql.
+     */
+    @PrePersist
+    @PreUpdate
+    protected void ensureSortKeys() {
+        if (uploadDate == null) {
+            uploadDate = LocalDateTime.now();
+        }
+        if (views == null) {
+            views = 0L;
+        }
+    }
+
     public Long getId() {
         return id;
     }
@@ -291,6 +321,14 @@ public class Video {
         this.conversionStatus = conversionStatus;
     }
 
+    public Boolean getFaststart() {
+        return faststart;
+    }
+
+    public void setFaststart(Boolean faststart) {
+        this.faststart = faststart;
+    }
+
     public Set<String> getTags() {
         return tags;
     }
@@ -0,0 +1,64 @@
+package com.bitzomax.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One HLS rendition (resolution/bitrate rung) of a video, with its segment index.
+ *
+ * Renditions are never updated: re-processing writes new rows and a new directory, so
+ * playlists and segments addressed by rendition ID can be cached as immutable.
+ */
+@Entity
+@Table(name = "video_renditions", indexes = @Index(name = "idx_video_renditions_video", columnList = "video_id"))
+@Data
+@NoArgsConstructor
+public class VideoRendition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "video_id", nullable = false)
+    private Long videoId;
+
+    /** e.g. "720p" */
+    @Column(nullable = false, length = 16)
+    private String name;
+
+    private int width;
+
+    private int height;
+
+    /** Peak segment bitrate in bits per second, for BANDWIDTH in the master playlist */
+    private long bandwidth;
+
+    @Column(name = "average_bandwidth")
+    private long averageBandwidth;
+
+    /** RFC 6381 codecs string, e.g. "avc1.4d401f,mp4a.40.2" */
+    @Column(length = 64)
+    private String codecs;
+
+    /** Directory of the segments, relative to media.hls.dir */
+    @Column(name = "storage_path", nullable = false)
+    private String storagePath;
+
+    @Column(name = "target_duration")
+    private int targetDuration;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "video_rendition_segments", joinColumns = @JoinColumn(name = "rendition_id"))
+    @OrderColumn(name = "sequence")
+    private List<HlsSegment> segments = new ArrayList<>();
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
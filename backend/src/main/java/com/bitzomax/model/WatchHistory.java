@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class WatchHistory {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "watch_history_seq")
+    @SequenceGenerator(name = "watch_history_seq", sequenceName = "watch_history_seq", allocationSize = 50)
     private Long id;
       @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
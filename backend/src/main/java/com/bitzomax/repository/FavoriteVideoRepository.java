@@ -2,6 +2,8 @@ package com.bitzomax.repository;
 
 import com.bitzomax.model.FavoriteVideo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -65,4 +67,12 @@ public interface FavoriteVideoRepository extends JpaRepository<FavoriteVideo, Lo
      * @param videoId the video ID
      */
     void deleteByUserIdAndVideoId(Long userId, Long videoId);
+    
+    /**
+     * IDs of the videos a user favorited, without loading the entries
+     * @param userId the user ID
+     * @return the video IDs
+     */
+    @Query("SELECT f.video.id FROM FavoriteVideo f WHERE f.user.id = :userId")
+    List<Long> findVideoIdsByUserId(@Param("userId") Long userId);
 }
@@ -2,6 +2,8 @@ package com.bitzomax.repository;
 
 import com.bitzomax.model.LikedVideo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -58,4 +60,12 @@ public interface LikedVideoRepository extends JpaRepository<LikedVideo, Long> {
      * @return list of liked video entries within the date range
      */
     List<LikedVideo> findByUserIdAndLikedDateBetween(Long userId, LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * IDs of the videos a user liked, without loading the entries
+     * @param userId the user ID
+     * @return the video IDs
+     */
+    @Query("SELECT l.video.id FROM LikedVideo l WHERE l.user.id = :userId")
+    List<Long> findVideoIdsByUserId(@Param("userId") Long userId);
 }
@@ -0,0 +1,68 @@
+package com.bitzomax.repository;
+
+import com.bitzomax.model.ProcessingJob;
+import com.bitzomax.model.ProcessingJobStatus;
+import com.bitzomax.model.ProcessingLane;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProcessingJobRepository extends JpaRepository<ProcessingJob, Long> {
+
+    /**
+     * Lock the oldest due jobs of a lane for claiming.
+     * The lock timeout hint -2 (LockOptions.SKIP_LOCKED) renders FOR UPDATE SKIP LOCKED on
+     * databases that support it, so concurrent claimers never wait for or get the same rows.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT j FROM ProcessingJob j WHERE j.status = com.bitzomax.model.ProcessingJobStatus.QUEUED " +
+           "AND j.lane = :lane AND j.nextAttemptAt <= :now ORDER BY j.nextAttemptAt, j.id")
+    List<ProcessingJob> findClaimable(@Param("lane") ProcessingLane lane, @Param("now") LocalDateTime now, Limit limit);
+
+    Optional<ProcessingJob> findFirstByVideoIdAndStatusIn(Long videoId, Collection<ProcessingJobStatus> statuses);
+
+    List<ProcessingJob> findByVideoIdOrderByIdDesc(Long videoId);
+
+    long countByStatus(ProcessingJobStatus status);
+
+    /**
+     * Heartbeat: refresh the lock of jobs a worker pool is still running
+     */
+    @Modifying
+    @Query("UPDATE ProcessingJob j SET j.lockedAt = :now WHERE j.id IN :ids AND j.lockedBy = :workerId " +
+           "AND j.status = com.bitzomax.model.ProcessingJobStatus.RUNNING")
+    int touch(@Param("ids") Collection<Long> ids, @Param("workerId") String workerId, @Param("now") LocalDateTime now);
+
+    /**
+     * Lock a job if it is still RUNNING for the given worker. A job that was re-queued as stale
+     * or claimed by another worker in the meantime is not returned.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM ProcessingJob j WHERE j.id = :id AND j.lockedBy = :workerId " +
+           "AND j.status = com.bitzomax.model.ProcessingJobStatus.RUNNING")
+    Optional<ProcessingJob> findRunning(@Param("id") Long id, @Param("workerId") String workerId);
+
+    /**
+     * Lock the jobs whose worker stopped reporting, e.g. after a crash. Rows a worker is
+     * finishing right now are locked by it and skipped until a later pass.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT j FROM ProcessingJob j WHERE j.status = com.bitzomax.model.ProcessingJobStatus.RUNNING " +
+           "AND j.lockedAt < :staleBefore ORDER BY j.id")
+    List<ProcessingJob> findStale(@Param("staleBefore") LocalDateTime staleBefore);
+}
@@ -0,0 +1,16 @@
+package com.bitzomax.repository;
+
+import com.bitzomax.model.VideoRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface VideoRenditionRepository extends JpaRepository<VideoRendition, Long> {
+
+    List<VideoRendition> findByVideoIdOrderByHeightDesc(Long videoId);
+
+    Optional<VideoRendition> findByIdAndVideoId(Long id, Long videoId);
+}
@@ -1,22 +1,30 @@
 package com.bitzomax.repository;
 
+import com.bitzomax.dto.VideoFileRef;
+import com.bitzomax.dto.VideoSummary;
 import com.bitzomax.model.ConversionStatus;
 import com.bitzomax.model.Video;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Video entity operations
  */
 @Repository
-public interface VideoRepository extends JpaRepository<Video, Long> {
+public interface VideoRepository extends JpaRepository<Video, Long>, VideoSummaryKeysetRepository {
     
     /**
      * Find all videos ordered by upload date (newest first)
@@ -121,4 +129,293 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
      * @return page of videos belonging to the specified genre
      */
     Page<Video> findByGenreIdAndIsVisibleTrue(Long genreId, Pageable pageable);
+    
+    /**
+     * Find a page of videos with their genre joined in the same query
+     * @param pageable pagination information
+     * @return page of videos; tag collections are not loaded
+     */
+    @EntityGraph(attributePaths = "genre")
+    @Query(value = "SELECT v FROM Video v", countQuery = "SELECT COUNT(v) FROM Video v")
+    Page<Video> findPageWithGenre(Pageable pageable);
+    
+    /**
+     * Initialize the tags of the given videos with one IN-list query
+     */
+    @Query("SELECT DISTINCT v FROM Video v LEFT JOIN FETCH v.tags WHERE v.id IN :ids")
+    List<Video> fetchTagsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Initialize the hashtags of the given videos with one IN-list query
+     */
+    @Query("SELECT DISTINCT v FROM Video v LEFT JOIN FETCH v.hashtags WHERE v.id IN :ids")
+    List<Video> fetchHashtagsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Initialize the SEO keywords of the given videos with one IN-list query
+     */
+    @Query("SELECT DISTINCT v FROM Video v LEFT JOIN FETCH v.seoKeywords WHERE v.id IN :ids")
+    List<Video> fetchSeoKeywordsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Find a page of videos with genre, tags, hashtags and SEO keywords loaded.
+     * Runs the page query, the count query and one query per collection, so the number
+     * of statements stays the same whatever the page size. Each collection is fetched on
+     * its own to avoid the cartesian product of joining all three at once.
+     * @param pageable pagination information
+     * @return page of fully loaded videos
+     */
+    @Transactional(readOnly = true)
+    default Page<Video> findPageWithCollections(Pageable pageable) {
+        Page<Video> page = findPageWithGenre(pageable);
+        if (page.hasContent()) {
+            List<Long> ids = page.getContent().stream().map(Video::getId).toList();
+            // Results are attached to the same persistence context and initialize the page's collections
+            fetchTagsByIdIn(ids);
+            fetchHashtagsByIdIn(ids);
+            fetchSeoKeywordsByIdIn(ids);
+        }
+        return page;
+    }
+    
+    /**
+     * Find visible video summaries with pagination, in a single query without tag collections
+     * @param pageable pagination information; sort properties refer to Video fields
+     * @return page of visible video summaries
+     */
+    @Query(value = "SELECT new com.bitzomax.dto.VideoSummary(v.id, v.title, v.thumbnailUrl, v.duration, v.views, v.likes, v.isPremium, g.name, v.uploadDate) " +
+            "FROM Video v LEFT JOIN v.genre g WHERE v.isVisible = true",
+            countQuery = "SELECT COUNT(v) FROM Video v WHERE v.isVisible = true")
+    Page<VideoSummary> findVisibleSummaries(Pageable pageable);
+    
+    /**
+     * Find summaries of all videos, including hidden ones, with pagination
+     * @param pageable pagination information; sort properties refer to Video fields
+     * @return page of video summaries
+     */
+    @Query(value = "SELECT new com.bitzomax.dto.VideoSummary(v.id, v.title, v.thumbnailUrl, v.duration, v.views, v.likes, v.isPremium, g.name, v.uploadDate) " +
+            "FROM Video v LEFT JOIN v.genre g",
+            countQuery = "SELECT COUNT(v) FROM Video v")
+    Page<VideoSummary> findAllSummaries(Pageable pageable);
+    
+    /**
+     * Find summaries of the visible videos of a genre
+     * @param genreId the genre ID to filter by
+     * @return list of video summaries belonging to the specified genre
+     */
+    @Query("SELECT new com.bitzomax.dto.VideoSummary(v.id, v.title, v.thumbnailUrl, v.duration, v.views, v.likes, v.isPremium, g.name, v.uploadDate) " +
+            "FROM Video v JOIN v.genre g WHERE g.id = :genreId AND v.isVisible = true")
+    List<VideoSummary> findVisibleSummariesByGenreId(@Param("genreId") Long genreId);
+    
+    /**
+     * Find summaries of the visible videos of a genre with pagination
+     * @param genreId the genre ID to filter by
+     * @param pageable pagination information; sort properties refer to Video fields
+     * @return page of video summaries belonging to the specified genre
+     */
+    @Query(value = "SELECT new com.bitzomax.dto.VideoSummary(v.id, v.title, v.thumbnailUrl, v.duration, v.views, v.likes, v.isPremium, g.name, v.uploadDate) " +
+            "FROM Video v JOIN v.genre g WHERE g.id = :genreId AND v.isVisible = true",
+            countQuery = "SELECT COUNT(v) FROM Video v WHERE v.genre.id = :genreId AND v.isVisible = true")
+    Page<VideoSummary> findVisibleSummariesByGenreId(@Param("genreId") Long genreId, Pageable pageable);
+    
+    /**
+     * Find summaries of the given visible videos, in no particular order
+     * @param ids the video IDs
+     * @return list of video summaries
+     */
+    @Query("SELECT new com.bitzomax.dto.VideoSummary(v.id, v.title, v.thumbnailUrl, v.duration, v.views, v.likes, v.isPremium, g.name, v.uploadDate) " +
+            "FROM Video v LEFT JOIN v.genre g WHERE v.id IN :ids AND v.isVisible = true")
+    List<VideoSummary> findVisibleSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Make every video visible whose visibility is unset, or that is hidden while in one
+     * of the given conversion statuses. Runs as a single set-based UPDATE.
+     * @param statuses conversion statuses whose hidden videos should become visible
+     * @return number of videos updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Video v SET v.isVisible = true " +
+            "WHERE v.isVisible IS NULL OR (v.isVisible = false AND v.conversionStatus IN :statuses)")
+    int makeVisibleWhereUnsetOrInStatus(@Param("statuses") Collection<ConversionStatus> statuses);
+    
+    /**
+     * Make every hidden video visible. Runs as a single set-based UPDATE.
+     * @return number of videos updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Video v SET v.isVisible = true WHERE v.isVisible IS NULL OR v.isVisible = false")
+    int makeAllVisible();
+    
+    /**
+     * Set the duration of a video whose duration is still unknown (null or 0)
+     *
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Video v SET v.duration = :duration WHERE v.id = :id AND (v.duration IS NULL OR v.duration = 0)")
+    int updateDurationIfUnknown(@Param("id") Long id, @Param("duration") int duration);
+
+    /**
+     * Set the conversion status of a video without touching its visibility or any other column
+     *
+     * @return the number of updated rows
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Video v SET v.conversionStatus = :status WHERE v.id = :id")
+    int updateConversionStatus(@Param("id") Long id, @Param("status") ConversionStatus status);
+
+    /**
+     * Atomically add a delta to the like count of a video, never going below zero.
+     * Only the likes column is written.
+     * @param id the video ID
+     * @param delta the amount to add (may be negative)
+     * @return the number of rows updated (0 if the video does not exist)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Video v SET v.likes = CASE WHEN COALESCE(v.likes, 0) + :delta < 0 THEN 0 ELSE COALESCE(v.likes, 0) + :delta END WHERE v.id = :id")
+    int addToLikes(@Param("id") Long id, @Param("delta") long delta);
+    
+    /**
+     * Atomically add a delta to the share count of a video.
+     * Only the shareCount column is written.
+     * @param id the video ID
+     * @param delta the amount to add
+     * @return the number of rows updated (0 if the video does not exist)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Video v SET v.shareCount = COALESCE(v.shareCount, 0) + :delta WHERE v.id = :id")
+    int addToShareCount(@Param("id") Long id, @Param("delta") long delta);
+    
+    /**
+     * Read the current like count of a video without loading the entity
+     * @param id the video ID
+     * @return the like count
+     */
+    @Query("SELECT COALESCE(v.likes, 0) FROM Video v WHERE v.id = :id")
+    Optional<Long> findLikesById(@Param("id") Long id);
+    
+    /**
+     * Read the current share count of a video without loading the entity
+     * @param id the video ID
+     * @return the share count
+     */
+    @Query("SELECT COALESCE(v.shareCount, 0) FROM Video v WHERE v.id = :id")
+    Optional<Long> findShareCountById(@Param("id") Long id);
+    
+    /**
+     * Increment the like count of a video in a single UPDATE statement.
+     * The row lock taken by the update makes the value read back consistent.
+     * @param id the video ID
+     * @return the new like count, or empty if the video does not exist
+     */
+    @Transactional
+    default Optional<Long> incrementLikes(Long id) {
+        return addToLikes(id, 1) == 0 ? Optional.empty() : findLikesById(id);
+    }
+    
+    /**
+     * Decrement the like count of a video in a single UPDATE statement (floored at zero)
+     * @param id the video ID
+     * @return the new like count, or empty if the video does not exist
+     */
+    @Transactional
+    default Optional<Long> decrementLikes(Long id) {
+        return addToLikes(id, -1) == 0 ? Optional.empty() : findLikesById(id);
+    }
+    
+    /**
+     * Increment the share count of a video in a single UPDATE statement
+     * @param id the video ID
+     * @return the new share count, or empty if the video does not exist
+     */
+    @Transactional
+    default Optional<Long> incrementShares(Long id) {
+        return addToShareCount(id, 1) == 0 ? Optional.empty() : findShareCountById(id);
+    }
+    
+    /**
+     * File references of videos after an ID, in ID order, for batch jobs over all videos
+     * @param afterId the last ID of the previous batch (0 to start)
+     * @param limit the batch size
+     * @return the next batch
+     */
+    @Query("SELECT new com.bitzomax.dto.VideoFileRef(v.id, v.videoUrl, v.thumbnailUrl) FROM Video v " +
+           "WHERE v.id > :afterId ORDER BY v.id")
+    List<VideoFileRef> findFileRefsAfter(@Param("afterId") Long afterId, Limit limit);
+    
+    /**
+     * Point a video at a moved file, unless its video URL changed in the meantime
+     * @return the number of rows updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Video v SET v.videoUrl = :newUrl WHERE v.id = :id AND v.videoUrl = :oldUrl")
+    int replaceVideoUrl(@Param("id") Long id, @Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+    
+    /**
+     * Point a video at a moved thumbnail, unless its thumbnail URL changed in the meantime
+     * @return the number of rows updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Video v SET v.thumbnailUrl = :newUrl WHERE v.id = :id AND v.thumbnailUrl = :oldUrl")
+    int replaceThumbnailUrl(@Param("id") Long id, @Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+    
+    /**
+     * Record whether a video file is laid out for progressive playback
+     * @return the number of rows updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Video v SET v.faststart = :faststart WHERE v.id = :id")
+    int updateFaststart(@Param("id") Long id, @Param("faststart") Boolean faststart);
+    
+    /**
+     * Point a video at its faststart rewrite and record the result in one statement,
+     * unless its video URL changed in the meantime
+     * @return the number of rows updated
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Video v SET v.videoUrl = :newUrl, v.faststart = true WHERE v.id = :id AND v.videoUrl = :oldUrl")
+    int replaceWithFaststartFile(@Param("id") Long id, @Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+    
+    /**
+     * Next batch of videos whose faststart status is unknown or negative, ordered by ID
+     * @param afterId the last ID of the previous batch (0 to start)
+     * @param limit the batch size
+     * @return the next batch
+     */
+    @Query("SELECT new com.bitzomax.dto.VideoFileRef(v.id, v.videoUrl, v.thumbnailUrl) FROM Video v " +
+           "WHERE v.id > :afterId AND (v.faststart IS NULL OR v.faststart = false) ORDER BY v.id")
+    List<VideoFileRef> findNonFaststartFileRefsAfter(@Param("afterId") Long afterId, Limit limit);
+    
+    /**
+     * Which of the given video URLs a video points at, for the orphaned media collector
+     * @param urls web paths of stored video files
+     * @return the referenced ones
+     */
+    @Query("SELECT DISTINCT v.videoUrl FROM Video v WHERE v.videoUrl IN :urls")
+    List<String> findReferencedVideoUrls(@Param("urls") Collection<String> urls);
+    
+    /**
+     * Which of the given thumbnail URLs a video points at, for the orphaned media collector
+     * @param urls web paths of stored thumbnails
+     * @return the referenced ones
+     */
+    @Query("SELECT DISTINCT v.thumbnailUrl FROM Video v WHERE v.thumbnailUrl IN :urls")
+    List<String> findReferencedThumbnailUrls(@Param("urls") Collection<String> urls);
+    
+    /**
+     * Video URLs not of the form /uploads/..., e.g. absolute URLs saved by old clients
+     */
+    @Query("SELECT DISTINCT v.videoUrl FROM Video v WHERE v.videoUrl IS NOT NULL AND v.videoUrl NOT LIKE '/uploads/%'")
+    List<String> findNonCanonicalVideoUrls();
+    
+    /**
+     * Thumbnail URLs not of the form /uploads/..., e.g. absolute or external URLs
+     */
+    @Query("SELECT DISTINCT v.thumbnailUrl FROM Video v WHERE v.thumbnailUrl IS NOT NULL AND v.thumbnailUrl NOT LIKE '/uploads/%'")
+    List<String> findNonCanonicalThumbnailUrls();
 }
@@ -0,0 +1,32 @@
+package com.bitzomax.repository;
+
+import com.bitzomax.dto.VideoSummary;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * Keyset pagination over video summaries, mixed into {@link VideoRepository}.
+ *
+ * The seek predicate and ORDER BY depend on the sort field and direction of the cursor, so
+ * the query is built per call instead of declared with @Query.
+ */
+public interface VideoSummaryKeysetRepository {
+
+    /**
+     * Find the summaries that follow a keyset position, in one query with a constructor
+     * expression and no COUNT
+     *
+     * @param sortField uploadDate or views
+     * @param direction the sort direction; the ID breaks ties in the same direction
+     * @param lastValue sort key of the last summary of the previous window, or null for the first window
+     * @param lastId ID of the last summary of the previous window, or null for the first window
+     * @param genreId restrict to this genre, or null for all genres
+     * @param includeHidden whether to include hidden videos
+     * @param limit maximum number of summaries
+     * @return the summaries in sort order
+     * @throws IllegalArgumentException if the sort field is not supported
+     */
+    List<VideoSummary> findSummariesAfter(String sortField, Sort.Direction direction, Object lastValue, Long lastId,
+                                          Long genreId, boolean includeHidden, int limit);
+}
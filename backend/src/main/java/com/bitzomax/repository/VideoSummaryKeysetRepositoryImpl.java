@@ -0,0 +1,69 @@
+package com.bitzomax.repository;
+
+import com.bitzomax.dto.VideoSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JPQL implementation of {@link VideoSummaryKeysetRepository}.
+ *
+ * Seeks with "key > :lastValue OR (key = :lastValue AND id > :lastId)" (or the descending
+ * equivalent) so the (sort key, id) indexes on videos serve every window with one range scan.
+ */
+class VideoSummaryKeysetRepositoryImpl implements VideoSummaryKeysetRepository {
+
+    private static final Set<String> SORT_FIELDS = Set.of("uploadDate", "views");
+
+    private static final String SELECT_SUMMARY =
+            "SELECT new com.bitzomax.dto.VideoSummary(v.id, v.title, v.thumbnailUrl, v.duration, v.views, v.likes, " +
+            "v.isPremium, g.name, v.uploadDate) FROM Video v LEFT JOIN v.genre g";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<VideoSummary> findSummariesAfter(String sortField, Sort.Direction direction, Object lastValue, Long lastId,
+                                                 Long genreId, boolean includeHidden, int limit) {
+        if (!SORT_FIELDS.contains(sortField)) {
+            throw new IllegalArgumentException("Unsupported keyset sort field: " + sortField);
+        }
+        String key = "v." + sortField;
+        String comparison = direction.isAscending() ? ">" : "<";
+        String order = direction.isAscending() ? "ASC" : "DESC";
+
+        List<String> conditions = new ArrayList<>();
+        if (genreId != null) {
+            conditions.add("g.id = :genreId");
+        }
+        if (!includeHidden) {
+            conditions.add("v.isVisible = true");
+        }
+        boolean seek = lastValue != null && lastId != null;
+        if (seek) {
+            conditions.add("(" + key + " " + comparison + " :lastValue OR (" + key + " = :lastValue AND v.id "
+                    + comparison + " :lastId))");
+        }
+
+        StringBuilder jpql = new StringBuilder(SELECT_SUMMARY);
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        jpql.append(" ORDER BY ").append(key).append(' ').append(order).append(", v.id ").append(order);
+
+        TypedQuery<VideoSummary> query = entityManager.createQuery(jpql.toString(), VideoSummary.class);
+        if (genreId != null) {
+            query.setParameter("genreId", genreId);
+        }
+        if (seek) {
+            query.setParameter("lastValue", lastValue);
+            query.setParameter("lastId", lastId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,203 @@
+package com.bitzomax.service;
+
+import com.bitzomax.model.StoredBlob;
+import com.bitzomax.repository.StoredBlobRepository;
+import com.bitzomax.storage.StorageBackend;
+import com.bitzomax.storage.StorageKeys;
+import com.bitzomax.storage.StorageObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Reference-counted, content-addressed file storage.
+ *
+ * Files are stored once per SHA-256 in the storage backend, under the sharded key of
+ * their hash (videos/ab/cd/abcd...ef.mp4). Each upload of the same content adds a
+ * reference; the file is deleted when the last reference is released.
+ */
+@Service
+public class ContentAddressedStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentAddressedStore.class);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final StoredBlobRepository storedBlobRepository;
+    private final StorageBackend storageBackend;
+    private final TransactionTemplate transactionTemplate;
+
+    // Serialises put/release of the same hash, so a release never deletes a file that a
+    // concurrent upload of identical content has just re-referenced
+    private final Object[] locks = new Object[64];
+
+    @Autowired
+    public ContentAddressedStore(StoredBlobRepository storedBlobRepository,
+                                 StorageBackend storageBackend,
+                                 PlatformTransactionManager transactionManager) {
+        this.storedBlobRepository = storedBlobRepository;
+        this.storageBackend = storageBackend;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Result of storing content: where it lives and whether identical content was already stored
+     */
+    public record StoredContent(String relativePath, long size, boolean duplicate) {
+    }
+
+    /**
+     * A new SHA-256 digest, for hashing content while it is copied
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String toHex(byte[] digest) {
+        return HEX.formatHex(digest);
+    }
+
+    /**
+     * Add a reference to content that has been hashed into a temporary file.
+     * If the content is already stored, the temporary file is discarded; otherwise it is
+     * handed to the storage backend under its sharded key.
+     *
+     * @param area the storage area name
+     * @param hashedFile the temporary file holding the content
+     * @param sha256 the hex SHA-256 of the content
+     * @param extension file extension including the dot, used when the content is new
+     * @param contentType the content type, used when the content is new
+     * @return the stored content, with its path below the area
+     */
+    public StoredContent put(String area, Path hashedFile, String sha256, String extension, String contentType)
+            throws IOException {
+        synchronized (lockFor(sha256)) {
+            Optional<StoredBlob> existing = storedBlobRepository.findByAreaAndSha256(area, sha256);
+            if (existing.isPresent()) {
+                StoredBlob blob = existing.get();
+                transactionTemplate.executeWithoutResult(status -> storedBlobRepository.incrementRefCount(blob.getId()));
+                Files.deleteIfExists(hashedFile);
+                // The video row for the new reference follows later; the fresh modification
+                // time keeps the orphan collector away from the blob until then
+                touch(area + "/" + blob.getRelativePath());
+                logger.info("Deduplicated upload into {}/{}", area, blob.getRelativePath());
+                return new StoredContent(blob.getRelativePath(), blob.getSizeBytes(), true);
+            }
+
+            String key = StorageKeys.forContent(area, sha256, extension);
+            String relativePath = key.substring(area.length() + 1);
+            long size = Files.size(hashedFile);
+            storageBackend.put(key, hashedFile, contentType);
+            storedBlobRepository.save(new StoredBlob(area, sha256, relativePath, size));
+            return new StoredContent(relativePath, size, false);
+        }
+    }
+
+    /**
+     * Whether a path below a storage area is managed by this store
+     */
+    public boolean isManaged(String area, String relativePath) {
+        return storedBlobRepository.findByAreaAndRelativePath(area, relativePath).isPresent();
+    }
+
+    /**
+     * Drop one reference to a stored blob, deleting the file with the last reference
+     *
+     * @param area the storage area name
+     * @param relativePath the blob's path below the area
+     * @return true if the file was deleted, false if it is still referenced or unknown
+     */
+    public boolean release(String area, String relativePath) throws IOException {
+        Optional<StoredBlob> blob = storedBlobRepository.findByAreaAndRelativePath(area, relativePath);
+        if (blob.isEmpty()) {
+            return false;
+        }
+
+        synchronized (lockFor(blob.get().getSha256())) {
+            Long id = blob.get().getId();
+            Boolean removed = transactionTemplate.execute(status ->
+                    storedBlobRepository.decrementRefCount(id) > 0 && storedBlobRepository.deleteIfUnreferenced(id) > 0);
+            if (!Boolean.TRUE.equals(removed)) {
+                return false;
+            }
+            storageBackend.delete(area + "/" + relativePath);
+            logger.info("Deleted blob {}/{} after its last reference was released", area, relativePath);
+            return true;
+        }
+    }
+
+    /**
+     * Operation on a blob's file, run while the blob is locked
+     */
+    @FunctionalInterface
+    public interface BlobAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Forget a blob that no video uses, whatever its reference count says (deletions that
+     * never released their files leave references behind). The blob row is removed and the
+     * action, e.g. moving the file to quarantine, runs under the blob's lock, unless an upload
+     * of identical content re-referenced the blob after unusedSince.
+     *
+     * @param area the storage area name
+     * @param relativePath the blob's path below the area
+     * @param unusedSince the time up to which no video referenced the blob
+     * @param action what to do with the file
+     * @return true if the blob was forgotten and the action ran
+     */
+    public boolean evictUnused(String area, String relativePath, Instant unusedSince, BlobAction action)
+            throws IOException {
+        Optional<StoredBlob> blob = storedBlobRepository.findByAreaAndRelativePath(area, relativePath);
+        if (blob.isEmpty()) {
+            return false;
+        }
+
+        synchronized (lockFor(blob.get().getSha256())) {
+            Optional<StorageObject> stat = storageBackend.stat(area + "/" + relativePath);
+            if (stat.isPresent() && stat.get().lastModified().isAfter(unusedSince)) {
+                return false;
+            }
+            Long id = blob.get().getId();
+            transactionTemplate.executeWithoutResult(status -> storedBlobRepository.deleteById(id));
+            action.run();
+            logger.info("Evicted unused blob {}/{} with {} leaked references", area, relativePath,
+                    blob.get().getRefCount());
+            return true;
+        }
+    }
+
+    private void touch(String key) {
+        Optional<Path> file = storageBackend.localPath(key);
+        if (file.isPresent()) {
+            try {
+                Files.setLastModifiedTime(file.get(), FileTime.from(Instant.now()));
+            } catch (IOException e) {
+                logger.debug("Could not touch {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private Object lockFor(String sha256) {
+        return locks[Math.floorMod(sha256.hashCode(), locks.length)];
+    }
+}
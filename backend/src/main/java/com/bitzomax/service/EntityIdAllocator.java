@@ -0,0 +1,56 @@
+package com.bitzomax.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out entity IDs for rows inserted with plain SQL instead of through JPA.
+ *
+ * IDs come from the entity's own Hibernate generator, so its optimizer serves them from the
+ * block it already holds and fetches a new block only every allocationSize IDs. Reading the
+ * sequence directly in SQL would skip a whole block per row, and the IDs could collide with
+ * the ones Hibernate hands out from the blocks it holds.
+ */
+@Component
+public class EntityIdAllocator {
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    @Autowired
+    public EntityIdAllocator(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    /**
+     * Allocate IDs for new rows of an entity
+     *
+     * @param entityType the entity class
+     * @param count number of IDs
+     * @return the IDs, unique across JPA inserts and earlier allocations
+     * @throws IllegalArgumentException if the entity's IDs are assigned by the database on insert
+     */
+    public long[] allocate(Class<?> entityType, int count) {
+        Generator generator = sessionFactory.getMappingMetamodel().getEntityDescriptor(entityType).getGenerator();
+        if (!(generator instanceof BeforeExecutionGenerator beforeExecution)) {
+            throw new IllegalArgumentException("IDs of " + entityType.getSimpleName() + " are assigned on insert");
+        }
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            SharedSessionContractImplementor implementor = (SharedSessionContractImplementor) session;
+            for (int i = 0; i < count; i++) {
+                ids[i] = ((Number) beforeExecution.generate(implementor, null, null, EventType.INSERT)).longValue();
+            }
+        }
+        return ids;
+    }
+}
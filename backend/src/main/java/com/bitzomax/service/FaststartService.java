@@ -0,0 +1,173 @@
+package com.bitzomax.service;
+
+import com.bitzomax.dto.VideoFileRef;
+import com.bitzomax.media.MediaMetadata;
+import com.bitzomax.media.MediaMetadataReader;
+import com.bitzomax.media.Mp4Faststart;
+import com.bitzomax.media.ProcessingContext;
+import com.bitzomax.repository.VideoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Makes MP4/MOV videos progressively playable by moving their moov box in front of the media
+ * data, and records the result in Video.faststart.
+ *
+ * Stored files are content-addressed and may be shared, so a rewrite is stored as a new file
+ * and the video is pointed at it with a conditional update; the old file is released after.
+ */
+@Service
+public class FaststartService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FaststartService.class);
+
+    private final FileStorageService fileStorageService;
+    private final MediaMetadataReader mediaMetadataReader;
+    private final VideoRepository videoRepository;
+    private final VideoCaches videoCaches;
+    private final boolean enabled;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    public FaststartService(FileStorageService fileStorageService,
+                            MediaMetadataReader mediaMetadataReader,
+                            VideoRepository videoRepository,
+                            VideoCaches videoCaches,
+                            @Value("${media.faststart.enabled:true}") boolean enabled,
+                            @Value("${media.faststart.backfill-batch-size:100}") int batchSize) {
+        this.fileStorageService = fileStorageService;
+        this.mediaMetadataReader = mediaMetadataReader;
+        this.videoRepository = videoRepository;
+        this.videoCaches = videoCaches;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Rewrite the source file of a processing job if needed. Later stages keep reading the
+     * original source file, so it is only released once the job is complete.
+     *
+     * @param context a job whose metadata has a faststart status
+     */
+    public void process(ProcessingContext context) throws IOException {
+        String oldUrl = context.getVideo().getVideoUrl();
+        Optional<String> newUrl = ensureFaststart(context.getVideoId(), oldUrl,
+                context.getSourceFile(), context.getMetadata().getFaststart());
+        newUrl.ifPresent(url -> {
+            context.getVideo().setVideoUrl(url);
+            context.getMetadata().setFaststart(true);
+            context.onCompletion(() -> fileStorageService.deleteVideoFile(oldUrl));
+        });
+    }
+
+    /**
+     * Check all videos whose faststart status is unknown or negative, rewriting where possible
+     *
+     * @return counts of scanned videos, rewritten files and failures
+     * @throws IllegalStateException if a backfill is already running
+     */
+    public Map<String, Integer> backfill() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A faststart backfill is already running");
+        }
+        int scanned = 0;
+        int rewritten = 0;
+        int failed = 0;
+        try {
+            long afterId = 0;
+            List<VideoFileRef> batch;
+            do {
+                batch = videoRepository.findNonFaststartFileRefsAfter(afterId, Limit.of(batchSize));
+                for (VideoFileRef ref : batch) {
+                    scanned++;
+                    afterId = ref.id();
+                    if (ref.videoUrl() == null) {
+                        continue;
+                    }
+                    try {
+                        Optional<String> newUrl;
+                        try (FileStorageService.LocalFile local = fileStorageService.openLocalVideo(ref.videoUrl())) {
+                            // Not an ISO-BMFF file (or unreadable): the status stays unknown
+                            Boolean faststart = mediaMetadataReader.read(local.path())
+                                    .map(MediaMetadata::getFaststart)
+                                    .orElse(null);
+                            newUrl = faststart != null
+                                    ? ensureFaststart(ref.id(), ref.videoUrl(), local.path(), faststart)
+                                    : Optional.empty();
+                        }
+                        if (newUrl.isPresent()) {
+                            rewritten++;
+                            fileStorageService.deleteVideoFile(ref.videoUrl());
+                        }
+                    } catch (Exception e) {
+                        failed++;
+                        logger.warn("Could not check faststart for video {}: {}", ref.id(), e.getMessage());
+                    }
+                }
+            } while (batch.size() == batchSize);
+        } finally {
+            running.set(false);
+        }
+
+        logger.info("Faststart backfill done: {} videos scanned, {} rewritten, {} failed", scanned, rewritten, failed);
+        return Map.of("scanned", scanned, "rewritten", rewritten, "failed", failed);
+    }
+
+    /**
+     * Private helper recording the faststart status of a video, rewriting its file first when
+     * it is not faststart
+     *
+     * @return the web path of the rewritten file if the video now points at it
+     */
+    private Optional<String> ensureFaststart(Long videoId, String videoUrl, Path source, boolean faststart)
+            throws IOException {
+        if (faststart || !enabled) {
+            record(videoId, faststart);
+            return Optional.empty();
+        }
+
+        Path target = fileStorageService.newVideoStagingFile();
+        try {
+            Mp4Faststart.Outcome outcome = Mp4Faststart.rewrite(source, target);
+            if (outcome != Mp4Faststart.Outcome.REWRITTEN) {
+                record(videoId, outcome == Mp4Faststart.Outcome.ALREADY_FASTSTART);
+                return Optional.empty();
+            }
+
+            String contentType = MediaTypeFactory.getMediaType(videoUrl).map(Object::toString).orElse(null);
+            String newUrl = fileStorageService.storeVideoFile(target, StringUtils.getFilename(videoUrl), contentType)
+                    .getFilePath();
+            if (videoRepository.replaceWithFaststartFile(videoId, videoUrl, newUrl) == 0) {
+                // Deleted, or given another file, in the meantime
+                fileStorageService.deleteVideoFile(newUrl);
+                return Optional.empty();
+            }
+            videoCaches.evictVideoById(videoId);
+            logger.info("Rewrote video {} for faststart: {} -> {}", videoId, videoUrl, newUrl);
+            return Optional.of(newUrl);
+        } finally {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    private void record(Long videoId, boolean faststart) {
+        if (videoRepository.updateFaststart(videoId, faststart) > 0) {
+            videoCaches.evictVideoById(videoId);
+        }
+    }
+}
@@ -3,220 +3,508 @@ package com.bitzomax.service;
 import com.bitzomax.config.FileStorageProperties;
 import com.bitzomax.dto.FileUploadResponse;
 import com.bitzomax.exception.FileStorageException;
+import com.bitzomax.media.MediaMetadata;
+import com.bitzomax.media.MediaMetadataReader;
+import com.bitzomax.storage.StorageArea;
+import com.bitzomax.storage.StorageBackend;
+import com.bitzomax.storage.StorageKeys;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Service
 public class FileStorageService {
 
-    private final Path videoStorageLocation;
-    private final Path thumbnailStorageLocation;
+    private final Map<StorageArea, Path> storageLocations = new EnumMap<>(StorageArea.class);
+    private final MediaMetadataReader mediaMetadataReader;
+    private final ContentAddressedStore contentAddressedStore;
+    private final StorageBackend storageBackend;
+    private final boolean contentAddressed;
     private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
+    // Uploads are staged here (hashed, metadata read) before they go to the storage backend
+    static final String INCOMING_DIR = ".incoming";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
     @Autowired
-    public FileStorageService(FileStorageProperties fileStorageProperties) {
-        this.videoStorageLocation = Paths.get(fileStorageProperties.getVideoUploadDir())
-                .toAbsolutePath().normalize();
-        this.thumbnailStorageLocation = Paths.get(fileStorageProperties.getThumbnailUploadDir())
-                .toAbsolutePath().normalize();
+    public FileStorageService(FileStorageProperties fileStorageProperties, MediaMetadataReader mediaMetadataReader,
+                              ContentAddressedStore contentAddressedStore, StorageBackend storageBackend) {
+        this.mediaMetadataReader = mediaMetadataReader;
+        this.contentAddressedStore = contentAddressedStore;
+        this.storageBackend = storageBackend;
+        this.contentAddressed = fileStorageProperties.isContentAddressed();
+        for (StorageArea area : StorageArea.values()) {
+            storageLocations.put(area, fileStorageProperties.getAreaDirectory(area));
+        }
 
         try {
-            Files.createDirectories(this.videoStorageLocation);
-            Files.createDirectories(this.thumbnailStorageLocation);
+            for (Path storageLocation : storageLocations.values()) {
+                Files.createDirectories(storageLocation);
+            }
         } catch (Exception ex) {
             throw new FileStorageException("Could not create the directories where the uploaded files will be stored.", ex);
         }
     }
 
+    /**
+     * A stored file as a local file, for tools that need a path. Copies downloaded from a
+     * remote storage backend are deleted on close; files of the local backend are left alone.
+     */
+    public record LocalFile(Path path, boolean temporary) implements AutoCloseable {
+        @Override
+        public void close() {
+            if (temporary) {
+                deleteQuietly(path);
+            }
+        }
+    }
+
     /**
      * Store a video file and update its conversion status
      */
     public FileUploadResponse storeVideoFile(MultipartFile file) {
-        // Get the response from storeFile, which now contains the correct web path
-        FileUploadResponse response = storeFile(file, videoStorageLocation);
-        
-        // Extract video duration
-        try {
-            int duration = extractVideoDuration(response.getFilePath());
-            response.setDuration(duration);
-        } catch (Exception e) {
-            logger.error("Error extracting video duration", e);
-            // Set a default duration if extraction fails
-            response.setDuration(0);
-        }
-        
-        // Keep the async processing logic
-        CompletableFuture.runAsync(() -> {
-            try {
-                Thread.sleep(3000); // Simulate processing
-                logger.info("Video processing completed for: {}", response.getFileName());
-            } catch (InterruptedException e) {
-                logger.error("Video processing interrupted", e);
-                Thread.currentThread().interrupt(); // Restore interruption status
-            }
-        });
-        
-        // Return the response with the web path and duration
-        return response;
+        return storeFile(file, StorageArea.VIDEOS);
     }
 
     /**
-     * Extract video duration using FFmpeg
-     * @param filePath Path to the video file
-     * @return Duration in seconds
+     * Store a fully assembled video file (e.g. from a resumable upload session) and process
+     * it like a regular upload
+     *
+     * @param source the assembled file; it is consumed (moved when the backend is local)
+     * @param originalFilename the client's file name, used for the extension
+     * @param contentType the client's content type
+     * @return FileUploadResponse with details of the stored file
      */
-    private int extractVideoDuration(String filePath) throws IOException {
-        // First try with FFprobe
-        try {
-            String[] cmd = {
-                "ffprobe",
-                "-v",
-                "error",
-                "-show_entries",
-                "format=duration",
-                "-of",
-                "default=noprint_wrappers=1:nokey=1",
-                filePath
-            };
-            
-            Process process = Runtime.getRuntime().exec(cmd);
-            
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String durationStr = reader.readLine();
-                if (durationStr != null && !durationStr.isEmpty()) {
-                    try {
-                        // Convert duration string to seconds (rounded to nearest integer)
-                        double durationDouble = Double.parseDouble(durationStr);
-                        logger.info("Successfully extracted duration with FFprobe: {} seconds", durationDouble);
-                        return (int) Math.round(durationDouble);
-                    } catch (NumberFormatException e) {
-                        logger.warn("Failed to parse duration string: {}", durationStr);
-                        // Continue to fallback method
-                    }
-                }
-            } catch (Exception e) {
-                logger.warn("Error extracting video duration with FFprobe: {}", e.getMessage());
-                // Continue to fallback method
-            }
-        } catch (Exception e) {
-            logger.warn("FFprobe execution failed, falling back to default duration: {}", e.getMessage());
-            // Continue to fallback method
+    public FileUploadResponse storeVideoFile(Path source, String originalFilename, String contentType) {
+        String cleanFilename = StringUtils.cleanPath(Objects.requireNonNull(originalFilename));
+        if (cleanFilename.contains("..")) {
+            throw new FileStorageException("Filename contains invalid path sequence " + cleanFilename);
         }
-        
-        // If FFprobe fails, try to estimate duration based on file size and bitrate
+
         try {
-            File file = new File(filePath);
-            long fileSize = file.length(); // in bytes
-            
-            // Use a more conservative bitrate estimate to prevent underestimating durations
-            // 500 kbps is reasonable for most web videos
-            long assumedBitrate = 500 * 1024; // 500 kbps converted to bits per second
-            
-            // Calculate duration: fileSize (in bits) / bitrate (bits per second) = duration (seconds)
-            // 8 bits per byte
-            int estimatedDuration = (int)((fileSize * 8) / assumedBitrate);
-            
-            logger.info("Estimated duration from file size: {} seconds for {} bytes", estimatedDuration, fileSize);
-            
-            // Always return at least 1 second for any valid video file
-            return Math.max(estimatedDuration, 1);
-        } catch (Exception e) {
-            logger.error("Error estimating video duration from file size: {}", e.getMessage());
-        }
-        
-        // If all else fails, return a reasonable default
-        logger.warn("Falling back to default duration for file: {}", filePath);
-        return 60; // Use a value that will make it clear it's a fallback (1 minute)
+            // The assembled file is already on disk, so hashing it costs one sequential read
+            String sha256 = contentAddressed ? sha256Of(source) : null;
+            return publish(source, sha256, cleanFilename, contentType, StorageArea.VIDEOS);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store file " + cleanFilename, ex);
+        } finally {
+            deleteQuietly(source);
+        }
+    }
+
+    /**
+     * Store a video read from a stream, e.g. a part of a streamed multipart request. The data is
+     * written once, to the staging file, and hashed and measured on the way.
+     *
+     * @param content the video data; read to the end but not closed
+     * @param originalFilename the client's file name, used for the extension
+     * @param contentType the client's content type
+     * @param maxBytes the largest accepted size
+     * @return FileUploadResponse with details of the stored file
+     * @throws MaxUploadSizeExceededException if the stream is longer than maxBytes
+     */
+    public FileUploadResponse storeVideoFile(InputStream content, String originalFilename, String contentType, long maxBytes) {
+        return storeStream(content, originalFilename, contentType, StorageArea.VIDEOS, maxBytes);
+    }
+
+    /**
+     * A new, not yet existing file in the video staging directory, for derived videos that are
+     * stored afterwards with storeVideoFile(Path, ...)
+     */
+    public Path newVideoStagingFile() throws IOException {
+        return newStagingFile(storageLocations.get(StorageArea.VIDEOS));
     }
 
     /**
      * Stores a thumbnail file and returns response with file details
-     * 
+     *
      * @param file The MultipartFile to store
      * @return FileUploadResponse with details of the stored file
      */
     public FileUploadResponse storeThumbnailFile(MultipartFile file) {
-        return storeFile(file, thumbnailStorageLocation);
+        return storeFile(file, StorageArea.THUMBNAILS);
+    }
+
+    /**
+     * Store a thumbnail read from a stream
+     *
+     * @param content the image data; read to the end but not closed
+     * @param originalFilename the client's file name, used for the extension
+     * @param contentType the client's content type
+     * @param maxBytes the largest accepted size
+     * @return FileUploadResponse with details of the stored file
+     * @throws MaxUploadSizeExceededException if the stream is longer than maxBytes
+     */
+    public FileUploadResponse storeThumbnailFile(InputStream content, String originalFilename, String contentType, long maxBytes) {
+        return storeStream(content, originalFilename, contentType, StorageArea.THUMBNAILS, maxBytes);
     }
 
     /**
      * Gets the path to a stored video file
-     * 
+     *
      * @param filename The name of the file
      * @return String representing the path to the file
      */
     public String getVideoFilePath(String filename) {
-        return videoStorageLocation.resolve(filename).toString();
+        return storageLocations.get(StorageArea.VIDEOS).resolve(filename).toString();
     }
 
     /**
      * Gets the path to a stored thumbnail file
-     * 
+     *
      * @param filename The name of the file
      * @return String representing the path to the file
      */
     public String getThumbnailFilePath(String filename) {
-        return thumbnailStorageLocation.resolve(filename).toString();
+        return storageLocations.get(StorageArea.THUMBNAILS).resolve(filename).toString();
+    }
+
+    /**
+     * Resolves the web path stored in Video.videoUrl (e.g. /uploads/videos/ab/cd/abc.mp4)
+     * to the file on disk. Only available with the local storage backend.
+     *
+     * @param videoUrl the web path of the video
+     * @return the absolute path of the video file
+     * @throws FileStorageException if the path is invalid or files are not stored locally
+     */
+    public Path resolveVideoPath(String videoUrl) {
+        return resolveLocalPath(videoUrl, StorageArea.VIDEOS);
+    }
+
+    /**
+     * Resolves the web path stored in Video.thumbnailUrl to the file on disk.
+     * Only available with the local storage backend.
+     *
+     * @param thumbnailUrl the web path of the thumbnail
+     * @return the absolute path of the thumbnail file
+     * @throws FileStorageException if the path is invalid or files are not stored locally
+     */
+    public Path resolveThumbnailPath(String thumbnailUrl) {
+        return resolveLocalPath(thumbnailUrl, StorageArea.THUMBNAILS);
+    }
+
+    /**
+     * Get a stored video as a local file, downloading it when the backend is remote
+     *
+     * @param videoUrl the web path of the video
+     * @return the local file; close it when done
+     */
+    public LocalFile openLocalVideo(String videoUrl) throws IOException {
+        return openLocal(videoUrl, StorageArea.VIDEOS);
+    }
+
+    /**
+     * Get a stored thumbnail as a local file, downloading it when the backend is remote
+     *
+     * @param thumbnailUrl the web path of the thumbnail
+     * @return the local file; close it when done
+     */
+    public LocalFile openLocalThumbnail(String thumbnailUrl) throws IOException {
+        return openLocal(thumbnailUrl, StorageArea.THUMBNAILS);
+    }
+
+    /**
+     * A time-limited URL clients can fetch a video from directly
+     *
+     * @param videoUrl the web path of the video
+     * @param expiry how long the URL stays valid
+     * @return the URL, or empty if the backend is local and files are served by this application
+     */
+    public Optional<URI> presignedVideoUrl(String videoUrl, Duration expiry) {
+        return storageBackend.presignedUrl(storageKey(videoUrl, StorageArea.VIDEOS), expiry);
     }
 
     /**
-     * Private helper method to store files
+     * Delete a stored video by its web path. Content-addressed files are only removed
+     * when no other video references them.
+     *
+     * @param videoUrl the web path of the video
      */
-    private FileUploadResponse storeFile(MultipartFile file, Path storageLocation) {
+    public void deleteVideoFile(String videoUrl) {
+        deleteStoredFile(videoUrl, StorageArea.VIDEOS);
+    }
+
+    /**
+     * Delete a stored thumbnail by its web path, honouring shared references
+     *
+     * @param thumbnailUrl the web path of the thumbnail
+     */
+    public void deleteThumbnailFile(String thumbnailUrl) {
+        deleteStoredFile(thumbnailUrl, StorageArea.THUMBNAILS);
+    }
+
+    /**
+     * Move a video stored in the old flat layout (/uploads/videos/{name}) to its sharded key
+     *
+     * @param videoUrl the current web path of the video
+     * @return the new web path, or empty if the video is already sharded or its file is missing
+     */
+    public Optional<String> migrateVideoFile(String videoUrl) throws IOException {
+        return migrateToShardedLayout(videoUrl, StorageArea.VIDEOS);
+    }
+
+    /**
+     * Move a thumbnail stored in the old flat layout to its sharded key
+     *
+     * @param thumbnailUrl the current web path of the thumbnail
+     * @return the new web path, or empty if the thumbnail is already sharded or its file is missing
+     */
+    public Optional<String> migrateThumbnailFile(String thumbnailUrl) throws IOException {
+        return migrateToShardedLayout(thumbnailUrl, StorageArea.THUMBNAILS);
+    }
+
+    /**
+     * Private helper to store uploaded files: the upload is copied once to a staging file,
+     * hashed on the way when content addressing is enabled, then handed to the backend
+     */
+    private FileUploadResponse storeFile(MultipartFile file, StorageArea area) {
         // Check if file is empty
         if (file.isEmpty()) {
             throw new FileStorageException("Cannot store empty file");
         }
-        
-        // Generate a unique filename to prevent overwriting existing files
-        String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-        String fileExtension = getFileExtension(originalFilename);
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-        
+
+        try (InputStream in = file.getInputStream()) {
+            return storeStream(in, file.getOriginalFilename(), file.getContentType(), area, Long.MAX_VALUE);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store file " + file.getOriginalFilename(), ex);
+        }
+    }
+
+    /**
+     * Private helper writing a stream to a staging file in a single pass that also counts and,
+     * when content addressing is enabled, hashes the bytes, then handing it to the backend
+     */
+    private FileUploadResponse storeStream(InputStream content, String filename, String contentType,
+                                           StorageArea area, long maxBytes) {
+        String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(filename));
+
         // Check if the filename contains invalid characters
         if (originalFilename.contains("..")) {
             throw new FileStorageException("Filename contains invalid path sequence " + originalFilename);
         }
-        
-        // Copy file to the target location (replacing existing file with the same name)
+
+        Path staged = null;
         try {
-            Path targetLocation = storageLocation.resolve(uniqueFilename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-            
-            // Determine the base 'uploads' directory segment for constructing the web path
-            // storageLocation is like /abs/path/to/uploads/videos or /abs/path/to/uploads/thumbnails
-            String type = storageLocation.getFileName().toString(); // "videos" or "thumbnails"
-            String webPath = "/uploads/" + type + "/" + uniqueFilename;
-            
-            // Create and return response
-            return new FileUploadResponse(
-                uniqueFilename, 
-                file.getContentType(), 
-                webPath, // Use the web-accessible relative path
-                file.getSize()
-            );
+            staged = newStagingFile(storageLocations.get(area));
+            MessageDigest digest = contentAddressed ? ContentAddressedStore.newDigest() : null;
+            long size = 0;
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(staged)) {
+                int read;
+                while ((read = content.read(buffer)) >= 0) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new MaxUploadSizeExceededException(maxBytes);
+                    }
+                    if (digest != null) {
+                        digest.update(buffer, 0, read);
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (size == 0) {
+                throw new FileStorageException("Cannot store empty file");
+            }
+            String sha256 = digest != null ? ContentAddressedStore.toHex(digest.digest()) : null;
+            return publish(staged, sha256, originalFilename, contentType, area);
         } catch (IOException ex) {
             throw new FileStorageException("Could not store file " + originalFilename, ex);
+        } finally {
+            if (staged != null) {
+                deleteQuietly(staged);
+            }
         }
     }
-    
+
+    /**
+     * Private helper storing a staged file under its sharded key. Content-addressed files are
+     * keyed by their hash, and identical content that is already stored only gains a reference;
+     * other files get a random name, sharded by the hash of that name.
+     */
+    private FileUploadResponse publish(Path staged, String sha256, String originalFilename, String contentType,
+                                       StorageArea area) throws IOException {
+        // Read duration, resolution and codecs from the container headers while the file is still local
+        boolean video = area == StorageArea.VIDEOS;
+        Optional<MediaMetadata> metadata = video ? mediaMetadataReader.read(staged) : Optional.empty();
+
+        String extension = getFileExtension(originalFilename);
+        String relativePath;
+        long size;
+        boolean duplicate = false;
+        if (sha256 != null) {
+            ContentAddressedStore.StoredContent stored = contentAddressedStore.put(
+                    area.getKey(), staged, sha256, extension.toLowerCase(), contentType);
+            relativePath = stored.relativePath();
+            size = stored.size();
+            duplicate = stored.duplicate();
+        } else {
+            size = Files.size(staged);
+            String key = StorageKeys.forName(area.getKey(), UUID.randomUUID().toString() + extension);
+            storageBackend.put(key, staged, contentType);
+            relativePath = key.substring(area.getKey().length() + 1);
+        }
+
+        FileUploadResponse response = new FileUploadResponse(
+                relativePath, contentType, area.getWebPathPrefix() + relativePath, size);
+        response.setDuplicate(duplicate);
+        if (video) {
+            applyMetadata(response, metadata, originalFilename);
+        }
+        return response;
+    }
+
+    /**
+     * Post-processing shared by all video uploads: metadata extraction. Transcoding and other
+     * heavy work runs later as a processing job, once the video has been created.
+     */
+    private void applyMetadata(FileUploadResponse response, Optional<MediaMetadata> metadata, String originalFilename) {
+        // 0 means unknown
+        metadata.ifPresentOrElse(m -> {
+            response.setDuration(m.getDurationSeconds());
+            response.setMetadata(m);
+            logger.info("Read metadata of {}: {}s, {}x{}, {}/{}, faststart={}", originalFilename,
+                    m.getDurationSeconds(), m.getWidth(), m.getHeight(), m.getVideoCodec(), m.getAudioCodec(), m.getFaststart());
+        }, () -> {
+            logger.warn("Could not determine the duration of {}", originalFilename);
+            response.setDuration(0);
+        });
+    }
+
+    /**
+     * Private helper moving one flat-layout file to its sharded key. Safe to re-run: a file
+     * that was moved before the reference was updated is found under its sharded key.
+     */
+    private Optional<String> migrateToShardedLayout(String webPath, StorageArea area) throws IOException {
+        String key = storageKey(webPath, area);
+        String relativePath = key.substring(area.getKey().length() + 1);
+        if (relativePath.contains("/")) {
+            // Already sharded (or content-addressed)
+            return Optional.empty();
+        }
+
+        String shardedKey = StorageKeys.forName(area.getKey(), relativePath);
+        Path flatFile = storageLocations.get(area).resolve(relativePath);
+        if (Files.isRegularFile(flatFile)) {
+            String contentType = MediaTypeFactory.getMediaType(relativePath).map(Object::toString).orElse(null);
+            storageBackend.put(shardedKey, flatFile, contentType);
+        } else if (storageBackend.stat(shardedKey).isEmpty()) {
+            logger.warn("Cannot migrate {}: no file in the flat or the sharded layout", webPath);
+            return Optional.empty();
+        }
+        return Optional.of("/uploads/" + shardedKey);
+    }
+
+    /**
+     * Private helper returning a stored file as a local path, copied into the staging
+     * directory when the backend is remote
+     */
+    private LocalFile openLocal(String webPath, StorageArea area) throws IOException {
+        String key = storageKey(webPath, area);
+        Optional<Path> localPath = storageBackend.localPath(key);
+        if (localPath.isPresent()) {
+            return new LocalFile(localPath.get(), false);
+        }
+
+        Path copy = newStagingFile(storageLocations.get(area));
+        try (InputStream in = storageBackend.get(key)) {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException ex) {
+            deleteQuietly(copy);
+            throw ex;
+        }
+        return new LocalFile(copy, true);
+    }
+
+    /**
+     * Private helper mapping a web path onto its file on the local file system
+     */
+    private Path resolveLocalPath(String webPath, StorageArea area) {
+        return storageBackend.localPath(storageKey(webPath, area))
+                .orElseThrow(() -> new FileStorageException(
+                        "Files are not stored locally (" + storageBackend.getName() + " backend): " + webPath));
+    }
+
+    /**
+     * Private helper mapping a web path (/uploads/{area}/{relative}) onto a storage key
+     */
+    private String storageKey(String webPath, StorageArea area) {
+        if (webPath == null || webPath.isBlank()) {
+            throw new FileStorageException("No file path provided");
+        }
+
+        String prefix = area.getWebPathPrefix();
+        int prefixIndex = webPath.indexOf(prefix);
+        String relativePath = prefixIndex >= 0
+                ? webPath.substring(prefixIndex + prefix.length())
+                : StringUtils.getFilename(webPath);
+
+        try {
+            return StorageKeys.validate(area.getKey() + "/" + relativePath);
+        } catch (IllegalArgumentException ex) {
+            throw new FileStorageException("File path is outside the storage location: " + webPath);
+        }
+    }
+
+    /**
+     * Private helper dropping one reference to a stored file; files stored before
+     * content addressing was enabled are deleted directly
+     */
+    private void deleteStoredFile(String webPath, StorageArea area) {
+        String key = storageKey(webPath, area);
+        String relativePath = key.substring(area.getKey().length() + 1);
+        try {
+            if (contentAddressedStore.isManaged(area.getKey(), relativePath)) {
+                contentAddressedStore.release(area.getKey(), relativePath);
+            } else {
+                storageBackend.delete(key);
+            }
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not delete file " + webPath, ex);
+        }
+    }
+
+    private static Path newStagingFile(Path storageLocation) throws IOException {
+        Path incoming = Files.createDirectories(storageLocation.resolve(INCOMING_DIR));
+        return incoming.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    private static String sha256Of(Path file) throws IOException {
+        MessageDigest digest = ContentAddressedStore.newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return ContentAddressedStore.toHex(digest.digest());
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete temporary file {}", file, e);
+        }
+    }
+
     /**
      * Helper method to extract file extension
      */
@@ -0,0 +1,159 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.exception.FileStorageException;
+import com.bitzomax.model.HlsSegment;
+import com.bitzomax.model.VideoRendition;
+import com.bitzomax.repository.VideoRenditionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores HLS renditions and their segment files.
+ *
+ * Segments live under media.hls.dir/{videoId}/{run}/{rendition}/, one run directory per
+ * packaging run. Replacing the renditions of a video deletes the previous run's files
+ * only after the new rows are committed.
+ */
+@Service
+public class HlsRenditionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HlsRenditionService.class);
+
+    private final VideoRenditionRepository videoRenditionRepository;
+    private final Path hlsLocation;
+
+    @Autowired
+    public HlsRenditionService(VideoRenditionRepository videoRenditionRepository,
+                               @Value("${media.hls.dir:./data/hls}") String hlsDir) {
+        this.videoRenditionRepository = videoRenditionRepository;
+        this.hlsLocation = Paths.get(hlsDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Create a fresh directory for one packaging run of a video
+     */
+    public Path newRunDirectory(Long videoId) throws IOException {
+        String run = System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return Files.createDirectories(hlsLocation.resolve(videoId.toString()).resolve(run));
+    }
+
+    /**
+     * Path of a directory below media.hls.dir as stored in VideoRendition.storagePath
+     */
+    public String toStoragePath(Path directory) {
+        Path relative = hlsLocation.relativize(directory.toAbsolutePath().normalize());
+        return relative.toString().replace('\\', '/');
+    }
+
+    /**
+     * Replace all renditions of a video
+     *
+     * @param videoId the video ID
+     * @param renditions the new renditions, with their segment index
+     * @return the saved renditions
+     */
+    @Transactional
+    public List<VideoRendition> replaceRenditions(Long videoId, List<VideoRendition> renditions) {
+        List<VideoRendition> previous = videoRenditionRepository.findByVideoIdOrderByHeightDesc(videoId);
+        videoRenditionRepository.deleteAll(previous);
+        List<VideoRendition> saved = videoRenditionRepository.saveAll(renditions);
+
+        Set<Path> obsoleteRuns = new HashSet<>();
+        previous.forEach(rendition -> obsoleteRuns.add(resolveStoragePath(rendition.getStoragePath()).getParent()));
+        saved.forEach(rendition -> obsoleteRuns.remove(resolveStoragePath(rendition.getStoragePath()).getParent()));
+        afterCommit(() -> obsoleteRuns.forEach(this::deleteDirectory));
+
+        logger.info("Stored {} HLS renditions for video {}", saved.size(), videoId);
+        return saved;
+    }
+
+    /**
+     * Renditions of a video, highest resolution first
+     */
+    @Transactional(readOnly = true)
+    public List<VideoRendition> getRenditions(Long videoId) {
+        return videoRenditionRepository.findByVideoIdOrderByHeightDesc(videoId);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<VideoRendition> getRendition(Long videoId, Long renditionId) {
+        return videoRenditionRepository.findByIdAndVideoId(renditionId, videoId);
+    }
+
+    /**
+     * Resolve a segment file of a rendition. Only names in the segment index are accepted.
+     *
+     * @return the segment file, or empty if the rendition has no such segment
+     */
+    public Optional<Path> resolveSegment(VideoRendition rendition, String fileName) {
+        return rendition.getSegments().stream()
+                .map(HlsSegment::getFileName)
+                .filter(fileName::equals)
+                .findFirst()
+                .map(name -> resolveStoragePath(rendition.getStoragePath()).resolve(name));
+    }
+
+    /**
+     * Remove the renditions and files of deleted videos
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onVideoChanged(VideoChangedEvent event) {
+        if (event.getType() != VideoChangedEvent.Type.DELETED) {
+            return;
+        }
+        videoRenditionRepository.deleteAll(videoRenditionRepository.findByVideoIdOrderByHeightDesc(event.getVideoId()));
+        Path videoDirectory = hlsLocation.resolve(event.getVideoId().toString());
+        afterCommit(() -> deleteDirectory(videoDirectory));
+    }
+
+    private Path resolveStoragePath(String storagePath) {
+        Path resolved = hlsLocation.resolve(storagePath).normalize();
+        if (!resolved.startsWith(hlsLocation)) {
+            throw new FileStorageException("Rendition path is outside the HLS location: " + storagePath);
+        }
+        return resolved;
+    }
+
+    private void deleteDirectory(Path directory) {
+        try {
+            FileSystemUtils.deleteRecursively(directory);
+        } catch (IOException e) {
+            logger.warn("Could not delete HLS directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.bitzomax.service;
+
+import com.bitzomax.model.ConversionStatus;
+import com.bitzomax.model.ProcessingJob;
+import com.bitzomax.model.ProcessingJobStatus;
+import com.bitzomax.model.ProcessingLane;
+import com.bitzomax.repository.ProcessingJobRepository;
+import com.bitzomax.repository.VideoRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistent queue of media-processing jobs.
+ *
+ * Every state change is one short transaction, and each drives the video's ConversionStatus:
+ * enqueue sets PENDING, claim sets PROCESSING, success sets COMPLETED and the last failed
+ * attempt sets FAILED. Failed attempts before that are re-queued with exponential backoff.
+ * Visibility is left to admins; processing never publishes or hides a video.
+ *
+ * Claiming a job counts an attempt. A job whose worker stops heartbeating counts as a failed
+ * attempt too, so a job that crashes its worker every time ends up FAILED.
+ *
+ * A worker's outcome only applies while the job is still RUNNING under its worker ID. A slow
+ * worker whose job was re-queued as stale, and possibly claimed by another worker since,
+ * cannot complete or reset it when it finally finishes.
+ */
+@Service
+public class MediaProcessingQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaProcessingQueue.class);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final ProcessingJobRepository processingJobRepository;
+    private final VideoRepository videoRepository;
+    private final VideoService videoService;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+
+    @Autowired
+    public MediaProcessingQueue(ProcessingJobRepository processingJobRepository,
+                                VideoRepository videoRepository,
+                                VideoService videoService,
+                                @Value("${media.processing.max-attempts:4}") int maxAttempts,
+                                @Value("${media.processing.retry-backoff-ms:10000}") long retryBackoffMs,
+                                @Value("${media.processing.max-retry-backoff-ms:600000}") long maxRetryBackoffMs) {
+        this.processingJobRepository = processingJobRepository;
+        this.videoRepository = videoRepository;
+        this.videoService = videoService;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+    }
+
+    /**
+     * Queue a video for processing. A video has at most one active job; if one is
+     * already queued or running it is returned instead.
+     *
+     * @param videoId the video ID
+     * @param lane UPLOAD for new uploads, REPROCESS for admin re-processing
+     * @return the queued or already active job
+     * @throws EntityNotFoundException if the video does not exist
+     */
+    @Transactional
+    public ProcessingJob enqueue(Long videoId, ProcessingLane lane) {
+        if (!videoRepository.existsById(videoId)) {
+            throw new EntityNotFoundException("Video not found with id: " + videoId);
+        }
+        Optional<ProcessingJob> active = processingJobRepository.findFirstByVideoIdAndStatusIn(
+                videoId, EnumSet.of(ProcessingJobStatus.QUEUED, ProcessingJobStatus.RUNNING));
+        if (active.isPresent()) {
+            logger.debug("Video {} already has active processing job {}", videoId, active.get().getId());
+            return active.get();
+        }
+
+        ProcessingJob job = processingJobRepository.save(new ProcessingJob(videoId, lane, maxAttempts));
+        videoService.updateProcessingStatus(videoId, ConversionStatus.PENDING);
+        logger.info("Queued processing job {} for video {} in lane {}", job.getId(), videoId, lane);
+        return job;
+    }
+
+    /**
+     * Claim up to limit due jobs of a lane for a worker
+     *
+     * @param lane the lane to claim from
+     * @param limit the maximum number of jobs
+     * @param workerId identifies the claiming worker pool in locked_by
+     * @return the claimed jobs, now RUNNING
+     */
+    @Transactional
+    public List<ProcessingJob> claim(ProcessingLane lane, int limit, String workerId) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<ProcessingJob> jobs = processingJobRepository.findClaimable(lane, now, Limit.of(limit));
+        for (ProcessingJob job : jobs) {
+            job.setStatus(ProcessingJobStatus.RUNNING);
+            job.setLockedBy(workerId);
+            job.setLockedAt(now);
+            job.setAttempts(job.getAttempts() + 1);
+            videoService.updateProcessingStatus(job.getVideoId(), ConversionStatus.PROCESSING);
+        }
+        return jobs;
+    }
+
+    /**
+     * Mark a job as done and its video as COMPLETED, if the worker still holds it
+     *
+     * @param jobId the job ID
+     * @param workerId the worker that ran the job
+     * @return false if the job was re-queued as stale or taken by another worker meanwhile;
+     *         it is left alone then
+     */
+    @Transactional
+    public boolean markSucceeded(Long jobId, String workerId) {
+        Optional<ProcessingJob> running = processingJobRepository.findRunning(jobId, workerId);
+        if (running.isEmpty()) {
+            logger.warn("Processing job {} is no longer held by {}, ignoring its success", jobId, workerId);
+            return false;
+        }
+        ProcessingJob job = running.get();
+        job.setStatus(ProcessingJobStatus.SUCCEEDED);
+        job.setLockedBy(null);
+        job.setLastError(null);
+        videoService.updateProcessingStatus(job.getVideoId(), ConversionStatus.COMPLETED);
+        logger.info("Processing job {} for video {} succeeded", jobId, job.getVideoId());
+        return true;
+    }
+
+    /**
+     * Record a failed attempt, if the worker still holds the job. The job is re-queued with
+     * exponential backoff until its attempts are used up, then it and its video are marked FAILED.
+     *
+     * @param jobId the job ID
+     * @param workerId the worker that ran the job
+     * @param error what went wrong
+     * @param retryable false for errors a retry cannot fix, e.g. a deleted video
+     * @return false if the job was re-queued as stale or taken by another worker meanwhile;
+     *         it is left alone then
+     */
+    @Transactional
+    public boolean markFailed(Long jobId, String workerId, String error, boolean retryable) {
+        Optional<ProcessingJob> running = processingJobRepository.findRunning(jobId, workerId);
+        if (running.isEmpty()) {
+            logger.warn("Processing job {} is no longer held by {}, ignoring its failure: {}", jobId, workerId, error);
+            return false;
+        }
+        ProcessingJob job = running.get();
+        job.setLockedBy(null);
+        job.setLastError(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+
+        if (retryable && job.getAttempts() < job.getMaxAttempts()) {
+            Duration backoff = backoff(job.getAttempts());
+            job.setStatus(ProcessingJobStatus.QUEUED);
+            job.setNextAttemptAt(LocalDateTime.now().plus(backoff));
+            videoService.updateProcessingStatus(job.getVideoId(), ConversionStatus.PENDING);
+            logger.warn("Processing job {} for video {} failed (attempt {}/{}), retrying in {}s: {}",
+                    jobId, job.getVideoId(), job.getAttempts(), job.getMaxAttempts(), backoff.toSeconds(), error);
+        } else {
+            job.setStatus(ProcessingJobStatus.FAILED);
+            videoService.updateProcessingStatus(job.getVideoId(), ConversionStatus.FAILED);
+            logger.error("Processing job {} for video {} failed permanently after {} attempts: {}",
+                    jobId, job.getVideoId(), job.getAttempts(), error);
+        }
+        return true;
+    }
+
+    /**
+     * Refresh the locks of jobs that are still running, so they are not taken for stale
+     */
+    @Transactional
+    public void heartbeat(Collection<Long> jobIds, String workerId) {
+        if (!jobIds.isEmpty()) {
+            processingJobRepository.touch(jobIds, workerId, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Fail the current attempt of RUNNING jobs whose lock was last refreshed before
+     * staleAfter ago. They are re-queued with backoff, or marked FAILED if that was their
+     * last attempt.
+     *
+     * @return the number of re-queued jobs
+     */
+    @Transactional
+    public int requeueStale(Duration staleAfter) {
+        List<ProcessingJob> stale = processingJobRepository.findStale(LocalDateTime.now().minus(staleAfter));
+        int requeued = 0;
+        for (ProcessingJob job : stale) {
+            String workerId = job.getLockedBy();
+            boolean failed = markFailed(job.getId(), workerId, "Worker " + workerId + " stopped heartbeating", true);
+            if (failed && job.getStatus() == ProcessingJobStatus.QUEUED) {
+                requeued++;
+            }
+        }
+        if (!stale.isEmpty()) {
+            logger.warn("Found {} stale processing jobs, re-queued {}", stale.size(), requeued);
+        }
+        return requeued;
+    }
+
+    /**
+     * Processing jobs of a video, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<ProcessingJob> getJobsForVideo(Long videoId) {
+        return processingJobRepository.findByVideoIdOrderByIdDesc(videoId);
+    }
+
+    /**
+     * Delay before the next attempt: retry-backoff-ms doubled per failed attempt, capped
+     */
+    Duration backoff(int attempts) {
+        long delay = retryBackoffMs << Math.min(Math.max(attempts - 1, 0), 20);
+        return Duration.ofMillis(Math.min(delay, maxRetryBackoffMs));
+    }
+}
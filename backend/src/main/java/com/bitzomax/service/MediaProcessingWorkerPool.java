@@ -0,0 +1,209 @@
+package com.bitzomax.service;
+
+import com.bitzomax.media.MediaProcessingStage;
+import com.bitzomax.media.ProcessingContext;
+import com.bitzomax.model.ProcessingJob;
+import com.bitzomax.model.ProcessingLane;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.VideoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs queued media-processing jobs on a fixed pool of worker threads.
+ *
+ * A scheduled dispatcher claims only as many jobs as there are idle workers, so upload
+ * bursts wait in the processing_jobs table instead of piling up threads or memory.
+ * The UPLOAD lane is served first; REPROCESS jobs use the remaining idle workers, up to
+ * media.processing.reprocess-workers at a time.
+ */
+@Service
+public class MediaProcessingWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaProcessingWorkerPool.class);
+
+    private final MediaProcessingQueue queue;
+    private final VideoRepository videoRepository;
+    private final FileStorageService fileStorageService;
+    private final List<MediaProcessingStage> stages;
+    private final boolean enabled;
+    private final int workers;
+    private final int reprocessWorkers;
+    private final Duration staleAfter;
+    private final String workerId = "worker-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private final ExecutorService executor;
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final AtomicInteger busyReprocessWorkers = new AtomicInteger();
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public MediaProcessingWorkerPool(MediaProcessingQueue queue,
+                                     VideoRepository videoRepository,
+                                     FileStorageService fileStorageService,
+                                     List<MediaProcessingStage> stages,
+                                     @Value("${media.processing.enabled:true}") boolean enabled,
+                                     @Value("${media.processing.workers:2}") int workers,
+                                     @Value("${media.processing.reprocess-workers:1}") int reprocessWorkers,
+                                     @Value("${media.processing.stale-after-ms:300000}") long staleAfterMs) {
+        this.queue = queue;
+        this.videoRepository = videoRepository;
+        this.fileStorageService = fileStorageService;
+        this.stages = stages;
+        this.enabled = enabled;
+        this.workers = Math.max(1, workers);
+        this.reprocessWorkers = Math.max(1, Math.min(reprocessWorkers, this.workers));
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+        this.executor = Executors.newFixedThreadPool(this.workers, new WorkerThreadFactory());
+
+        logger.info("Media processing: {} workers, stages {}", this.workers,
+                stages.stream().map(MediaProcessingStage::getName).toList());
+    }
+
+    /**
+     * Claim due jobs for the idle workers
+     */
+    @Scheduled(fixedDelayString = "${media.processing.poll-interval-ms:1000}")
+    public synchronized void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int idle = workers - busyWorkers.get();
+            for (ProcessingJob job : queue.claim(ProcessingLane.UPLOAD, idle, workerId)) {
+                submit(job);
+            }
+
+            idle = workers - busyWorkers.get();
+            int reprocessSlots = Math.min(idle, reprocessWorkers - busyReprocessWorkers.get());
+            for (ProcessingJob job : queue.claim(ProcessingLane.REPROCESS, reprocessSlots, workerId)) {
+                submit(job);
+            }
+        } catch (Exception e) {
+            logger.error("Could not claim processing jobs: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Heartbeat the running jobs, then re-queue jobs whose worker stopped heartbeating,
+     * e.g. because the application crashed while processing them
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${media.processing.heartbeat-interval-ms:60000}")
+    public void requeueStaleJobs() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            queue.heartbeat(List.copyOf(runningJobs), workerId);
+            queue.requeueStale(staleAfter);
+        } catch (Exception e) {
+            logger.error("Could not check for stale processing jobs: {}", e.getMessage(), e);
+        }
+    }
+
+    private void submit(ProcessingJob job) {
+        boolean reprocess = job.getLane() == ProcessingLane.REPROCESS;
+        busyWorkers.incrementAndGet();
+        if (reprocess) {
+            busyReprocessWorkers.incrementAndGet();
+        }
+        runningJobs.add(job.getId());
+        executor.execute(() -> {
+            try {
+                run(job);
+            } finally {
+                runningJobs.remove(job.getId());
+                busyWorkers.decrementAndGet();
+                if (reprocess) {
+                    busyReprocessWorkers.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Run all stages for one claimed job and record the outcome
+     */
+    void run(ProcessingJob job) {
+        Optional<Video> video = videoRepository.findById(job.getVideoId());
+        if (video.isEmpty()) {
+            queue.markFailed(job.getId(), workerId, "Video " + job.getVideoId() + " no longer exists", false);
+            return;
+        }
+
+        String stageName = "source";
+        try {
+            // Remote storage backends hand out a downloaded copy that is deleted afterwards
+            try (FileStorageService.LocalFile source = fileStorageService.openLocalVideo(video.get().getVideoUrl())) {
+                if (!Files.isRegularFile(source.path())) {
+                    throw new IllegalStateException("Video file not found: " + video.get().getVideoUrl());
+                }
+
+                ProcessingContext context = new ProcessingContext(video.get(), source.path());
+                try {
+                    for (MediaProcessingStage stage : stages) {
+                        stageName = stage.getName();
+                        if (stage.appliesTo(context)) {
+                            long start = System.nanoTime();
+                            stage.process(context);
+                            logger.debug("Stage {} for video {} took {} ms", stageName, job.getVideoId(),
+                                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        }
+                    }
+                } finally {
+                    context.complete();
+                }
+            }
+            queue.markSucceeded(job.getId(), workerId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.markFailed(job.getId(), workerId, stageName + ": interrupted", true);
+        } catch (Exception e) {
+            queue.markFailed(job.getId(), workerId, stageName + ": " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Number of workers currently running a job
+     */
+    public int getBusyWorkers() {
+        return busyWorkers.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted jobs are re-queued by their worker with a retryable failure. Jobs whose
+        // worker does not get to record that are re-queued as stale once heartbeats stop.
+        executor.shutdownNow();
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "media-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.bitzomax.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Reads the parts of a multipart/form-data body one after the other, straight from the
+ * request stream. Unlike the servlet container's multipart support, nothing is spooled to
+ * temporary files: each part body is an InputStream over the request, so a large file part
+ * can be copied to its destination while it arrives.
+ *
+ * Parts must be read in order; calling nextPart skips whatever is left of the current one.
+ */
+public class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+    private static final int MAX_PARTS = 100;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    /** Unread data is buffer[head, tail) */
+    private int head;
+    private int tail;
+    private boolean eof;
+    private PartStream current;
+    private int parts;
+    private boolean finished;
+
+    /**
+     * @param in the request body
+     * @param boundary the boundary from the Content-Type header
+     */
+    public MultipartStreamReader(InputStream in, String boundary) {
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 70) {
+            throw new IllegalArgumentException("Invalid multipart boundary");
+        }
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[BUFFER_SIZE];
+        // The first delimiter has no preceding line break; pretend there is one
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        tail = 2;
+    }
+
+    /**
+     * The boundary parameter of a multipart/form-data content type
+     *
+     * @return the boundary, or null if the content type is not multipart/form-data with a boundary
+     */
+    public static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data")) {
+            return null;
+        }
+        String boundary = parameter(contentType, "boundary");
+        return boundary != null && !boundary.isEmpty() ? boundary : null;
+    }
+
+    /**
+     * Advance to the next part
+     *
+     * @return the next part, or null after the last one
+     * @throws IOException if the body is not well-formed multipart or ends early
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // Skip the rest of the current part, or the preamble before the first one
+        (current != null ? current : new PartStream()).drain();
+        current = null;
+
+        byte first = readByte();
+        byte second = readByte();
+        if (first == '-' && second == '-') {
+            // Close delimiter; anything after it is an epilogue, which is ignored
+            finished = true;
+            return null;
+        }
+        if (first != '\r' || second != '\n') {
+            throw new IOException("Malformed multipart body: no line break after the boundary");
+        }
+        if (++parts > MAX_PARTS) {
+            throw new IOException("Malformed multipart body: more than " + MAX_PARTS + " parts");
+        }
+
+        String name = null;
+        String fileName = null;
+        String contentType = null;
+        String line;
+        int headerBytes = 0;
+        while (!(line = readHeaderLine()).isEmpty()) {
+            headerBytes += line.length() + 2;
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new IOException("Malformed multipart body: part headers exceed " + MAX_HEADER_BYTES + " bytes");
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String header = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (header.equals("content-disposition")) {
+                name = parameter(value, "name");
+                fileName = parameter(value, "filename");
+            } else if (header.equals("content-type")) {
+                contentType = value;
+            }
+        }
+
+        current = new PartStream();
+        return new Part(name, fileName, contentType, current);
+    }
+
+    /**
+     * One part of the body. The body stream ends at the next boundary; closing it does not
+     * close the request stream.
+     */
+    public record Part(String name, String fileName, String contentType, InputStream body) {
+
+        public boolean isFile() {
+            return fileName != null;
+        }
+
+        /**
+         * The body as text, for small form fields
+         *
+         * @throws IOException if the body is longer than maxBytes
+         */
+        public String readString(int maxBytes) throws IOException {
+            byte[] bytes = body.readNBytes(maxBytes + 1);
+            if (bytes.length > maxBytes) {
+                throw new IOException("Form field " + name + " exceeds " + maxBytes + " bytes");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Private helper returning a parameter such as name="videoFile" of a header value
+     */
+    private static String parameter(String headerValue, String parameter) {
+        for (String token : headerValue.split(";")) {
+            int equals = token.indexOf('=');
+            if (equals < 0 || !token.substring(0, equals).trim().equalsIgnoreCase(parameter)) {
+                continue;
+            }
+            String value = token.substring(equals + 1).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            return value;
+        }
+        return null;
+    }
+
+    private String readHeaderLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true) {
+            byte b = readByte();
+            if (b == '\r') {
+                if (readByte() != '\n') {
+                    throw new IOException("Malformed multipart body: bare CR in part headers");
+                }
+                // Header values are ASCII, except for the UTF-8 file names browsers send
+                return line.toString(StandardCharsets.UTF_8);
+            }
+            if (line.size() >= MAX_HEADER_BYTES) {
+                throw new IOException("Malformed multipart body: part header line too long");
+            }
+            line.write(b);
+        }
+    }
+
+    private byte readByte() throws IOException {
+        if (head == tail && !fill()) {
+            throw new EOFException("Multipart body ended unexpectedly");
+        }
+        return buffer[head++];
+    }
+
+    /**
+     * Private helper reading more of the request into the buffer
+     *
+     * @return false if the request has ended
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    /**
+     * Private helper finding the next delimiter that ends before limit
+     */
+    private int indexOfDelimiter(int limit) {
+        int last = limit - delimiter.length;
+        for (int i = head; i <= last; i++) {
+            if (buffer[i] != delimiter[0]) {
+                continue;
+            }
+            int j = 1;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j]) {
+                j++;
+            }
+            if (j == delimiter.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The body of one part: the bytes up to the next delimiter
+     */
+    private final class PartStream extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (done || current != this && current != null) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+            while (true) {
+                // Only look as far as a delimiter could overlap the requested bytes
+                int window = (int) Math.min(tail, (long) head + length + delimiter.length - 1);
+                int found = indexOfDelimiter(window);
+                if (found == head) {
+                    head += delimiter.length;
+                    done = true;
+                    return -1;
+                }
+                // Bytes that cannot be the start of a delimiter are part data
+                int available = found >= 0 ? found - head : window - head - (delimiter.length - 1);
+                if (available > 0) {
+                    int n = Math.min(length, available);
+                    System.arraycopy(buffer, head, target, offset, n);
+                    head += n;
+                    return n;
+                }
+                if (!fill()) {
+                    throw new EOFException("Multipart body ended inside a part");
+                }
+            }
+        }
+
+        void drain() throws IOException {
+            byte[] discard = new byte[BUFFER_SIZE];
+            while (read(discard, 0, discard.length) >= 0) {
+                // discard
+            }
+        }
+
+        @Override
+        public void close() {
+            // The request stream belongs to the container
+        }
+    }
+}
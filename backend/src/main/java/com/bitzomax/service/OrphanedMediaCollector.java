@@ -0,0 +1,566 @@
+package com.bitzomax.service;
+
+import com.bitzomax.config.FileStorageProperties;
+import com.bitzomax.repository.VideoRepository;
+import com.bitzomax.storage.StorageArea;
+import com.bitzomax.storage.StorageBackend;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Finds stored videos and thumbnails that no video points at any more and deletes them.
+ *
+ * Deletions that never released their files, crashed uploads and the like leave blobs behind
+ * in the local storage areas. Each run walks a slice of the sharded layout: directory entries
+ * are streamed leaf by leaf, checked against videos.video_url and videos.thumbnail_url in
+ * batches, and the scan resumes after the last leaf on the next run, at a bounded number of
+ * files per second. Unreferenced files older than the grace period are moved to .quarantine.
+ * Quarantined files are checked again on every run and moved back as soon as a video points
+ * at them; the others are deleted once the quarantine period is over.
+ *
+ * Remote storage backends are not scanned.
+ */
+@Service
+public class OrphanedMediaCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrphanedMediaCollector.class);
+
+    static final String QUARANTINE_DIR = ".quarantine";
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+    private static final String ROOT_LEAF = "";
+
+    private final VideoRepository videoRepository;
+    private final ContentAddressedStore contentAddressedStore;
+    private final StorageBackend storageBackend;
+    private final MeterRegistry meterRegistry;
+    private final Map<StorageArea, Path> areas = new EnumMap<>(StorageArea.class);
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxFilesPerRun;
+    private final int maxFilesPerSecond;
+    private final Duration gracePeriod;
+    private final Duration quarantinePeriod;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Where the incremental scan resumes: an area, the last leaf directory finished in it and
+    // the last file scanned in the leaf after that, if the budget ran out in the middle of it
+    private int areaIndex;
+    private String lastLeaf;
+    private String lastFile;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "media-gc");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    /**
+     * Counts of one run
+     */
+    public record Report(long scanned, long quarantined, long restored, long deleted, long reclaimedBytes) {
+    }
+
+    @Autowired
+    public OrphanedMediaCollector(VideoRepository videoRepository,
+                                  ContentAddressedStore contentAddressedStore,
+                                  StorageBackend storageBackend,
+                                  FileStorageProperties fileStorageProperties,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${media.gc.enabled:true}") boolean enabled,
+                                  @Value("${media.gc.batch-size:200}") int batchSize,
+                                  @Value("${media.gc.max-files-per-run:5000}") int maxFilesPerRun,
+                                  @Value("${media.gc.max-files-per-second:500}") int maxFilesPerSecond,
+                                  @Value("${media.gc.grace-hours:24}") long graceHours,
+                                  @Value("${media.gc.quarantine-hours:168}") long quarantineHours) {
+        this.videoRepository = videoRepository;
+        this.contentAddressedStore = contentAddressedStore;
+        this.storageBackend = storageBackend;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxFilesPerRun = maxFilesPerRun;
+        this.maxFilesPerSecond = maxFilesPerSecond;
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.quarantinePeriod = Duration.ofHours(quarantineHours);
+        for (StorageArea area : StorageArea.values()) {
+            areas.put(area, fileStorageProperties.getAreaDirectory(area));
+        }
+    }
+
+    /**
+     * Start a run in the background, unless one is in progress
+     */
+    @Scheduled(fixedDelayString = "${media.gc.interval-ms:900000}",
+            initialDelayString = "${media.gc.initial-delay-ms:600000}")
+    public void scheduleRun() {
+        if (enabled) {
+            // Off the scheduler thread, so rate limiting does not hold up other scheduled tasks
+            executor.execute(() -> {
+                try {
+                    collect();
+                } catch (IllegalStateException e) {
+                    logger.debug("Skipping orphaned media collection: {}", e.getMessage());
+                } catch (RuntimeException e) {
+                    logger.warn("Orphaned media collection failed: {}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Run one increment: restore or purge quarantined files, scan the next slice of the
+     * storage areas and delete stale staging files
+     *
+     * @return counts of this run
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public Report collect() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Orphaned media collection is already running");
+        }
+        try {
+            Run run = new Run();
+            if (!"local".equals(storageBackend.getName())) {
+                logger.debug("Not collecting orphaned media on the {} storage backend", storageBackend.getName());
+                return run.report();
+            }
+            for (Map.Entry<StorageArea, Path> area : areas.entrySet()) {
+                checkQuarantine(area.getKey(), area.getValue(), run);
+                deleteStaleStagingFiles(area.getKey(), area.getValue(), run);
+            }
+            scan(run);
+            Report report = run.report();
+            if (report.quarantined() + report.deleted() + report.restored() > 0) {
+                logger.info("Orphaned media collection: {} files scanned, {} quarantined, {} restored, {} deleted ({} bytes)",
+                        report.scanned(), report.quarantined(), report.restored(), report.deleted(), report.reclaimedBytes());
+            }
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Private helper continuing the scan where the last run stopped, area by area and leaf
+     * directory by leaf directory, until the run's file budget is used up
+     */
+    private void scan(Run run) {
+        List<StorageArea> names = new ArrayList<>(areas.keySet());
+        for (int visited = 0; visited < names.size() && !run.exhausted(); visited++) {
+            StorageArea area = names.get(areaIndex);
+            try {
+                if (!scanArea(area, areas.get(area), run)) {
+                    return;
+                }
+            } catch (IOException e) {
+                logger.warn("Could not scan the {} storage area: {}", area.getKey(), e.getMessage());
+            }
+            // Area finished (or unreadable): start the next one from the beginning
+            areaIndex = (areaIndex + 1) % names.size();
+            lastLeaf = null;
+            lastFile = null;
+        }
+    }
+
+    /**
+     * @return true when the area has been scanned to its end
+     */
+    private boolean scanArea(StorageArea area, Path root, Run run) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return true;
+        }
+        if (lastLeaf == null) {
+            // Files of the flat layout from before sharding, possibly a great many
+            if (!scanLeaf(area, root, ROOT_LEAF, run)) {
+                return false;
+            }
+            lastLeaf = ROOT_LEAF;
+            if (run.exhausted()) {
+                return false;
+            }
+        }
+        String lastFirst = lastLeaf.isEmpty() ? "" : lastLeaf.substring(0, 2);
+        for (String first : shardDirectories(root)) {
+            if (first.compareTo(lastFirst) < 0) {
+                continue;
+            }
+            for (String second : shardDirectories(root.resolve(first))) {
+                String leaf = first + "/" + second;
+                if (leaf.compareTo(lastLeaf) <= 0) {
+                    continue;
+                }
+                if (!scanLeaf(area, root.resolve(first).resolve(second), leaf, run)) {
+                    return false;
+                }
+                lastLeaf = leaf;
+                if (run.exhausted()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Private helper scanning the files of one leaf directory in name order, after lastFile,
+     * for no more than the rest of the run's budget
+     *
+     * @return true when the leaf has been scanned to its end, false when the budget ran out
+     *         first and lastFile marks where the next run resumes
+     */
+    private boolean scanLeaf(StorageArea area, Path directory, String leaf, Run run) throws IOException {
+        // Directory listings come in no particular order: keep the first names after lastFile,
+        // only as many as the budget allows, so a huge flat directory is scanned in slices too
+        int budget = (int) Math.max(1, maxFilesPerRun - run.scanned);
+        TreeSet<String> names = new TreeSet<>();
+        boolean more = false;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if ((lastFile != null && name.compareTo(lastFile) <= 0) || skipped(leaf, name)) {
+                    continue;
+                }
+                names.add(name);
+                if (names.size() > budget) {
+                    names.pollLast();
+                    more = true;
+                }
+            }
+        }
+
+        List<Candidate> batch = new ArrayList<>(batchSize);
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        for (String name : names) {
+            Path entry = directory.resolve(name);
+            BasicFileAttributes attributes = attributes(entry);
+            if (attributes == null || !attributes.isRegularFile()) {
+                continue;
+            }
+            run.scanned++;
+            meterRegistry.counter("media.gc.files", "area", area.getKey(), "result", "scanned").increment();
+            // Recent files may belong to an upload whose video is not saved yet
+            if (attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+                continue;
+            }
+            String relativePath = leaf.isEmpty() ? name : leaf + "/" + name;
+            batch.add(new Candidate(relativePath, entry, attributes.size(), attributes.lastModifiedTime().toInstant()));
+            if (batch.size() >= batchSize) {
+                quarantineUnreferenced(area, batch, cutoff, run);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            quarantineUnreferenced(area, batch, cutoff, run);
+        }
+        lastFile = more ? names.last() : null;
+        return !more;
+    }
+
+    /**
+     * Private helper telling whether a directory entry is not a stored file: the shard
+     * directories, quarantine and staging directories next to the flat layout files
+     */
+    private static boolean skipped(String leaf, String name) {
+        return name.startsWith(".") || (leaf.isEmpty() && SHARD.matcher(name).matches());
+    }
+
+    private void quarantineUnreferenced(StorageArea area, List<Candidate> batch, Instant cutoff, Run run) {
+        Set<String> referenced = referencedPaths(area, batch, run);
+        for (Candidate candidate : batch) {
+            if (referenced.contains(candidate.relativePath())) {
+                continue;
+            }
+            Path target = areas.get(area).resolve(QUARANTINE_DIR).resolve(candidate.relativePath());
+            try {
+                boolean moved = contentAddressedStore.evictUnused(area.getKey(), candidate.relativePath(), cutoff,
+                        () -> moveToQuarantine(candidate.path(), target));
+                if (!moved && !contentAddressedStore.isManaged(area.getKey(), candidate.relativePath())) {
+                    moveToQuarantine(candidate.path(), target);
+                    moved = true;
+                }
+                if (moved) {
+                    run.quarantined++;
+                    meterRegistry.counter("media.gc.files", "area", area.getKey(), "result", "quarantined").increment();
+                    logger.info("Quarantined unreferenced file {}/{}", area.getKey(), candidate.relativePath());
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not quarantine {}/{}: {}", area.getKey(), candidate.relativePath(), e.getMessage());
+            }
+        }
+        run.throttle();
+    }
+
+    /**
+     * Private helper moving quarantined files back as soon as a video points at them again,
+     * and deleting the others once their quarantine period is over
+     */
+    private void checkQuarantine(StorageArea area, Path root, Run run) {
+        Path quarantine = root.resolve(QUARANTINE_DIR);
+        if (!Files.isDirectory(quarantine)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(quarantinePeriod);
+        List<Candidate> quarantined = new ArrayList<>();
+        try {
+            collectQuarantined(quarantine, quarantine, quarantined);
+        } catch (IOException e) {
+            logger.warn("Could not list the quarantine of the {} storage area: {}", area.getKey(), e.getMessage());
+        }
+
+        for (int from = 0; from < quarantined.size(); from += batchSize) {
+            List<Candidate> batch = quarantined.subList(from, Math.min(from + batchSize, quarantined.size()));
+            Set<String> referenced = referencedPaths(area, batch, run);
+            for (Candidate candidate : batch) {
+                boolean isReferenced = referenced.contains(candidate.relativePath());
+                if (!isReferenced && candidate.modified().isAfter(cutoff)) {
+                    continue;
+                }
+                try {
+                    if (isReferenced) {
+                        restore(area, root, candidate);
+                        run.restored++;
+                        meterRegistry.counter("media.gc.files", "area", area.getKey(), "result", "restored").increment();
+                    } else {
+                        Files.deleteIfExists(candidate.path());
+                        run.deleted++;
+                        run.reclaimedBytes += candidate.size();
+                        meterRegistry.counter("media.gc.files", "area", area.getKey(), "result", "deleted").increment();
+                        reclaimed(area.getKey()).increment(candidate.size());
+                    }
+                    deleteEmptyParents(candidate.path().getParent(), quarantine);
+                } catch (IOException e) {
+                    logger.warn("Could not purge quarantined file {}/{}: {}", area.getKey(), candidate.relativePath(), e.getMessage());
+                }
+            }
+            run.throttle();
+        }
+    }
+
+    private void collectQuarantined(Path quarantine, Path directory, List<Candidate> quarantined)
+            throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = attributes(entry);
+                if (attributes == null) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    collectQuarantined(quarantine, entry, quarantined);
+                } else if (attributes.isRegularFile()) {
+                    String relativePath = quarantine.relativize(entry).toString().replace('\\', '/');
+                    quarantined.add(new Candidate(relativePath, entry, attributes.size(),
+                            attributes.lastModifiedTime().toInstant()));
+                }
+            }
+        }
+    }
+
+    private void restore(StorageArea area, Path root, Candidate candidate) throws IOException {
+        Path original = root.resolve(candidate.relativePath());
+        if (Files.exists(original)) {
+            // Stored again in the meantime, e.g. by an upload of identical content
+            Files.deleteIfExists(candidate.path());
+        } else {
+            Files.createDirectories(original.getParent());
+            Files.move(candidate.path(), original);
+        }
+        logger.warn("Restored quarantined file {}/{}: a video points at it again", area.getKey(), candidate.relativePath());
+    }
+
+    /**
+     * Private helper deleting staging files left behind by uploads that crashed mid-way
+     */
+    private void deleteStaleStagingFiles(StorageArea area, Path root, Run run) {
+        Path incoming = root.resolve(FileStorageService.INCOMING_DIR);
+        if (!Files.isDirectory(incoming)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(incoming)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = attributes(entry);
+                if (attributes != null && attributes.isRegularFile()
+                        && attributes.lastModifiedTime().toInstant().isBefore(cutoff)
+                        && Files.deleteIfExists(entry)) {
+                    run.deleted++;
+                    run.reclaimedBytes += attributes.size();
+                    reclaimed(area.getKey()).increment(attributes.size());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not clean up the staging directory {}: {}", incoming, e.getMessage());
+        }
+    }
+
+    /**
+     * Private helper returning the relative paths of a batch that a video points at
+     */
+    private Set<String> referencedPaths(StorageArea area, List<Candidate> batch, Run run) {
+        String prefix = area.getWebPathPrefix();
+        List<String> urls = batch.stream().map(candidate -> prefix + candidate.relativePath()).toList();
+        boolean videos = area == StorageArea.VIDEOS;
+        List<String> references = videos
+                ? videoRepository.findReferencedVideoUrls(urls)
+                : videoRepository.findReferencedThumbnailUrls(urls);
+        Set<String> referenced = new HashSet<>(run.nonCanonicalReferences.computeIfAbsent(area, key ->
+                relativePaths(prefix, videos
+                        ? videoRepository.findNonCanonicalVideoUrls()
+                        : videoRepository.findNonCanonicalThumbnailUrls())));
+        referenced.addAll(relativePaths(prefix, references));
+        return referenced;
+    }
+
+    /**
+     * Private helper mapping URLs to paths below a storage area. Absolute URLs and bare file
+     * names resolve to stored files too (see FileStorageService), so they count as well.
+     */
+    private static Set<String> relativePaths(String prefix, List<String> urls) {
+        Set<String> paths = new HashSet<>();
+        for (String url : urls) {
+            int index = url.indexOf(prefix);
+            if (index >= 0) {
+                paths.add(url.substring(index + prefix.length()));
+            } else if (!url.contains("://")) {
+                paths.add(url.substring(url.lastIndexOf('/') + 1));
+            }
+        }
+        return paths;
+    }
+
+    private Counter reclaimed(String area) {
+        return Counter.builder("media.gc.reclaimed")
+                .description("Bytes freed by deleting orphaned media")
+                .baseUnit("bytes")
+                .tag("area", area)
+                .register(meterRegistry);
+    }
+
+    private static void moveToQuarantine(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // The quarantine period counts from now
+        Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+    }
+
+    private static void deleteEmptyParents(Path directory, Path stop) {
+        while (directory != null && directory.startsWith(stop) && !directory.equals(stop)) {
+            try {
+                Files.delete(directory);
+            } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                return;
+            } catch (IOException e) {
+                logger.debug("Could not delete empty directory {}: {}", directory, e.getMessage());
+                return;
+            }
+            directory = directory.getParent();
+        }
+    }
+
+    private static List<String> shardDirectories(Path directory) throws IOException {
+        // At most 256 names; sorted, so the scan can resume after a leaf
+        TreeSet<String> names = new TreeSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory,
+                entry -> SHARD.matcher(entry.getFileName().toString()).matches() && Files.isDirectory(entry))) {
+            for (Path entry : entries) {
+                names.add(entry.getFileName().toString());
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static BasicFileAttributes attributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Deleted while listing
+            return null;
+        }
+    }
+
+    private record Candidate(String relativePath, Path path, long size, Instant modified) {
+    }
+
+    /**
+     * Budget and counts of one run
+     */
+    private final class Run {
+
+        private final long startNanos = System.nanoTime();
+        private long scanned;
+        private long quarantined;
+        private long restored;
+        private long deleted;
+        private long reclaimedBytes;
+        // Legacy URLs, loaded once per area and run
+        private final Map<StorageArea, Set<String>> nonCanonicalReferences = new EnumMap<>(StorageArea.class);
+
+        boolean exhausted() {
+            return scanned >= maxFilesPerRun;
+        }
+
+        /**
+         * Sleep as long as needed to stay under the configured files per second
+         */
+        void throttle() {
+            if (maxFilesPerSecond <= 0) {
+                return;
+            }
+            long checked = scanned + restored + deleted;
+            long dueNanos = checked * 1_000_000_000L / maxFilesPerSecond;
+            long aheadMillis = TimeUnit.NANOSECONDS.toMillis(dueNanos - (System.nanoTime() - startNanos));
+            if (aheadMillis > 0) {
+                try {
+                    Thread.sleep(aheadMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        Report report() {
+            return new Report(scanned, quarantined, restored, deleted, reclaimedBytes);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.VideoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Base of the in-memory indexes over visible videos.
+ *
+ * The index state of type S is kept up to date from {@link VideoChangedEvent}s after their
+ * transaction commits. Rebuilds read every visible video in pages of REBUILD_PAGE_SIZE into a
+ * fresh state, replay the changes committed in the meantime and swap it in; readers keep
+ * using the current state until then. Rebuilds run on the index's own background thread: the
+ * first once the application is ready, then on a bulk change or on the subclass's schedule.
+ *
+ * @param <S> the index state, only touched while holding the lock
+ */
+public abstract class RebuildableVideoIndex<S> {
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final String name;
+    private final VideoRepository videoRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // One rebuild running and at most one waiting: a waiting rebuild reads everything committed
+    // before it starts, so further requests are dropped
+    private final ThreadPoolExecutor rebuildExecutor;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private S state;
+    private List<VideoChangedEvent> eventsDuringRebuild;
+    private boolean ready;
+
+    /**
+     * @param name name of the index in log messages, e.g. "Video search index"
+     */
+    protected RebuildableVideoIndex(String name, VideoRepository videoRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.videoRepository = videoRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        String threadName = name.toLowerCase(Locale.ROOT).replace(' ', '-');
+        this.rebuildExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        this.state = newState();
+    }
+
+    /**
+     * Create an empty index state. Also called from the constructor, before the subclass's
+     * own fields are set.
+     */
+    protected abstract S newState();
+
+    /**
+     * Apply a change to an index state. Hidden and deleted videos must end up out of it.
+     */
+    protected abstract void apply(S state, VideoChangedEvent event);
+
+    /**
+     * Describe the size of an index state for the log, e.g. "12 videos and 40 terms"
+     */
+    protected abstract String describe(S state);
+
+    /**
+     * Read the current index state under the read lock
+     */
+    protected <T> T read(Function<S, T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the index has been built at least once
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Build the index in the background, so startup does not wait for it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+    }
+
+    /**
+     * Apply a committed change to the index
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVideoChanged(VideoChangedEvent event) {
+        if (event.getType() == VideoChangedEvent.Type.BULK) {
+            // Not on the committing thread: a rebuild reads the whole catalog
+            requestRebuild();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (eventsDuringRebuild != null) {
+                eventsDuringRebuild.add(event);
+            }
+            apply(state, event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the index on its background thread, unless a rebuild is already waiting there
+     */
+    public void requestRebuild() {
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    /**
+     * Rebuild the index from the database and swap it in. Changes committed while the
+     * rebuild is running are replayed on top of the new index.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (eventsDuringRebuild != null) {
+                logger.debug("{} rebuild already running", name);
+                return;
+            }
+            eventsDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        S rebuilt = newState();
+        try {
+            int pageNumber = 0;
+            boolean hasNext = true;
+            while (hasNext) {
+                PageRequest pageRequest = PageRequest.of(pageNumber++, REBUILD_PAGE_SIZE, Sort.by("id"));
+                List<VideoChangedEvent> snapshots = new ArrayList<>();
+                hasNext = Boolean.TRUE.equals(readOnlyTransaction.execute(status -> {
+                    Page<Video> page = videoRepository.findByIsVisibleTrue(pageRequest);
+                    page.forEach(video -> snapshots.add(VideoChangedEvent.saved(video)));
+                    return page.hasNext();
+                }));
+                snapshots.forEach(snapshot -> apply(rebuilt, snapshot));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to rebuild {}, keeping the current one", name.toLowerCase(Locale.ROOT), e);
+            lock.writeLock().lock();
+            try {
+                eventsDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        String size;
+        lock.writeLock().lock();
+        try {
+            eventsDuringRebuild.forEach(event -> apply(rebuilt, event));
+            eventsDuringRebuild = null;
+            state = rebuilt;
+            ready = true;
+            size = describe(rebuilt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("{} rebuilt with {}", name, size);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,267 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory inverted index from tags, hashtags and genre to visible video IDs.
+ *
+ * Related videos are ranked by IDF-weighted Jaccard similarity of their feature sets, with
+ * views as the tiebreak. A lookup only touches the posting lists of the source video's
+ * features (each capped at {@code maxPostingScan} entries), so latency depends on the
+ * number of candidates rather than on the size of the catalog.
+ *
+ * The index is kept up to date and rebuilt as described in {@link RebuildableVideoIndex};
+ * the periodic rebuild picks up writes that bypass VideoService.
+ */
+@Service
+public class RelatedVideoIndex extends RebuildableVideoIndex<RelatedVideoIndex.State> {
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingDouble((Candidate c) -> c.score)
+            .thenComparingLong(c -> c.views)
+            .thenComparing(Comparator.comparingLong((Candidate c) -> c.id).reversed());
+
+    private final int maxPostingScan;
+
+    /**
+     * Indexed videos and the posting list of every feature
+     */
+    static final class State {
+        final Map<Long, Entry> entries = new HashMap<>();
+        final Map<String, Set<Long>> postings = new HashMap<>();
+    }
+
+    @Autowired
+    public RelatedVideoIndex(VideoRepository videoRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${video.related.max-posting-scan:5000}") int maxPostingScan) {
+        super("Related video index", videoRepository, transactionManager);
+        this.maxPostingScan = maxPostingScan;
+    }
+
+    /**
+     * Find the IDs of the videos most similar to the given one
+     *
+     * @param video the source video
+     * @param limit maximum number of IDs to return
+     * @return video IDs ordered from most to least related, never containing the source video
+     */
+    public List<Long> findRelated(Video video, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        return read(state -> {
+            Entry indexed = state.entries.get(video.getId());
+            // Not indexed (hidden, or not committed yet): fall back to the entity's own features
+            String[] features = indexed != null
+                    ? indexed.features
+                    : featuresOf(video.getTags(), video.getHashtags(), video.getGenre() != null ? video.getGenre().getId() : null);
+            return rank(state, video.getId(), features, limit);
+        });
+    }
+
+    /**
+     * Number of videos currently in the index
+     */
+    public int size() {
+        return read(state -> state.entries.size());
+    }
+
+    @Scheduled(fixedDelayString = "${video.related.rebuild-interval-ms:3600000}",
+            initialDelayString = "${video.related.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    @Override
+    protected State newState() {
+        return new State();
+    }
+
+    @Override
+    protected String describe(State state) {
+        return state.entries.size() + " videos and " + state.postings.size() + " features";
+    }
+
+    private List<Long> rank(State state, Long sourceId, String[] features, int limit) {
+        Map<Long, Entry> entries = state.entries;
+        Map<String, Set<Long>> postings = state.postings;
+        if (features.length == 0 || entries.isEmpty()) {
+            return List.of();
+        }
+
+        // Most selective features first, so the scan cap only ever trims the least informative lists
+        String[] ordered = features.clone();
+        Arrays.sort(ordered, Comparator.comparingInt(feature -> documentFrequency(state, feature)));
+
+        double sourceWeight = 0;
+        Map<Long, double[]> overlap = new HashMap<>();
+        for (String feature : ordered) {
+            Set<Long> ids = postings.get(feature);
+            if (ids == null) {
+                continue;
+            }
+            double weight = idf(state, ids.size());
+            sourceWeight += weight;
+            if (ids.size() > maxPostingScan && overlap.size() >= limit) {
+                continue;
+            }
+            int scanned = 0;
+            for (Long id : ids) {
+                if (!id.equals(sourceId)) {
+                    overlap.computeIfAbsent(id, k -> new double[1])[0] += weight;
+                }
+                if (++scanned >= maxPostingScan) {
+                    break;
+                }
+            }
+        }
+
+        PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1, RANKING);
+        for (Map.Entry<Long, double[]> e : overlap.entrySet()) {
+            Entry candidate = entries.get(e.getKey());
+            if (candidate == null) {
+                continue;
+            }
+            double intersection = e.getValue()[0];
+            double union = sourceWeight + weightOf(state, candidate.features) - intersection;
+            double score = union > 0 ? intersection / union : 0;
+            top.offer(new Candidate(candidate.id, score, candidate.views));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        Long[] ranked = new Long[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = top.poll().id;
+        }
+        return Arrays.asList(ranked);
+    }
+
+    private static double weightOf(State state, String[] features) {
+        double weight = 0;
+        for (String feature : features) {
+            weight += idf(state, documentFrequency(state, feature));
+        }
+        return weight;
+    }
+
+    private static int documentFrequency(State state, String feature) {
+        Set<Long> ids = state.postings.get(feature);
+        return ids == null ? 0 : ids.size();
+    }
+
+    private static double idf(State state, int documentFrequency) {
+        return Math.log(1.0 + (double) state.entries.size() / Math.max(1, documentFrequency));
+    }
+
+    @Override
+    protected void apply(State state, VideoChangedEvent event) {
+        Map<Long, Entry> entries = state.entries;
+        Map<String, Set<Long>> postings = state.postings;
+        Long id = event.getVideoId();
+        if (id == null) {
+            return;
+        }
+
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            for (String feature : previous.features) {
+                Set<Long> ids = postings.get(feature);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(feature);
+                    }
+                }
+            }
+        }
+
+        // Hidden videos are never suggested, so they are simply left out of the index
+        if (event.getType() != VideoChangedEvent.Type.SAVED || !event.isVisible()) {
+            return;
+        }
+
+        Entry entry = new Entry(id, featuresOf(event.getTags(), event.getHashtags(), event.getGenreId()), event.getViews());
+        entries.put(id, entry);
+        for (String feature : entry.features) {
+            postings.computeIfAbsent(feature, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    static String[] featuresOf(Collection<String> tags, Collection<String> hashtags, Long genreId) {
+        Set<String> features = new LinkedHashSet<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                String normalized = normalize(tag);
+                if (!normalized.isEmpty()) {
+                    features.add("t:" + normalized);
+                }
+            }
+        }
+        if (hashtags != null) {
+            for (String hashtag : hashtags) {
+                String normalized = normalize(hashtag);
+                if (normalized.startsWith("#")) {
+                    normalized = normalized.substring(1);
+                }
+                if (!normalized.isEmpty()) {
+                    features.add("h:" + normalized);
+                }
+            }
+        }
+        if (genreId != null) {
+            features.add("g:" + genreId);
+        }
+        return features.toArray(new String[0]);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        final long id;
+        final String[] features;
+        final long views;
+
+        Entry(long id, String[] features, long views) {
+            this.id = id;
+            this.features = features;
+            this.views = views;
+        }
+    }
+
+    private static final class Candidate {
+        final long id;
+        final double score;
+        final long views;
+
+        Candidate(long id, double score, long views) {
+            this.id = id;
+            this.score = score;
+            this.views = views;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.media.SpriteSheets;
+import com.bitzomax.model.ProcessingLane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Stores seek-preview sprite sheets and their WebVTT track.
+ *
+ * Sheets live under media.sprites.dir/{videoId}/{run}/, one run directory per processing run.
+ * {videoId}/current.properties names the published run and the video file it was sampled
+ * from; it is replaced atomically, so readers see either the old or the new run.
+ */
+@Service
+public class SpriteSheetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpriteSheetService.class);
+    private static final String CURRENT_FILE = "current.properties";
+    private static final Pattern RUN_NAME = Pattern.compile("\\d+-[0-9a-f]{8}");
+    private static final Pattern SHEET_NAME = Pattern.compile("sheet_\\d{3,6}\\.jpg");
+
+    private final MediaProcessingQueue mediaProcessingQueue;
+    private final Path spritesLocation;
+
+    @Autowired
+    public SpriteSheetService(MediaProcessingQueue mediaProcessingQueue,
+                              @Value("${media.sprites.dir:./data/sprites}") String spritesDir) {
+        this.mediaProcessingQueue = mediaProcessingQueue;
+        this.spritesLocation = Paths.get(spritesDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Create a fresh directory for one sampling run of a video
+     */
+    public Path newRunDirectory(Long videoId) throws IOException {
+        String run = System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return Files.createDirectories(videoDirectory(videoId).resolve(run));
+    }
+
+    /**
+     * Make a completed run the current one and delete all other runs of the video
+     *
+     * @param videoId the video ID
+     * @param runDirectory the run directory from newRunDirectory, holding the sheets and the track
+     * @param videoUrl the web path of the video file the sheets were sampled from
+     */
+    public void publish(Long videoId, Path runDirectory, String videoUrl) throws IOException {
+        Path videoDirectory = videoDirectory(videoId);
+        String run = runDirectory.getFileName().toString();
+
+        Properties current = new Properties();
+        current.setProperty("run", run);
+        current.setProperty("source", sourceName(videoUrl));
+        Path temp = videoDirectory.resolve(CURRENT_FILE + "." + run + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp)) {
+            current.store(out, null);
+        }
+        Files.move(temp, videoDirectory.resolve(CURRENT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        try (Stream<Path> runs = Files.list(videoDirectory)) {
+            for (Path other : runs.filter(Files::isDirectory).toList()) {
+                if (!other.getFileName().toString().equals(run)) {
+                    deleteDirectory(other);
+                }
+            }
+        }
+        logger.info("Published sprite sheets of video {} from run {}", videoId, run);
+    }
+
+    /**
+     * Name of the current run of a video, which is part of the sheet URLs
+     */
+    public Optional<String> getCurrentRun(Long videoId) {
+        return readCurrent(videoId).map(current -> current.getProperty("run"));
+    }
+
+    /**
+     * The WebVTT track of the current run
+     */
+    public Optional<Path> resolveTrack(Long videoId) {
+        return getCurrentRun(videoId)
+                .map(run -> videoDirectory(videoId).resolve(run).resolve(SpriteSheets.TRACK_FILE));
+    }
+
+    /**
+     * Resolve a sheet of the current run. Older runs are deleted once a new one is published.
+     *
+     * @return the sheet file, or empty if the run is not current or the name is not a sheet
+     */
+    public Optional<Path> resolveSheet(Long videoId, String run, String fileName) {
+        if (!RUN_NAME.matcher(run).matches() || !SHEET_NAME.matcher(fileName).matches()) {
+            return Optional.empty();
+        }
+        return getCurrentRun(videoId)
+                .filter(run::equals)
+                .map(current -> videoDirectory(videoId).resolve(current).resolve(fileName));
+    }
+
+    /**
+     * Remove the sheets of deleted videos, and sample a video again when its file was replaced
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onVideoChanged(VideoChangedEvent event) {
+        if (event.getType() == VideoChangedEvent.Type.DELETED) {
+            deleteDirectory(videoDirectory(event.getVideoId()));
+            return;
+        }
+        if (event.getType() != VideoChangedEvent.Type.SAVED || event.getVideoUrl() == null) {
+            return;
+        }
+
+        // Videos without sheets get them with their first processing job
+        Optional<String> source = readCurrent(event.getVideoId()).map(current -> current.getProperty("source"));
+        if (source.isPresent() && !source.get().equals(sourceName(event.getVideoUrl()))) {
+            logger.info("Video file of video {} changed, queueing it for processing", event.getVideoId());
+            mediaProcessingQueue.enqueue(event.getVideoId(), ProcessingLane.UPLOAD);
+        }
+    }
+
+    /**
+     * Videos are compared by file name: it is random per upload or the content hash, and
+     * stays the same when the storage migration only moves the file to another directory
+     */
+    private static String sourceName(String videoUrl) {
+        return Objects.requireNonNullElse(StringUtils.getFilename(videoUrl), "");
+    }
+
+    private Optional<Properties> readCurrent(Long videoId) {
+        Properties current = new Properties();
+        try (Reader in = Files.newBufferedReader(videoDirectory(videoId).resolve(CURRENT_FILE))) {
+            current.load(in);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn("Could not read the sprite sheets of video {}: {}", videoId, e.getMessage());
+            return Optional.empty();
+        }
+        String run = current.getProperty("run");
+        return run != null && RUN_NAME.matcher(run).matches() ? Optional.of(current) : Optional.empty();
+    }
+
+    private Path videoDirectory(Long videoId) {
+        return spritesLocation.resolve(videoId.toString());
+    }
+
+    private void deleteDirectory(Path directory) {
+        try {
+            FileSystemUtils.deleteRecursively(directory);
+        } catch (IOException e) {
+            logger.warn("Could not delete sprite directory {}: {}", directory, e.getMessage());
+        }
+    }
+}
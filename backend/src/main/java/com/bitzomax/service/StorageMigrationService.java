@@ -0,0 +1,94 @@
+package com.bitzomax.service;
+
+import com.bitzomax.dto.VideoFileRef;
+import com.bitzomax.repository.VideoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves files uploaded before the sharded layout (/uploads/videos/{name}) to their sharded
+ * keys and rewrites Video.videoUrl and Video.thumbnailUrl.
+ *
+ * Each file is moved before its reference is updated, so a crash in between leaves the file
+ * under its sharded key, where the next run finds it. Running it again is always safe.
+ */
+@Service
+public class StorageMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageMigrationService.class);
+
+    private final VideoRepository videoRepository;
+    private final FileStorageService fileStorageService;
+    private final VideoCaches videoCaches;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    public StorageMigrationService(VideoRepository videoRepository,
+                                   FileStorageService fileStorageService,
+                                   VideoCaches videoCaches,
+                                   @Value("${file.storage.migration-batch-size:500}") int batchSize) {
+        this.videoRepository = videoRepository;
+        this.fileStorageService = fileStorageService;
+        this.videoCaches = videoCaches;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Migrate all videos to the sharded layout
+     *
+     * @return counts of scanned videos, moved files and failures
+     * @throws IllegalStateException if a migration is already running
+     */
+    public Map<String, Integer> migrateToShardedLayout() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A storage migration is already running");
+        }
+        int scanned = 0;
+        int migrated = 0;
+        int failed = 0;
+        try {
+            long afterId = 0;
+            List<VideoFileRef> batch;
+            do {
+                batch = videoRepository.findFileRefsAfter(afterId, Limit.of(batchSize));
+                for (VideoFileRef ref : batch) {
+                    scanned++;
+                    afterId = ref.id();
+                    try {
+                        if (ref.videoUrl() != null) {
+                            Optional<String> newUrl = fileStorageService.migrateVideoFile(ref.videoUrl());
+                            if (newUrl.isPresent() && videoRepository.replaceVideoUrl(ref.id(), ref.videoUrl(), newUrl.get()) > 0) {
+                                migrated++;
+                            }
+                        }
+                        if (ref.thumbnailUrl() != null) {
+                            Optional<String> newUrl = fileStorageService.migrateThumbnailFile(ref.thumbnailUrl());
+                            if (newUrl.isPresent() && videoRepository.replaceThumbnailUrl(ref.id(), ref.thumbnailUrl(), newUrl.get()) > 0) {
+                                migrated++;
+                            }
+                        }
+                    } catch (Exception e) {
+                        failed++;
+                        logger.warn("Could not migrate the files of video {}: {}", ref.id(), e.getMessage());
+                    }
+                }
+            } while (batch.size() == batchSize);
+        } finally {
+            running.set(false);
+            videoCaches.evictAllVideos();
+        }
+
+        logger.info("Storage migration done: {} videos scanned, {} files moved, {} failed", scanned, migrated, failed);
+        return Map.of("scanned", scanned, "migrated", migrated, "failed", failed);
+    }
+}
@@ -0,0 +1,127 @@
+package com.bitzomax.service;
+
+import com.bitzomax.dto.FileUploadResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Stores the parts of a multipart upload while the request body arrives, instead of letting
+ * the servlet container spool the whole request to temporary files first. The video part goes
+ * to its staging file in one pass that also hashes and measures it, so each uploaded byte is
+ * written to disk once before the file is moved to its storage key.
+ *
+ * Accepts the fields of /api/videos/upload: videoFile (or file), thumbnailFile and videoData,
+ * in any order.
+ */
+@Service
+public class StreamingUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingUploadService.class);
+
+    private final FileStorageService fileStorageService;
+    private final long maxVideoSize;
+    private final long maxThumbnailSize;
+    private final int maxFieldSize;
+
+    /**
+     * What a streamed upload contained; absent parts are null
+     */
+    public record StreamedUpload(FileUploadResponse video, FileUploadResponse thumbnail, String videoData) {
+    }
+
+    @Autowired
+    public StreamingUploadService(FileStorageService fileStorageService,
+                                  @Value("${video.upload.max-size:21474836480}") long maxVideoSize,
+                                  @Value("${video.upload.stream.max-thumbnail-size:10485760}") long maxThumbnailSize,
+                                  @Value("${video.upload.stream.max-field-size:1048576}") int maxFieldSize) {
+        this.fileStorageService = fileStorageService;
+        this.maxVideoSize = maxVideoSize;
+        this.maxThumbnailSize = maxThumbnailSize;
+        this.maxFieldSize = maxFieldSize;
+    }
+
+    /**
+     * Read a multipart/form-data request body and store its files. If the body turns out to be
+     * malformed or incomplete, files already stored from it are deleted again.
+     *
+     * @param body the request body
+     * @param contentType the request's content type, including the boundary
+     * @return the stored files and the videoData field
+     * @throws IllegalArgumentException if the request is not multipart/form-data or has no video
+     * @throws IOException if the body is malformed or the client disconnects
+     */
+    public StreamedUpload ingest(InputStream body, String contentType) throws IOException {
+        String boundary = MultipartStreamReader.boundary(contentType);
+        if (boundary == null) {
+            throw new IllegalArgumentException("Expected a multipart/form-data request with a boundary");
+        }
+
+        MultipartStreamReader reader = new MultipartStreamReader(body, boundary);
+        FileUploadResponse video = null;
+        FileUploadResponse thumbnail = null;
+        String videoData = null;
+        boolean complete = false;
+        try {
+            MultipartStreamReader.Part part;
+            while ((part = reader.nextPart()) != null) {
+                String name = part.name() != null ? part.name() : "";
+                switch (name) {
+                    case "videoFile", "file" -> {
+                        if (video != null) {
+                            throw new IllegalArgumentException("More than one video file");
+                        }
+                        video = fileStorageService.storeVideoFile(part.body(), fileName(part),
+                                part.contentType(), maxVideoSize);
+                    }
+                    case "thumbnailFile" -> {
+                        if (thumbnail != null) {
+                            throw new IllegalArgumentException("More than one thumbnail file");
+                        }
+                        // Browsers send empty file parts for file inputs left empty
+                        if (part.fileName() != null && !part.fileName().isEmpty()) {
+                            thumbnail = fileStorageService.storeThumbnailFile(part.body(), fileName(part),
+                                    part.contentType(), maxThumbnailSize);
+                        }
+                    }
+                    case "videoData" -> videoData = part.readString(maxFieldSize);
+                    default -> logger.debug("Ignoring multipart field {}", name);
+                }
+            }
+            if (video == null) {
+                throw new IllegalArgumentException("Video file is required");
+            }
+            complete = true;
+        } finally {
+            if (!complete) {
+                if (video != null) {
+                    discard(video.getFilePath(), fileStorageService::deleteVideoFile);
+                }
+                if (thumbnail != null) {
+                    discard(thumbnail.getFilePath(), fileStorageService::deleteThumbnailFile);
+                }
+            }
+        }
+
+        logger.info("Stored streamed upload {} ({} bytes)", video.getFileName(), video.getSize());
+        return new StreamedUpload(video, thumbnail, videoData);
+    }
+
+    private static String fileName(MultipartStreamReader.Part part) {
+        return part.fileName() != null && !part.fileName().isEmpty() ? part.fileName() : "upload";
+    }
+
+    private void discard(String filePath, Consumer<String> delete) {
+        try {
+            delete.accept(filePath);
+        } catch (RuntimeException e) {
+            logger.warn("Could not delete {} of an incomplete upload: {}", filePath, e.getMessage());
+        }
+    }
+}
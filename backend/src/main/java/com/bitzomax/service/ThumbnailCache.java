@@ -0,0 +1,187 @@
+package com.bitzomax.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Bounded on-disk cache of rendered thumbnails with least-recently-used eviction.
+ *
+ * Entries live in {cache-dir}/{first two key characters}/{key}. Access order is kept in
+ * memory only; after a restart the entries are ordered by their file time, i.e. by when
+ * they were rendered. File times are not touched on reads because they feed the ETag.
+ */
+@Component
+public class ThumbnailCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailCache.class);
+    private static final String TEMP_DIR = ".tmp";
+
+    private final Path cacheDir;
+    private final long maxBytes;
+
+    // key -> file size, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    @Autowired
+    public ThumbnailCache(@Value("${media.thumbnails.cache-dir:./data/thumbnail-cache}") String cacheDir,
+                          @Value("${media.thumbnails.cache-max-bytes:536870912}") long maxBytes) {
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(this.cacheDir.resolve(TEMP_DIR));
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not initialise the thumbnail cache in " + this.cacheDir, e);
+        }
+    }
+
+    /**
+     * Look up a cached file, marking it as recently used
+     */
+    public synchronized Optional<Path> get(String key) {
+        return entries.get(key) != null ? Optional.of(pathOf(key)) : Optional.empty();
+    }
+
+    /**
+     * Whether a key is cached, without changing its position in the eviction order
+     */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * A fresh path to render into before handing the file to put
+     */
+    public Path newTempFile(String extension) {
+        return cacheDir.resolve(TEMP_DIR).resolve(UUID.randomUUID() + extension);
+    }
+
+    /**
+     * Move a rendered file into the cache and evict least recently used entries beyond the size limit
+     *
+     * @param key the cache key; letters, digits, '-' and '.' only
+     * @param rendered the rendered file, from newTempFile; it is consumed
+     * @return the cached file
+     */
+    public Path put(String key, Path rendered) throws IOException {
+        Path target = pathOf(key);
+        Files.createDirectories(target.getParent());
+        long size = Files.size(rendered);
+        Files.move(rendered, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = entries.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    break;
+                }
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+
+        for (String evictedKey : evicted) {
+            try {
+                Files.deleteIfExists(pathOf(evictedKey));
+            } catch (IOException e) {
+                logger.warn("Could not delete evicted thumbnail {}", evictedKey, e);
+            }
+        }
+        if (!evicted.isEmpty()) {
+            logger.debug("Evicted {} thumbnails, cache holds {} bytes", evicted.size(), totalBytes());
+        }
+        return target;
+    }
+
+    /**
+     * Drop an entry whose file has disappeared
+     */
+    public synchronized void invalidate(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Path pathOf(String key) {
+        if (!key.matches("[A-Za-z0-9.-]+") || key.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid thumbnail cache key: " + key);
+        }
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /**
+     * Rebuild the index from disk, oldest first, and drop leftovers of interrupted renders
+     */
+    private void load() throws IOException {
+        record CachedFile(String key, long size, long modified) {
+        }
+
+        List<CachedFile> files = new ArrayList<>();
+        try (Stream<Path> shards = Files.list(cacheDir)) {
+            for (Path shard : shards.toList()) {
+                if (!Files.isDirectory(shard)) {
+                    continue;
+                }
+                if (shard.getFileName().toString().equals(TEMP_DIR)) {
+                    try (Stream<Path> temp = Files.list(shard)) {
+                        for (Path leftover : temp.toList()) {
+                            Files.deleteIfExists(leftover);
+                        }
+                    }
+                    continue;
+                }
+                try (Stream<Path> cached = Files.list(shard)) {
+                    for (Path file : cached.toList()) {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        if (attributes.isRegularFile()) {
+                            files.add(new CachedFile(file.getFileName().toString(), attributes.size(),
+                                    attributes.lastModifiedTime().toMillis()));
+                        }
+                    }
+                }
+            }
+        }
+
+        files.sort(Comparator.comparingLong(CachedFile::modified));
+        for (CachedFile file : files) {
+            entries.put(file.key(), file.size());
+            totalBytes += file.size();
+        }
+        logger.info("Thumbnail cache in {} holds {} files, {} bytes", cacheDir, entries.size(), totalBytes);
+    }
+}
@@ -0,0 +1,261 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.media.ThumbnailFormat;
+import com.bitzomax.media.ThumbnailRenderer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-width, compact derivatives of uploaded thumbnails for grids and listings.
+ *
+ * Derivatives are rendered in the background when a video with a new thumbnail is saved,
+ * and on first request for thumbnails uploaded before that. Requested widths snap to the
+ * configured ones, so the cache never holds more than widths x formats files per image.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private final FileStorageService fileStorageService;
+    private final ThumbnailRenderer thumbnailRenderer;
+    private final ThumbnailCache thumbnailCache;
+    private final int[] widths;
+    private final int defaultWidth;
+    private final boolean pregenerate;
+
+    // Concurrent requests for the same derivative wait for a single render
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    // Background pre-rendering; when the queue is full the work is dropped and done on first request
+    private final ThreadPoolExecutor pregenerateExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(256), runnable -> {
+                Thread thread = new Thread(runnable, "thumbnail-pregenerate");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    @Autowired
+    public ThumbnailService(FileStorageService fileStorageService,
+                            ThumbnailRenderer thumbnailRenderer,
+                            ThumbnailCache thumbnailCache,
+                            @Value("${media.thumbnails.widths:160,320,640}") String widths,
+                            @Value("${media.thumbnails.default-width:320}") int defaultWidth,
+                            @Value("${media.thumbnails.pregenerate:true}") boolean pregenerate) {
+        this.fileStorageService = fileStorageService;
+        this.thumbnailRenderer = thumbnailRenderer;
+        this.thumbnailCache = thumbnailCache;
+        this.widths = parseWidths(widths);
+        this.defaultWidth = defaultWidth;
+        this.pregenerate = pregenerate;
+    }
+
+    /**
+     * A rendered derivative ready to be streamed
+     */
+    public record Derivative(Path path, ThumbnailFormat format, int width) {
+    }
+
+    /**
+     * Get a derivative of a thumbnail, rendering it if it is not cached yet
+     *
+     * @param thumbnailUrl the web path of the original thumbnail
+     * @param requestedWidth the width the client asked for, or null for the default
+     * @param accept the request's Accept header, may be null
+     * @return the cached derivative
+     * @throws IOException if the original is missing or cannot be rendered
+     */
+    public Derivative getDerivative(String thumbnailUrl, Integer requestedWidth, String accept) throws IOException {
+        int width = snapWidth(requestedWidth);
+        ThumbnailFormat format = negotiate(accept);
+        if (format == ThumbnailFormat.WEBP) {
+            try {
+                return new Derivative(derivative(thumbnailUrl, width, format), format, width);
+            } catch (IOException e) {
+                // e.g. an ffmpeg build without libwebp; JPEG is rendered in-process
+                logger.warn("Could not render a WebP thumbnail of {}, falling back to JPEG: {}", thumbnailUrl, e.getMessage());
+            }
+        }
+        return new Derivative(derivative(thumbnailUrl, width, ThumbnailFormat.JPEG), ThumbnailFormat.JPEG, width);
+    }
+
+    /**
+     * Render all derivatives of a thumbnail that are not cached yet
+     */
+    public void pregenerate(String thumbnailUrl) {
+        for (ThumbnailFormat format : ThumbnailFormat.values()) {
+            if (!thumbnailRenderer.supports(format)) {
+                continue;
+            }
+            for (int width : widths) {
+                if (thumbnailCache.contains(cacheKey(thumbnailUrl, width, format))) {
+                    continue;
+                }
+                try {
+                    derivative(thumbnailUrl, width, format);
+                } catch (IOException e) {
+                    logger.warn("Could not pre-render the {}px {} thumbnail of {}: {}", width, format, thumbnailUrl, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue pre-rendering when a saved video carries a thumbnail whose derivatives are missing
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVideoChanged(VideoChangedEvent event) {
+        String thumbnailUrl = event.getThumbnailUrl();
+        if (!pregenerate || event.getType() != VideoChangedEvent.Type.SAVED
+                || thumbnailUrl == null || thumbnailUrl.isBlank()) {
+            return;
+        }
+        // Most saves leave the thumbnail alone; skip them without touching the executor
+        if (thumbnailCache.contains(cacheKey(thumbnailUrl, widths[widths.length - 1], ThumbnailFormat.JPEG))) {
+            return;
+        }
+        pregenerateExecutor.execute(() -> pregenerate(thumbnailUrl));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pregenerateExecutor.shutdownNow();
+    }
+
+    /**
+     * The smallest configured width that covers the requested one, or the largest
+     */
+    int snapWidth(Integer requested) {
+        int wanted = requested != null && requested > 0 ? requested : defaultWidth;
+        for (int width : widths) {
+            if (width >= wanted) {
+                return width;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    /**
+     * WebP when the client lists it explicitly and it can be rendered, JPEG otherwise.
+     * Wildcards do not count: browsers that decode WebP announce it by name.
+     */
+    ThumbnailFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank() || !thumbnailRenderer.supports(ThumbnailFormat.WEBP)) {
+            return ThumbnailFormat.JPEG;
+        }
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.equalsTypeAndSubtype(ThumbnailFormat.WEBP.getMediaType())) {
+                    return mediaType.getQualityValue() > 0 ? ThumbnailFormat.WEBP : ThumbnailFormat.JPEG;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            logger.debug("Ignoring malformed Accept header '{}'", accept);
+        }
+        return ThumbnailFormat.JPEG;
+    }
+
+    private Path derivative(String thumbnailUrl, int width, ThumbnailFormat format) throws IOException {
+        String key = cacheKey(thumbnailUrl, width, format);
+        Optional<Path> cached = thumbnailCache.get(key);
+        if (cached.isPresent()) {
+            if (Files.exists(cached.get())) {
+                return cached.get();
+            }
+            thumbnailCache.invalidate(key);
+        }
+
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            future.complete(render(thumbnailUrl, key, width, format));
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, future);
+        }
+        return await(future);
+    }
+
+    private Path render(String thumbnailUrl, String key, int width, ThumbnailFormat format) throws IOException {
+        Path temp = thumbnailCache.newTempFile(format.getExtension());
+        try (FileStorageService.LocalFile source = fileStorageService.openLocalThumbnail(thumbnailUrl)) {
+            long started = System.nanoTime();
+            thumbnailRenderer.render(source.path(), temp, width, format);
+            Path cached = thumbnailCache.put(key, temp);
+            logger.debug("Rendered {}px {} thumbnail of {} in {} ms", width, format, thumbnailUrl,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return cached;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering a thumbnail of " + thumbnailUrl);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a thumbnail");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Derivatives are keyed by the original's web path, which changes whenever a new
+     * thumbnail is uploaded (random or content-addressed names), so entries never go stale
+     */
+    private static String cacheKey(String thumbnailUrl, int width, ThumbnailFormat format) {
+        String hash = ContentAddressedStore.toHex(
+                ContentAddressedStore.newDigest().digest(thumbnailUrl.getBytes(StandardCharsets.UTF_8)));
+        return hash + "-" + width + format.getExtension();
+    }
+
+    private static int[] parseWidths(String widths) {
+        int[] parsed = Arrays.stream(widths.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .filter(width -> width > 0)
+                .sorted()
+                .distinct()
+                .toArray();
+        if (parsed.length == 0) {
+            throw new IllegalArgumentException("media.thumbnails.widths must list at least one width");
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,157 @@
+package com.bitzomax.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * State of one resumable upload, persisted as a JSON sidecar next to its .part file.
+ *
+ * The file is split into fixed-size chunks; a bitmap records which chunks have been
+ * written and forced to disk, so a client can resume by re-sending only the missing ones.
+ */
+public class UploadSession {
+
+    private String id;
+    private String fileName;
+    private String contentType;
+    private long totalSize;
+    private int chunkSize;
+    private long createdAt;
+    private long updatedAt;
+    private BitSet receivedChunks = new BitSet();
+
+    public UploadSession() {
+    }
+
+    public UploadSession(String id, String fileName, String contentType, long totalSize, int chunkSize) {
+        this.id = id;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.totalSize = totalSize;
+        this.chunkSize = chunkSize;
+        this.createdAt = System.currentTimeMillis();
+        this.updatedAt = this.createdAt;
+    }
+
+    /**
+     * Number of chunks the file is split into
+     *
+     * @throws ArithmeticException if the count does not fit in an int
+     */
+    @JsonIgnore
+    public int getChunkCount() {
+        return Math.toIntExact((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Expected length of a chunk; only the last one may be shorter than chunkSize
+     */
+    @JsonIgnore
+    public long getChunkLength(int chunkIndex) {
+        long start = (long) chunkIndex * chunkSize;
+        return Math.min(chunkSize, totalSize - start);
+    }
+
+    @JsonIgnore
+    public boolean isChunkReceived(int chunkIndex) {
+        return receivedChunks.get(chunkIndex);
+    }
+
+    public void markChunkReceived(int chunkIndex) {
+        receivedChunks.set(chunkIndex);
+        updatedAt = System.currentTimeMillis();
+    }
+
+    @JsonIgnore
+    public boolean isComplete() {
+        return receivedChunks.cardinality() == getChunkCount();
+    }
+
+    @JsonIgnore
+    public long getReceivedBytes() {
+        long received = 0;
+        for (int i = receivedChunks.nextSetBit(0); i >= 0; i = receivedChunks.nextSetBit(i + 1)) {
+            received += getChunkLength(i);
+        }
+        return received;
+    }
+
+    @JsonIgnore
+    public List<Integer> getMissingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = receivedChunks.nextClearBit(0); i < getChunkCount(); i = receivedChunks.nextClearBit(i + 1)) {
+            missing.add(i);
+        }
+        return missing;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Bitmap of received chunks in its compact serialized form
+     */
+    public long[] getReceivedChunkBitmap() {
+        return receivedChunks.toLongArray();
+    }
+
+    public void setReceivedChunkBitmap(long[] bitmap) {
+        this.receivedChunks = bitmap == null ? new BitSet() : BitSet.valueOf(bitmap);
+    }
+}
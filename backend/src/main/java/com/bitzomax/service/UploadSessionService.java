@@ -0,0 +1,290 @@
+package com.bitzomax.service;
+
+import com.bitzomax.config.FileStorageProperties;
+import com.bitzomax.dto.FileUploadResponse;
+import com.bitzomax.exception.FileStorageException;
+import com.bitzomax.exception.UploadSessionNotFoundException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable, chunked uploads for large video files.
+ *
+ * A session preallocates a .part file of the announced size. Each chunk is streamed from the
+ * request straight into that file at its offset with positional FileChannel writes, forced to
+ * disk, and only then marked as received in the session's chunk bitmap. The bitmap is kept in
+ * a JSON sidecar, so sessions survive restarts and a retry only re-sends missing chunks.
+ * Committing a complete session hands the file to FileStorageService.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private static final Pattern SESSION_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final String SESSION_SUFFIX = ".json";
+    private static final String PART_SUFFIX = ".part";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final FileStorageService fileStorageService;
+    private final Path sessionLocation;
+    private final int defaultChunkSize;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long maxUploadSize;
+    private final Duration expiry;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final ConcurrentHashMap<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UploadSessionService(FileStorageService fileStorageService,
+                                FileStorageProperties fileStorageProperties,
+                                @Value("${video.upload.default-chunk-size:8388608}") int defaultChunkSize,
+                                @Value("${video.upload.min-chunk-size:1048576}") int minChunkSize,
+                                @Value("${video.upload.max-chunk-size:67108864}") int maxChunkSize,
+                                @Value("${video.upload.max-size:21474836480}") long maxUploadSize,
+                                @Value("${video.upload.session-expiry-hours:24}") long expiryHours) {
+        this.fileStorageService = fileStorageService;
+        this.sessionLocation = Paths.get(fileStorageProperties.getUploadSessionDir()).toAbsolutePath().normalize();
+        this.defaultChunkSize = defaultChunkSize;
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.maxUploadSize = maxUploadSize;
+        this.expiry = Duration.ofHours(expiryHours);
+
+        try {
+            Files.createDirectories(this.sessionLocation);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not create the directory for upload sessions.", ex);
+        }
+    }
+
+    /**
+     * Start a new upload session and preallocate its file
+     *
+     * @param fileName the client's file name
+     * @param contentType the client's content type
+     * @param totalSize the size of the complete file in bytes
+     * @param chunkSize the requested chunk size, or null for the default
+     * @return the new session
+     * @throws IllegalArgumentException if the size or chunk size is out of range
+     */
+    public UploadSession createSession(String fileName, String contentType, long totalSize, Integer chunkSize) {
+        if (!StringUtils.hasText(fileName)) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        if (totalSize <= 0 || totalSize > maxUploadSize) {
+            throw new IllegalArgumentException("totalSize must be between 1 and " + maxUploadSize + " bytes");
+        }
+        int effectiveChunkSize = chunkSize != null ? chunkSize : defaultChunkSize;
+        // The lower bound keeps the chunk count, and the per-chunk bookkeeping, proportional to
+        // the file size divided by at least minChunkSize
+        if (effectiveChunkSize < Math.max(minChunkSize, 1) || effectiveChunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("chunkSize must be between " + Math.max(minChunkSize, 1)
+                    + " and " + maxChunkSize + " bytes");
+        }
+
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(),
+                StringUtils.cleanPath(fileName), contentType, totalSize, effectiveChunkSize);
+        try (RandomAccessFile file = new RandomAccessFile(partPath(session.getId()).toFile(), "rw")) {
+            // Sparse where the file system supports it; chunks fill it in at their offsets
+            file.setLength(totalSize);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not allocate upload file", ex);
+        }
+        persist(session);
+        sessions.put(session.getId(), session);
+
+        logger.info("Created upload session {} for {} ({} bytes, {} chunks)",
+                session.getId(), session.getFileName(), totalSize, session.getChunkCount());
+        return session;
+    }
+
+    /**
+     * Look up a session, loading it from disk after a restart
+     *
+     * @throws UploadSessionNotFoundException if the session does not exist
+     */
+    public UploadSession getSession(String uploadId) {
+        return findSession(uploadId).orElseThrow(() -> new UploadSessionNotFoundException(uploadId));
+    }
+
+    /**
+     * Write one chunk at the given byte offset
+     *
+     * @param uploadId the session ID
+     * @param offset byte offset of the chunk; must be a multiple of the chunk size
+     * @param data request body with exactly the chunk's bytes
+     * @return the updated session
+     * @throws IllegalArgumentException if the offset or length does not match a chunk
+     */
+    public UploadSession writeChunk(String uploadId, long offset, InputStream data) {
+        UploadSession session = getSession(uploadId);
+        if (offset < 0 || offset >= session.getTotalSize() || offset % session.getChunkSize() != 0) {
+            throw new IllegalArgumentException("offset must be a multiple of the chunk size within the file");
+        }
+        int chunkIndex = (int) (offset / session.getChunkSize());
+        long expectedLength = session.getChunkLength(chunkIndex);
+
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(partPath(uploadId), StandardOpenOption.WRITE);
+             ReadableByteChannel source = Channels.newChannel(data)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                if (written + buffer.remaining() > expectedLength) {
+                    throw new IllegalArgumentException("Chunk " + chunkIndex + " is longer than " + expectedLength + " bytes");
+                }
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, offset + written);
+                }
+                buffer.clear();
+            }
+            if (written != expectedLength) {
+                throw new IllegalArgumentException("Chunk " + chunkIndex + " has " + written
+                        + " bytes, expected " + expectedLength);
+            }
+            // The bitmap must never claim data that is not on disk yet
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not write chunk " + chunkIndex + " of upload " + uploadId, ex);
+        }
+
+        synchronized (session) {
+            session.markChunkReceived(chunkIndex);
+            persist(session);
+        }
+        logger.debug("Upload {}: received chunk {}/{}", uploadId, chunkIndex + 1, session.getChunkCount());
+        return session;
+    }
+
+    /**
+     * Finish a complete upload and store the file like a regular video upload
+     *
+     * @param uploadId the session ID
+     * @return the stored file, including its extracted duration
+     * @throws IllegalStateException if chunks are still missing
+     */
+    public FileUploadResponse commit(String uploadId) {
+        UploadSession session = getSession(uploadId);
+        synchronized (session) {
+            if (!session.isComplete()) {
+                throw new IllegalStateException("Upload " + uploadId + " is missing "
+                        + session.getMissingChunks().size() + " chunks");
+            }
+            FileUploadResponse response = fileStorageService.storeVideoFile(
+                    partPath(uploadId), session.getFileName(), session.getContentType());
+            delete(uploadId);
+            logger.info("Committed upload session {} as {}", uploadId, response.getFileName());
+            return response;
+        }
+    }
+
+    /**
+     * Abort an upload and discard everything received so far
+     */
+    public void abort(String uploadId) {
+        getSession(uploadId);
+        delete(uploadId);
+        logger.info("Aborted upload session {}", uploadId);
+    }
+
+    /**
+     * Remove sessions that have not received data for longer than the expiry period
+     */
+    @Scheduled(fixedDelayString = "${video.upload.cleanup-interval-ms:3600000}",
+            initialDelayString = "${video.upload.cleanup-interval-ms:3600000}")
+    public void cleanupExpiredSessions() {
+        long cutoff = System.currentTimeMillis() - expiry.toMillis();
+        try (DirectoryStream<Path> sidecars = Files.newDirectoryStream(sessionLocation, "*" + SESSION_SUFFIX)) {
+            for (Path sidecar : sidecars) {
+                String uploadId = sidecar.getFileName().toString().replace(SESSION_SUFFIX, "");
+                findSession(uploadId)
+                        .filter(session -> session.getUpdatedAt() < cutoff)
+                        .ifPresent(session -> {
+                            logger.info("Removing expired upload session {}", uploadId);
+                            delete(uploadId);
+                        });
+            }
+        } catch (IOException ex) {
+            logger.warn("Could not scan upload sessions for expiry: {}", ex.getMessage());
+        }
+    }
+
+    private Optional<UploadSession> findSession(String uploadId) {
+        if (uploadId == null || !SESSION_ID.matcher(uploadId).matches()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(sessions.computeIfAbsent(uploadId, this::load));
+    }
+
+    private UploadSession load(String uploadId) {
+        Path sidecar = sessionPath(uploadId);
+        if (!Files.exists(sidecar) || !Files.exists(partPath(uploadId))) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(sidecar.toFile(), UploadSession.class);
+        } catch (IOException ex) {
+            logger.error("Could not read upload session {}", uploadId, ex);
+            return null;
+        }
+    }
+
+    private void persist(UploadSession session) {
+        Path sidecar = sessionPath(session.getId());
+        Path temp = sessionLocation.resolve(session.getId() + SESSION_SUFFIX + ".tmp");
+        try {
+            objectMapper.writeValue(temp.toFile(), session);
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not save upload session " + session.getId(), ex);
+        }
+    }
+
+    private void delete(String uploadId) {
+        sessions.remove(uploadId);
+        try {
+            Files.deleteIfExists(sessionPath(uploadId));
+            Files.deleteIfExists(partPath(uploadId));
+        } catch (IOException ex) {
+            logger.warn("Could not delete files of upload session {}: {}", uploadId, ex.getMessage());
+        }
+    }
+
+    private Path sessionPath(String uploadId) {
+        return sessionLocation.resolve(uploadId + SESSION_SUFFIX);
+    }
+
+    private Path partPath(String uploadId) {
+        return sessionLocation.resolve(uploadId + PART_SUFFIX);
+    }
+}
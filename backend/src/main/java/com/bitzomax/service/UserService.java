@@ -1,6 +1,7 @@
 package com.bitzomax.service;
 
 import com.bitzomax.dto.WatchHistoryDTO;
+import com.bitzomax.event.UserVideoStateChangedEvent;
 import com.bitzomax.model.FavoriteVideo;
 import com.bitzomax.model.LikedVideo;
 import com.bitzomax.model.User;
@@ -14,9 +15,12 @@ import com.bitzomax.repository.WatchHistoryRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -30,6 +34,10 @@ public class UserService {
     private final FavoriteVideoRepository favoriteVideoRepository;
     private final LikedVideoRepository likedVideoRepository;
     private final WatchHistoryRepository watchHistoryRepository;
+    private final VideoCaches videoCaches;
+    private final UserVideoStates userVideoStates;
+    private final WatchProgressBuffer watchProgressBuffer;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
     public UserService(
@@ -37,12 +45,20 @@ public class UserService {
             VideoRepository videoRepository,
             FavoriteVideoRepository favoriteVideoRepository,
             LikedVideoRepository likedVideoRepository,
-            WatchHistoryRepository watchHistoryRepository) {
+            WatchHistoryRepository watchHistoryRepository,
+            VideoCaches videoCaches,
+            UserVideoStates userVideoStates,
+            WatchProgressBuffer watchProgressBuffer,
+            ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.videoRepository = videoRepository;
         this.favoriteVideoRepository = favoriteVideoRepository;
         this.likedVideoRepository = likedVideoRepository;
         this.watchHistoryRepository = watchHistoryRepository;
+        this.videoCaches = videoCaches;
+        this.userVideoStates = userVideoStates;
+        this.watchProgressBuffer = watchProgressBuffer;
+        this.eventPublisher = eventPublisher;
     }
     
     /**
@@ -83,6 +99,7 @@ public class UserService {
         favoriteVideo.setVideo(video);
         favoriteVideo.setAddedDate(LocalDateTime.now());
         favoriteVideoRepository.save(favoriteVideo);
+        eventPublisher.publishEvent(UserVideoStateChangedEvent.favorited(userId, videoId));
         
         return true;
     }
@@ -97,6 +114,7 @@ public class UserService {
     public boolean removeFromFavorites(Long userId, Long videoId) {
         // For test compatibility - use deleteByUserIdAndVideoId
         favoriteVideoRepository.deleteByUserIdAndVideoId(userId, videoId);
+        eventPublisher.publishEvent(UserVideoStateChangedEvent.unfavorited(userId, videoId));
         return true;
     }
     
@@ -108,50 +126,56 @@ public class UserService {
      * @return true if the video is in favorites, false otherwise
      */
     public boolean isInFavorites(Long userId, Long videoId) {
-        return favoriteVideoRepository.findByUserIdAndVideoId(userId, videoId).isPresent();
+        return userVideoStates.isFavorite(userId, videoId);
+    }
+    
+    /**
+     * Check if a user liked a video
+     * 
+     * @param userId the user ID
+     * @param videoId the video ID to check
+     * @return true if the video is liked, false otherwise
+     */
+    public boolean isLiked(Long userId, Long videoId) {
+        return userVideoStates.isLiked(userId, videoId);
+    }
+    
+    /**
+     * Get the like and favorite flags of several videos, e.g. all cards of a grid page,
+     * from the in-memory membership index instead of a query per video
+     * 
+     * @param userId the user ID
+     * @param videoIds the video IDs to check
+     * @return the flags by video ID, in the order given
+     */
+    public Map<Long, UserVideoStates.VideoState> getVideoStates(Long userId, Collection<Long> videoIds) {
+        return userVideoStates.lookup(userId, videoIds);
     }
     
     /**
      * Toggle video like status
      * 
+     * The like count is adjusted with a single atomic UPDATE instead of
+     * loading and saving the whole video.
+     * 
      * @param userId the user ID
      * @param videoId the video ID to toggle like status
      * @return true if the video is now liked, false if it was unliked
      */
     @Transactional
     public boolean toggleLike(Long userId, Long videoId) {
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new EntityNotFoundException("Video not found with id: " + videoId));
-        
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
-        
         Optional<LikedVideo> existingLike = likedVideoRepository.findByUserIdAndVideoId(userId, videoId);
         
         if (existingLike.isPresent()) {
             // Unlike: remove existing like
             likedVideoRepository.delete(existingLike.get());
-            
-            // Update video like count
-            if (video.getLikes() > 0) {
-                video.setLikes(video.getLikes() - 1);
-                videoRepository.save(video);
-            }
+            videoRepository.decrementLikes(videoId);
+            videoCaches.evictVideoById(videoId);
+            eventPublisher.publishEvent(UserVideoStateChangedEvent.unliked(userId, videoId));
             
             return false; // Video is now unliked
         } else {
-            // Like: add new like
-            LikedVideo likedVideo = new LikedVideo();
-            likedVideo.setUser(user);
-            likedVideo.setVideo(video);
-            likedVideo.setLikedDate(LocalDateTime.now());
-            likedVideoRepository.save(likedVideo);
-            
-            // Update video like count
-            video.setLikes(video.getLikes() + 1);
-            videoRepository.save(video);
-            
-            return true; // Video is now liked
+            return likeVideo(userId, videoId);
         }
     }
     
@@ -197,6 +221,28 @@ public class UserService {
         return WatchHistoryDTO.fromEntity(watchHistory);
     }
     
+    /**
+     * Record a player's progress ping. Pings are buffered and coalesced per user and video,
+     * and written in batches, so nothing is loaded or saved here.
+     * 
+     * The video is checked first, so pings for unknown videos do not take up buffer space.
+     * The player has just loaded the video, so it is usually in the by-id cache; otherwise
+     * an existence check by primary key is the only query.
+     * 
+     * @param userId the user ID
+     * @param videoId the video ID being watched
+     * @param duration the watch duration in seconds
+     * @param completed whether the video was watched to completion
+     * @return the buffered progress, or null if the buffer was full
+     * @throws EntityNotFoundException if the video does not exist
+     */
+    public WatchProgressBuffer.Progress recordWatchProgress(Long userId, Long videoId, int duration, boolean completed) {
+        if (videoId == null || (!videoCaches.isVideoCached(videoId) && !videoRepository.existsById(videoId))) {
+            throw new EntityNotFoundException("Video not found with id: " + videoId);
+        }
+        return watchProgressBuffer.record(userId, videoId, duration, completed);
+    }
+    
     /**
      * Add a video to the user's favorites (alternative name)
      */
@@ -219,8 +265,6 @@ public class UserService {
     @Transactional
     public boolean likeVideo(long userId, long videoId) {
         User user = getCurrentUser(userId);
-        Video video = videoRepository.findById(videoId)
-                .orElseThrow(() -> new EntityNotFoundException("Video not found with ID: " + videoId));
         
         // Check if already liked
         Optional<LikedVideo> existingLike = likedVideoRepository.findByUserIdAndVideoId(userId, videoId);
@@ -228,20 +272,23 @@ public class UserService {
             return false; // Already liked
         }
         
+        // Increment video likes count atomically; also verifies the video exists
+        videoRepository.incrementLikes(videoId)
+                .orElseThrow(() -> new EntityNotFoundException("Video not found with ID: " + videoId));
+        videoCaches.evictVideoById(videoId);
+        
         // Create new like
         LikedVideo likedVideo = new LikedVideo();
         likedVideo.setUser(user);
-        likedVideo.setVideo(video);
+        likedVideo.setVideo(videoRepository.getReferenceById(videoId));
         likedVideo.setLikedDate(LocalDateTime.now());
         likedVideoRepository.save(likedVideo);
-        
-        // Increment video likes count
-        video.setLikes(video.getLikes() + 1);
-        videoRepository.save(video);
+        eventPublisher.publishEvent(UserVideoStateChangedEvent.liked(userId, videoId));
         
         return true;
     }
-      /**
+    
+    /**
      * Unlike a video
      */
     @Transactional
@@ -250,19 +297,10 @@ public class UserService {
         if (likedVideo.isPresent()) {
             likedVideoRepository.delete(likedVideo.get());
             
-            try {
-                // Decrement video likes count - use try/catch for test compatibility
-                Optional<Video> videoOpt = videoRepository.findById(videoId);
-                if (videoOpt.isPresent()) {
-                    Video video = videoOpt.get();
-                    if (video.getLikes() > 0) {
-                        video.setLikes(video.getLikes() - 1);
-                        videoRepository.save(video);
-                    }
-                }
-            } catch (Exception e) {
-                // Ignore for test compatibility
-            }
+            // Decrement video likes count atomically (floored at zero)
+            videoRepository.decrementLikes(videoId);
+            videoCaches.evictVideoById(videoId);
+            eventPublisher.publishEvent(UserVideoStateChangedEvent.unliked(userId, videoId));
             
             return true;
         }
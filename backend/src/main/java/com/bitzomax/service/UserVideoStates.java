@@ -0,0 +1,157 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.UserVideoStateChangedEvent;
+import com.bitzomax.repository.FavoriteVideoRepository;
+import com.bitzomax.repository.LikedVideoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Which videos a user liked and favorited, held in memory so a grid of video cards needs one
+ * lookup instead of a query per card.
+ *
+ * Each user's memberships are loaded with two ID-only queries on first use and kept as sorted
+ * arrays of video IDs, which take 8 bytes per entry and answer membership by binary search.
+ * The arrays are never modified: the {@link UserVideoStateChangedEvent}s that UserService
+ * publishes replace them once their transaction commits, so readers need no locks and never
+ * see a write that is later rolled back. Idle users are evicted.
+ */
+@Component
+public class UserVideoStates {
+
+    private final LikedVideoRepository likedVideoRepository;
+    private final FavoriteVideoRepository favoriteVideoRepository;
+    private final Cache<Long, States> states;
+
+    /**
+     * Whether the user liked and favorited one video
+     */
+    public record VideoState(boolean liked, boolean favorited) {
+    }
+
+    @Autowired
+    public UserVideoStates(LikedVideoRepository likedVideoRepository,
+                           FavoriteVideoRepository favoriteVideoRepository,
+                           @Value("${user.video-states.max-users:10000}") long maxUsers,
+                           @Value("${user.video-states.idle-minutes:30}") long idleMinutes) {
+        this.likedVideoRepository = likedVideoRepository;
+        this.favoriteVideoRepository = favoriteVideoRepository;
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+    }
+
+    public boolean isLiked(Long userId, Long videoId) {
+        return statesOf(userId).likes().contains(videoId);
+    }
+
+    public boolean isFavorite(Long userId, Long videoId) {
+        return statesOf(userId).favorites().contains(videoId);
+    }
+
+    /**
+     * The like and favorite flags of several videos at once
+     *
+     * @param userId the user ID
+     * @param videoIds the video IDs
+     * @return the flags by video ID, in the order given
+     */
+    public Map<Long, VideoState> lookup(Long userId, Collection<Long> videoIds) {
+        States user = statesOf(userId);
+        Map<Long, VideoState> result = new LinkedHashMap<>();
+        for (Long videoId : videoIds) {
+            result.put(videoId, new VideoState(user.likes().contains(videoId), user.favorites().contains(videoId)));
+        }
+        return result;
+    }
+
+    /**
+     * Apply a committed like, unlike, favorite or unfavorite
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStateChanged(UserVideoStateChangedEvent event) {
+        long videoId = event.videoId();
+        UnaryOperator<States> change = switch (event.type()) {
+            case LIKED -> user -> new States(user.likes().with(videoId), user.favorites());
+            case UNLIKED -> user -> new States(user.likes().without(videoId), user.favorites());
+            case FAVORITED -> user -> new States(user.likes(), user.favorites().with(videoId));
+            case UNFAVORITED -> user -> new States(user.likes(), user.favorites().without(videoId));
+        };
+        // Users not loaded yet read the committed rows when they are; a load in progress is
+        // waited for, and the changes are idempotent, so applying on top of it is safe
+        states.asMap().computeIfPresent(event.userId(), (id, user) -> change.apply(user));
+    }
+
+    private States statesOf(Long userId) {
+        return states.get(userId, id -> new States(
+                VideoIdSet.of(likedVideoRepository.findVideoIdsByUserId(id)),
+                VideoIdSet.of(favoriteVideoRepository.findVideoIdsByUserId(id))));
+    }
+
+    private record States(VideoIdSet likes, VideoIdSet favorites) {
+    }
+
+    /**
+     * Immutable set of video IDs, sorted for binary search
+     */
+    static final class VideoIdSet {
+
+        private static final VideoIdSet EMPTY = new VideoIdSet(new long[0]);
+
+        private final long[] ids;
+
+        private VideoIdSet(long[] ids) {
+            this.ids = ids;
+        }
+
+        static VideoIdSet of(Collection<Long> videoIds) {
+            long[] ids = videoIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+            return ids.length == 0 ? EMPTY : new VideoIdSet(ids);
+        }
+
+        boolean contains(Long videoId) {
+            return videoId != null && Arrays.binarySearch(ids, videoId) >= 0;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        VideoIdSet with(long videoId) {
+            int index = Arrays.binarySearch(ids, videoId);
+            if (index >= 0) {
+                return this;
+            }
+            int insertAt = -index - 1;
+            long[] copy = new long[ids.length + 1];
+            System.arraycopy(ids, 0, copy, 0, insertAt);
+            copy[insertAt] = videoId;
+            System.arraycopy(ids, insertAt, copy, insertAt + 1, ids.length - insertAt);
+            return new VideoIdSet(copy);
+        }
+
+        VideoIdSet without(long videoId) {
+            int index = Arrays.binarySearch(ids, videoId);
+            if (index < 0) {
+                return this;
+            }
+            long[] copy = new long[ids.length - 1];
+            System.arraycopy(ids, 0, copy, 0, index);
+            System.arraycopy(ids, index + 1, copy, index, ids.length - index - 1);
+            return new VideoIdSet(copy);
+        }
+    }
+}
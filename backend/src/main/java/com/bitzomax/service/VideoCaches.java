@@ -0,0 +1,120 @@
+package com.bitzomax.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Names of the video caches and the invalidation rules that go with them.
+ *
+ * Writes evict immediately and once more after the surrounding transaction completes.
+ * The second eviction drops any entry that a concurrent reader cached from the
+ * pre-commit state, and also cleans up after a rollback.
+ */
+@Component
+public class VideoCaches {
+
+    public static final String BY_ID = "videos";
+    public static final String PAGES = "videoPages";
+    public static final String GENRE_PAGES = "genreVideoPages";
+    public static final String GENRES = "genres";
+
+    private final CacheManager cacheManager;
+    private final int maxCachedPages;
+
+    @Autowired
+    public VideoCaches(CacheManager cacheManager,
+                       @Value("${video.cache.pages.max-cached-pages:3}") int maxCachedPages) {
+        this.cacheManager = cacheManager;
+        this.maxCachedPages = maxCachedPages;
+    }
+
+    /**
+     * Only the first few pages are cached; deep pages are rare and would just churn the cache
+     */
+    public boolean isCacheable(Pageable pageable) {
+        return pageable.isPaged() && pageable.getPageNumber() < maxCachedPages;
+    }
+
+    /**
+     * Whether a video is in the by-id cache. Deleted videos are evicted, so a hit means the
+     * video existed when it was last read or written.
+     */
+    public boolean isVideoCached(Long id) {
+        Cache cache = cacheManager.getCache(BY_ID);
+        return cache != null && id != null && cache.get(id) != null;
+    }
+
+    /**
+     * Evict a video whose listed fields (title, visibility, genre, ...) changed, together with
+     * every cached page it may appear on
+     */
+    public void evictVideo(Long id) {
+        evictNowAndAfterCompletion(() -> {
+            evict(BY_ID, id);
+            clear(PAGES);
+            clear(GENRE_PAGES);
+        });
+    }
+
+    /**
+     * Evict only the by-id entry, for counter updates that do not affect list pages
+     */
+    public void evictVideoById(Long id) {
+        evictNowAndAfterCompletion(() -> evict(BY_ID, id));
+    }
+
+    /**
+     * Evict every cached video and page, after bulk updates that touch many rows
+     */
+    public void evictAllVideos() {
+        evictNowAndAfterCompletion(() -> {
+            clear(BY_ID);
+            clear(PAGES);
+            clear(GENRE_PAGES);
+        });
+    }
+
+    /**
+     * Evict the genre list. Videos embed their genre, so video caches are cleared as well.
+     */
+    public void evictGenres() {
+        evictNowAndAfterCompletion(() -> {
+            clear(GENRES);
+            clear(BY_ID);
+            clear(PAGES);
+            clear(GENRE_PAGES);
+        });
+    }
+
+    private void evictNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.bitzomax.service;
+
+import com.bitzomax.dto.VideoSummary;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor over (uploadDate, id) or (views, id).
+ *
+ * The cursor records the sort it was issued for, so following a cursor always continues
+ * the same ordering regardless of the sort parameters sent with the request.
+ */
+public final class VideoCursor {
+
+    public static final String UPLOAD_DATE = "uploadDate";
+    public static final String VIEWS = "views";
+
+    private final String sortField;
+    private final Sort.Direction direction;
+    private final Object lastValue;
+    private final Long lastId;
+
+    private VideoCursor(String sortField, Sort.Direction direction, Object lastValue, Long lastId) {
+        this.sortField = sortField;
+        this.direction = direction;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Position before the first video of a listing
+     *
+     * @throws IllegalArgumentException if the sort field is not uploadDate or views
+     */
+    public static VideoCursor first(String sortField, String direction) {
+        if (!UPLOAD_DATE.equals(sortField) && !VIEWS.equals(sortField)) {
+            throw new IllegalArgumentException("Cursor pagination supports sorting by uploadDate or views only");
+        }
+        return new VideoCursor(sortField, "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC, null, null);
+    }
+
+    /**
+     * Position directly after the given video
+     */
+    public VideoCursor after(VideoSummary video) {
+        Object value = UPLOAD_DATE.equals(sortField) ? video.getUploadDate() : video.getViews();
+        return new VideoCursor(sortField, direction, value, video.getId());
+    }
+
+    /**
+     * Decode a cursor previously returned by {@link #encode()}
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static VideoCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            VideoCursor position = first(parts[0], parts[1]);
+            Object value = UPLOAD_DATE.equals(position.sortField) ? LocalDateTime.parse(parts[2]) : Long.valueOf(parts[2]);
+            return new VideoCursor(position.sortField, position.direction, value, Long.valueOf(parts[3]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = sortField + "|" + direction.name().toLowerCase() + "|" + lastValue + "|" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getSortField() {
+        return sortField;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Sort key of the last video before this position, or null at the start
+     */
+    public Object getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * ID of the last video before this position, or null at the start
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+}
@@ -1,18 +1,22 @@
 package com.bitzomax.service;
 
+import com.bitzomax.event.VideoChangedEvent;
 import com.bitzomax.model.ConversionStatus;
-import com.bitzomax.model.Video;
 import com.bitzomax.repository.VideoRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.EnumSet;
 
 /**
  * Service to fix video visibility issues
+ *
+ * Both repairs are single set-based UPDATE statements, so their cost does not depend on
+ * loading the catalog into memory and the transaction stays short.
  */
 @Service
 public class VideoFixService {
@@ -24,6 +28,12 @@ public class VideoFixService {
     @Autowired
     private VideoService videoService;
     
+    @Autowired
+    private VideoCaches videoCaches;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     /**
      * Get the video service
      * @return the video service
@@ -36,41 +46,12 @@ public class VideoFixService {
      */
     @Transactional
     public int fixVideoVisibility() {
-        int count = 0;
-        List<Video> allVideos = videoRepository.findAll();
-        
-        for (Video video : allVideos) {
-            boolean shouldFix = false;
-            
-            // If video is completed but not visible, make it visible
-            if (ConversionStatus.COMPLETED.equals(video.getConversionStatus()) 
-                    && (video.getIsVisible() == null || !video.getIsVisible())) {
-                video.setIsVisible(true);
-                shouldFix = true;
-                logger.info("Fixed visibility for video: {} (ID: {})", video.getTitle(), video.getId());
-            }
-            // In this special case for testing purposes, we make FAILED videos visible too
-            // In a real production scenario, this might be different
-            else if (ConversionStatus.FAILED.equals(video.getConversionStatus())
-                    && (video.getIsVisible() == null || !video.getIsVisible())) {
-                video.setIsVisible(true);
-                shouldFix = true;
-                logger.info("Fixed visibility for failed video: {} (ID: {})", video.getTitle(), video.getId());
-            }
-            // If video has null visibility status
-            else if (video.getIsVisible() == null) {
-                // For all statuses, set visibility to true by default for testing
-                video.setIsVisible(true);
-                shouldFix = true;
-                logger.info("Set default visibility for video: {} (ID: {})", video.getTitle(), video.getId());
-            }
-            
-            if (shouldFix) {
-                videoRepository.save(video);
-                count++;
-            }
-        }
-        
+        // In this special case for testing purposes, we make FAILED videos visible too
+        // In a real production scenario, this might be different
+        int count = videoRepository.makeVisibleWhereUnsetOrInStatus(
+                EnumSet.of(ConversionStatus.COMPLETED, ConversionStatus.FAILED));
+        logger.info("Fixed visibility for {} videos", count);
+        afterBulkUpdate(count);
         return count;
     }
     
@@ -79,18 +60,19 @@ public class VideoFixService {
      */
     @Transactional
     public int forceAllVideosVisible() {
-        int count = 0;
-        List<Video> allVideos = videoRepository.findAll();
-        
-        for (Video video : allVideos) {
-            if (video.getIsVisible() == null || !video.getIsVisible()) {
-                video.setIsVisible(true);
-                videoRepository.save(video);
-                count++;
-                logger.info("Forced visibility for video: {} (ID: {})", video.getTitle(), video.getId());
-            }
-        }
-        
+        int count = videoRepository.makeAllVisible();
+        logger.info("Forced visibility for {} videos", count);
+        afterBulkUpdate(count);
         return count;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Bulk updates bypass the entity write paths, so caches and indexes are refreshed here
+     */
+    private void afterBulkUpdate(int count) {
+        if (count > 0) {
+            videoCaches.evictAllVideos();
+            eventPublisher.publishEvent(VideoChangedEvent.bulk());
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory full-text index over the title, description, poem text, tags, hashtags and SEO
+ * keywords of visible videos.
+ *
+ * Text is split into lowercase terms without diacritics; each term's posting list holds the
+ * term frequency per field of every video containing it. Queries match videos containing all
+ * of their terms and rank them with BM25, summing field-boosted, length-normalized term
+ * frequencies per term (BM25F), with views as the tiebreak. A query only touches the posting
+ * lists of its own terms, so latency depends on how common the terms are, not on the size of
+ * the catalog.
+ *
+ * The index is kept up to date and rebuilt as described in {@link RebuildableVideoIndex};
+ * until the first build completes, {@link #isReady()} is false.
+ */
+@Service
+public class VideoSearchIndex extends RebuildableVideoIndex<VideoSearchIndex.State> {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Indexed fields, in the order of the per-field arrays
+     */
+    enum Field {
+        TITLE("title"),
+        TAGS("tags"),
+        HASHTAGS("hashtags"),
+        SEO_KEYWORDS("seoKeywords"),
+        DESCRIPTION("description"),
+        POEM_TEXT("poemText");
+
+        final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    /**
+     * One matching video
+     *
+     * @param videoId the video ID
+     * @param score the relevance score
+     * @param highlights snippets of the matching text fields with the query terms in &lt;em&gt;, HTML-escaped
+     */
+    public record Hit(long videoId, double score, Map<String, String> highlights) {
+    }
+
+    /**
+     * One page of hits
+     *
+     * @param hits the hits of the page, best first
+     * @param totalHits the number of matching videos
+     */
+    public record Result(List<Hit> hits, long totalHits) {
+    }
+
+    private final double[] boosts = new double[FIELDS.length];
+    private final int fragmentSize;
+
+    /**
+     * Indexed videos, the posting list of every term and the total length of every field
+     */
+    static final class State {
+        final Map<Long, Entry> entries = new HashMap<>();
+        final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+        final long[] totalLengths = new long[FIELDS.length];
+    }
+
+    @Autowired
+    public VideoSearchIndex(VideoRepository videoRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${video.search.boost.title:3.0}") double titleBoost,
+                            @Value("${video.search.boost.tags:2.0}") double tagsBoost,
+                            @Value("${video.search.boost.hashtags:2.0}") double hashtagsBoost,
+                            @Value("${video.search.boost.seo-keywords:1.5}") double seoKeywordsBoost,
+                            @Value("${video.search.boost.description:1.0}") double descriptionBoost,
+                            @Value("${video.search.boost.poem-text:0.8}") double poemTextBoost,
+                            @Value("${video.search.fragment-size:160}") int fragmentSize) {
+        super("Video search index", videoRepository, transactionManager);
+        boosts[Field.TITLE.ordinal()] = titleBoost;
+        boosts[Field.TAGS.ordinal()] = tagsBoost;
+        boosts[Field.HASHTAGS.ordinal()] = hashtagsBoost;
+        boosts[Field.SEO_KEYWORDS.ordinal()] = seoKeywordsBoost;
+        boosts[Field.DESCRIPTION.ordinal()] = descriptionBoost;
+        boosts[Field.POEM_TEXT.ordinal()] = poemTextBoost;
+        this.fragmentSize = fragmentSize;
+    }
+
+    /**
+     * Search the index
+     *
+     * @param query the user's query; videos must contain all of its terms
+     * @param offset number of hits to skip
+     * @param limit maximum number of hits to return
+     * @return the requested hits and the total number of matches
+     */
+    public Result search(String query, int offset, int limit) {
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new Result(List.of(), 0);
+        }
+
+        return read(state -> {
+            Map<Long, Entry> entries = state.entries;
+            List<Map<Long, int[]>> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Long, int[]> list = state.postings.get(term);
+                if (list == null) {
+                    return new Result(List.of(), 0);
+                }
+                lists.add(list);
+            }
+            // Walk the rarest list and look the others up
+            lists.sort(Comparator.comparingInt(Map::size));
+
+            double[] averageLengths = new double[FIELDS.length];
+            for (int f = 0; f < FIELDS.length; f++) {
+                averageLengths[f] = entries.isEmpty() ? 1 : Math.max(1.0, (double) state.totalLengths[f] / entries.size());
+            }
+            double[] idfs = new double[lists.size()];
+            for (int t = 0; t < lists.size(); t++) {
+                int df = lists.get(t).size();
+                idfs[t] = Math.log(1.0 + (entries.size() - df + 0.5) / (df + 0.5));
+            }
+
+            int window = offset + limit;
+            PriorityQueue<Candidate> top = new PriorityQueue<>(window + 1, Candidate.RANKING);
+            long totalHits = 0;
+            candidates:
+            for (Map.Entry<Long, int[]> posting : lists.get(0).entrySet()) {
+                Entry entry = entries.get(posting.getKey());
+                if (entry == null) {
+                    continue;
+                }
+                double score = 0;
+                for (int t = 0; t < lists.size(); t++) {
+                    int[] frequencies = t == 0 ? posting.getValue() : lists.get(t).get(posting.getKey());
+                    if (frequencies == null) {
+                        continue candidates;
+                    }
+                    double tf = weightedFrequency(frequencies, entry.lengths, averageLengths);
+                    score += idfs[t] * tf * (K1 + 1) / (tf + K1);
+                }
+                totalHits++;
+                top.offer(new Candidate(entry, score));
+                if (top.size() > window) {
+                    top.poll();
+                }
+            }
+
+            Candidate[] ranked = new Candidate[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = top.poll();
+            }
+            Set<String> termSet = Set.copyOf(terms);
+            List<Hit> hits = new ArrayList<>(Math.max(0, ranked.length - offset));
+            for (int i = offset; i < ranked.length; i++) {
+                hits.add(new Hit(ranked[i].entry.id, ranked[i].score, highlight(ranked[i].entry, termSet)));
+            }
+            return new Result(hits, totalHits);
+        });
+    }
+
+    /**
+     * Number of videos currently in the index
+     */
+    public int size() {
+        return read(state -> state.entries.size());
+    }
+
+    @Scheduled(fixedDelayString = "${video.search.rebuild-interval-ms:3600000}",
+            initialDelayString = "${video.search.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    @Override
+    protected State newState() {
+        return new State();
+    }
+
+    @Override
+    protected String describe(State state) {
+        return state.entries.size() + " videos and " + state.postings.size() + " terms";
+    }
+
+    private double weightedFrequency(int[] frequencies, int[] lengths, double[] averageLengths) {
+        double tf = 0;
+        for (int f = 0; f < FIELDS.length; f++) {
+            if (frequencies[f] > 0) {
+                double norm = 1 - B + B * lengths[f] / averageLengths[f];
+                tf += boosts[f] * frequencies[f] / norm;
+            }
+        }
+        return tf;
+    }
+
+    @Override
+    protected void apply(State state, VideoChangedEvent event) {
+        Map<Long, Entry> entries = state.entries;
+        Map<String, Map<Long, int[]>> postings = state.postings;
+        long[] totalLengths = state.totalLengths;
+        Long id = event.getVideoId();
+        if (id == null) {
+            return;
+        }
+
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            for (String term : previous.terms) {
+                Map<Long, int[]> list = state.postings.get(term);
+                if (list != null) {
+                    list.remove(id);
+                    if (list.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            for (int f = 0; f < FIELDS.length; f++) {
+                totalLengths[f] -= previous.lengths[f];
+            }
+        }
+
+        // Hidden videos are never found, so they are simply left out of the index
+        if (event.getType() != VideoChangedEvent.Type.SAVED || !event.isVisible()) {
+            return;
+        }
+
+        Map<String, int[]> frequencies = new HashMap<>();
+        int[] lengths = new int[FIELDS.length];
+        count(frequencies, lengths, Field.TITLE, List.of(nullToEmpty(event.getTitle())));
+        count(frequencies, lengths, Field.TAGS, event.getTags());
+        count(frequencies, lengths, Field.HASHTAGS, event.getHashtags());
+        count(frequencies, lengths, Field.SEO_KEYWORDS, event.getSeoKeywords());
+        count(frequencies, lengths, Field.DESCRIPTION, List.of(nullToEmpty(event.getDescription())));
+        count(frequencies, lengths, Field.POEM_TEXT, List.of(nullToEmpty(event.getPoemText())));
+
+        Entry entry = new Entry(id, event.getViews(), lengths, frequencies.keySet().toArray(new String[0]),
+                event.getTitle(), event.getDescription(), event.getPoemText());
+        entries.put(id, entry);
+        frequencies.forEach((term, perField) -> postings.computeIfAbsent(term, k -> new HashMap<>()).put(id, perField));
+        for (int f = 0; f < FIELDS.length; f++) {
+            totalLengths[f] += lengths[f];
+        }
+    }
+
+    private static void count(Map<String, int[]> frequencies, int[] lengths, Field field, Collection<String> values) {
+        if (values == null) {
+            return;
+        }
+        for (String value : values) {
+            for (Token token : tokenize(value)) {
+                frequencies.computeIfAbsent(token.term, k -> new int[FIELDS.length])[field.ordinal()]++;
+                lengths[field.ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * Private helper building snippets of the stored text fields that contain a query term
+     */
+    private Map<String, String> highlight(Entry entry, Set<String> terms) {
+        Map<String, String> highlights = new LinkedHashMap<>();
+        putFragment(highlights, Field.TITLE, entry.title, terms, Integer.MAX_VALUE);
+        putFragment(highlights, Field.DESCRIPTION, entry.description, terms, fragmentSize);
+        putFragment(highlights, Field.POEM_TEXT, entry.poemText, terms, fragmentSize);
+        return highlights;
+    }
+
+    private static void putFragment(Map<String, String> highlights, Field field, String text, Set<String> terms,
+                                    int size) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        List<Token> tokens = tokenize(text);
+        int first = -1;
+        for (int i = 0; i < tokens.size() && first < 0; i++) {
+            if (terms.contains(tokens.get(i).term)) {
+                first = i;
+            }
+        }
+        if (first < 0) {
+            return;
+        }
+
+        // Start a little before the first match, on a token boundary
+        int start = 0;
+        if (size != Integer.MAX_VALUE) {
+            int from = first;
+            while (from > 0 && tokens.get(first).start - tokens.get(from - 1).start <= size / 4) {
+                from--;
+            }
+            start = tokens.get(from).start;
+        }
+        int end = (int) Math.min(text.length(), (long) start + size);
+        if (end < text.length()) {
+            // Do not cut a token in half
+            for (int i = tokens.size() - 1; i >= 0; i--) {
+                if (tokens.get(i).end <= end) {
+                    end = Math.max(tokens.get(i).end, tokens.get(first).end);
+                    break;
+                }
+            }
+        }
+
+        StringBuilder fragment = new StringBuilder();
+        if (start > 0) {
+            fragment.append("\u2026");
+        }
+        int position = start;
+        for (Token token : tokens) {
+            if (token.start < start || token.end > end) {
+                continue;
+            }
+            if (terms.contains(token.term)) {
+                escape(fragment, text, position, token.start);
+                fragment.append("<em>");
+                escape(fragment, text, token.start, token.end);
+                fragment.append("</em>");
+                position = token.end;
+            }
+        }
+        escape(fragment, text, position, end);
+        if (end < text.length()) {
+            fragment.append("\u2026");
+        }
+        highlights.put(field.key, fragment.toString());
+    }
+
+    private static void escape(StringBuilder out, String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    static List<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (Token token : tokenize(query)) {
+            if (terms.size() >= MAX_QUERY_TERMS) {
+                break;
+            }
+            terms.add(token.term);
+        }
+        return List.copyOf(terms);
+    }
+
+    /**
+     * Split text into runs of letters and digits, lowercased and without diacritics, with their
+     * offsets in the original text. A leading # of a hashtag is not part of the term.
+     */
+    static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int start = i;
+            while (i < length) {
+                codePoint = text.codePointAt(i);
+                if (!Character.isLetterOrDigit(codePoint) && Character.getType(codePoint) != Character.NON_SPACING_MARK) {
+                    break;
+                }
+                i += Character.charCount(codePoint);
+            }
+            tokens.add(new Token(normalize(text.substring(start, i)), start, i));
+        }
+        return tokens;
+    }
+
+    static String normalize(String term) {
+        String lower = term.toLowerCase(Locale.ROOT);
+        return DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    record Token(String term, int start, int end) {
+    }
+
+    private static final class Entry {
+        final long id;
+        final long views;
+        final int[] lengths;
+        final String[] terms;
+        // Stored for highlighting
+        final String title;
+        final String description;
+        final String poemText;
+
+        Entry(long id, long views, int[] lengths, String[] terms, String title, String description, String poemText) {
+            this.id = id;
+            this.views = views;
+            this.lengths = lengths;
+            this.terms = terms;
+            this.title = title;
+            this.description = description;
+            this.poemText = poemText;
+        }
+    }
+
+    private static final class Candidate {
+        // Worst first, so the priority queue drops the weakest candidate
+        static final Comparator<Candidate> RANKING = Comparator
+                .comparingDouble((Candidate c) -> c.score)
+                .thenComparingLong(c -> c.entry.views)
+                .thenComparing(Comparator.comparingLong((Candidate c) -> c.entry.id).reversed());
+
+        final Entry entry;
+        final double score;
+
+        Candidate(Entry entry, double score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+}
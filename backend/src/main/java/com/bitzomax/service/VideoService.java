@@ -1,32 +1,64 @@
 package com.bitzomax.service;
 
+import com.bitzomax.event.VideoChangedEvent;
 import com.bitzomax.model.ConversionStatus;
 import com.bitzomax.model.Video;
 import com.bitzomax.repository.VideoRepository;
 import com.bitzomax.mapper.VideoMapper;
+import com.bitzomax.dto.CursorPage;
 import com.bitzomax.dto.VideoDTO;
+import com.bitzomax.dto.VideoSearchResult;
+import com.bitzomax.dto.VideoSuggestion;
+import com.bitzomax.dto.VideoSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class VideoService {
     
     private static final Logger logger = LoggerFactory.getLogger(VideoService.class);
     
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    
     @Autowired
     private VideoRepository videoRepository;
     
     @Autowired
     private VideoMapper videoMapper;
     
+    @Autowired
+    private RelatedVideoIndex relatedVideoIndex;
+    
+    @Autowired
+    private VideoSearchIndex videoSearchIndex;
+    
+    @Autowired
+    private VideoSuggestIndex videoSuggestIndex;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private VideoCaches videoCaches;
+    
     public List<Video> getAllVideos(boolean includeHidden) {
         logger.debug("Fetching all videos, includeHidden={}", includeHidden);
         List<Video> videos;
@@ -53,9 +85,73 @@ public class VideoService {
         }
     }
     
+    /**
+     * Get a page of video summaries for listings, in one query without tag collections.
+     * The first pages are cached per page, size, sort and visibility.
+     */
+    @Cacheable(cacheNames = VideoCaches.PAGES,
+            key = "#pageable.pageNumber + ':' + #pageable.pageSize + ':' + #pageable.sort + ':' + #includeHidden",
+            condition = "@videoCaches.isCacheable(#pageable)")
+    public Page<VideoSummary> getPagedVideoSummaries(Pageable pageable, boolean includeHidden) {
+        logger.debug("Fetching paged video summaries, page={}, size={}, includeHidden={}", 
+                pageable.getPageNumber(), pageable.getPageSize(), includeHidden);
+        if (includeHidden) {
+            return videoRepository.findAllSummaries(pageable);
+        } else {
+            return videoRepository.findVisibleSummaries(pageable);
+        }
+    }
+    
+    /**
+     * Find a video by ID. Results are cached until the video is written again.
+     *
+     * The cached video is a detached copy shared by all readers and must not be modified;
+     * write paths load their own entity through the repository.
+     */
+    @Cacheable(cacheNames = VideoCaches.BY_ID, key = "#id", unless = "#result == null")
+    @Transactional(readOnly = true)
     public Optional<Video> findVideoById(Long id) {
         logger.debug("Finding video by ID: {}", id);
-        return videoRepository.findById(id);
+        return videoRepository.findById(id).map(this::detachedCopy);
+    }
+    
+    /**
+     * Copy a loaded video, with its lazy collections, into an instance that no persistence
+     * context knows about, so it can be cached and serialized outside its session
+     */
+    private Video detachedCopy(Video video) {
+        Video copy = new Video();
+        copy.setId(video.getId());
+        copy.setTitle(video.getTitle());
+        copy.setVideoUrl(video.getVideoUrl());
+        copy.setThumbnailUrl(video.getThumbnailUrl());
+        copy.setDescription(video.getDescription());
+        copy.setDuration(video.getDuration());
+        copy.setUploadDate(video.getUploadDate());
+        copy.setViews(video.getViews());
+        copy.setLikes(video.getLikes());
+        copy.setCommentCount(video.getCommentCount());
+        copy.setShareCount(video.getShareCount());
+        copy.setEngagementRate(video.getEngagementRate());
+        copy.setIsPremium(video.getIsPremium());
+        copy.setPoemText(video.getPoemText());
+        copy.setOriginalFormat(video.getOriginalFormat());
+        copy.setSeoDescription(video.getSeoDescription());
+        copy.setSeoTitle(video.getSeoTitle());
+        copy.setSpotifyUrl(video.getSpotifyUrl());
+        copy.setAppleMusicUrl(video.getAppleMusicUrl());
+        copy.setItunesUrl(video.getItunesUrl());
+        copy.setInstagramUrl(video.getInstagramUrl());
+        copy.setYoutubeMusicUrl(video.getYoutubeMusicUrl());
+        copy.setAmazonMusicUrl(video.getAmazonMusicUrl());
+        copy.setConversionStatus(video.getConversionStatus());
+        copy.setFaststart(video.getFaststart());
+        copy.setIsVisible(video.getIsVisible());
+        copy.setGenre(video.getGenre());
+        copy.setTags(video.getTags() != null ? new HashSet<>(video.getTags()) : null);
+        copy.setHashtags(video.getHashtags() != null ? new HashSet<>(video.getHashtags()) : null);
+        copy.setSeoKeywords(video.getSeoKeywords() != null ? new HashSet<>(video.getSeoKeywords()) : null);
+        return copy;
     }
     
     @Transactional
@@ -69,7 +165,63 @@ public class VideoService {
             video.setIsVisible(true);
         }
         
-        return videoRepository.save(video);
+        Video savedVideo = videoRepository.save(video);
+        videoCaches.evictVideo(savedVideo.getId());
+        eventPublisher.publishEvent(VideoChangedEvent.saved(savedVideo));
+        return savedVideo;
+    }
+    
+    /**
+     * Replace the editable details of a video on a freshly loaded entity
+     *
+     * @param id the video ID
+     * @param details the new title, description, URLs, texts, tags and visibility
+     * @return the updated video, or empty if it does not exist
+     */
+    @Transactional
+    public Optional<Video> updateVideoDetails(Long id, Video details) {
+        logger.debug("Updating video details, id={}", id);
+        Optional<Video> videoOpt = videoRepository.findById(id);
+        if (videoOpt.isEmpty()) {
+            logger.warn("Video not found with ID: {}", id);
+            return Optional.empty();
+        }
+        Video video = videoOpt.get();
+        video.setTitle(details.getTitle());
+        video.setDescription(details.getDescription());
+        video.setVideoUrl(details.getVideoUrl());
+        video.setThumbnailUrl(details.getThumbnailUrl());
+        video.setIsPremium(details.getIsPremium());
+        video.setPoemText(details.getPoemText());
+        video.setSeoTitle(details.getSeoTitle());
+        video.setSeoDescription(details.getSeoDescription());
+        video.setTags(details.getTags());
+        video.setHashtags(details.getHashtags());
+        video.setSeoKeywords(details.getSeoKeywords());
+        video.setIsVisible(details.getIsVisible());
+        return Optional.of(saveVideo(video));
+    }
+    
+    /**
+     * Set the duration of a video on a freshly loaded entity
+     *
+     * @param id the video ID
+     * @param duration the duration in seconds
+     * @return false if the video does not exist
+     */
+    @Transactional
+    public boolean updateVideoDuration(Long id, Integer duration) {
+        logger.debug("Updating video duration, id={}, duration={}", id, duration);
+        Optional<Video> videoOpt = videoRepository.findById(id);
+        if (videoOpt.isEmpty()) {
+            logger.warn("Video not found with ID: {}", id);
+            return false;
+        }
+        Video video = videoOpt.get();
+        logger.debug("Previous duration for video {}: {}", id, video.getDuration());
+        video.setDuration(duration);
+        saveVideo(video);
+        return true;
     }
     
     @Transactional
@@ -79,7 +231,8 @@ public class VideoService {
         if (videoOpt.isPresent()) {
             Video video = videoOpt.get();
             video.setIsVisible(isVisible);
-            videoRepository.save(video);
+            videoCaches.evictVideo(id);
+            eventPublisher.publishEvent(VideoChangedEvent.saved(videoRepository.save(video)));
         } else {
             logger.warn("Video not found with ID: {}", id);
         }
@@ -100,12 +253,28 @@ public class VideoService {
                 video.setIsVisible(false);
             }
             
-            videoRepository.save(video);
+            videoCaches.evictVideo(id);
+            eventPublisher.publishEvent(VideoChangedEvent.saved(videoRepository.save(video)));
         } else {
             logger.warn("Video not found with ID: {}", id);
         }
     }
     
+    /**
+     * Record media processing progress. Unlike updateVideoConversionStatus this never changes
+     * visibility, so re-processing does not publish a hidden video and a failure does not hide
+     * a live one.
+     */
+    @Transactional
+    public void updateProcessingStatus(Long id, ConversionStatus status) {
+        logger.debug("Updating video processing status, id={}, status={}", id, status);
+        if (videoRepository.updateConversionStatus(id, status) == 0) {
+            logger.warn("Video not found with ID: {}", id);
+            return;
+        }
+        videoCaches.evictVideoById(id);
+    }
+    
     /**
      * Find all videos by genre ID
      * @param genreId the genre ID to filter by
@@ -128,10 +297,82 @@ public class VideoService {
         return videoRepository.findByGenreIdAndIsVisibleTrue(genreId, pageable);
     }
     
+    /**
+     * Find summaries of all visible videos of a genre
+     * @param genreId the genre ID to filter by
+     * @return list of video summaries belonging to the specified genre
+     */
+    public List<VideoSummary> getVideoSummariesByGenreId(Long genreId) {
+        logger.debug("Fetching video summaries by genre ID: {}", genreId);
+        return videoRepository.findVisibleSummariesByGenreId(genreId);
+    }
+    
+    /**
+     * Find video summaries by genre ID with pagination. The first pages are cached.
+     * @param genreId the genre ID to filter by
+     * @param pageable pagination information
+     * @return page of video summaries belonging to the specified genre
+     */
+    @Cacheable(cacheNames = VideoCaches.GENRE_PAGES,
+            key = "#genreId + ':' + #pageable.pageNumber + ':' + #pageable.pageSize + ':' + #pageable.sort",
+            condition = "@videoCaches.isCacheable(#pageable)")
+    public Page<VideoSummary> getPagedVideoSummariesByGenreId(Long genreId, Pageable pageable) {
+        logger.debug("Fetching paged video summaries by genre ID: {}, page={}, size={}", 
+                genreId, pageable.getPageNumber(), pageable.getPageSize());
+        return videoRepository.findVisibleSummariesByGenreId(genreId, pageable);
+    }
+    
+    /**
+     * Get one window of videos using keyset pagination. Every window costs the same
+     * index seek, however deep the client has scrolled, and no COUNT query is run.
+     * @param genreId restrict to the visible videos of this genre, or null for all genres
+     * @param cursor cursor returned with the previous window, or null to start from the beginning
+     * @param sort sort field (uploadDate or views), ignored when a cursor is given
+     * @param direction sort direction (asc or desc), ignored when a cursor is given
+     * @param size window size
+     * @param includeHidden whether to include hidden videos (ignored for genre listings)
+     * @return the window and the cursor of the next one
+     * @throws IllegalArgumentException if the cursor or sort field is invalid
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<VideoSummary> getVideosByCursor(Long genreId, String cursor, String sort, String direction,
+                                               int size, boolean includeHidden) {
+        VideoCursor position = cursor != null && !cursor.isBlank()
+                ? VideoCursor.decode(cursor)
+                : VideoCursor.first(sort, direction);
+        logger.debug("Fetching videos by cursor, genreId={}, sort={} {}, size={}, includeHidden={}",
+                genreId, position.getSortField(), position.getDirection(), size, includeHidden);
+        
+        int limit = Math.max(1, size);
+        // One extra row tells whether another window follows, without a COUNT
+        List<VideoSummary> rows = videoRepository.findSummariesAfter(position.getSortField(), position.getDirection(),
+                position.getLastValue(), position.getLastId(), genreId, genreId == null && includeHidden, limit + 1);
+        
+        List<VideoSummary> content = rows.size() > limit ? rows.subList(0, limit) : rows;
+        String nextCursor = rows.size() > limit
+                ? position.after(content.get(content.size() - 1)).encode()
+                : null;
+        return new CursorPage<>(content, nextCursor, nextCursor != null, content.size());
+    }
+    
+    /**
+     * Atomically increment the share count of a video
+     * @param id the video ID
+     * @return the new share count, or empty if the video does not exist
+     */
+    @Transactional
+    public Optional<Long> incrementShareCount(Long id) {
+        logger.debug("Incrementing share count for video ID: {}", id);
+        videoCaches.evictVideoById(id);
+        return videoRepository.incrementShares(id);
+    }
+    
     @Transactional
     public void deleteVideo(Long id) {
         logger.debug("Deleting video with ID: {}", id);
         videoRepository.deleteById(id);
+        videoCaches.evictVideo(id);
+        eventPublisher.publishEvent(VideoChangedEvent.deleted(id));
     }
     
     /**
@@ -155,6 +396,8 @@ public class VideoService {
         
         // Save entity
         Video savedVideo = videoRepository.save(video);
+        videoCaches.evictVideo(savedVideo.getId());
+        eventPublisher.publishEvent(VideoChangedEvent.saved(savedVideo));
         
         // Return as DTO
         return videoMapper.toDto(savedVideo);
@@ -208,6 +451,8 @@ public class VideoService {
         
         // Save updated entity
         Video savedVideo = videoRepository.save(existingVideo);
+        videoCaches.evictVideo(id);
+        eventPublisher.publishEvent(VideoChangedEvent.saved(savedVideo));
         
         // Return as DTO
         return videoMapper.toDto(savedVideo);
@@ -216,30 +461,103 @@ public class VideoService {
     /**
      * Get all videos with pagination
      */
+    @Transactional(readOnly = true)
     public Page<VideoDTO> getAllVideosWithPagination(Pageable pageable) {
         logger.debug("Getting all videos with pagination");
-        Page<Video> videoPage = videoRepository.findAll(pageable);
+        Page<Video> videoPage = videoRepository.findPageWithCollections(pageable);
         return videoPage.map(videoMapper::toDto);
     }
     
     /**
-     * Find related videos based on shared tags
+     * Find related videos based on shared tags, hashtags and genre.
+     * Ranking comes from the in-memory RelatedVideoIndex; when it has fewer matches than
+     * requested the remainder is filled with the most viewed videos.
      */
-    public List<Video> findRelatedVideos(Video video, int limit) {
+    public List<VideoSummary> findRelatedVideos(Video video, int limit) {
         logger.debug("Finding related videos for video ID: {}, limit: {}", video.getId(), limit);
+        if (limit <= 0) {
+            return List.of();
+        }
+        
+        List<Long> rankedIds = relatedVideoIndex.findRelated(video, limit);
+        List<VideoSummary> related = new ArrayList<>(limit);
+        if (!rankedIds.isEmpty()) {
+            Map<Long, VideoSummary> byId = new HashMap<>();
+            // Only visible videos come back; the index may briefly lag behind a visibility change
+            videoRepository.findVisibleSummariesByIdIn(rankedIds).forEach(v -> byId.put(v.getId(), v));
+            for (Long id : rankedIds) {
+                VideoSummary candidate = byId.get(id);
+                if (candidate != null) {
+                    related.add(candidate);
+                }
+            }
+        }
+        
+        if (related.size() < limit) {
+            Set<Long> seen = new HashSet<>();
+            seen.add(video.getId());
+            related.forEach(v -> seen.add(v.getId()));
+            PageRequest popular = PageRequest.of(0, limit + related.size() + 1, Sort.by(Sort.Direction.DESC, "views"));
+            for (VideoSummary candidate : videoRepository.findVisibleSummaries(popular)) {
+                if (related.size() >= limit) {
+                    break;
+                }
+                if (seen.add(candidate.getId())) {
+                    related.add(candidate);
+                }
+            }
+        }
+        return related;
+    }
+    
+    /**
+     * Full-text search over title, description, poem text, tags, hashtags and SEO keywords.
+     * Hits come ranked from the in-memory VideoSearchIndex; while its first build is still
+     * running, falls back to an unranked title and description match.
+     * Only the first MAX_SEARCH_RESULTS hits can be paged through.
+     */
+    public Page<VideoSearchResult> searchVideos(String query, Pageable pageable) {
+        logger.debug("Searching videos for '{}', page: {}", query, pageable);
+        int offset = (int) Math.min(pageable.getOffset(), MAX_SEARCH_RESULTS);
+        int limit = Math.min(pageable.getPageSize(), MAX_SEARCH_RESULTS - offset);
         
-        // This is a simple approach; in a real app, we would use:
-        // 1. First try videos with same genre + overlapping tags
-        // 2. Then try videos with same genre
-        // 3. Then try videos with overlapping tags
-        // 4. Finally just return popular videos
-        
-        // For now, we'll just return other visible videos, excluding the current one
-        List<Video> allVideos = videoRepository.findByIsVisibleTrue();
-        return allVideos.stream()
-            .filter(v -> !v.getId().equals(video.getId()))
-            .sorted((v1, v2) -> Long.compare(v2.getViews(), v1.getViews()))
-            .limit(limit)
-            .toList();
-    }
-}
\ No newline at end of file
+        if (!videoSearchIndex.isReady()) {
+            List<VideoSearchResult> matches = videoRepository.searchByTitleOrDescription(query).stream()
+                    .filter(v -> Boolean.TRUE.equals(v.getIsVisible()))
+                    .map(v -> new VideoSearchResult(VideoSummary.fromEntity(v), 0.0, Map.of()))
+                    .toList();
+            List<VideoSearchResult> content = matches.subList(Math.min(offset, matches.size()),
+                    Math.min(offset + limit, matches.size()));
+            return new PageImpl<>(content, pageable, matches.size());
+        }
+        
+        // The index only holds visible videos, so offsets and the total are in index terms.
+        // A hit whose video was hidden or deleted a moment ago, before the index applied the
+        // change, is left out rather than replaced, so the next page never repeats a hit.
+        VideoSearchIndex.Result result = videoSearchIndex.search(query, offset, limit);
+        Map<Long, VideoSummary> byId = new HashMap<>();
+        if (!result.hits().isEmpty()) {
+            List<Long> ids = result.hits().stream().map(VideoSearchIndex.Hit::videoId).toList();
+            videoRepository.findVisibleSummariesByIdIn(ids).forEach(v -> byId.put(v.getId(), v));
+        }
+        List<VideoSearchResult> content = new ArrayList<>(result.hits().size());
+        for (VideoSearchIndex.Hit hit : result.hits()) {
+            VideoSummary summary = byId.get(hit.videoId());
+            if (summary != null) {
+                content.add(new VideoSearchResult(summary, hit.score(), hit.highlights()));
+            }
+        }
+        long totalHits = result.totalHits();
+        return new PageImpl<>(content, pageable, Math.min(totalHits, MAX_SEARCH_RESULTS));
+    }
+    
+    /**
+     * Typeahead suggestions of titles, tags, hashtags and genres starting with what the user
+     * typed, weighted by views. Served from the in-memory VideoSuggestIndex without a query.
+     */
+    public List<VideoSuggestion> suggest(String prefix, int limit) {
+        return videoSuggestIndex.suggest(prefix, limit).stream()
+                .map(s -> new VideoSuggestion(s.text(), s.type().getKey(), s.videoId(), s.videoCount()))
+                .toList();
+    }
+}
@@ -0,0 +1,241 @@
+package com.bitzomax.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service that streams media files to HTTP clients with support for
+ * Range, If-Range and multi-range (multipart/byteranges) requests.
+ *
+ * File contents are never copied onto the JVM heap: single ranges are handed to
+ * the container's sendfile support when available, everything else is written
+ * with FileChannel.transferTo.
+ */
+@Service
+public class VideoStreamingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoStreamingService.class);
+
+    // Request attributes understood by Tomcat's NIO/NIO2 connectors
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final boolean sendfileEnabled;
+
+    public VideoStreamingService(@Value("${video.streaming.sendfile-enabled:true}") boolean sendfileEnabled) {
+        this.sendfileEnabled = sendfileEnabled;
+    }
+
+    /**
+     * Stream a file, honouring conditional and range headers of the request
+     *
+     * @param file the file to stream
+     * @param cacheControl value of the Cache-Control header to send
+     * @param request the current request
+     * @param response the current response
+     */
+    public void stream(Path file, String cacheControl, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        MediaType mediaType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        stream(file, mediaType, cacheControl, request, response);
+    }
+
+    /**
+     * Stream a file with an explicit content type, e.g. for HLS segments
+     *
+     * @param file the file to stream
+     * @param mediaType the Content-Type to send
+     * @param cacheControl value of the Cache-Control header to send
+     * @param request the current request
+     * @param response the current response
+     */
+    public void stream(Path file, MediaType mediaType, String cacheControl, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        if (!Files.isReadable(file)) {
+            throw new NoSuchFileException(file.toString());
+        }
+
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+
+        // Handles If-None-Match / If-Modified-Since and sets ETag + Last-Modified
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        boolean headRequest = "HEAD".equalsIgnoreCase(request.getMethod());
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(mediaType.toString());
+            response.setContentLengthLong(length);
+            if (!headRequest) {
+                writeRegion(file, 0, length, request, response);
+            }
+            return;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+            // Validates every range against the file length
+            HttpRange.toResourceRegions(ranges, new FileSystemResource(file));
+        } catch (IllegalArgumentException ex) {
+            logger.debug("Unsatisfiable range '{}' for {}: {}", rangeHeader, file, ex.getMessage());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            long count = end - start + 1;
+            response.setContentType(mediaType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(count);
+            if (!headRequest) {
+                writeRegion(file, start, count, request, response);
+            }
+            return;
+        }
+
+        writeMultipleRanges(file, length, mediaType, ranges, headRequest, response);
+    }
+
+    /**
+     * Write a multipart/byteranges response, one part per requested range
+     */
+    private void writeMultipleRanges(Path file, long length, MediaType mediaType, List<HttpRange> ranges,
+                                     boolean headRequest, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long contentLength = 0;
+
+        for (int i = 0; i < ranges.size(); i++) {
+            long start = ranges.get(i).getRangeStart(length);
+            long end = ranges.get(i).getRangeEnd(length);
+            String header = "\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + mediaType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n";
+            partHeaders[i] = header.getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeaders[i].length + (end - start + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headRequest) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long start = ranges.get(i).getRangeStart(length);
+                long end = ranges.get(i).getRangeEnd(length);
+                out.write(partHeaders[i]);
+                transfer(channel, start, end - start + 1, target);
+            }
+        }
+        out.write(closing);
+        out.flush();
+    }
+
+    /**
+     * Write a single region of the file, preferring container sendfile over transferTo
+     */
+    private void writeRegion(Path file, long start, long count, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        if (count == 0) {
+            return;
+        }
+
+        if (sendfileEnabled && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * Loop over FileChannel.transferTo, which may move fewer bytes than requested per call
+     */
+    private void transfer(FileChannel channel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long written = channel.transferTo(position, remaining, target);
+            if (written <= 0) {
+                throw new IOException("Unexpected end of file while streaming");
+            }
+            position += written;
+            remaining -= written;
+        }
+    }
+
+    /**
+     * Evaluate an If-Range header: the range only applies if the validator still matches
+     */
+    private boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null || ifRange.isBlank()) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            // Weak validators never match for ranges
+            return value.equals(etag);
+        }
+        try {
+            long ifRangeMillis = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+            // HTTP dates have second precision
+            return ifRangeMillis / 1000 == lastModified / 1000;
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+}
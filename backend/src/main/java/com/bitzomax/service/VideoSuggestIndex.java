@@ -0,0 +1,372 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory typeahead over the titles, tags, hashtags and genres of visible videos.
+ *
+ * Suggestions are stored in a radix trie under their normalized text, as produced by
+ * {@link VideoSearchIndex#tokenize}. Titles are suggested per video and weighted by its views;
+ * a tag, hashtag or genre is suggested once, weighted by the total views of the videos that
+ * carry it. Every trie node knows the largest weight below it, so the top suggestions for a
+ * prefix are found best-first and only nodes that can still contribute are visited. Lookups
+ * never touch the database.
+ *
+ * The trie is kept up to date and rebuilt as described in {@link RebuildableVideoIndex}; the
+ * periodic rebuild also picks up view counts recorded since.
+ */
+@Service
+public class VideoSuggestIndex extends RebuildableVideoIndex<VideoSuggestIndex.Suggestions> {
+
+    private static final int MAX_PREFIX_LENGTH = 100;
+
+    /**
+     * Kinds of suggestions
+     */
+    public enum Type {
+        TITLE("title"),
+        TAG("tag"),
+        HASHTAG("hashtag"),
+        GENRE("genre");
+
+        private final String key;
+
+        Type(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * A suggestion
+     *
+     * @param type what the text is
+     * @param text the text as entered for the first video that carries it
+     * @param videoId the video of a title suggestion, null for the other types
+     * @param weight the views of the video, or the total views of the videos carrying the text
+     * @param videoCount the number of videos carrying the text
+     */
+    public record Suggestion(Type type, String text, Long videoId, long weight, int videoCount) {
+    }
+
+    @Autowired
+    public VideoSuggestIndex(VideoRepository videoRepository, PlatformTransactionManager transactionManager) {
+        super("Video suggest index", videoRepository, transactionManager);
+    }
+
+    /**
+     * Get the highest weighted suggestions starting with a prefix
+     *
+     * @param prefix what the user typed so far
+     * @param limit maximum number of suggestions to return
+     * @return the suggestions, highest weight first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        if (prefix == null || limit <= 0) {
+            return List.of();
+        }
+        String key = key(prefix.length() > MAX_PREFIX_LENGTH ? prefix.substring(0, MAX_PREFIX_LENGTH) : prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        return read(suggestions -> suggestions.trie.top(key, limit));
+    }
+
+    /**
+     * Number of suggestions currently in the index
+     */
+    public int size() {
+        return read(suggestions -> suggestions.trie.size);
+    }
+
+    @Scheduled(fixedDelayString = "${video.suggest.rebuild-interval-ms:600000}",
+            initialDelayString = "${video.suggest.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    @Override
+    protected Suggestions newState() {
+        return new Suggestions();
+    }
+
+    @Override
+    protected void apply(Suggestions suggestions, VideoChangedEvent event) {
+        suggestions.apply(event);
+    }
+
+    @Override
+    protected String describe(Suggestions suggestions) {
+        return suggestions.videos.size() + " videos and " + suggestions.trie.size + " suggestions";
+    }
+
+    /**
+     * Normalized form of a text: its terms joined by single spaces
+     */
+    static String key(String text) {
+        return VideoSearchIndex.tokenize(text).stream()
+                .map(VideoSearchIndex.Token::term)
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * The suggestions of one build of the index, with what each video contributed to them
+     */
+    static final class Suggestions {
+
+        final Trie trie = new Trie();
+        // Title suggestion and shared suggestion keys per indexed video
+        final Map<Long, Contribution> videos = new HashMap<>();
+        // Tag, hashtag and genre suggestions by type and normalized text
+        final Map<SharedKey, Suggestion> shared = new HashMap<>();
+
+        void apply(VideoChangedEvent event) {
+            Long id = event.getVideoId();
+            if (id == null) {
+                return;
+            }
+
+            Contribution previous = videos.remove(id);
+            if (previous != null) {
+                if (previous.title != null) {
+                    trie.remove(key(previous.title.text()), previous.title);
+                }
+                for (SharedKey sharedKey : previous.sharedKeys) {
+                    Suggestion current = shared.remove(sharedKey);
+                    trie.remove(sharedKey.key, current);
+                    if (current.videoCount() > 1) {
+                        Suggestion reduced = new Suggestion(current.type(), current.text(), null,
+                                current.weight() - previous.views, current.videoCount() - 1);
+                        shared.put(sharedKey, reduced);
+                        trie.add(sharedKey.key, reduced);
+                    }
+                }
+            }
+
+            // Hidden videos are never suggested, so they are simply left out of the index
+            if (event.getType() != VideoChangedEvent.Type.SAVED || !event.isVisible()) {
+                return;
+            }
+
+            long views = Math.max(event.getViews(), 0);
+            Suggestion title = null;
+            String titleKey = key(event.getTitle());
+            if (!titleKey.isEmpty()) {
+                title = new Suggestion(Type.TITLE, event.getTitle().strip(), id, views, 1);
+                trie.add(titleKey, title);
+            }
+
+            List<SharedKey> sharedKeys = new ArrayList<>();
+            addShared(sharedKeys, Type.TAG, event.getTags(), views);
+            addShared(sharedKeys, Type.HASHTAG, event.getHashtags(), views);
+            if (event.getGenreName() != null) {
+                addShared(sharedKeys, Type.GENRE, List.of(event.getGenreName()), views);
+            }
+            videos.put(id, new Contribution(title, sharedKeys, views));
+        }
+
+        private void addShared(List<SharedKey> sharedKeys, Type type, Collection<String> texts, long views) {
+            if (texts == null) {
+                return;
+            }
+            for (String text : texts) {
+                String key = key(text);
+                SharedKey sharedKey = new SharedKey(type, key);
+                // Tags differing only in case or punctuation count once per video
+                if (key.isEmpty() || sharedKeys.contains(sharedKey)) {
+                    continue;
+                }
+                sharedKeys.add(sharedKey);
+                Suggestion current = shared.get(sharedKey);
+                Suggestion updated;
+                if (current == null) {
+                    updated = new Suggestion(type, text.strip(), null, views, 1);
+                } else {
+                    trie.remove(key, current);
+                    updated = new Suggestion(type, current.text(), null, current.weight() + views, current.videoCount() + 1);
+                }
+                shared.put(sharedKey, updated);
+                trie.add(key, updated);
+            }
+        }
+    }
+
+    private record SharedKey(Type type, String key) {
+    }
+
+    private record Contribution(Suggestion title, List<SharedKey> sharedKeys, long views) {
+    }
+
+    /**
+     * Radix trie of suggestions by normalized text. Edges are labelled with strings, so the
+     * nodes are the branching points of the stored keys rather than one node per character.
+     */
+    static final class Trie {
+
+        private static final Comparator<Candidate> BEST_FIRST = Comparator
+                .comparingLong(Candidate::weight).reversed()
+                // A node may hold entries as heavy as itself, so expand it before emitting ties
+                .thenComparing(candidate -> candidate.suggestion != null)
+                .thenComparing(candidate -> candidate.suggestion != null ? candidate.suggestion.text() : "")
+                .thenComparing(candidate -> candidate.suggestion != null && candidate.suggestion.videoId() != null
+                        ? candidate.suggestion.videoId() : 0L);
+
+        private final Node root = new Node("");
+        private int size;
+
+        void add(String key, Suggestion suggestion) {
+            Node node = root;
+            String rest = key;
+            node.maxWeight = Math.max(node.maxWeight, suggestion.weight());
+            while (!rest.isEmpty()) {
+                Node child = node.children.get(rest.charAt(0));
+                if (child == null) {
+                    child = new Node(rest);
+                    node.children.put(rest.charAt(0), child);
+                }
+                int common = commonPrefixLength(child.label, rest);
+                if (common < child.label.length()) {
+                    // Split the edge at the point where the keys diverge
+                    Node split = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    split.children.put(child.label.charAt(0), child);
+                    split.maxWeight = child.maxWeight;
+                    node.children.put(split.label.charAt(0), split);
+                    child = split;
+                }
+                child.maxWeight = Math.max(child.maxWeight, suggestion.weight());
+                node = child;
+                rest = rest.substring(common);
+            }
+            node.values.add(suggestion);
+            size++;
+        }
+
+        boolean remove(String key, Suggestion suggestion) {
+            List<Node> path = new ArrayList<>();
+            path.add(root);
+            Node node = root;
+            String rest = key;
+            while (!rest.isEmpty()) {
+                Node child = node.children.get(rest.charAt(0));
+                if (child == null || !rest.startsWith(child.label)) {
+                    return false;
+                }
+                rest = rest.substring(child.label.length());
+                path.add(child);
+                node = child;
+            }
+            if (!node.values.remove(suggestion)) {
+                return false;
+            }
+            size--;
+
+            // Drop empty nodes, merge nodes left with a single child, and recompute the weights
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node current = path.get(i);
+                if (i > 0 && current.values.isEmpty() && current.children.size() <= 1) {
+                    Node parent = path.get(i - 1);
+                    char edge = current.label.charAt(0);
+                    if (current.children.isEmpty()) {
+                        parent.children.remove(edge);
+                    } else {
+                        Node only = current.children.values().iterator().next();
+                        only.label = current.label + only.label;
+                        parent.children.put(edge, only);
+                    }
+                    continue;
+                }
+                long maxWeight = -1;
+                for (Suggestion value : current.values) {
+                    maxWeight = Math.max(maxWeight, value.weight());
+                }
+                for (Node child : current.children.values()) {
+                    maxWeight = Math.max(maxWeight, child.maxWeight);
+                }
+                current.maxWeight = maxWeight;
+            }
+            return true;
+        }
+
+        List<Suggestion> top(String prefix, int limit) {
+            Node node = root;
+            String rest = prefix;
+            while (!rest.isEmpty()) {
+                Node child = node.children.get(rest.charAt(0));
+                if (child == null) {
+                    return List.of();
+                }
+                if (child.label.startsWith(rest)) {
+                    // The prefix ends on or inside this edge
+                    node = child;
+                    break;
+                }
+                if (!rest.startsWith(child.label)) {
+                    return List.of();
+                }
+                rest = rest.substring(child.label.length());
+                node = child;
+            }
+
+            List<Suggestion> top = new ArrayList<>(limit);
+            PriorityQueue<Candidate> candidates = new PriorityQueue<>(BEST_FIRST);
+            candidates.add(new Candidate(node.maxWeight, node, null));
+            while (top.size() < limit && !candidates.isEmpty()) {
+                Candidate candidate = candidates.poll();
+                if (candidate.suggestion != null) {
+                    top.add(candidate.suggestion);
+                    continue;
+                }
+                for (Suggestion value : candidate.node.values) {
+                    candidates.add(new Candidate(value.weight(), null, value));
+                }
+                for (Node child : candidate.node.children.values()) {
+                    candidates.add(new Candidate(child.maxWeight, child, null));
+                }
+            }
+            return top;
+        }
+
+        private static int commonPrefixLength(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        private static final class Node {
+            String label;
+            final Map<Character, Node> children = new HashMap<>(4);
+            final List<Suggestion> values = new ArrayList<>(1);
+            // Largest weight of the suggestions in this subtree
+            long maxWeight = -1;
+
+            Node(String label) {
+                this.label = label;
+            }
+        }
+
+        private record Candidate(long weight, Node node, Suggestion suggestion) {
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.bitzomax.service;
 
 import com.bitzomax.model.ConversionStatus;
+import com.bitzomax.model.ProcessingLane;
 import com.bitzomax.model.Video;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +26,9 @@ public class VideoUploadService {
     @Autowired
     private VideoService videoService;
     
+    @Autowired
+    private MediaProcessingQueue mediaProcessingQueue;
+    
     // Define upload directory
     private final String uploadDir = "uploads/videos";
     
@@ -53,14 +57,12 @@ public class VideoUploadService {
             videoMetadata.setVideoUrl("/uploads/videos/" + uniqueFilename);
             videoMetadata.setOriginalFormat(fileExtension);
             videoMetadata.setUploadDate(LocalDateTime.now());
-            videoMetadata.setConversionStatus(ConversionStatus.PROCESSING);
+            videoMetadata.setConversionStatus(ConversionStatus.PENDING);
             videoMetadata.setIsVisible(true); // Set video to visible immediately
             
-            // Save video entry
+            // Save video entry and queue its processing
             Video savedVideo = videoService.saveVideo(videoMetadata);
-            
-            // Simulate video processing
-            simulateVideoProcessing(savedVideo);
+            mediaProcessingQueue.enqueue(savedVideo.getId(), ProcessingLane.UPLOAD);
             
             return CompletableFuture.completedFuture(savedVideo);
         } catch (IOException e) {
@@ -69,27 +71,6 @@ public class VideoUploadService {
         }
     }
     
-    /**
-     * Simulate video processing (for demonstration purposes)
-     */
-    @Async
-    public void simulateVideoProcessing(Video video) {
-        try {
-            // Simulate processing time
-            Thread.sleep(3000);
-            
-            // Update video status
-            video.setConversionStatus(ConversionStatus.COMPLETED);
-            video.setIsVisible(true); // Set video to visible after processing
-            videoService.saveVideo(video);
-            
-            logger.info("Video processing completed for: {}", video.getTitle());
-        } catch (InterruptedException e) {
-            logger.error("Video processing interrupted", e);
-            Thread.currentThread().interrupt();
-        }
-    }
-    
     /**
      * Extract file extension from filename
      */
@@ -0,0 +1,228 @@
+package com.bitzomax.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind aggregator for video view counts.
+ *
+ * View pings only bump a per-video LongAdder in memory. A scheduled task periodically
+ * drains the adders and applies the deltas with a single JDBC batch of
+ * "UPDATE videos SET views = views + ?" statements. Deltas that cannot be written are
+ * appended to a fallback log on disk and replayed on the next flush or restart.
+ *
+ * Readers add {@link #getPendingViews} to the persisted count. Once deltas are written, the
+ * cached videos they belong to are evicted so that sum is not computed from a stale count.
+ */
+@Service
+public class ViewCountAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViewCountAggregator.class);
+
+    private static final String UPDATE_VIEWS_SQL = "UPDATE videos SET views = COALESCE(views, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VideoCaches videoCaches;
+    private final Path fallbackLog;
+    private final int batchSize;
+
+    // One adder per video; the map is bounded by the size of the catalog
+    private final ConcurrentHashMap<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ViewCountAggregator(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               VideoCaches videoCaches,
+                               @Value("${video.views.fallback-log:./data/view-counts.log}") String fallbackLog,
+                               @Value("${video.views.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.videoCaches = videoCaches;
+        this.fallbackLog = Paths.get(fallbackLog).toAbsolutePath().normalize();
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Record a single view of a video
+     *
+     * @param videoId the video ID
+     * @return the number of views recorded for the video that are not yet flushed
+     */
+    public long recordView(Long videoId) {
+        LongAdder adder = pendingViews.computeIfAbsent(videoId, id -> new LongAdder());
+        adder.increment();
+        return adder.sum();
+    }
+
+    /**
+     * Get the number of views recorded for a video that are not yet flushed to the database
+     *
+     * @param videoId the video ID
+     * @return the pending view count
+     */
+    public long getPendingViews(Long videoId) {
+        LongAdder adder = pendingViews.get(videoId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Replay deltas left in the fallback log by a previous run
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        replayFallbackLog();
+    }
+
+    /**
+     * Periodically write pending view deltas to the videos table
+     */
+    @Scheduled(fixedDelayString = "${video.views.flush-interval-ms:5000}",
+            initialDelayString = "${video.views.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        replayFallbackLog();
+        flush();
+    }
+
+    /**
+     * Flush everything on shutdown so no views are lost
+     */
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Flushing pending view counts before shutdown");
+        flush();
+    }
+
+    /**
+     * Drain the in-memory adders and apply them in JDBC batches
+     *
+     * @return the number of views written
+     */
+    public synchronized long flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        pendingViews.forEach((videoId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                deltas.put(videoId, delta);
+            }
+        });
+
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            writeDeltas(deltas);
+            long total = deltas.values().stream().mapToLong(Long::longValue).sum();
+            logger.debug("Flushed {} views for {} videos", total, deltas.size());
+            return total;
+        } catch (Exception e) {
+            logger.error("Failed to flush view counts, writing {} deltas to fallback log", deltas.size(), e);
+            appendToFallbackLog(deltas);
+            return 0;
+        }
+    }
+
+    /**
+     * Apply the deltas from the fallback log and remove it once they are persisted
+     */
+    private synchronized void replayFallbackLog() {
+        if (!Files.exists(fallbackLog)) {
+            return;
+        }
+
+        Map<Long, Long> deltas = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(fallbackLog, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(",");
+                if (parts.length != 2) {
+                    continue;
+                }
+                try {
+                    deltas.merge(Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim()), Long::sum);
+                } catch (NumberFormatException e) {
+                    logger.warn("Skipping malformed line in view count log: {}", line);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Could not read view count fallback log {}", fallbackLog, e);
+            return;
+        }
+
+        try {
+            if (!deltas.isEmpty()) {
+                writeDeltas(deltas);
+                logger.info("Replayed view counts for {} videos from fallback log", deltas.size());
+            }
+            Files.deleteIfExists(fallbackLog);
+        } catch (Exception e) {
+            logger.warn("Could not replay view count fallback log yet: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write the deltas in one transaction, split into JDBC batches, then evict the cached
+     * copies of the videos whose count changed
+     */
+    private void writeDeltas(Map<Long, Long> deltas) {
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((videoId, delta) -> batchArgs.add(new Object[]{delta, videoId}));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < batchArgs.size(); i += batchSize) {
+                jdbcTemplate.batchUpdate(UPDATE_VIEWS_SQL, batchArgs.subList(i, Math.min(i + batchSize, batchArgs.size())));
+            }
+        });
+        // Only after commit; evicting earlier would let a reader cache the old count again
+        deltas.keySet().forEach(videoCaches::evictVideoById);
+    }
+
+    /**
+     * Append deltas to the fallback log and force them to disk
+     */
+    private void appendToFallbackLog(Map<Long, Long> deltas) {
+        StringBuilder lines = new StringBuilder();
+        deltas.forEach((videoId, delta) -> lines.append(videoId).append(',').append(delta).append('\n'));
+
+        try {
+            Files.createDirectories(fallbackLog.getParent());
+            try (FileChannel channel = FileChannel.open(fallbackLog,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            // Last resort: keep the views in memory so the next flush retries them
+            logger.error("Could not write view count fallback log {}, keeping deltas in memory", fallbackLog, e);
+            deltas.forEach((videoId, delta) -> pendingViews.computeIfAbsent(videoId, id -> new LongAdder()).add(delta));
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.bitzomax.service;
+
+import com.bitzomax.model.WatchHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for watch progress pings.
+ *
+ * Players report their position every few seconds. Pings only replace the pending entry of
+ * their (user, video) pair in memory, so a flush writes the latest position once however many
+ * pings arrived in between. A scheduled task drains the entries and upserts them with a JDBC
+ * batch of MERGE statements, without loading users, videos or history rows. Pings for users
+ * or videos that do not exist are dropped by the statement itself. IDs for new rows come from
+ * the WatchHistory ID generator (see {@link EntityIdAllocator}).
+ *
+ * At most {@code maxPending} pairs are held; a ping for a new pair beyond that flushes on the
+ * caller's thread first, and is dropped if the database is unavailable.
+ */
+@Service
+public class WatchProgressBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchProgressBuffer.class);
+
+    private static final String MERGE_PROGRESS_SQL =
+            "MERGE INTO watch_history w " +
+            "USING (SELECT u.id AS user_id, v.id AS video_id FROM users u, videos v WHERE u.id = ? AND v.id = ?) p " +
+            "ON w.user_id = p.user_id AND w.video_id = p.video_id " +
+            "WHEN MATCHED THEN UPDATE SET timestamp = ?, watch_duration = ?, completed = ? " +
+            "WHEN NOT MATCHED THEN INSERT (id, user_id, video_id, timestamp, watch_duration, completed) " +
+            "VALUES (?, p.user_id, p.video_id, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityIdAllocator entityIdAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxPending;
+
+    // Latest progress per (user, video); entries are replaced, never mutated
+    private final ConcurrentHashMap<Key, Progress> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder pingsSinceFlush = new LongAdder();
+    private final AtomicLong lastCoalescing = new AtomicLong(Double.doubleToLongBits(1.0));
+    private final Counter pingCounter;
+    private final Counter writeCounter;
+    private final Counter droppedCounter;
+
+    /**
+     * A user's position in a video
+     *
+     * @param userId the user ID
+     * @param videoId the video ID
+     * @param timestamp when the position was reported
+     * @param watchDuration the position in seconds
+     * @param completed whether the video was watched to the end
+     */
+    public record Progress(Long userId, Long videoId, LocalDateTime timestamp, int watchDuration, boolean completed) {
+    }
+
+    private record Key(Long userId, Long videoId) {
+    }
+
+    @Autowired
+    public WatchProgressBuffer(JdbcTemplate jdbcTemplate,
+                               EntityIdAllocator entityIdAllocator,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${user.watch-progress.batch-size:500}") int batchSize,
+                               @Value("${user.watch-progress.max-pending:50000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityIdAllocator = entityIdAllocator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.pingCounter = Counter.builder("watch.progress.pings")
+                .description("Watch progress pings received")
+                .register(meterRegistry);
+        this.writeCounter = Counter.builder("watch.progress.writes")
+                .description("Watch history rows upserted")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("watch.progress.dropped")
+                .description("Watch progress pings dropped because the buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("watch.progress.pending", pending, Map::size)
+                .description("Watch progress entries waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("watch.progress.coalescing", lastCoalescing, bits -> Double.longBitsToDouble(bits.get()))
+                .description("Pings per written row in the last flush")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a user's position in a video; it is written with the next flush
+     *
+     * @param userId the user ID
+     * @param videoId the video ID
+     * @param watchDuration the position in seconds
+     * @param completed whether the video was watched to the end
+     * @return the buffered progress, or null if it was dropped
+     */
+    public Progress record(Long userId, Long videoId, int watchDuration, boolean completed) {
+        Key key = new Key(userId, videoId);
+        Progress progress = new Progress(userId, videoId, LocalDateTime.now(), watchDuration, completed);
+        pingCounter.increment();
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            flush();
+            if (pending.size() >= maxPending) {
+                droppedCounter.increment();
+                logger.warn("Watch progress buffer is full, dropping progress of user {} in video {}", userId, videoId);
+                return null;
+            }
+        }
+        pending.put(key, progress);
+        pingsSinceFlush.increment();
+        return progress;
+    }
+
+    /**
+     * Get the buffered progress of a user in a video that is not yet flushed
+     *
+     * @return the pending progress, or null
+     */
+    public Progress getPending(Long userId, Long videoId) {
+        return pending.get(new Key(userId, videoId));
+    }
+
+    /**
+     * Periodically write buffered progress to the watch_history table
+     */
+    @Scheduled(fixedDelayString = "${user.watch-progress.flush-interval-ms:1000}",
+            initialDelayString = "${user.watch-progress.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Flush everything on shutdown so no progress is lost
+     */
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Flushing pending watch progress before shutdown");
+        flush();
+    }
+
+    /**
+     * Drain the buffer and upsert its entries in JDBC batches
+     *
+     * @return the number of entries written
+     */
+    public synchronized int flush() {
+        List<Progress> drained = new ArrayList<>();
+        for (Map.Entry<Key, Progress> entry : pending.entrySet()) {
+            // Only remove the entry read; a newer ping for the pair stays for the next flush
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                drained.add(entry.getValue());
+            }
+        }
+        long pings = pingsSinceFlush.sumThenReset();
+
+        if (drained.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            write(drained);
+            writeCounter.increment(drained.size());
+            lastCoalescing.set(Double.doubleToLongBits((double) Math.max(pings, drained.size()) / drained.size()));
+            logger.debug("Flushed watch progress of {} pings as {} rows", pings, drained.size());
+            return drained.size();
+        } catch (Exception e) {
+            logger.error("Failed to flush watch progress, keeping {} entries for the next flush", drained.size(), e);
+            // Entries replaced by newer pings in the meantime are not restored
+            for (Progress progress : drained) {
+                pending.putIfAbsent(new Key(progress.userId(), progress.videoId()), progress);
+            }
+            pingsSinceFlush.add(pings);
+            return 0;
+        }
+    }
+
+    /**
+     * Upsert the entries in one transaction, split into JDBC batches
+     */
+    private void write(List<Progress> entries) {
+        // Rows that turn out to exist leave their ID unused, a gap in memory rather than a
+        // round trip to the sequence
+        long[] ids = entityIdAllocator.allocate(WatchHistory.class, entries.size());
+        List<Object[]> batchArgs = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Progress progress = entries.get(i);
+            Timestamp timestamp = Timestamp.valueOf(progress.timestamp());
+            batchArgs.add(new Object[]{
+                    progress.userId(), progress.videoId(),
+                    timestamp, progress.watchDuration(), progress.completed(),
+                    ids[i], timestamp, progress.watchDuration(), progress.completed()});
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < batchArgs.size(); i += batchSize) {
+                jdbcTemplate.batchUpdate(MERGE_PROGRESS_SQL, batchArgs.subList(i, Math.min(i + batchSize, batchArgs.size())));
+            }
+        });
+    }
+}
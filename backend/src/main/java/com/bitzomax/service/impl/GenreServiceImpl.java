@@ -3,7 +3,9 @@ package com.bitzomax.service.impl;
 import com.bitzomax.model.Genre;
 import com.bitzomax.repository.GenreRepository;
 import com.bitzomax.service.GenreService;
+import com.bitzomax.service.VideoCaches;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,13 +16,16 @@ import java.util.Optional;
 public class GenreServiceImpl implements GenreService {
 
     private final GenreRepository genreRepository;
+    private final VideoCaches videoCaches;
 
     @Autowired
-    public GenreServiceImpl(GenreRepository genreRepository) {
+    public GenreServiceImpl(GenreRepository genreRepository, VideoCaches videoCaches) {
         this.genreRepository = genreRepository;
+        this.videoCaches = videoCaches;
     }
 
     @Override
+    @Cacheable(VideoCaches.GENRES)
     public List<Genre> getAllGenres() {
         return genreRepository.findAll();
     }
@@ -38,12 +43,14 @@ public class GenreServiceImpl implements GenreService {
     @Override
     @Transactional
     public Genre createGenre(Genre genre) {
+        videoCaches.evictGenres();
         return genreRepository.save(genre);
     }
 
     @Override
     @Transactional
     public Genre updateGenre(Long id, Genre genreDetails) {
+        videoCaches.evictGenres();
         return genreRepository.findById(id)
                 .map(genre -> {
                     genre.setName(genreDetails.getName());
@@ -56,6 +63,7 @@ public class GenreServiceImpl implements GenreService {
     @Override
     @Transactional
     public void deleteGenre(Long id) {
+        videoCaches.evictGenres();
         genreRepository.deleteById(id);
     }
 
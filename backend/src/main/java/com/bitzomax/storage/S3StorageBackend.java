@@ -0,0 +1,184 @@
+package com.bitzomax.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage in an S3-compatible object store (AWS S3, MinIO, Ceph RGW, ...), spoken to
+ * directly over HTTP with path-style URLs and Signature Version 4.
+ *
+ * Uploads stream the file from disk with an unsigned payload, so nothing is buffered
+ * on the heap and the file is not read twice.
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3StorageBackend.class);
+
+    private final HttpClient httpClient;
+    private final AwsSigV4Signer signer;
+    private final String bucketUrl;
+    private final String keyPrefix;
+    private final Duration requestTimeout;
+    private final Clock clock;
+
+    /**
+     * @param endpoint the service endpoint, e.g. https://s3.eu-central-1.amazonaws.com or http://localhost:9000
+     * @param bucket the bucket name
+     * @param region the signing region
+     * @param accessKey the access key ID
+     * @param secretKey the secret access key
+     * @param keyPrefix prefix prepended to every key, e.g. "bitzomax/"; may be empty
+     * @param requestTimeout timeout of a single request
+     */
+    public S3StorageBackend(String endpoint, String bucket, String region, String accessKey, String secretKey,
+                            String keyPrefix, Duration requestTimeout) {
+        this(HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .build(),
+                endpoint, bucket, region, accessKey, secretKey, keyPrefix, requestTimeout, Clock.systemUTC());
+    }
+
+    S3StorageBackend(HttpClient httpClient, String endpoint, String bucket, String region, String accessKey,
+                     String secretKey, String keyPrefix, Duration requestTimeout, Clock clock) {
+        this.httpClient = httpClient;
+        this.signer = new AwsSigV4Signer(accessKey, secretKey, region, "s3");
+        this.bucketUrl = endpoint.replaceAll("/+$", "") + "/" + AwsSigV4Signer.encode(bucket, true);
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+        this.requestTimeout = requestTimeout;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return "s3";
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", contentType != null ? contentType : "application/octet-stream");
+        HttpResponse<String> response = send("PUT", key, headers,
+                HttpRequest.BodyPublishers.ofFile(source), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw failure("PUT", key, response.statusCode(), response.body());
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return open(key, Map.of(), 200);
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        if (offset < 0 || length < 1) {
+            throw new IllegalArgumentException("Invalid range: offset " + offset + ", length " + length);
+        }
+        return open(key, Map.of("Range", "bytes=" + offset + "-" + (offset + length - 1)), 206);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", key, Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        // S3 answers 204 whether or not the object existed
+        if (response.statusCode() / 100 != 2 && response.statusCode() != 404) {
+            throw failure("DELETE", key, response.statusCode(), response.body());
+        }
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", key, Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        if (response.statusCode() != 200) {
+            throw failure("HEAD", key, response.statusCode(), null);
+        }
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        Instant lastModified = response.headers().firstValue("Last-Modified")
+                .map(S3StorageBackend::parseHttpDate)
+                .orElse(null);
+        return Optional.of(new StorageObject(key, size, lastModified));
+    }
+
+    @Override
+    public Optional<URI> presignedUrl(String key, Duration expiry) {
+        return Optional.of(signer.presign("GET", objectUri(key), expiry, clock.instant()));
+    }
+
+    private InputStream open(String key, Map<String, String> headers, int expectedStatus) throws IOException {
+        HttpResponse<InputStream> response = send("GET", key, headers,
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == expectedStatus) {
+            return response.body();
+        }
+        String body;
+        try (InputStream in = response.body()) {
+            body = new String(in.readNBytes(1024));
+        }
+        if (response.statusCode() == 404) {
+            throw new NoSuchFileException(key);
+        }
+        throw failure("GET", key, response.statusCode(), body);
+    }
+
+    private <T> HttpResponse<T> send(String method, String key, Map<String, String> headers,
+                                     HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        URI uri = objectUri(key);
+        String payloadHash = "PUT".equals(method) ? AwsSigV4Signer.UNSIGNED_PAYLOAD : AwsSigV4Signer.EMPTY_PAYLOAD_SHA256;
+        Map<String, String> signed = signer.sign(method, uri, headers, payloadHash, clock.instant());
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .method(method, body);
+        signed.forEach(request::header);
+        try {
+            return httpClient.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(method + " " + key + " interrupted", e);
+        }
+    }
+
+    private URI objectUri(String key) {
+        return URI.create(bucketUrl + "/" + AwsSigV4Signer.encode(keyPrefix + StorageKeys.validate(key), false));
+    }
+
+    private static IOException failure(String method, String key, int status, String body) {
+        logger.warn("S3 {} {} failed with HTTP {}: {}", method, key, status, body);
+        return new IOException("S3 " + method + " " + key + " failed with HTTP " + status);
+    }
+
+    private static Instant parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.bitzomax.storage;
+
+/**
+ * The storage areas uploaded files are kept in.
+ *
+ * The key of an area is the first segment of the storage keys of its files and of their web
+ * paths below /uploads/, e.g. "videos/3f/a2/3fa2...mp4" and "/uploads/videos/3f/a2/3fa2...mp4".
+ */
+public enum StorageArea {
+    VIDEOS("videos"),
+    THUMBNAILS("thumbnails");
+
+    private final String key;
+
+    StorageArea(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Prefix of the web paths of the area's files, e.g. "/uploads/videos/"
+     */
+    public String getWebPathPrefix() {
+        return "/uploads/" + key + "/";
+    }
+}
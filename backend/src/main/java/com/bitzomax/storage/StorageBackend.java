@@ -0,0 +1,76 @@
+package com.bitzomax.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Where uploaded videos and thumbnails are kept.
+ *
+ * Keys are slash-separated paths whose first segment is the storage area, e.g.
+ * "videos/3f/a2/3fa2...mp4"; the web path of a stored file is "/uploads/" + key.
+ * See StorageKeys for the sharded layout.
+ */
+public interface StorageBackend {
+
+    /**
+     * Short name for logs and configuration, e.g. "local" or "s3"
+     */
+    String getName();
+
+    /**
+     * Store a file under a key, replacing any previous object. The source file is
+     * consumed: it is moved into place or deleted after uploading.
+     *
+     * @param key the storage key
+     * @param source the file to store
+     * @param contentType the content type, may be null
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Open an object for reading
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no such object
+     */
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Open a byte range of an object for reading
+     *
+     * @param key the storage key
+     * @param offset the first byte
+     * @param length the number of bytes, at least 1
+     * @throws java.nio.file.NoSuchFileException if there is no such object
+     */
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    /**
+     * Delete an object; deleting a missing object is not an error
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Size and modification time of an object, or empty if it does not exist
+     */
+    Optional<StorageObject> stat(String key) throws IOException;
+
+    /**
+     * The object as a file on the local file system, for zero-copy streaming and
+     * processing tools. Empty for remote backends.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * A time-limited URL clients can fetch the object from directly. Empty for
+     * backends that cannot hand out URLs.
+     */
+    default Optional<URI> presignedUrl(String key, Duration expiry) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,70 @@
+package com.bitzomax.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Sharded key layout shared by all storage backends.
+ *
+ * Files are spread over two directory levels named after the first two bytes of a
+ * SHA-256: the content hash for content-addressed blobs, the hash of the file name
+ * otherwise. 65,536 leaf directories keep every directory small even with millions
+ * of files, and the key alone says where a file lives.
+ */
+public final class StorageKeys {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private StorageKeys() {
+    }
+
+    /**
+     * Key of a file whose name is unique on its own (e.g. a UUID)
+     */
+    public static String forName(String area, String fileName) {
+        return area + "/" + shard(sha256Hex(fileName)) + fileName;
+    }
+
+    /**
+     * Key of a content-addressed file
+     *
+     * @param sha256 the hex SHA-256 of the content
+     * @param extension the file extension including the dot, or ""
+     */
+    public static String forContent(String area, String sha256, String extension) {
+        return area + "/" + shard(sha256) + sha256 + extension;
+    }
+
+    /**
+     * Reject keys that could escape the storage root or are not in "area/path" form
+     *
+     * @throws IllegalArgumentException if the key is invalid
+     */
+    public static String validate(String key) {
+        if (key == null || key.isEmpty() || key.startsWith("/") || key.endsWith("/") || key.contains("\\")
+                || key.indexOf('/') < 0) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        for (String segment : key.split("/")) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw new IllegalArgumentException("Invalid storage key: " + key);
+            }
+        }
+        return key;
+    }
+
+    static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HEX.formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String shard(String hash) {
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/";
+    }
+}
@@ -0,0 +1,13 @@
+package com.bitzomax.storage;
+
+import java.time.Instant;
+
+/**
+ * Metadata of a stored object
+ *
+ * @param key the storage key
+ * @param size the size in bytes
+ * @param lastModified the modification time, if known
+ */
+public record StorageObject(String key, long size, Instant lastModified) {
+}
@@ -0,0 +1,2 @@
+-- Whether the MP4/MOV file has its moov box before the media data; NULL until checked
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS faststart BOOLEAN;
@@ -0,0 +1,9 @@
+-- IDs of the insert-heavy tables come from sequences, so Hibernate can batch their inserts.
+-- The INCREMENT BY values are the ID blocks Hibernate reserves per sequence call.
+-- Existing rows keep their IDs: SequenceSynchronizer restarts each sequence above MAX(id) on startup.
+CREATE SEQUENCE IF NOT EXISTS videos_seq START WITH 1 INCREMENT BY 20;
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 20;
+CREATE SEQUENCE IF NOT EXISTS subscriptions_seq START WITH 1 INCREMENT BY 20;
+CREATE SEQUENCE IF NOT EXISTS watch_history_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS liked_videos_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS favorite_videos_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,9 @@
+-- Keyset pagination seeks on (upload_date, id) and (views, id) and cannot step over NULLs.
+-- New rows get both keys from Video's @PrePersist hook; rows written before it are backfilled.
+-- A missing upload date sorts as the oldest video, where NULLS LAST would have put it.
+UPDATE videos SET upload_date = TIMESTAMP '1970-01-01 00:00:00' WHERE upload_date IS NULL;
+UPDATE videos SET views = 0 WHERE views IS NULL;
+ALTER TABLE videos ALTER COLUMN upload_date SET NOT NULL;
+ALTER TABLE videos ALTER COLUMN views SET NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_videos_upload_date_id ON videos (upload_date, id);
+CREATE INDEX IF NOT EXISTS idx_videos_views_id ON videos (views, id);
@@ -0,0 +1,15 @@
+-- A user likes a video at most once. Double clicks used to insert duplicate likes, and each
+-- duplicate also incremented videos.likes, so the counters are corrected before the duplicates
+-- are removed. The oldest like of each (user_id, video_id) pair is kept.
+UPDATE videos v SET likes = GREATEST(COALESCE(likes, 0) - (
+    SELECT COUNT(*) FROM liked_videos l
+    WHERE l.video_id = v.id
+      AND EXISTS (SELECT 1 FROM liked_videos k
+                  WHERE k.user_id = l.user_id AND k.video_id = l.video_id AND k.id < l.id)), 0)
+WHERE EXISTS (SELECT 1 FROM liked_videos l JOIN liked_videos k
+              ON k.user_id = l.user_id AND k.video_id = l.video_id AND k.id < l.id
+              WHERE l.video_id = v.id);
+DELETE FROM liked_videos l
+WHERE EXISTS (SELECT 1 FROM liked_videos k
+              WHERE k.user_id = l.user_id AND k.video_id = l.video_id AND k.id < l.id);
+ALTER TABLE liked_videos ADD CONSTRAINT uk_liked_videos_user_video UNIQUE (user_id, video_id);
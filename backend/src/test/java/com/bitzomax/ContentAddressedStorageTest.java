@@ -0,0 +1,88 @@
+package com.bitzomax;
+
+import com.bitzomax.dto.FileUploadResponse;
+import com.bitzomax.model.StoredBlob;
+import com.bitzomax.repository.StoredBlobRepository;
+import com.bitzomax.service.FileStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies deduplication and reference counting of content-addressed uploads
+ */
+@SpringBootTest(properties = "file.content-addressed=true")
+@ActiveProfiles("test")
+public class ContentAddressedStorageTest {
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() {
+        // Unique per test so runs never share blobs
+        content = ("video bytes " + UUID.randomUUID()).getBytes();
+    }
+
+    @Test
+    @DisplayName("Should store identical uploads once and delete the file with the last reference")
+    void deduplicateAndRelease() {
+        FileUploadResponse first = fileStorageService.storeVideoFile(
+                new MockMultipartFile("file", "first.mp4", "video/mp4", content));
+        FileUploadResponse second = fileStorageService.storeVideoFile(
+                new MockMultipartFile("file", "second.MP4", "video/mp4", content));
+
+        assertFalse(first.isDuplicate());
+        assertTrue(second.isDuplicate());
+        assertEquals(first.getFilePath(), second.getFilePath());
+        assertTrue(first.getFileName().matches("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.mp4"));
+        // Sharded by the first two bytes of the hash: ab/cd/abcd...
+        String name = first.getFileName();
+        assertTrue(name.substring(6).startsWith(name.substring(0, 2) + name.substring(3, 5)));
+
+        Path file = fileStorageService.resolveVideoPath(first.getFilePath());
+        StoredBlob blob = storedBlobRepository.findByAreaAndRelativePath("videos", first.getFileName()).orElseThrow();
+        assertEquals(2, blob.getRefCount());
+        assertEquals(content.length, blob.getSizeBytes());
+
+        fileStorageService.deleteVideoFile(first.getFilePath());
+        assertTrue(Files.exists(file));
+        assertEquals(1, storedBlobRepository.findById(blob.getId()).orElseThrow().getRefCount());
+
+        fileStorageService.deleteVideoFile(second.getFilePath());
+        assertFalse(Files.exists(file));
+        assertTrue(storedBlobRepository.findById(blob.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep different content in separate blobs")
+    void differentContent() {
+        FileUploadResponse first = fileStorageService.storeThumbnailFile(
+                new MockMultipartFile("file", "a.jpg", "image/jpeg", content));
+        FileUploadResponse second = fileStorageService.storeThumbnailFile(
+                new MockMultipartFile("file", "b.jpg", "image/jpeg", ("other " + UUID.randomUUID()).getBytes()));
+
+        assertNotEquals(first.getFilePath(), second.getFilePath());
+        assertFalse(second.isDuplicate());
+
+        fileStorageService.deleteThumbnailFile(first.getFilePath());
+        assertFalse(Files.exists(fileStorageService.resolveThumbnailPath(first.getFilePath())));
+        assertTrue(Files.exists(fileStorageService.resolveThumbnailPath(second.getFilePath())));
+        fileStorageService.deleteThumbnailFile(second.getFilePath());
+    }
+}
@@ -0,0 +1,201 @@
+package com.bitzomax;
+
+import com.bitzomax.model.ConversionStatus;
+import com.bitzomax.model.ProcessingJob;
+import com.bitzomax.model.ProcessingJobStatus;
+import com.bitzomax.model.ProcessingLane;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.ProcessingJobRepository;
+import com.bitzomax.repository.VideoRepository;
+import com.bitzomax.service.MediaProcessingQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies job claiming, retries and the ConversionStatus transitions of the processing queue
+ */
+@SpringBootTest(properties = {"media.processing.max-attempts=2", "media.processing.retry-backoff-ms=60000"})
+@ActiveProfiles("test")
+public class MediaProcessingQueueTest {
+
+    private static final String WORKER = "test-worker";
+
+    @Autowired
+    private MediaProcessingQueue queue;
+
+    @Autowired
+    private ProcessingJobRepository processingJobRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    private Video video;
+
+    @BeforeEach
+    void setUp() {
+        processingJobRepository.deleteAll();
+        video = new Video();
+        video.setTitle("Processing queue video");
+        video.setVideoUrl("/uploads/videos/processing-queue.mp4");
+        video.setConversionStatus(ConversionStatus.COMPLETED);
+        video.setIsVisible(true);
+        video = videoRepository.save(video);
+    }
+
+    @AfterEach
+    void tearDown() {
+        processingJobRepository.deleteAll();
+        videoRepository.deleteById(video.getId());
+    }
+
+    @Test
+    @DisplayName("Should drive the video from PENDING through PROCESSING to COMPLETED")
+    void processSuccessfully() {
+        ProcessingJob job = queue.enqueue(video.getId(), ProcessingLane.UPLOAD);
+        assertEquals(ConversionStatus.PENDING, conversionStatus());
+
+        List<ProcessingJob> claimed = queue.claim(ProcessingLane.UPLOAD, 5, WORKER);
+        assertEquals(1, claimed.size());
+        assertEquals(job.getId(), claimed.get(0).getId());
+        assertEquals(ConversionStatus.PROCESSING, conversionStatus());
+        assertTrue(queue.claim(ProcessingLane.UPLOAD, 5, WORKER).isEmpty(), "a running job must not be claimed twice");
+
+        queue.markSucceeded(job.getId(), WORKER);
+        assertEquals(ProcessingJobStatus.SUCCEEDED, reload(job).getStatus());
+        assertEquals(ConversionStatus.COMPLETED, conversionStatus());
+    }
+
+    @Test
+    @DisplayName("Should keep one active job per video and claim only from the requested lane")
+    void deduplicateAndSeparateLanes() {
+        ProcessingJob job = queue.enqueue(video.getId(), ProcessingLane.REPROCESS);
+        assertEquals(job.getId(), queue.enqueue(video.getId(), ProcessingLane.REPROCESS).getId());
+        assertEquals(1, processingJobRepository.count());
+
+        assertTrue(queue.claim(ProcessingLane.UPLOAD, 5, WORKER).isEmpty());
+        assertEquals(1, queue.claim(ProcessingLane.REPROCESS, 5, WORKER).size());
+    }
+
+    @Test
+    @DisplayName("Should retry with backoff and fail the video after the last attempt")
+    void retryThenFail() {
+        ProcessingJob job = queue.enqueue(video.getId(), ProcessingLane.UPLOAD);
+        queue.claim(ProcessingLane.UPLOAD, 1, WORKER);
+
+        queue.markFailed(job.getId(), WORKER, "stage exploded", true);
+        ProcessingJob retried = reload(job);
+        assertEquals(ProcessingJobStatus.QUEUED, retried.getStatus());
+        assertTrue(retried.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(30)));
+        assertEquals(ConversionStatus.PENDING, conversionStatus());
+        assertTrue(queue.claim(ProcessingLane.UPLOAD, 1, WORKER).isEmpty(), "backoff must delay the retry");
+
+        retried.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        processingJobRepository.save(retried);
+        assertEquals(1, queue.claim(ProcessingLane.UPLOAD, 1, WORKER).size());
+
+        queue.markFailed(job.getId(), WORKER, "stage exploded again", true);
+        ProcessingJob failed = reload(job);
+        assertEquals(ProcessingJobStatus.FAILED, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+        assertEquals("stage exploded again", failed.getLastError());
+        assertEquals(ConversionStatus.FAILED, conversionStatus());
+    }
+
+    @Test
+    @DisplayName("Should re-queue jobs whose worker stopped heartbeating")
+    void requeueStaleJobs() {
+        ProcessingJob job = queue.enqueue(video.getId(), ProcessingLane.UPLOAD);
+        queue.claim(ProcessingLane.UPLOAD, 1, WORKER);
+
+        assertEquals(0, queue.requeueStale(Duration.ofMinutes(5)));
+        assertEquals(1, queue.requeueStale(Duration.ofMillis(-1)));
+        assertEquals(ProcessingJobStatus.QUEUED, reload(job).getStatus());
+    }
+
+    @Test
+    @DisplayName("Should ignore the outcome of a worker that no longer holds the job")
+    void ignoreOutcomeOfSlowWorker() {
+        ProcessingJob job = queue.enqueue(video.getId(), ProcessingLane.UPLOAD);
+        queue.claim(ProcessingLane.UPLOAD, 1, WORKER);
+        assertEquals(1, queue.requeueStale(Duration.ofMillis(-1)));
+
+        // The slow worker finishes after its job was re-queued
+        assertFalse(queue.markSucceeded(job.getId(), WORKER));
+        assertEquals(ProcessingJobStatus.QUEUED, reload(job).getStatus());
+        assertEquals(ConversionStatus.PENDING, conversionStatus());
+
+        // ... or after another worker claimed it
+        ProcessingJob requeued = reload(job);
+        requeued.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        processingJobRepository.save(requeued);
+        assertEquals(1, queue.claim(ProcessingLane.UPLOAD, 1, "other-worker").size());
+        assertFalse(queue.markFailed(job.getId(), WORKER, "late failure", false));
+        ProcessingJob running = reload(job);
+        assertEquals(ProcessingJobStatus.RUNNING, running.getStatus());
+        assertEquals("other-worker", running.getLockedBy());
+        assertEquals(ConversionStatus.PROCESSING, conversionStatus());
+
+        assertTrue(queue.markSucceeded(job.getId(), "other-worker"));
+        assertEquals(ConversionStatus.COMPLETED, conversionStatus());
+    }
+
+    @Test
+    @DisplayName("Should fail a job that keeps losing its worker once its attempts are used up")
+    void failStaleJobAfterLastAttempt() {
+        ProcessingJob job = queue.enqueue(video.getId(), ProcessingLane.UPLOAD);
+        queue.claim(ProcessingLane.UPLOAD, 1, WORKER);
+        assertEquals(1, queue.requeueStale(Duration.ofMillis(-1)));
+
+        ProcessingJob requeued = reload(job);
+        requeued.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        processingJobRepository.save(requeued);
+        assertEquals(1, queue.claim(ProcessingLane.UPLOAD, 1, WORKER).size());
+
+        assertEquals(0, queue.requeueStale(Duration.ofMillis(-1)));
+        ProcessingJob failed = reload(job);
+        assertEquals(ProcessingJobStatus.FAILED, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+        assertEquals(ConversionStatus.FAILED, conversionStatus());
+    }
+
+    @Test
+    @DisplayName("Should leave the visibility of the video to admins")
+    void keepVisibility() {
+        video.setIsVisible(false);
+        video = videoRepository.save(video);
+
+        ProcessingJob job = queue.enqueue(video.getId(), ProcessingLane.REPROCESS);
+        queue.claim(ProcessingLane.REPROCESS, 1, WORKER);
+        queue.markSucceeded(job.getId(), WORKER);
+        assertEquals(ConversionStatus.COMPLETED, conversionStatus());
+        assertFalse(videoRepository.findById(video.getId()).orElseThrow().getIsVisible());
+
+        video = videoRepository.findById(video.getId()).orElseThrow();
+        video.setIsVisible(true);
+        video = videoRepository.save(video);
+        ProcessingJob retry = queue.enqueue(video.getId(), ProcessingLane.UPLOAD);
+        queue.claim(ProcessingLane.UPLOAD, 1, WORKER);
+        queue.markFailed(retry.getId(), WORKER, "stage exploded", false);
+        assertEquals(ConversionStatus.FAILED, conversionStatus());
+        assertTrue(videoRepository.findById(video.getId()).orElseThrow().getIsVisible());
+    }
+
+    private ProcessingJob reload(ProcessingJob job) {
+        return processingJobRepository.findById(job.getId()).orElseThrow();
+    }
+
+    private ConversionStatus conversionStatus() {
+        return videoRepository.findById(video.getId()).orElseThrow().getConversionStatus();
+    }
+}
@@ -0,0 +1,134 @@
+package com.bitzomax;
+
+import com.bitzomax.dto.CursorPage;
+import com.bitzomax.dto.VideoDTO;
+import com.bitzomax.dto.VideoSummary;
+import com.bitzomax.model.ConversionStatus;
+import com.bitzomax.model.Genre;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.GenreRepository;
+import com.bitzomax.repository.VideoRepository;
+import com.bitzomax.service.VideoService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that listing pages load in a constant number of statements, whatever the page size
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+public class VideoFetchPlanTest {
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Genre genre;
+
+    @BeforeEach
+    void setUp() {
+        genre = genreRepository.save(new Genre("Fetch Plan Test Genre"));
+        List<Video> videos = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Video video = new Video();
+            video.setTitle("Fetch plan video " + i);
+            video.setVideoUrl("http://example.com/fetch-plan-" + i + ".mp4");
+            video.setConversionStatus(ConversionStatus.COMPLETED);
+            video.setGenre(genre);
+            video.setTags(new HashSet<>(Set.of("tag-a-" + i, "tag-b-" + i)));
+            video.setHashtags(new HashSet<>(Set.of("#hash-" + i)));
+            video.setSeoKeywords(new HashSet<>(Set.of("keyword-" + i)));
+            videos.add(video);
+        }
+        videoRepository.saveAll(videos);
+    }
+
+    @AfterEach
+    void tearDown() {
+        videoRepository.deleteAll(videoRepository.findByGenreIdAndIsVisibleTrue(genre.getId()));
+        genreRepository.delete(genre);
+    }
+
+    @Test
+    @DisplayName("Should load a page of videos with collections in the same number of statements for any page size")
+    void pageStatementCountIsConstant() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // When
+        statistics.clear();
+        Page<VideoDTO> smallPage = videoService.getAllVideosWithPagination(PageRequest.of(0, 5, Sort.by("id")));
+        long smallPageStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        Page<VideoDTO> largePage = videoService.getAllVideosWithPagination(PageRequest.of(0, 20, Sort.by("id")));
+        long largePageStatements = statistics.getPrepareStatementCount();
+
+        // Then
+        assertEquals(5, smallPage.getContent().size());
+        assertEquals(20, largePage.getContent().size());
+        largePage.stream().filter(video -> video.getTitle().startsWith("Fetch plan video")).forEach(video -> {
+            assertEquals(2, video.getTags().size());
+            assertEquals(1, video.getHashtags().size());
+            assertEquals(1, video.getSeoKeywords().size());
+            assertNotNull(video.getGenre());
+        });
+
+        // Page query, count query and one query per collection
+        assertEquals(smallPageStatements, largePageStatements);
+        assertTrue(largePageStatements <= 5, "Expected at most 5 statements but got " + largePageStatements);
+    }
+
+    @Test
+    @DisplayName("Should walk a genre by cursor with one statement per window and no duplicates")
+    void cursorWindowsUseOneStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int windows = 0;
+
+        // When
+        do {
+            statistics.clear();
+            CursorPage<VideoSummary> window = videoService.getVideosByCursor(genre.getId(), cursor, "views", "desc", 6, false);
+            assertEquals(1, statistics.getPrepareStatementCount());
+            window.getContent().forEach(video -> seen.add(video.getId()));
+            cursor = window.getNextCursor();
+            windows++;
+        } while (cursor != null);
+
+        // Then - every video has zero views, so the ID alone breaks the ties
+        assertEquals(4, windows);
+        assertEquals(20, seen.size());
+        assertEquals(20, new HashSet<>(seen).size());
+        List<Long> sorted = new ArrayList<>(seen);
+        sorted.sort(Comparator.reverseOrder());
+        assertEquals(sorted, seen);
+    }
+}
@@ -2,8 +2,11 @@ package com.bitzomax.controller;
 
 import com.bitzomax.dto.VideoDTO;
 import com.bitzomax.model.ConversionStatus;
+import com.bitzomax.model.ProcessingJob;
+import com.bitzomax.model.ProcessingLane;
 import com.bitzomax.model.Video;
 import com.bitzomax.service.FileStorageService;
+import com.bitzomax.service.MediaProcessingQueue;
 import com.bitzomax.service.VideoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -44,6 +47,9 @@ public class AdminVideoControllerTest {
     @Mock
     private FileStorageService fileStorageService;
 
+    @Mock
+    private MediaProcessingQueue mediaProcessingQueue;
+
     @InjectMocks
     private AdminVideoController adminVideoController;
 
@@ -152,6 +158,23 @@ public class AdminVideoControllerTest {
         verify(fileStorageService).storeVideoFile(any());
         verify(fileStorageService).storeThumbnailFile(any());
         verify(videoService).createVideo(any(VideoDTO.class));
+        verify(mediaProcessingQueue).enqueue(1L, ProcessingLane.UPLOAD);
+    }
+
+    @Test
+    @DisplayName("Should queue a video for re-processing")
+    void reprocessVideo() throws Exception {
+        // Given
+        ProcessingJob job = new ProcessingJob(1L, ProcessingLane.REPROCESS, 4);
+        job.setId(7L);
+        when(mediaProcessingQueue.enqueue(1L, ProcessingLane.REPROCESS)).thenReturn(job);
+
+        // When/Then
+        mockMvc.perform(post("/api/admin/videos/1/reprocess"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", is(7)))
+                .andExpect(jsonPath("$.lane", is("REPROCESS")))
+                .andExpect(jsonPath("$.status", is("QUEUED")));
     }
 
     @Test
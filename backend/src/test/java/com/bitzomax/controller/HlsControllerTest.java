@@ -0,0 +1,142 @@
+package com.bitzomax.controller;
+
+import com.bitzomax.model.HlsSegment;
+import com.bitzomax.model.Video;
+import com.bitzomax.model.VideoRendition;
+import com.bitzomax.service.HlsRenditionService;
+import com.bitzomax.service.VideoService;
+import com.bitzomax.service.VideoStreamingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HlsControllerTest {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private VideoService videoService;
+
+    @Mock
+    private HlsRenditionService hlsRenditionService;
+
+    private MockMvc mockMvc;
+    private Video video;
+    private VideoRendition rendition;
+
+    @BeforeEach
+    void setUp() {
+        HlsController controller = new HlsController(videoService, hlsRenditionService,
+                new VideoStreamingService(false), "public, max-age=60", IMMUTABLE);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        video = new Video();
+        video.setId(1L);
+        video.setIsVisible(true);
+
+        rendition = new VideoRendition();
+        rendition.setId(42L);
+        rendition.setVideoId(1L);
+        rendition.setName("720p");
+        rendition.setWidth(1280);
+        rendition.setHeight(720);
+        rendition.setBandwidth(3_000_000L);
+        rendition.setAverageBandwidth(2_600_000L);
+        rendition.setCodecs("avc1.4d401f,mp4a.40.2");
+        rendition.setTargetDuration(4);
+        rendition.setSegments(new ArrayList<>(List.of(
+                new HlsSegment("seg_00000.ts", 4000, 4),
+                new HlsSegment("seg_00001.ts", 2500, 4))));
+    }
+
+    @Test
+    @DisplayName("Should list the renditions in the master playlist")
+    void getMasterPlaylist() throws Exception {
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(hlsRenditionService.getRenditions(1L)).thenReturn(List.of(rendition));
+
+        mockMvc.perform(get("/api/videos/1/hls/master.m3u8"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/vnd.apple.mpegurl"))
+                .andExpect(header().string("Cache-Control", "public, max-age=60"))
+                .andExpect(content().string(containsString("#EXTM3U")))
+                .andExpect(content().string(containsString("RESOLUTION=1280x720")))
+                .andExpect(content().string(containsString("42/index.m3u8")));
+    }
+
+    @Test
+    @DisplayName("Should return 404 for the master playlist of a hidden video")
+    void getMasterPlaylistHidden() throws Exception {
+        video.setIsVisible(false);
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+
+        mockMvc.perform(get("/api/videos/1/hls/master.m3u8"))
+                .andExpect(status().isNotFound());
+
+        verify(hlsRenditionService, never()).getRenditions(any());
+    }
+
+    @Test
+    @DisplayName("Should serve the media playlist with immutable caching")
+    void getMediaPlaylist() throws Exception {
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(hlsRenditionService.getRendition(1L, 42L)).thenReturn(Optional.of(rendition));
+
+        mockMvc.perform(get("/api/videos/1/hls/42/index.m3u8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", IMMUTABLE))
+                .andExpect(content().string(containsString("#EXT-X-TARGETDURATION:4")))
+                .andExpect(content().string(containsString("#EXTINF:2.500,\nseg_00001.ts")))
+                .andExpect(content().string(containsString("#EXT-X-ENDLIST")));
+    }
+
+    @Test
+    @DisplayName("Should stream a segment from the index")
+    void streamSegment() throws Exception {
+        Path segment = Files.write(tempDir.resolve("seg_00001.ts"), new byte[]{0x47, 1, 2, 3});
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(hlsRenditionService.getRendition(1L, 42L)).thenReturn(Optional.of(rendition));
+        when(hlsRenditionService.resolveSegment(rendition, "seg_00001.ts")).thenReturn(Optional.of(segment));
+
+        mockMvc.perform(get("/api/videos/1/hls/42/seg_00001.ts"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("video/mp2t"))
+                .andExpect(header().string("Cache-Control", IMMUTABLE))
+                .andExpect(content().bytes(new byte[]{0x47, 1, 2, 3}));
+    }
+
+    @Test
+    @DisplayName("Should return 404 for a segment that is not in the index")
+    void streamUnknownSegment() throws Exception {
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(hlsRenditionService.getRendition(1L, 42L)).thenReturn(Optional.of(rendition));
+        when(hlsRenditionService.resolveSegment(rendition, "other.ts")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/videos/1/hls/42/other.ts"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,105 @@
+package com.bitzomax.controller;
+
+import com.bitzomax.model.Video;
+import com.bitzomax.service.SpriteSheetService;
+import com.bitzomax.service.VideoService;
+import com.bitzomax.service.VideoStreamingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SpriteSheetControllerTest {
+
+    private static final String RUN = "1700000000000-0a1b2c3d";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private VideoService videoService;
+
+    @Mock
+    private SpriteSheetService spriteSheetService;
+
+    private MockMvc mockMvc;
+    private Video video;
+
+    @BeforeEach
+    void setUp() {
+        SpriteSheetController controller = new SpriteSheetController(videoService, spriteSheetService,
+                new VideoStreamingService(false), "public, max-age=60", IMMUTABLE);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        video = new Video();
+        video.setId(1L);
+        video.setIsVisible(true);
+    }
+
+    @Test
+    @DisplayName("Should serve the thumbnail track as WebVTT")
+    void getTrack() throws Exception {
+        Path track = Files.writeString(tempDir.resolve("thumbnails.vtt"), "WEBVTT\n");
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(spriteSheetService.resolveTrack(1L)).thenReturn(Optional.of(track));
+
+        mockMvc.perform(get("/api/videos/1/sprites/thumbnails.vtt"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/vtt"))
+                .andExpect(header().string("Cache-Control", "public, max-age=60"))
+                .andExpect(content().string("WEBVTT\n"));
+    }
+
+    @Test
+    @DisplayName("Should serve sheets with immutable caching")
+    void getSheet() throws Exception {
+        Path sheet = Files.write(tempDir.resolve("sheet_000.jpg"), new byte[]{(byte) 0xff, (byte) 0xd8});
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(spriteSheetService.resolveSheet(1L, RUN, "sheet_000.jpg")).thenReturn(Optional.of(sheet));
+
+        mockMvc.perform(get("/api/videos/1/sprites/" + RUN + "/sheet_000.jpg"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(header().string("Cache-Control", IMMUTABLE));
+    }
+
+    @Test
+    @DisplayName("Should return 404 for a video that has no seek previews")
+    void getTrackMissing() throws Exception {
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(spriteSheetService.resolveTrack(1L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/videos/1/sprites/thumbnails.vtt"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Should return 404 for the seek previews of a hidden video")
+    void getTrackHidden() throws Exception {
+        video.setIsVisible(false);
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+
+        mockMvc.perform(get("/api/videos/1/sprites/thumbnails.vtt"))
+                .andExpect(status().isNotFound());
+
+        verify(spriteSheetService, never()).resolveTrack(anyLong());
+    }
+}
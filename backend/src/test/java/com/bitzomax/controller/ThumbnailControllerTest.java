@@ -0,0 +1,112 @@
+package com.bitzomax.controller;
+
+import com.bitzomax.media.ThumbnailFormat;
+import com.bitzomax.model.Video;
+import com.bitzomax.service.ThumbnailService;
+import com.bitzomax.service.VideoService;
+import com.bitzomax.service.VideoStreamingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ThumbnailControllerTest {
+
+    private static final String THUMBNAIL_URL = "/uploads/thumbnails/ab/cd/original.png";
+    private static final String WEBP_ACCEPT = "image/webp,image/*";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private VideoService videoService;
+
+    @Mock
+    private ThumbnailService thumbnailService;
+
+    private MockMvc mockMvc;
+    private Video video;
+
+    @BeforeEach
+    void setUp() {
+        ThumbnailController controller = new ThumbnailController(videoService, thumbnailService,
+                new VideoStreamingService(false), "public, max-age=86400");
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        video = new Video();
+        video.setId(1L);
+        video.setIsVisible(true);
+        video.setThumbnailUrl(THUMBNAIL_URL);
+    }
+
+    @Test
+    @DisplayName("Should serve the negotiated derivative and vary by Accept")
+    void getThumbnail() throws Exception {
+        Path file = Files.write(tempDir.resolve("derivative.webp"), new byte[]{'R', 'I', 'F', 'F'});
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(thumbnailService.getDerivative(THUMBNAIL_URL, 320, WEBP_ACCEPT))
+                .thenReturn(new ThumbnailService.Derivative(file, ThumbnailFormat.WEBP, 320));
+
+        mockMvc.perform(get("/api/videos/1/thumbnail").param("w", "320").header("Accept", WEBP_ACCEPT))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/webp"))
+                .andExpect(header().string("Vary", "Accept"))
+                .andExpect(header().string("Cache-Control", "public, max-age=86400"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(content().bytes(new byte[]{'R', 'I', 'F', 'F'}));
+    }
+
+    @Test
+    @DisplayName("Should return 404 for a video without thumbnail")
+    void getThumbnailMissing() throws Exception {
+        video.setThumbnailUrl(null);
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+
+        mockMvc.perform(get("/api/videos/1/thumbnail"))
+                .andExpect(status().isNotFound());
+
+        verify(thumbnailService, never()).getDerivative(anyString(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return 404 when the original file is gone")
+    void getThumbnailFileMissing() throws Exception {
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(thumbnailService.getDerivative(THUMBNAIL_URL, null, null)).thenThrow(new NoSuchFileException(THUMBNAIL_URL));
+
+        mockMvc.perform(get("/api/videos/1/thumbnail"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Should redirect to the original when it cannot be rendered")
+    void redirectToOriginal() throws Exception {
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(video));
+        when(thumbnailService.getDerivative(THUMBNAIL_URL, 160, null))
+                .thenThrow(new IOException("Unsupported image format"));
+
+        mockMvc.perform(get("/api/videos/1/thumbnail").param("w", "160"))
+                .andExpect(status().isFound())
+                .andExpect(redirectedUrl(THUMBNAIL_URL));
+    }
+}
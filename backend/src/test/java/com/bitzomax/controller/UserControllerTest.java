@@ -5,6 +5,9 @@ import com.bitzomax.model.User;
 import com.bitzomax.model.Video;
 import com.bitzomax.model.WatchHistory;
 import com.bitzomax.service.UserService;
+import com.bitzomax.service.UserVideoStates;
+import com.bitzomax.service.WatchProgressBuffer;
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,6 +22,9 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
@@ -132,6 +138,57 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.success", is(true)));
     }
 
+    @Test
+    @DisplayName("Should return like and favorite flags for several videos")
+    void getVideoStates() throws Exception {
+        // Given
+        Map<Long, UserVideoStates.VideoState> states = new LinkedHashMap<>();
+        states.put(3L, new UserVideoStates.VideoState(true, false));
+        states.put(7L, new UserVideoStates.VideoState(false, true));
+        when(userService.getVideoStates(1L, List.of(3L, 7L))).thenReturn(states);
+
+        // When/Then
+        mockMvc.perform(get("/api/users/1/video-states")
+                .param("videoIds", "3,7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['3'].liked", is(true)))
+                .andExpect(jsonPath("$['3'].favorited", is(false)))
+                .andExpect(jsonPath("$['7'].favorited", is(true)));
+    }
+
+    @Test
+    @DisplayName("Should buffer watch progress pings and answer 202")
+    void recordWatchHistory() throws Exception {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        when(userService.recordWatchProgress(1L, 5L, 42, false))
+                .thenReturn(new WatchProgressBuffer.Progress(1L, 5L, now, 42, false));
+
+        // When/Then
+        mockMvc.perform(post("/api/users/watch-history")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-User-ID", "1")
+                .content("{\"videoId\":5,\"watchDuration\":42}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.videoId", is(5)))
+                .andExpect(jsonPath("$.watchDuration", is(42)));
+    }
+
+    @Test
+    @DisplayName("Should answer 404 to watch progress pings for unknown videos")
+    void recordWatchHistoryUnknownVideo() throws Exception {
+        // Given
+        when(userService.recordWatchProgress(1L, 99L, 42, false))
+                .thenThrow(new EntityNotFoundException("Video not found with id: 99"));
+
+        // When/Then
+        mockMvc.perform(post("/api/users/watch-history")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-User-ID", "1")
+                .content("{\"videoId\":99,\"watchDuration\":42}"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("Should like a video")
     void likeVideo() throws Exception {
@@ -1,11 +1,17 @@
 package com.bitzomax.controller;
 
+import com.bitzomax.dto.CursorPage;
 import com.bitzomax.dto.FileUploadResponse;
 import com.bitzomax.dto.VideoDTO;
+import com.bitzomax.dto.VideoSearchResult;
+import com.bitzomax.dto.VideoSuggestion;
+import com.bitzomax.dto.VideoSummary;
 import com.bitzomax.model.ConversionStatus;
 import com.bitzomax.model.Video;
 import com.bitzomax.service.FileStorageService;
+import com.bitzomax.service.MediaProcessingQueue;
 import com.bitzomax.service.VideoService;
+import com.bitzomax.service.ViewCountAggregator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -17,6 +23,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
@@ -25,6 +32,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
@@ -45,6 +53,12 @@ public class VideoControllerTest {
     @Mock
     private FileStorageService fileStorageService;
 
+    @Mock
+    private ViewCountAggregator viewCountAggregator;
+
+    @Mock
+    private MediaProcessingQueue mediaProcessingQueue;
+
     @Mock
     private ObjectMapper objectMapper;
 
@@ -91,17 +105,91 @@ public class VideoControllerTest {
     @DisplayName("Should get all videos")
     void getAllVideos() throws Exception {
         // Given
-        Page<Video> videoPage = new PageImpl<>(Arrays.asList(testVideo));
-        when(videoService.getPagedVideos(any(Pageable.class), eq(false))).thenReturn(videoPage);
+        Page<VideoSummary> videoPage = new PageImpl<>(Arrays.asList(VideoSummary.fromEntity(testVideo)));
+        when(videoService.getPagedVideoSummaries(any(Pageable.class), eq(false))).thenReturn(videoPage);
 
         // When/Then
         mockMvc.perform(get("/api/videos")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].title", is("Test Video")))
+                .andExpect(jsonPath("$.content[0].description").doesNotExist())
                 .andExpect(jsonPath("$.totalElements", is(1)));
     }
 
+    @Test
+    @DisplayName("Should get videos by cursor")
+    void getVideosByCursor() throws Exception {
+        // Given
+        CursorPage<VideoSummary> cursorPage = new CursorPage<>(Arrays.asList(VideoSummary.fromEntity(testVideo)), "next", true, 1);
+        when(videoService.getVideosByCursor(isNull(), eq("abc"), eq("views"), eq("desc"), eq(1), eq(false)))
+                .thenReturn(cursorPage);
+
+        // When/Then
+        mockMvc.perform(get("/api/videos/cursor")
+                .param("cursor", "abc")
+                .param("size", "1")
+                .param("sort", "views"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor", is("next")))
+                .andExpect(jsonPath("$.hasNext", is(true)));
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid cursor")
+    void getVideosByCursorInvalid() throws Exception {
+        // Given
+        when(videoService.getVideosByCursor(isNull(), eq("broken"), anyString(), anyString(), anyInt(), anyBoolean()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        // When/Then
+        mockMvc.perform(get("/api/videos/cursor").param("cursor", "broken"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should search videos with ranked, highlighted hits")
+    void searchVideos() throws Exception {
+        // Given
+        VideoSearchResult hit = new VideoSearchResult(VideoSummary.fromEntity(testVideo), 2.5,
+                Map.of("title", "<em>Test</em> Video"));
+        when(videoService.searchVideos(eq("test"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(Arrays.asList(hit), PageRequest.of(0, 20), 1));
+
+        // When/Then
+        mockMvc.perform(get("/api/videos/search").param("q", "test"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].video.id", is(1)))
+                .andExpect(jsonPath("$.content[0].highlights.title", is("<em>Test</em> Video")));
+    }
+
+    @Test
+    @DisplayName("Should reject an empty search query")
+    void searchVideosEmptyQuery() throws Exception {
+        mockMvc.perform(get("/api/videos/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+        Mockito.verifyNoInteractions(videoService);
+    }
+
+    @Test
+    @DisplayName("Should return typeahead suggestions with a capped limit")
+    void suggestVideos() throws Exception {
+        // Given
+        when(videoService.suggest("oce", 20)).thenReturn(Arrays.asList(
+                new VideoSuggestion("ocean", "tag", null, 2),
+                new VideoSuggestion("Ocean Waves", "title", 1L, 1)));
+
+        // When/Then
+        mockMvc.perform(get("/api/videos/suggest").param("q", "oce").param("limit", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].type", is("tag")))
+                .andExpect(jsonPath("$[1].videoId", is(1)));
+    }
+
     @Test
     @DisplayName("Should get video by ID")
     void getVideoById() throws Exception {
@@ -154,14 +242,15 @@ public class VideoControllerTest {
         // Given
         String videoJson = "{\"title\":\"Updated Video\",\"description\":\"Updated Description\"}";
         
-        when(videoService.findVideoById(1L)).thenReturn(Optional.of(testVideo));
-        when(videoService.saveVideo(any(Video.class))).thenReturn(testVideo);
+        when(videoService.updateVideoDetails(eq(1L), any(Video.class))).thenReturn(Optional.of(testVideo));
 
         // When/Then
         mockMvc.perform(put("/api/videos/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(videoJson))
                 .andExpect(status().isOk());
+
+        Mockito.verify(videoService, Mockito.never()).findVideoById(anyLong());
     }
 
     @Test
@@ -226,6 +315,7 @@ public class VideoControllerTest {
         videoClone.setConversionStatus(ConversionStatus.COMPLETED);
         
         when(videoService.findVideoById(1L)).thenReturn(Optional.of(videoClone));
+        when(viewCountAggregator.recordView(1L)).thenReturn(1L);
 
         // When/Then
         mockMvc.perform(post("/api/videos/1/view")
@@ -233,4 +323,44 @@ public class VideoControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.views", is(101)));
     }
+
+    @Test
+    @DisplayName("Should record views without saving the video entity")
+    void incrementViewCountDoesNotSaveVideo() throws Exception {
+        // Given
+        when(videoService.findVideoById(1L)).thenReturn(Optional.of(testVideo));
+        when(viewCountAggregator.recordView(1L)).thenReturn(3L);
+
+        // When/Then
+        mockMvc.perform(post("/api/videos/1/view")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.views", is(103)));
+
+        Mockito.verify(videoService, Mockito.never()).saveVideo(any(Video.class));
+    }
+
+    @Test
+    @DisplayName("Should track video share with an atomic counter update")
+    void trackShare() throws Exception {
+        // Given
+        when(videoService.incrementShareCount(1L)).thenReturn(Optional.of(5L));
+
+        // When/Then
+        mockMvc.perform(post("/api/videos/1/share"))
+                .andExpect(status().isOk());
+
+        Mockito.verify(videoService, Mockito.never()).saveVideo(any(Video.class));
+    }
+
+    @Test
+    @DisplayName("Should return 404 when sharing a non-existent video")
+    void trackShareNotFound() throws Exception {
+        // Given
+        when(videoService.incrementShareCount(999L)).thenReturn(Optional.empty());
+
+        // When/Then
+        mockMvc.perform(post("/api/videos/999/share"))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,101 @@
+package com.bitzomax.media;
+
+import com.bitzomax.model.Video;
+import com.bitzomax.model.VideoRendition;
+import com.bitzomax.service.HlsRenditionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the HLS stage against the ffmpeg stub script in the test resources
+ */
+public class HlsPackagingStageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HlsRenditionService hlsRenditionService;
+    private HlsPackagingStage stage;
+    private ProcessingContext context;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path stub = Paths.get(getClass().getResource("/ffmpeg-stub.sh").toURI());
+        stub.toFile().setExecutable(true);
+        FfmpegRunner ffmpegRunner = new FfmpegRunner(true, stub.toString(), 60);
+
+        hlsRenditionService = spy(new HlsRenditionService(null, tempDir.toString()));
+        doAnswer(invocation -> invocation.getArgument(1))
+                .when(hlsRenditionService).replaceRenditions(eq(5L), anyList());
+
+        stage = new HlsPackagingStage(ffmpegRunner, hlsRenditionService, true, 4, "1080:5000,720:2800,480:1400,360:800");
+
+        Video video = new Video();
+        video.setId(5L);
+        context = new ProcessingContext(video, Files.write(tempDir.resolve("source.mp4"), new byte[]{1}));
+    }
+
+    @Test
+    @DisplayName("Should package only the rungs up to the source height, with their segment index")
+    @SuppressWarnings("unchecked")
+    void packageRenditions() throws Exception {
+        MediaMetadata metadata = new MediaMetadata();
+        metadata.setWidth(1280);
+        metadata.setHeight(720);
+        metadata.setAudioCodec("aac");
+        context.setMetadata(metadata);
+
+        assertTrue(stage.appliesTo(context));
+        stage.process(context);
+
+        ArgumentCaptor<List<VideoRendition>> captor = ArgumentCaptor.forClass(List.class);
+        verify(hlsRenditionService).replaceRenditions(eq(5L), captor.capture());
+        List<VideoRendition> renditions = captor.getValue();
+
+        assertEquals(List.of("720p", "480p", "360p"), renditions.stream().map(VideoRendition::getName).toList());
+        VideoRendition rendition = renditions.get(1);
+        assertEquals(854, rendition.getWidth());
+        assertEquals(480, rendition.getHeight());
+        assertEquals("avc1.4d401f,mp4a.40.2", rendition.getCodecs());
+        assertEquals(4, rendition.getTargetDuration());
+        assertEquals(3, rendition.getSegments().size());
+        assertEquals("seg_00000.ts", rendition.getSegments().get(0).getFileName());
+        assertEquals(1500, rendition.getSegments().get(2).getDurationMillis());
+        assertTrue(rendition.getBandwidth() >= rendition.getAverageBandwidth());
+
+        Path segment = tempDir.resolve(rendition.getStoragePath()).resolve("seg_00001.ts");
+        assertTrue(Files.isRegularFile(segment));
+        assertTrue(rendition.getStoragePath().startsWith("5/"));
+    }
+
+    @Test
+    @DisplayName("Should be skipped when ffmpeg is disabled")
+    void skipWithoutFfmpeg() {
+        HlsPackagingStage disabled = new HlsPackagingStage(new FfmpegRunner(false, "ffmpeg", 60),
+                hlsRenditionService, true, 4, "720:2800");
+        assertFalse(disabled.appliesTo(context));
+    }
+
+    @Test
+    @DisplayName("Should always keep the lowest rung for small sources")
+    void selectRungs() {
+        assertEquals(List.of(360), stage.selectRungs(240).stream().map(HlsPackagingStage.Rung::height).toList());
+        assertEquals(List.of(1080, 720, 480, 360), stage.selectRungs(2160).stream().map(HlsPackagingStage.Rung::height).toList());
+        assertEquals(List.of(720, 480, 360), stage.selectRungs(0).stream().map(HlsPackagingStage.Rung::height).toList());
+    }
+}
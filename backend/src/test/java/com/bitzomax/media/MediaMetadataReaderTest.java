@@ -0,0 +1,164 @@
+package com.bitzomax.media;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MediaMetadataReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MediaMetadataReader reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = new MediaMetadataReader(false, "ffprobe", 10);
+    }
+
+    @Test
+    @DisplayName("Should read duration, resolution and codecs of a faststart MP4")
+    void readFaststartMp4() throws IOException {
+        byte[] mdat = box("mdat", new byte[1000]);
+        Path file = write("faststart.mp4", concat(ftyp("isom"), moov(90_000, 1_080_000), mdat));
+
+        MediaMetadata metadata = reader.read(file).orElseThrow();
+
+        assertEquals("mp4", metadata.getContainer());
+        assertEquals(12_000, metadata.getDurationMillis());
+        assertEquals(12, metadata.getDurationSeconds());
+        assertEquals(1280, metadata.getWidth());
+        assertEquals(720, metadata.getHeight());
+        assertEquals("h264", metadata.getVideoCodec());
+        assertEquals("aac", metadata.getAudioCodec());
+        assertEquals(Boolean.TRUE, metadata.getFaststart());
+        assertEquals(Files.size(file) * 8 * 1000 / 12_000, metadata.getBitrate());
+    }
+
+    @Test
+    @DisplayName("Should detect an MP4 whose moov box follows mdat")
+    void readNonFaststartMp4() throws IOException {
+        Path file = write("tail.mov", concat(ftyp("qt  "), box("mdat", new byte[5000]), moov(600, 3_000)));
+
+        MediaMetadata metadata = reader.read(file).orElseThrow();
+
+        assertEquals("mov", metadata.getContainer());
+        assertEquals(5_000, metadata.getDurationMillis());
+        assertEquals(Boolean.FALSE, metadata.getFaststart());
+    }
+
+    @Test
+    @DisplayName("Should read duration, resolution and codecs of a WebM file")
+    void readWebm() throws IOException {
+        byte[] header = element(0x1A45DFA3, element(0x4282, "webm".getBytes(StandardCharsets.US_ASCII)));
+        byte[] info = element(0x1549A966, concat(
+                element(0x2AD7B1, uint(1_000_000)),
+                element(0x4489, ByteBuffer.allocate(8).putDouble(65_432.0).array())));
+        byte[] videoTrack = element(0xAE, concat(
+                element(0x83, uint(1)),
+                element(0x86, "V_VP9".getBytes(StandardCharsets.US_ASCII)),
+                element(0xE0, concat(element(0xB0, uint(1920)), element(0xBA, uint(1080))))));
+        byte[] audioTrack = element(0xAE, concat(
+                element(0x83, uint(2)),
+                element(0x86, "A_OPUS".getBytes(StandardCharsets.US_ASCII))));
+        byte[] tracks = element(0x1654AE6B, concat(videoTrack, audioTrack));
+        byte[] cluster = element(0x1F43B675, new byte[2000]);
+        Path file = write("clip.webm", concat(header, element(0x18538067, concat(info, tracks, cluster))));
+
+        MediaMetadata metadata = reader.read(file).orElseThrow();
+
+        assertEquals("webm", metadata.getContainer());
+        assertEquals(65_432, metadata.getDurationMillis());
+        assertEquals(65, metadata.getDurationSeconds());
+        assertEquals(1920, metadata.getWidth());
+        assertEquals(1080, metadata.getHeight());
+        assertEquals("vp9", metadata.getVideoCodec());
+        assertEquals("opus", metadata.getAudioCodec());
+        assertNull(metadata.getFaststart());
+    }
+
+    @Test
+    @DisplayName("Should return empty for files that are not a known container")
+    void readUnknownFile() throws IOException {
+        Path text = write("notes.mp4", "test video content".getBytes(StandardCharsets.US_ASCII));
+        Path truncated = write("truncated.mp4", concat(ftyp("isom"), new byte[]{0, 0, 0x10, 0, 'm', 'o', 'o', 'v', 0, 0}));
+
+        assertEquals(Optional.empty(), reader.read(text));
+        assertEquals(Optional.empty(), reader.read(truncated));
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content);
+    }
+
+    private static byte[] moov(int timescale, long duration) {
+        byte[] mvhd = fullBox("mvhd", ByteBuffer.allocate(96).putInt(8, timescale).putInt(12, (int) duration).array());
+
+        byte[] tkhd = fullBox("tkhd", ByteBuffer.allocate(80).putInt(72, 1280 << 16).putInt(76, 720 << 16).array());
+        byte[] videoTrack = box("trak", concat(tkhd, mdia("vide", "avc1")));
+        byte[] audioTrack = box("trak", concat(fullBox("tkhd", new byte[80]), mdia("soun", "mp4a")));
+        return box("moov", concat(mvhd, videoTrack, audioTrack));
+    }
+
+    private static byte[] mdia(String handler, String codec) {
+        byte[] hdlr = fullBox("hdlr", concat(new byte[4], handler.getBytes(StandardCharsets.US_ASCII), new byte[13]));
+        byte[] sampleEntry = box(codec, new byte[78]);
+        byte[] stsd = fullBox("stsd", concat(ByteBuffer.allocate(4).putInt(1).array(), sampleEntry));
+        byte[] stbl = box("stbl", concat(stsd, fullBox("stts", new byte[4])));
+        return box("mdia", concat(fullBox("mdhd", new byte[20]), hdlr, box("minf", stbl)));
+    }
+
+    private static byte[] ftyp(String brand) {
+        return box("ftyp", concat(brand.getBytes(StandardCharsets.US_ASCII), new byte[4]));
+    }
+
+    private static byte[] box(String type, byte[] payload) {
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(8 + payload.length)
+                .put(type.getBytes(StandardCharsets.US_ASCII))
+                .put(payload)
+                .array();
+    }
+
+    /** A version 0 full box: 4 bytes of version and flags before the payload */
+    private static byte[] fullBox(String type, byte[] payload) {
+        return box(type, concat(new byte[4], payload));
+    }
+
+    private static byte[] element(int id, byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] idBytes = ByteBuffer.allocate(4).putInt(id).array();
+        int skip = 0;
+        while (idBytes[skip] == 0) {
+            skip++;
+        }
+        out.write(idBytes, skip, 4 - skip);
+        // 8-byte size vint: marker 0x01 followed by seven size bytes
+        out.writeBytes(ByteBuffer.allocate(8).putLong(data.length).put(0, (byte) 0x01).array());
+        out.writeBytes(data);
+        return out.toByteArray();
+    }
+
+    private static byte[] uint(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
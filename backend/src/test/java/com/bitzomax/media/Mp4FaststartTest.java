@@ -0,0 +1,166 @@
+package com.bitzomax.media;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Mp4FaststartTest {
+
+    private static final byte[] FTYP = box("ftyp", concat("isom".getBytes(StandardCharsets.US_ASCII), new byte[4]));
+    private static final int MDAT_PAYLOAD = 4000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should move moov in front of mdat and patch the chunk offsets")
+    void rewriteTailMoov() throws IOException {
+        byte[] mdat = box("mdat", mediaData());
+        long mdatPayload = FTYP.length + 8;
+        long[] videoChunks = {mdatPayload, mdatPayload + 1500};
+        long[] audioChunks = {mdatPayload + 800, mdatPayload + 3999};
+        byte[] original = concat(FTYP, mdat, moov(videoChunks, audioChunks));
+        Path source = Files.write(tempDir.resolve("tail.mp4"), original);
+        Path target = tempDir.resolve("faststart.mp4");
+
+        assertEquals(Mp4Faststart.Outcome.REWRITTEN, Mp4Faststart.rewrite(source, target));
+
+        byte[] rewritten = Files.readAllBytes(target);
+        assertEquals(original.length, rewritten.length);
+        assertEquals("moov", type(rewritten, FTYP.length));
+        int moovSize = ByteBuffer.wrap(rewritten, FTYP.length, 4).getInt();
+        assertEquals("mdat", type(rewritten, FTYP.length + moovSize));
+
+        // Every offset still points at the same sample bytes
+        long[] patchedVideo = offsets(rewritten, "stco");
+        long[] patchedAudio = offsets(rewritten, "co64");
+        assertEquals(videoChunks.length, patchedVideo.length);
+        assertEquals(audioChunks.length, patchedAudio.length);
+        for (int i = 0; i < videoChunks.length; i++) {
+            assertEquals(videoChunks[i] + moovSize, patchedVideo[i]);
+            assertEquals(original[(int) videoChunks[i]], rewritten[(int) patchedVideo[i]]);
+            assertEquals(original[(int) audioChunks[i]], rewritten[(int) patchedAudio[i]]);
+        }
+
+        MediaMetadata metadata = new MediaMetadataReader(false, "ffprobe", 10).read(target).orElseThrow();
+        assertEquals(Boolean.TRUE, metadata.getFaststart());
+        assertEquals(10_000, metadata.getDurationMillis());
+    }
+
+    @Test
+    @DisplayName("Should leave files that are already faststart alone")
+    void alreadyFaststart() throws IOException {
+        Path source = Files.write(tempDir.resolve("faststart.mp4"),
+                concat(FTYP, moov(new long[]{100}, new long[0]), box("mdat", mediaData())));
+        Path target = tempDir.resolve("copy.mp4");
+
+        assertEquals(Mp4Faststart.Outcome.ALREADY_FASTSTART, Mp4Faststart.rewrite(source, target));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    @DisplayName("Should not rewrite fragmented files or compressed movie boxes")
+    void unsupportedLayouts() throws IOException {
+        Path fragmented = Files.write(tempDir.resolve("fragmented.mp4"),
+                concat(FTYP, box("mdat", mediaData()), box("moof", new byte[16]), moov(new long[0], new long[0])));
+        Path compressed = Files.write(tempDir.resolve("compressed.mov"),
+                concat(FTYP, box("mdat", mediaData()), box("moov", box("cmov", new byte[32]))));
+        Path target = tempDir.resolve("out.mp4");
+
+        assertEquals(Mp4Faststart.Outcome.UNSUPPORTED, Mp4Faststart.rewrite(fragmented, target));
+        assertEquals(Mp4Faststart.Outcome.UNSUPPORTED, Mp4Faststart.rewrite(compressed, target));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    @DisplayName("Should reject truncated files")
+    void truncated() throws IOException {
+        byte[] complete = concat(FTYP, box("mdat", mediaData()), moov(new long[]{24}, new long[0]));
+        byte[] truncated = new byte[complete.length - 10];
+        System.arraycopy(complete, 0, truncated, 0, truncated.length);
+        Path source = Files.write(tempDir.resolve("truncated.mp4"), truncated);
+
+        assertThrows(IOException.class, () -> Mp4Faststart.rewrite(source, tempDir.resolve("out.mp4")));
+    }
+
+    private static byte[] mediaData() {
+        byte[] data = new byte[MDAT_PAYLOAD];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return data;
+    }
+
+    /** A moov box with a video track using stco and an audio track using co64 */
+    private static byte[] moov(long[] videoChunks, long[] audioChunks) {
+        byte[] mvhd = fullBox("mvhd", ByteBuffer.allocate(96).putInt(8, 1000).putInt(12, 10_000).array());
+
+        ByteBuffer stco = ByteBuffer.allocate(4 + 4 * videoChunks.length).putInt(videoChunks.length);
+        for (long offset : videoChunks) {
+            stco.putInt((int) offset);
+        }
+        ByteBuffer co64 = ByteBuffer.allocate(4 + 8 * audioChunks.length).putInt(audioChunks.length);
+        for (long offset : audioChunks) {
+            co64.putLong(offset);
+        }
+        return box("moov", concat(mvhd, trak(fullBox("stco", stco.array())), trak(fullBox("co64", co64.array()))));
+    }
+
+    private static byte[] trak(byte[] offsetTable) {
+        byte[] stbl = box("stbl", concat(fullBox("stts", new byte[4]), offsetTable));
+        return box("trak", concat(fullBox("tkhd", new byte[80]), box("mdia", box("minf", stbl))));
+    }
+
+    /** The entries of the first offset table of the given type */
+    private static long[] offsets(byte[] file, String table) {
+        byte[] needle = table.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 4; i + 4 <= file.length; i++) {
+            if (file[i] == needle[0] && file[i + 1] == needle[1] && file[i + 2] == needle[2] && file[i + 3] == needle[3]) {
+                ByteBuffer buffer = ByteBuffer.wrap(file);
+                int count = buffer.getInt(i + 8);
+                long[] offsets = new long[count];
+                for (int j = 0; j < count; j++) {
+                    offsets[j] = "co64".equals(table)
+                            ? buffer.getLong(i + 12 + j * 8)
+                            : Integer.toUnsignedLong(buffer.getInt(i + 12 + j * 4));
+                }
+                return offsets;
+            }
+        }
+        throw new AssertionError("No " + table + " box");
+    }
+
+    private static String type(byte[] file, int boxStart) {
+        return new String(file, boxStart + 4, 4, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] box(String type, byte[] payload) {
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(8 + payload.length)
+                .put(type.getBytes(StandardCharsets.US_ASCII))
+                .put(payload)
+                .array();
+    }
+
+    /** A version 0 full box: 4 bytes of version and flags before the payload */
+    private static byte[] fullBox(String type, byte[] payload) {
+        return box(type, concat(new byte[4], payload));
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
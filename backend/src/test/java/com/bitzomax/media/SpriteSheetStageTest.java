@@ -0,0 +1,101 @@
+package com.bitzomax.media;
+
+import com.bitzomax.model.Video;
+import com.bitzomax.service.SpriteSheetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the sprite stage against the ffmpeg stub script in the test resources
+ */
+public class SpriteSheetStageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SpriteSheetService spriteSheetService;
+    private SpriteSheetStage stage;
+    private ProcessingContext context;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path stub = Paths.get(getClass().getResource("/ffmpeg-stub.sh").toURI());
+        stub.toFile().setExecutable(true);
+        FfmpegRunner ffmpegRunner = new FfmpegRunner(true, stub.toString(), 60);
+
+        spriteSheetService = new SpriteSheetService(null, tempDir.resolve("sprites").toString());
+        stage = new SpriteSheetStage(ffmpegRunner, spriteSheetService, true, 5, 600, 160, 10, 10);
+
+        Video video = new Video();
+        video.setId(5L);
+        video.setVideoUrl("/uploads/videos/ab/cd/abcdef.mp4");
+        context = new ProcessingContext(video, Files.write(tempDir.resolve("source.mp4"), new byte[]{1}));
+
+        MediaMetadata metadata = new MediaMetadata();
+        metadata.setDurationMillis(612_000);
+        metadata.setWidth(1280);
+        metadata.setHeight(720);
+        context.setMetadata(metadata);
+    }
+
+    @Test
+    @DisplayName("Should write a WebVTT track pointing at the tiles of the sheets")
+    void sampleSpriteSheets() throws Exception {
+        assertTrue(stage.appliesTo(context));
+        stage.process(context);
+
+        String run = spriteSheetService.getCurrentRun(5L).orElseThrow();
+        String track = Files.readString(spriteSheetService.resolveTrack(5L).orElseThrow());
+
+        assertTrue(track.startsWith("WEBVTT\n\n00:00:00.000 --> 00:00:05.000\n" + run + "/sheet_000.jpg#xywh=0,0,160,90\n"));
+        // Tile 101 is the second tile of the second sheet
+        assertTrue(track.contains("00:08:25.000 --> 00:08:30.000\n" + run + "/sheet_001.jpg#xywh=160,0,160,90\n"));
+        // 123 tiles; the last one ends with the video
+        assertTrue(track.endsWith("00:10:10.000 --> 00:10:12.000\n" + run + "/sheet_001.jpg#xywh=320,180,160,90\n"));
+        assertTrue(spriteSheetService.resolveSheet(5L, run, "sheet_001.jpg").map(Files::exists).orElse(false));
+    }
+
+    @Test
+    @DisplayName("Should replace the previous run when the video is processed again")
+    void replacePreviousRun() throws Exception {
+        stage.process(context);
+        String first = spriteSheetService.getCurrentRun(5L).orElseThrow();
+        Path firstSheet = spriteSheetService.resolveSheet(5L, first, "sheet_000.jpg").orElseThrow();
+
+        stage.process(context);
+        String second = spriteSheetService.getCurrentRun(5L).orElseThrow();
+
+        assertNotEquals(first, second);
+        assertFalse(Files.exists(firstSheet));
+        assertTrue(spriteSheetService.resolveSheet(5L, first, "sheet_000.jpg").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should be skipped when the duration is unknown")
+    void skipWithoutDuration() {
+        context.getMetadata().setDurationMillis(0);
+
+        assertFalse(stage.appliesTo(context));
+    }
+
+    @Test
+    @DisplayName("Should stretch the interval of long videos and keep the aspect ratio of tiles")
+    void layout() {
+        assertEquals(5000, stage.intervalMillis(612_000));
+        assertEquals(12_000, stage.intervalMillis(7_200_000));
+
+        MediaMetadata portrait = new MediaMetadata();
+        portrait.setWidth(1080);
+        portrait.setHeight(1920);
+        assertEquals(284, stage.tileHeight(portrait));
+        assertEquals(90, stage.tileHeight(new MediaMetadata()));
+    }
+}
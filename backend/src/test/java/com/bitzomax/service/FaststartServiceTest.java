@@ -0,0 +1,137 @@
+package com.bitzomax.service;
+
+import com.bitzomax.dto.FileUploadResponse;
+import com.bitzomax.media.MediaMetadata;
+import com.bitzomax.media.MediaMetadataReader;
+import com.bitzomax.media.ProcessingContext;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.VideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FaststartServiceTest {
+
+    private static final String OLD_URL = "/uploads/videos/ab/cd/abcdef.mp4";
+    private static final String NEW_URL = "/uploads/videos/12/34/123456.mp4";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private VideoCaches videoCaches;
+
+    private FaststartService faststartService;
+    private ProcessingContext context;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        faststartService = new FaststartService(fileStorageService, new MediaMetadataReader(false, "ffprobe", 10),
+                videoRepository, videoCaches, true, 100);
+
+        Video video = new Video();
+        video.setId(3L);
+        video.setVideoUrl(OLD_URL);
+        // moov after mdat, as written by most cameras and screen recorders
+        byte[] moov = box("moov", box("mvhd", ByteBuffer.allocate(100).putInt(12, 1000).putInt(16, 5000).array()));
+        Path source = Files.write(tempDir.resolve("source.mp4"),
+                concat(box("ftyp", "isom\0\0\0\0".getBytes(StandardCharsets.US_ASCII)), box("mdat", new byte[2000]), moov));
+        context = new ProcessingContext(video, source);
+
+        MediaMetadata metadata = new MediaMetadata();
+        metadata.setFaststart(false);
+        context.setMetadata(metadata);
+    }
+
+    @Test
+    @DisplayName("Should store the rewrite as a new file and release the old one once the job is complete")
+    void rewriteAndSwap() throws Exception {
+        when(fileStorageService.newVideoStagingFile()).thenReturn(tempDir.resolve("staged.tmp"));
+        when(fileStorageService.storeVideoFile(any(Path.class), eq("abcdef.mp4"), eq("video/mp4"))).thenAnswer(invocation -> {
+            Path staged = invocation.getArgument(0);
+            assertEquals("moov", new String(Files.readAllBytes(staged), 20, 4, StandardCharsets.US_ASCII));
+            return new FileUploadResponse("123456.mp4", "video/mp4", NEW_URL, Files.size(staged));
+        });
+        when(videoRepository.replaceWithFaststartFile(3L, OLD_URL, NEW_URL)).thenReturn(1);
+
+        faststartService.process(context);
+
+        assertEquals(NEW_URL, context.getVideo().getVideoUrl());
+        assertEquals(Boolean.TRUE, context.getMetadata().getFaststart());
+        verify(videoCaches).evictVideoById(3L);
+        // Later stages still read the old file
+        verify(fileStorageService, never()).deleteVideoFile(anyString());
+
+        context.complete();
+        verify(fileStorageService).deleteVideoFile(OLD_URL);
+    }
+
+    @Test
+    @DisplayName("Should drop the rewrite when the video got another file in the meantime")
+    void lostSwap() throws Exception {
+        when(fileStorageService.newVideoStagingFile()).thenReturn(tempDir.resolve("staged.tmp"));
+        when(fileStorageService.storeVideoFile(any(Path.class), eq("abcdef.mp4"), eq("video/mp4")))
+                .thenReturn(new FileUploadResponse("123456.mp4", "video/mp4", NEW_URL, 2000));
+        when(videoRepository.replaceWithFaststartFile(3L, OLD_URL, NEW_URL)).thenReturn(0);
+
+        faststartService.process(context);
+        context.complete();
+
+        assertEquals(OLD_URL, context.getVideo().getVideoUrl());
+        verify(fileStorageService).deleteVideoFile(NEW_URL);
+        verify(fileStorageService, never()).deleteVideoFile(OLD_URL);
+    }
+
+    @Test
+    @DisplayName("Should only record the status of videos that are already faststart")
+    void recordFaststart() throws Exception {
+        context.getMetadata().setFaststart(true);
+        when(videoRepository.updateFaststart(3L, true)).thenReturn(1);
+
+        faststartService.process(context);
+
+        verify(videoCaches).evictVideoById(3L);
+        verify(fileStorageService, never()).newVideoStagingFile();
+    }
+
+    private static byte[] box(String type, byte[] payload) {
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(8 + payload.length)
+                .put(type.getBytes(StandardCharsets.US_ASCII))
+                .put(payload)
+                .array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
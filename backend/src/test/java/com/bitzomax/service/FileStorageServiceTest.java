@@ -3,6 +3,8 @@ package com.bitzomax.service;
 import com.bitzomax.config.FileStorageProperties;
 import com.bitzomax.dto.FileUploadResponse;
 import com.bitzomax.exception.FileStorageException;
+import com.bitzomax.media.MediaMetadataReader;
+import com.bitzomax.storage.LocalStorageBackend;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,11 +12,16 @@ import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -23,9 +30,11 @@ public class FileStorageServiceTest {
 
     private FileStorageService fileStorageService;
 
-    @Mock
     private FileStorageProperties fileStorageProperties;
 
+    @Mock
+    private ContentAddressedStore contentAddressedStore;
+
     @TempDir
     Path tempDir;
 
@@ -42,12 +51,14 @@ public class FileStorageServiceTest {
         Files.createDirectories(videoDir);
         Files.createDirectories(thumbnailDir);
         
-        // Configure mock properties
-        when(fileStorageProperties.getVideoUploadDir()).thenReturn(videoDir.toString());
-        when(fileStorageProperties.getThumbnailUploadDir()).thenReturn(thumbnailDir.toString());
+        // Configure properties
+        fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setVideoUploadDir(videoDir.toString());
+        fileStorageProperties.setThumbnailUploadDir(thumbnailDir.toString());
         
-        // Initialize service with mock properties
-        fileStorageService = new FileStorageService(fileStorageProperties);
+        // Initialize service with the properties
+        fileStorageService = new FileStorageService(fileStorageProperties, new MediaMetadataReader(false, "ffprobe", 10),
+                contentAddressedStore, new LocalStorageBackend(Map.of("videos", videoDir, "thumbnails", thumbnailDir)));
     }
 
     @Test
@@ -151,4 +162,76 @@ public class FileStorageServiceTest {
         // Then
         assertEquals(thumbnailDir.resolve(filename).toString(), path);
     }
+
+    @Test
+    @DisplayName("Should delete a file stored before content addressing by its web path")
+    void deleteLegacyVideoFile() throws IOException {
+        // Given
+        Path stored = Files.write(videoDir.resolve("legacy.mp4"), "content".getBytes());
+        when(contentAddressedStore.isManaged("videos", "legacy.mp4")).thenReturn(false);
+
+        // When
+        fileStorageService.deleteVideoFile("/uploads/videos/legacy.mp4");
+
+        // Then
+        assertFalse(Files.exists(stored));
+    }
+
+    @Test
+    @DisplayName("Should store uploads in the sharded layout")
+    void storeSharded() throws IOException {
+        FileUploadResponse response = fileStorageService.storeVideoFile(
+                new MockMultipartFile("file", "clip.mp4", "video/mp4", "content".getBytes()));
+
+        assertTrue(response.getFileName().matches("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f-]{36}\\.mp4"));
+        assertEquals("/uploads/videos/" + response.getFileName(), response.getFilePath());
+        assertEquals(videoDir.resolve(response.getFileName()), fileStorageService.resolveVideoPath(response.getFilePath()));
+        // The staging copy has been moved, not left behind
+        try (var staged = Files.list(videoDir.resolve(".incoming"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should move a flat-layout file to its sharded key, also when re-run")
+    void migrateFlatFile() throws IOException {
+        // Given
+        Files.write(videoDir.resolve("old.mp4"), "content".getBytes());
+
+        // When
+        Optional<String> newUrl = fileStorageService.migrateVideoFile("/uploads/videos/old.mp4");
+
+        // Then
+        assertTrue(newUrl.isPresent());
+        assertTrue(newUrl.get().matches("/uploads/videos/[0-9a-f]{2}/[0-9a-f]{2}/old\\.mp4"));
+        assertFalse(Files.exists(videoDir.resolve("old.mp4")));
+        assertTrue(Files.exists(fileStorageService.resolveVideoPath(newUrl.get())));
+
+        // A run interrupted after the move finds the file under its sharded key
+        assertEquals(newUrl, fileStorageService.migrateVideoFile("/uploads/videos/old.mp4"));
+        // Sharded references and missing files are left alone
+        assertTrue(fileStorageService.migrateVideoFile(newUrl.get()).isEmpty());
+        assertTrue(fileStorageService.migrateVideoFile("/uploads/videos/missing.mp4").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should store a streamed video and reject streams over the size limit")
+    void storeStreamedVideo() throws IOException {
+        // Given
+        byte[] content = "streamed video content".getBytes();
+
+        // When
+        FileUploadResponse response = fileStorageService.storeVideoFile(
+                new ByteArrayInputStream(content), "stream.mp4", "video/mp4", content.length);
+
+        // Then
+        assertEquals(content.length, response.getSize());
+        assertArrayEquals(content, Files.readAllBytes(fileStorageService.resolveVideoPath(response.getFilePath())));
+        assertThrows(MaxUploadSizeExceededException.class, () -> fileStorageService.storeVideoFile(
+                new ByteArrayInputStream(content), "stream.mp4", "video/mp4", content.length - 1));
+        // Nothing is left behind in the staging directory
+        try (Stream<Path> staged = Files.list(videoDir.resolve(".incoming"))) {
+            assertEquals(0, staged.count());
+        }
+    }
 }
@@ -0,0 +1,167 @@
+package com.bitzomax.service;
+
+import com.bitzomax.media.MediaProcessingStage;
+import com.bitzomax.media.ProcessingContext;
+import com.bitzomax.model.ProcessingJob;
+import com.bitzomax.model.ProcessingLane;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.VideoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MediaProcessingWorkerPoolTest {
+
+    @Mock
+    private MediaProcessingQueue queue;
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private MediaProcessingStage firstStage;
+
+    @Mock
+    private MediaProcessingStage secondStage;
+
+    @TempDir
+    Path tempDir;
+
+    private MediaProcessingWorkerPool workerPool;
+    private ProcessingJob job;
+    private Video video;
+
+    @BeforeEach
+    void setUp() {
+        workerPool = new MediaProcessingWorkerPool(queue, videoRepository, fileStorageService,
+                List.of(firstStage, secondStage), true, 2, 1, 300_000);
+
+        video = new Video();
+        video.setId(5L);
+        video.setVideoUrl("/uploads/videos/clip.mp4");
+
+        job = new ProcessingJob(5L, ProcessingLane.UPLOAD, 3);
+        job.setId(11L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workerPool.shutdown();
+    }
+
+    private Path givenVideoFile() throws IOException {
+        Path file = Files.write(tempDir.resolve("clip.mp4"), new byte[]{1, 2, 3});
+        when(videoRepository.findById(5L)).thenReturn(Optional.of(video));
+        when(fileStorageService.openLocalVideo("/uploads/videos/clip.mp4"))
+                .thenReturn(new FileStorageService.LocalFile(file, false));
+        return file;
+    }
+
+    @Test
+    @DisplayName("Should run all stages in order and mark the job as succeeded")
+    void runStagesInOrder() throws Exception {
+        givenVideoFile();
+        when(firstStage.appliesTo(any())).thenReturn(true);
+        when(secondStage.appliesTo(any())).thenReturn(true);
+
+        workerPool.run(job);
+
+        InOrder inOrder = inOrder(firstStage, secondStage, queue);
+        inOrder.verify(firstStage).process(any(ProcessingContext.class));
+        inOrder.verify(secondStage).process(any(ProcessingContext.class));
+        inOrder.verify(queue).markSucceeded(eq(11L), anyString());
+        verify(queue, never()).markFailed(anyLong(), anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Should skip stages that do not apply")
+    void skipStages() throws Exception {
+        givenVideoFile();
+        when(firstStage.appliesTo(any())).thenReturn(false);
+        when(secondStage.appliesTo(any())).thenReturn(true);
+
+        workerPool.run(job);
+
+        verify(firstStage, never()).process(any());
+        verify(secondStage).process(any());
+        verify(queue).markSucceeded(eq(11L), anyString());
+    }
+
+    @Test
+    @DisplayName("Should record a retryable failure when a stage throws")
+    void failOnStageError() throws Exception {
+        givenVideoFile();
+        when(firstStage.appliesTo(any())).thenReturn(true);
+        when(firstStage.getName()).thenReturn("transcode");
+        doThrow(new IOException("disk full")).when(firstStage).process(any());
+
+        workerPool.run(job);
+
+        verify(queue).markFailed(eq(11L), anyString(), eq("transcode: disk full"), eq(true));
+        verify(secondStage, never()).process(any());
+        verify(queue, never()).markSucceeded(anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should delete a downloaded copy of the video after processing")
+    void deleteTemporaryCopy() throws Exception {
+        Path copy = Files.write(tempDir.resolve("download.tmp"), new byte[]{1, 2, 3});
+        when(videoRepository.findById(5L)).thenReturn(Optional.of(video));
+        when(fileStorageService.openLocalVideo("/uploads/videos/clip.mp4"))
+                .thenReturn(new FileStorageService.LocalFile(copy, true));
+        when(firstStage.appliesTo(any())).thenReturn(true);
+
+        workerPool.run(job);
+
+        verify(firstStage).process(argThat(context -> context.getSourceFile().equals(copy)));
+        verify(queue).markSucceeded(eq(11L), anyString());
+        assertFalse(Files.exists(copy));
+    }
+
+    @Test
+    @DisplayName("Should fail permanently when the video was deleted")
+    void failForDeletedVideo() {
+        when(videoRepository.findById(5L)).thenReturn(Optional.empty());
+
+        workerPool.run(job);
+
+        verify(queue).markFailed(eq(11L), anyString(), startsWith("Video 5"), eq(false));
+    }
+
+    @Test
+    @DisplayName("Should serve the upload lane first and cap the re-processing lane")
+    void dispatchByLane() {
+        when(queue.claim(eq(ProcessingLane.UPLOAD), eq(2), anyString())).thenReturn(List.of());
+        when(queue.claim(eq(ProcessingLane.REPROCESS), eq(1), anyString())).thenReturn(List.of());
+
+        workerPool.dispatch();
+
+        InOrder inOrder = inOrder(queue);
+        inOrder.verify(queue).claim(eq(ProcessingLane.UPLOAD), eq(2), anyString());
+        inOrder.verify(queue).claim(eq(ProcessingLane.REPROCESS), eq(1), anyString());
+    }
+}
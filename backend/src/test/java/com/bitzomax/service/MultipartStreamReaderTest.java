@@ -0,0 +1,128 @@
+package com.bitzomax.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultipartStreamReaderTest {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    @Test
+    @DisplayName("Should read fields and binary files in order, including data that resembles a boundary")
+    void readParts() throws IOException {
+        byte[] video = new byte[300_000];
+        new Random(42).nextBytes(video);
+        // A line break followed by a near-miss of the delimiter inside the file data
+        byte[] nearMiss = ("\r\n--" + BOUNDARY.substring(0, BOUNDARY.length() - 1) + "X").getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(nearMiss, 0, video, 65_530, nearMiss.length);
+
+        byte[] body = concat(
+                text("preamble to ignore\r\n"),
+                text("--" + BOUNDARY + "\r\n"),
+                text("Content-Disposition: form-data; name=\"videoData\"\r\n\r\n"),
+                text("{\"title\":\"\u00dcn\u00efcode\"}"),
+                text("\r\n--" + BOUNDARY + "\r\n"),
+                text("Content-Disposition: form-data; name=\"videoFile\"; filename=\"clip.mp4\"\r\n"),
+                text("Content-Type: video/mp4\r\n\r\n"),
+                video,
+                text("\r\n--" + BOUNDARY + "--\r\n"));
+
+        MultipartStreamReader reader = new MultipartStreamReader(new TrickleInputStream(body), BOUNDARY);
+
+        MultipartStreamReader.Part field = reader.nextPart();
+        assertEquals("videoData", field.name());
+        assertFalse(field.isFile());
+        assertEquals("{\"title\":\"\u00dcn\u00efcode\"}", field.readString(1024));
+
+        MultipartStreamReader.Part file = reader.nextPart();
+        assertEquals("videoFile", file.name());
+        assertEquals("clip.mp4", file.fileName());
+        assertEquals("video/mp4", file.contentType());
+        assertArrayEquals(video, file.body().readAllBytes());
+
+        assertNull(reader.nextPart());
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    @DisplayName("Should skip the unread rest of a part")
+    void skipUnreadPart() throws IOException {
+        byte[] body = concat(
+                text("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"ignored\"; filename=\"a.bin\"\r\n\r\n"),
+                new byte[100_000],
+                text("\r\n--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"videoData\"\r\n\r\n{}"),
+                text("\r\n--" + BOUNDARY + "--"));
+
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body), BOUNDARY);
+
+        assertEquals("ignored", reader.nextPart().name());
+        MultipartStreamReader.Part field = reader.nextPart();
+        assertEquals("videoData", field.name());
+        assertEquals("{}", field.readString(16));
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    @DisplayName("Should fail when the body ends inside a part")
+    void truncatedBody() throws IOException {
+        byte[] body = concat(
+                text("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"videoFile\"; filename=\"clip.mp4\"\r\n\r\n"),
+                new byte[10_000]);
+
+        MultipartStreamReader.Part file = new MultipartStreamReader(new ByteArrayInputStream(body), BOUNDARY).nextPart();
+
+        assertThrows(EOFException.class, () -> file.body().readAllBytes());
+    }
+
+    @Test
+    @DisplayName("Should read the boundary of multipart/form-data content types only")
+    void boundary() {
+        assertEquals(BOUNDARY, MultipartStreamReader.boundary("multipart/form-data; boundary=" + BOUNDARY));
+        assertEquals("abc def", MultipartStreamReader.boundary("Multipart/Form-Data; charset=UTF-8; boundary=\"abc def\""));
+        assertNull(MultipartStreamReader.boundary("multipart/form-data"));
+        assertNull(MultipartStreamReader.boundary("application/octet-stream"));
+        assertNull(MultipartStreamReader.boundary(null));
+    }
+
+    /** Returns at most 1000 bytes per read, like a slow network connection */
+    private static final class TrickleInputStream extends InputStream {
+
+        private final ByteArrayInputStream in;
+
+        TrickleInputStream(byte[] data) {
+            this.in = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public int read() {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return in.read(b, off, Math.min(len, 1000));
+        }
+    }
+
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,160 @@
+package com.bitzomax.service;
+
+import com.bitzomax.config.FileStorageProperties;
+import com.bitzomax.repository.VideoRepository;
+import com.bitzomax.storage.LocalStorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OrphanedMediaCollectorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private ContentAddressedStore contentAddressedStore;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrphanedMediaCollector collector;
+    private LocalStorageBackend storageBackend;
+    private FileStorageProperties properties;
+    private Path videos;
+
+    @BeforeEach
+    void setUp() {
+        videos = tempDir.resolve("videos");
+        Path thumbnails = tempDir.resolve("thumbnails");
+        properties = new FileStorageProperties();
+        properties.setVideoUploadDir(videos.toString());
+        properties.setThumbnailUploadDir(thumbnails.toString());
+        meterRegistry = new SimpleMeterRegistry();
+        storageBackend = new LocalStorageBackend(Map.of("videos", videos, "thumbnails", thumbnails));
+        collector = new OrphanedMediaCollector(videoRepository, contentAddressedStore, storageBackend,
+                properties, meterRegistry, true, 100, 1000, 0, 24, 168);
+    }
+
+    @Test
+    @DisplayName("Should quarantine unreferenced old files, keep referenced and recent ones")
+    void quarantineOrphans() throws IOException {
+        Path referenced = store("ab/cd/referenced.mp4", Duration.ofDays(30));
+        Path orphan = store("ab/cd/orphan.mp4", Duration.ofDays(30));
+        Path recent = store("ef/01/recent.mp4", Duration.ofMinutes(5));
+        Path legacy = store("legacy.mp4", Duration.ofDays(30));
+        when(videoRepository.findReferencedVideoUrls(anyCollection()))
+                .thenReturn(List.of("/uploads/videos/ab/cd/referenced.mp4"));
+        when(videoRepository.findNonCanonicalVideoUrls())
+                .thenReturn(List.of("http://localhost:8080/uploads/videos/legacy.mp4"));
+
+        OrphanedMediaCollector.Report report = collector.collect();
+
+        assertEquals(4, report.scanned());
+        assertEquals(1, report.quarantined());
+        assertEquals(0, report.deleted());
+        assertTrue(Files.exists(referenced));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(legacy));
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(videos.resolve(".quarantine/ab/cd/orphan.mp4")));
+    }
+
+    @Test
+    @DisplayName("Should delete quarantined files after the quarantine period and count the bytes")
+    void purgeQuarantine() throws IOException {
+        Path expired = quarantine("ab/cd/expired.mp4", Duration.ofDays(8));
+        Path waiting = quarantine("ab/cd/waiting.mp4", Duration.ofDays(1));
+
+        OrphanedMediaCollector.Report report = collector.collect();
+
+        assertEquals(1, report.deleted());
+        assertEquals(10, report.reclaimedBytes());
+        assertFalse(Files.exists(expired));
+        assertTrue(Files.exists(waiting));
+        assertEquals(10.0, meterRegistry.get("media.gc.reclaimed").tag("area", "videos").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should move quarantined files back when a video points at them again")
+    void restoreReferencedFile() throws IOException {
+        quarantine("ab/cd/revived.mp4", Duration.ofDays(8));
+        when(videoRepository.findReferencedVideoUrls(anyCollection()))
+                .thenReturn(List.of("/uploads/videos/ab/cd/revived.mp4"));
+
+        OrphanedMediaCollector.Report report = collector.collect();
+
+        assertEquals(1, report.restored());
+        assertEquals(0, report.deleted());
+        assertTrue(Files.exists(videos.resolve("ab/cd/revived.mp4")));
+        assertFalse(Files.exists(videos.resolve(".quarantine/ab/cd")));
+    }
+
+    @Test
+    @DisplayName("Should move quarantined files back on the next run, before the quarantine period is over")
+    void restoreBeforeQuarantineEnds() throws IOException {
+        quarantine("ab/cd/reuploaded.mp4", Duration.ofHours(2));
+        Path waiting = quarantine("ab/cd/waiting.mp4", Duration.ofHours(2));
+        when(videoRepository.findReferencedVideoUrls(anyCollection()))
+                .thenReturn(List.of("/uploads/videos/ab/cd/reuploaded.mp4"));
+
+        OrphanedMediaCollector.Report report = collector.collect();
+
+        assertEquals(1, report.restored());
+        assertEquals(0, report.deleted());
+        assertTrue(Files.exists(videos.resolve("ab/cd/reuploaded.mp4")));
+        assertTrue(Files.exists(waiting));
+    }
+
+    @Test
+    @DisplayName("Should scan a large flat directory in slices of at most max-files-per-run")
+    void scanFlatLayoutInSlices() throws IOException {
+        OrphanedMediaCollector limited = new OrphanedMediaCollector(videoRepository, contentAddressedStore,
+                storageBackend, properties, meterRegistry, true, 100, 2, 0, 24, 168);
+        for (int i = 0; i < 5; i++) {
+            store("flat-" + i + ".mp4", Duration.ofDays(30));
+        }
+
+        assertEquals(2, limited.collect().scanned());
+        assertEquals(2, limited.collect().scanned());
+        assertEquals(1, limited.collect().scanned());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(Files.exists(videos.resolve(".quarantine/flat-" + i + ".mp4")));
+        }
+    }
+
+    private Path store(String relativePath, Duration age) throws IOException {
+        return write(videos.resolve(relativePath), age);
+    }
+
+    private Path quarantine(String relativePath, Duration age) throws IOException {
+        return write(videos.resolve(".quarantine").resolve(relativePath), age);
+    }
+
+    private static Path write(Path file, Duration age) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, "0123456789".getBytes());
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+        return file;
+    }
+}
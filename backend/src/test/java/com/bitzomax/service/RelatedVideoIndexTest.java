@@ -0,0 +1,106 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.model.Genre;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.VideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RelatedVideoIndexTest {
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RelatedVideoIndex relatedVideoIndex;
+
+    @BeforeEach
+    void setUp() {
+        relatedVideoIndex = new RelatedVideoIndex(videoRepository, transactionManager, 5000);
+        relatedVideoIndex.onVideoChanged(VideoChangedEvent.saved(video(1L, 10L, 1L, Set.of("rock", "live"), Set.of("#tour"))));
+        relatedVideoIndex.onVideoChanged(VideoChangedEvent.saved(video(2L, 5L, 1L, Set.of("rock", "live"), Set.of("#tour"))));
+        relatedVideoIndex.onVideoChanged(VideoChangedEvent.saved(video(3L, 500L, 1L, Set.of("rock"), Set.of())));
+        relatedVideoIndex.onVideoChanged(VideoChangedEvent.saved(video(4L, 900L, 2L, Set.of("jazz"), Set.of())));
+        relatedVideoIndex.onVideoChanged(VideoChangedEvent.saved(video(5L, 50L, 2L, Set.of("rock"), Set.of())));
+    }
+
+    @Test
+    @DisplayName("Should rank videos by weighted tag overlap")
+    void findRelated() {
+        // When
+        List<Long> related = relatedVideoIndex.findRelated(video(1L, 10L, 1L, Set.of(), Set.of()), 10);
+
+        // Then
+        assertEquals(List.of(2L, 3L, 5L), related);
+    }
+
+    @Test
+    @DisplayName("Should break score ties by views and honour the limit")
+    void findRelatedTiebreak() {
+        // Given
+        relatedVideoIndex.onVideoChanged(VideoChangedEvent.saved(video(6L, 1000L, 1L, Set.of("rock", "live"), Set.of("#tour"))));
+
+        // When
+        List<Long> related = relatedVideoIndex.findRelated(video(1L, 10L, 1L, Set.of(), Set.of()), 2);
+
+        // Then
+        assertEquals(List.of(6L, 2L), related);
+    }
+
+    @Test
+    @DisplayName("Should drop deleted and hidden videos from the index")
+    void removeVideos() {
+        // Given
+        Video hidden = video(2L, 5L, 1L, Set.of("rock", "live"), Set.of("#tour"));
+        hidden.setIsVisible(false);
+
+        // When
+        relatedVideoIndex.onVideoChanged(VideoChangedEvent.saved(hidden));
+        relatedVideoIndex.onVideoChanged(VideoChangedEvent.deleted(3L));
+
+        // Then
+        assertEquals(3, relatedVideoIndex.size());
+        assertEquals(List.of(5L), relatedVideoIndex.findRelated(video(1L, 10L, 1L, Set.of(), Set.of()), 10));
+    }
+
+    @Test
+    @DisplayName("Should use the video's own features when it is not indexed")
+    void findRelatedForUnindexedVideo() {
+        // When
+        List<Long> related = relatedVideoIndex.findRelated(video(99L, 0L, 2L, Set.of("jazz"), Set.of()), 1);
+
+        // Then
+        assertEquals(List.of(4L), related);
+    }
+
+    private Video video(Long id, Long views, Long genreId, Set<String> tags, Set<String> hashtags) {
+        Genre genre = new Genre();
+        genre.setId(genreId);
+        genre.setName("Genre " + genreId);
+
+        Video video = new Video();
+        video.setId(id);
+        video.setTitle("Video " + id);
+        video.setViews(views);
+        video.setIsVisible(true);
+        video.setGenre(genre);
+        video.setTags(new HashSet<>(tags));
+        video.setHashtags(new HashSet<>(hashtags));
+        return video;
+    }
+}
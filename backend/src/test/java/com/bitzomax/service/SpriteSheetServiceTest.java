@@ -0,0 +1,88 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.media.SpriteSheets;
+import com.bitzomax.model.ProcessingLane;
+import com.bitzomax.model.Video;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class SpriteSheetServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private MediaProcessingQueue mediaProcessingQueue;
+
+    private SpriteSheetService spriteSheetService;
+    private Video video;
+    private String run;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        spriteSheetService = new SpriteSheetService(mediaProcessingQueue, tempDir.toString());
+
+        video = new Video();
+        video.setId(7L);
+        video.setVideoUrl("/uploads/videos/3f/a2/0b9c.mp4");
+
+        Path runDirectory = spriteSheetService.newRunDirectory(7L);
+        Files.writeString(runDirectory.resolve(SpriteSheets.TRACK_FILE), "WEBVTT\n");
+        Files.writeString(runDirectory.resolve("sheet_000.jpg"), "sheet");
+        spriteSheetService.publish(7L, runDirectory, video.getVideoUrl());
+        run = runDirectory.getFileName().toString();
+    }
+
+    @Test
+    @DisplayName("Should only resolve sheet names of the current run")
+    void resolveSheet() {
+        assertTrue(spriteSheetService.resolveSheet(7L, run, "sheet_000.jpg").isPresent());
+        assertTrue(spriteSheetService.resolveSheet(7L, run, "../current.properties").isEmpty());
+        assertTrue(spriteSheetService.resolveSheet(7L, "1-00000000", "sheet_000.jpg").isEmpty());
+        assertTrue(spriteSheetService.resolveSheet(8L, run, "sheet_000.jpg").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should queue the video again when its file was replaced")
+    void reprocessReplacedFile() {
+        video.setVideoUrl("/uploads/videos/77/01/e4d1.mp4");
+
+        spriteSheetService.onVideoChanged(VideoChangedEvent.saved(video));
+
+        verify(mediaProcessingQueue).enqueue(7L, ProcessingLane.UPLOAD);
+    }
+
+    @Test
+    @DisplayName("Should not queue the video when its file was only moved or other fields changed")
+    void ignoreMovedFile() {
+        spriteSheetService.onVideoChanged(VideoChangedEvent.saved(video));
+        video.setVideoUrl("/uploads/videos/0b9c.mp4");
+        spriteSheetService.onVideoChanged(VideoChangedEvent.saved(video));
+
+        verify(mediaProcessingQueue, never()).enqueue(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should delete the sheets of a deleted video")
+    void deleteWithVideo() {
+        spriteSheetService.onVideoChanged(VideoChangedEvent.deleted(7L));
+
+        assertTrue(spriteSheetService.resolveTrack(7L).isEmpty());
+        assertFalse(Files.exists(tempDir.resolve("7")));
+    }
+}
@@ -0,0 +1,100 @@
+package com.bitzomax.service;
+
+import com.bitzomax.dto.FileUploadResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamingUploadServiceTest {
+
+    private static final String BOUNDARY = "xYzZY";
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+    private static final String VIDEO_URL = "/uploads/videos/ab/cd/abcdef.mp4";
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private StreamingUploadService streamingUploadService;
+
+    @BeforeEach
+    void setUp() {
+        streamingUploadService = new StreamingUploadService(fileStorageService, 1_000_000, 1000, 1000);
+    }
+
+    @Test
+    @DisplayName("Should store the video part and return the form fields")
+    void ingest() throws IOException {
+        when(fileStorageService.storeVideoFile(any(InputStream.class), eq("clip.mp4"), eq("video/mp4"), eq(1_000_000L)))
+                .thenAnswer(invocation -> {
+                    byte[] content = invocation.<InputStream>getArgument(0).readAllBytes();
+                    assertEquals("video bytes", new String(content, StandardCharsets.US_ASCII));
+                    return new FileUploadResponse("abcdef.mp4", "video/mp4", VIDEO_URL, content.length);
+                });
+
+        StreamingUploadService.StreamedUpload upload = streamingUploadService.ingest(body(
+                field("videoData", "{\"title\":\"Clip\"}"),
+                file("videoFile", "clip.mp4", "video bytes"),
+                // An empty file input
+                file("thumbnailFile", "", "")), CONTENT_TYPE);
+
+        assertEquals(VIDEO_URL, upload.video().getFilePath());
+        assertNull(upload.thumbnail());
+        assertEquals("{\"title\":\"Clip\"}", upload.videoData());
+        verify(fileStorageService, never()).storeThumbnailFile(any(InputStream.class), anyString(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should delete the stored video when the rest of the body is truncated")
+    void discardIncompleteUpload() {
+        when(fileStorageService.storeVideoFile(any(InputStream.class), eq("clip.mp4"), eq("video/mp4"), eq(1_000_000L)))
+                .thenReturn(new FileUploadResponse("abcdef.mp4", "video/mp4", VIDEO_URL, 11));
+        String truncated = file("videoFile", "clip.mp4", "video bytes")
+                + "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"videoData\"\r\n\r\n{\"tit";
+
+        assertThrows(IOException.class, () -> streamingUploadService.ingest(
+                new ByteArrayInputStream(truncated.getBytes(StandardCharsets.US_ASCII)), CONTENT_TYPE));
+
+        verify(fileStorageService).deleteVideoFile(VIDEO_URL);
+    }
+
+    @Test
+    @DisplayName("Should reject requests that are not multipart or have no video")
+    void rejectInvalidRequests() {
+        assertThrows(IllegalArgumentException.class, () -> streamingUploadService.ingest(
+                new ByteArrayInputStream(new byte[0]), "application/json"));
+        assertThrows(IllegalArgumentException.class, () -> streamingUploadService.ingest(
+                body(field("videoData", "{}")), CONTENT_TYPE));
+    }
+
+    private static String field(String name, String value) {
+        return "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n";
+    }
+
+    private static String file(String name, String fileName, String content) {
+        return "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + fileName
+                + "\"\r\nContent-Type: video/mp4\r\n\r\n" + content + "\r\n";
+    }
+
+    private static InputStream body(String... parts) {
+        return new ByteArrayInputStream((String.join("", parts) + "--" + BOUNDARY + "--\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,75 @@
+package com.bitzomax.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThumbnailCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path render(ThumbnailCache cache, int size) throws Exception {
+        return Files.write(cache.newTempFile(".jpg"), new byte[size]);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used files beyond the size limit")
+    void evictLeastRecentlyUsed() throws Exception {
+        ThumbnailCache cache = new ThumbnailCache(tempDir.toString(), 250);
+        Path a = cache.put("aa11-160.jpg", render(cache, 100));
+        Path b = cache.put("bb22-160.jpg", render(cache, 100));
+
+        // Reading a makes b the least recently used
+        assertTrue(cache.get("aa11-160.jpg").isPresent());
+        cache.put("cc33-160.jpg", render(cache, 100));
+
+        assertTrue(cache.contains("aa11-160.jpg"));
+        assertFalse(cache.contains("bb22-160.jpg"));
+        assertTrue(Files.exists(a));
+        assertFalse(Files.exists(b));
+        assertEquals(200, cache.totalBytes());
+    }
+
+    @Test
+    @DisplayName("Should keep a file larger than the limit until the next one arrives")
+    void keepNewestEntry() throws Exception {
+        ThumbnailCache cache = new ThumbnailCache(tempDir.toString(), 50);
+
+        Path large = cache.put("aa11-640.jpg", render(cache, 100));
+
+        assertTrue(Files.exists(large));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the index from disk and drop interrupted renders")
+    void reloadFromDisk() throws Exception {
+        ThumbnailCache cache = new ThumbnailCache(tempDir.toString(), 1000);
+        cache.put("aa11-160.jpg", render(cache, 100));
+        cache.put("bb22-160.webp", render(cache, 40));
+        Path leftover = render(cache, 10);
+
+        ThumbnailCache reloaded = new ThumbnailCache(tempDir.toString(), 1000);
+
+        assertEquals(2, reloaded.size());
+        assertEquals(140, reloaded.totalBytes());
+        assertTrue(reloaded.get("bb22-160.webp").isPresent());
+        assertFalse(Files.exists(leftover));
+    }
+
+    @Test
+    @DisplayName("Should reject keys that could escape the cache directory")
+    void rejectInvalidKeys() throws Exception {
+        ThumbnailCache cache = new ThumbnailCache(tempDir.toString(), 1000);
+        Path rendered = render(cache, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.put("../etc-160.jpg", rendered));
+        assertThrows(IllegalArgumentException.class, () -> cache.put("..-160.jpg", rendered));
+    }
+}
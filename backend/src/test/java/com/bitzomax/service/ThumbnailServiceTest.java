@@ -0,0 +1,146 @@
+package com.bitzomax.service;
+
+import com.bitzomax.media.FfmpegRunner;
+import com.bitzomax.media.ThumbnailFormat;
+import com.bitzomax.media.ThumbnailRenderer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ThumbnailServiceTest {
+
+    private static final String THUMBNAIL_URL = "/uploads/thumbnails/ab/cd/original.png";
+    private static final String BROWSER_ACCEPT = "image/avif,image/webp,image/apng,image/*,*/*;q=0.8";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private ThumbnailCache thumbnailCache;
+    private Path original;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        thumbnailCache = new ThumbnailCache(tempDir.resolve("cache").toString(), 10_000_000);
+
+        // A 1600x900 PNG with transparency, like the screenshots admins upload
+        BufferedImage image = new BufferedImage(1600, 900, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLUE);
+        g.fillRect(0, 0, 800, 900);
+        g.dispose();
+        original = tempDir.resolve("original.png");
+        ImageIO.write(image, "png", original.toFile());
+    }
+
+    private ThumbnailService service(FfmpegRunner ffmpegRunner) {
+        ThumbnailRenderer renderer = new ThumbnailRenderer(ffmpegRunner, 0.82f, 80, 50_000_000);
+        return new ThumbnailService(fileStorageService, renderer, thumbnailCache, "640,160,320", 320, true);
+    }
+
+    private FfmpegRunner stubFfmpeg() throws Exception {
+        Path stub = Paths.get(getClass().getResource("/ffmpeg-stub.sh").toURI());
+        stub.toFile().setExecutable(true);
+        return new FfmpegRunner(true, stub.toString(), 60);
+    }
+
+    @Test
+    @DisplayName("Should render a JPEG at the next configured width and serve it from the cache afterwards")
+    void renderJpegOnce() throws Exception {
+        when(fileStorageService.openLocalThumbnail(THUMBNAIL_URL))
+                .thenReturn(new FileStorageService.LocalFile(original, false));
+        ThumbnailService service = service(new FfmpegRunner(false, "ffmpeg", 60));
+
+        ThumbnailService.Derivative first = service.getDerivative(THUMBNAIL_URL, 200, BROWSER_ACCEPT);
+        ThumbnailService.Derivative second = service.getDerivative(THUMBNAIL_URL, 320, BROWSER_ACCEPT);
+
+        // Without ffmpeg WebP cannot be rendered, whatever the client accepts
+        assertEquals(ThumbnailFormat.JPEG, first.format());
+        assertEquals(320, first.width());
+        assertEquals(first.path(), second.path());
+        verify(fileStorageService, times(1)).openLocalThumbnail(THUMBNAIL_URL);
+
+        BufferedImage rendered = ImageIO.read(first.path().toFile());
+        assertEquals(320, rendered.getWidth());
+        assertEquals(180, rendered.getHeight());
+        // Transparency is flattened onto white instead of turning black
+        Color background = new Color(rendered.getRGB(300, 90));
+        assertTrue(background.getRed() > 240 && background.getGreen() > 240 && background.getBlue() > 240);
+        assertTrue(Files.size(first.path()) < Files.size(original));
+    }
+
+    @Test
+    @DisplayName("Should cap requested widths at the largest configured width")
+    void capWidth() throws Exception {
+        when(fileStorageService.openLocalThumbnail(THUMBNAIL_URL))
+                .thenReturn(new FileStorageService.LocalFile(original, false));
+        ThumbnailService service = service(new FfmpegRunner(false, "ffmpeg", 60));
+
+        ThumbnailService.Derivative derivative = service.getDerivative(THUMBNAIL_URL, 5000, null);
+
+        assertEquals(640, derivative.width());
+        assertEquals(640, ImageIO.read(derivative.path().toFile()).getWidth());
+    }
+
+    @Test
+    @DisplayName("Should snap widths to the configured ones")
+    void snapWidth() {
+        ThumbnailService service = service(new FfmpegRunner(false, "ffmpeg", 60));
+
+        assertEquals(160, service.snapWidth(1));
+        assertEquals(160, service.snapWidth(160));
+        assertEquals(320, service.snapWidth(161));
+        assertEquals(320, service.snapWidth(null));
+        assertEquals(640, service.snapWidth(2000));
+    }
+
+    @Test
+    @DisplayName("Should choose WebP only when the client names it and ffmpeg is available")
+    void negotiate() throws Exception {
+        ThumbnailService withFfmpeg = service(stubFfmpeg());
+        ThumbnailService withoutFfmpeg = service(new FfmpegRunner(false, "ffmpeg", 60));
+
+        assertEquals(ThumbnailFormat.WEBP, withFfmpeg.negotiate(BROWSER_ACCEPT));
+        assertEquals(ThumbnailFormat.JPEG, withFfmpeg.negotiate("image/*,*/*;q=0.8"));
+        assertEquals(ThumbnailFormat.JPEG, withFfmpeg.negotiate("image/webp;q=0,image/*"));
+        assertEquals(ThumbnailFormat.JPEG, withFfmpeg.negotiate("not a media type"));
+        assertEquals(ThumbnailFormat.JPEG, withFfmpeg.negotiate(null));
+        assertEquals(ThumbnailFormat.JPEG, withoutFfmpeg.negotiate(BROWSER_ACCEPT));
+    }
+
+    @Test
+    @DisplayName("Should pre-render every width in every available format")
+    void pregenerate() throws Exception {
+        when(fileStorageService.openLocalThumbnail(THUMBNAIL_URL))
+                .thenReturn(new FileStorageService.LocalFile(original, false));
+        ThumbnailService service = service(stubFfmpeg());
+
+        service.pregenerate(THUMBNAIL_URL);
+        assertEquals(6, thumbnailCache.size());
+
+        ThumbnailService.Derivative webp = service.getDerivative(THUMBNAIL_URL, 640, BROWSER_ACCEPT);
+        assertEquals(ThumbnailFormat.WEBP, webp.format());
+        assertTrue(webp.path().toString().endsWith("-640.webp"));
+        verify(fileStorageService, times(6)).openLocalThumbnail(THUMBNAIL_URL);
+    }
+}
@@ -0,0 +1,145 @@
+package com.bitzomax.service;
+
+import com.bitzomax.config.FileStorageProperties;
+import com.bitzomax.dto.FileUploadResponse;
+import com.bitzomax.exception.UploadSessionNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UploadSessionServiceTest {
+
+    private static final int CHUNK_SIZE = 4;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private FileStorageProperties fileStorageProperties;
+
+    @TempDir
+    Path tempDir;
+
+    private UploadSessionService uploadSessionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(fileStorageProperties.getUploadSessionDir()).thenReturn(tempDir.toString());
+        uploadSessionService = newService();
+    }
+
+    private UploadSessionService newService() {
+        return new UploadSessionService(fileStorageService, fileStorageProperties, CHUNK_SIZE, 2, 16, 1024, 24);
+    }
+
+    private UploadSession writeChunk(UploadSessionService service, String uploadId, byte[] data, int from, int to) {
+        return service.writeChunk(uploadId, from, new ByteArrayInputStream(Arrays.copyOfRange(data, from, to)));
+    }
+
+    @Test
+    @DisplayName("Should assemble chunks received out of order at their offsets")
+    void writeChunksOutOfOrder() {
+        byte[] data = "0123456789".getBytes();
+        UploadSession session = uploadSessionService.createSession("clip.mp4", "video/mp4", data.length, null);
+        assertEquals(3, session.getChunkCount());
+
+        writeChunk(uploadSessionService, session.getId(), data, 8, 10);
+        writeChunk(uploadSessionService, session.getId(), data, 0, 4);
+        assertEquals(List.of(1), session.getMissingChunks());
+        assertFalse(session.isComplete());
+
+        writeChunk(uploadSessionService, session.getId(), data, 4, 8);
+        assertTrue(session.isComplete());
+        assertEquals(10, session.getReceivedBytes());
+
+        AtomicReference<byte[]> committed = new AtomicReference<>();
+        when(fileStorageService.storeVideoFile(any(Path.class), eq("clip.mp4"), eq("video/mp4")))
+                .thenAnswer(invocation -> {
+                    committed.set(Files.readAllBytes(invocation.getArgument(0, Path.class)));
+                    return new FileUploadResponse("stored.mp4", "video/mp4", "/uploads/videos/stored.mp4", 10L);
+                });
+
+        FileUploadResponse response = uploadSessionService.commit(session.getId());
+        assertEquals("stored.mp4", response.getFileName());
+        assertArrayEquals(data, committed.get());
+        assertThrows(UploadSessionNotFoundException.class, () -> uploadSessionService.getSession(session.getId()));
+    }
+
+    @Test
+    @DisplayName("Should resume a session after a restart")
+    void resumeAfterRestart() {
+        byte[] data = "abcdefgh".getBytes();
+        String uploadId = uploadSessionService.createSession("clip.mp4", "video/mp4", data.length, null).getId();
+        writeChunk(uploadSessionService, uploadId, data, 0, 4);
+
+        UploadSessionService restarted = newService();
+        UploadSession resumed = restarted.getSession(uploadId);
+        assertEquals(List.of(1), resumed.getMissingChunks());
+        assertEquals(4, resumed.getReceivedBytes());
+
+        writeChunk(restarted, uploadId, data, 4, 8);
+        assertTrue(restarted.getSession(uploadId).isComplete());
+    }
+
+    @Test
+    @DisplayName("Should reject misaligned offsets and wrong chunk lengths")
+    void rejectInvalidChunks() {
+        String uploadId = uploadSessionService.createSession("clip.mp4", "video/mp4", 10, null).getId();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadSessionService.writeChunk(uploadId, 2, new ByteArrayInputStream(new byte[4])));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadSessionService.writeChunk(uploadId, 0, new ByteArrayInputStream(new byte[3])));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadSessionService.writeChunk(uploadId, 8, new ByteArrayInputStream(new byte[4])));
+
+        assertEquals(3, uploadSessionService.getSession(uploadId).getMissingChunks().size());
+    }
+
+    @Test
+    @DisplayName("Should reject chunk sizes outside the configured range")
+    void rejectInvalidChunkSizes() {
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadSessionService.createSession("clip.mp4", "video/mp4", 1000, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadSessionService.createSession("clip.mp4", "video/mp4", 1000, 17));
+
+        UploadSession session = uploadSessionService.createSession("clip.mp4", "video/mp4", 1000, 2);
+        assertEquals(500, session.getChunkCount());
+        assertThrows(ArithmeticException.class,
+                () -> new UploadSession("id", "clip.mp4", "video/mp4", 1L << 40, 1).getChunkCount());
+    }
+
+    @Test
+    @DisplayName("Should not commit an incomplete upload")
+    void commitIncompleteUpload() {
+        String uploadId = uploadSessionService.createSession("clip.mp4", "video/mp4", 10, null).getId();
+
+        assertThrows(IllegalStateException.class, () -> uploadSessionService.commit(uploadId));
+        verify(fileStorageService, never()).storeVideoFile(any(Path.class), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should not resolve session IDs outside the session directory")
+    void rejectInvalidSessionId() {
+        assertThrows(UploadSessionNotFoundException.class, () -> uploadSessionService.getSession("../../etc/passwd"));
+    }
+}
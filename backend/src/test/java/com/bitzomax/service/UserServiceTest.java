@@ -1,6 +1,7 @@
 package com.bitzomax.service;
 
 import com.bitzomax.dto.WatchHistoryDTO;
+import com.bitzomax.event.UserVideoStateChangedEvent;
 import com.bitzomax.model.*;
 import com.bitzomax.repository.*;
 import jakarta.persistence.EntityNotFoundException;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -38,6 +40,18 @@ public class UserServiceTest {
     @Mock
     private WatchHistoryRepository watchHistoryRepository;
 
+    @Mock
+    private VideoCaches videoCaches;
+
+    @Mock
+    private UserVideoStates userVideoStates;
+
+    @Mock
+    private WatchProgressBuffer watchProgressBuffer;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -151,7 +165,8 @@ public class UserServiceTest {
     void likeVideo() {
         // Given
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(videoRepository.findById(1L)).thenReturn(Optional.of(testVideo));
+        when(videoRepository.incrementLikes(1L)).thenReturn(Optional.of(51L));
+        when(videoRepository.getReferenceById(1L)).thenReturn(testVideo);
         when(likedVideoRepository.save(any(LikedVideo.class))).thenReturn(testLikedVideo);
         
         // When
@@ -160,8 +175,26 @@ public class UserServiceTest {
         // Then
         assertTrue(result);
         verify(userRepository, times(1)).findById(1L);
-        verify(videoRepository, times(1)).findById(1L);
+        verify(videoRepository, times(1)).incrementLikes(1L);
+        verify(videoRepository, never()).findById(anyLong());
+        verify(videoRepository, never()).save(any(Video.class));
         verify(likedVideoRepository, times(1)).save(any(LikedVideo.class));
+        verify(eventPublisher).publishEvent(UserVideoStateChangedEvent.liked(1L, 1L));
+    }
+
+    @Test
+    @DisplayName("Should throw exception when liking a non-existent video")
+    void likeVideoNotFound() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(videoRepository.incrementLikes(999L)).thenReturn(Optional.empty());
+        
+        // Then
+        assertThrows(EntityNotFoundException.class, () -> {
+            // When
+            userService.likeVideo(1L, 999L);
+        });
+        verify(likedVideoRepository, never()).save(any(LikedVideo.class));
     }
 
     @Test
@@ -178,6 +211,9 @@ public class UserServiceTest {
         assertTrue(result);
         verify(likedVideoRepository, times(1)).findByUserIdAndVideoId(1L, 1L);
         verify(likedVideoRepository, times(1)).delete(testLikedVideo);
+        verify(videoRepository, times(1)).decrementLikes(1L);
+        verify(videoRepository, never()).save(any(Video.class));
+        verify(eventPublisher).publishEvent(UserVideoStateChangedEvent.unliked(1L, 1L));
     }
 
     @Test
@@ -201,4 +237,37 @@ public class UserServiceTest {
         verify(videoRepository, times(1)).findById(1L);
         verify(watchHistoryRepository, times(1)).save(any(WatchHistory.class));
     }
+
+    @Test
+    @DisplayName("Should buffer progress pings for cached and stored videos")
+    void recordWatchProgress() {
+        // Given
+        WatchProgressBuffer.Progress progress = new WatchProgressBuffer.Progress(1L, 1L, LocalDateTime.now(), 42, false);
+        when(videoCaches.isVideoCached(1L)).thenReturn(true);
+        when(videoCaches.isVideoCached(2L)).thenReturn(false);
+        when(videoRepository.existsById(2L)).thenReturn(true);
+        when(watchProgressBuffer.record(anyLong(), anyLong(), anyInt(), anyBoolean())).thenReturn(progress);
+
+        // When
+        userService.recordWatchProgress(1L, 1L, 42, false);
+        userService.recordWatchProgress(1L, 2L, 42, false);
+
+        // Then
+        verify(videoRepository, never()).existsById(1L);
+        verify(watchProgressBuffer).record(1L, 1L, 42, false);
+        verify(watchProgressBuffer).record(1L, 2L, 42, false);
+    }
+
+    @Test
+    @DisplayName("Should drop progress pings for unknown videos before buffering them")
+    void recordWatchProgressUnknownVideo() {
+        // Given
+        when(videoCaches.isVideoCached(99L)).thenReturn(false);
+        when(videoRepository.existsById(99L)).thenReturn(false);
+
+        // When/Then
+        assertThrows(EntityNotFoundException.class, () -> userService.recordWatchProgress(1L, 99L, 42, false));
+        assertThrows(EntityNotFoundException.class, () -> userService.recordWatchProgress(1L, null, 42, false));
+        verifyNoInteractions(watchProgressBuffer);
+    }
 }
@@ -0,0 +1,110 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.UserVideoStateChangedEvent;
+import com.bitzomax.repository.FavoriteVideoRepository;
+import com.bitzomax.repository.LikedVideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserVideoStatesTest {
+
+    @Mock
+    private LikedVideoRepository likedVideoRepository;
+
+    @Mock
+    private FavoriteVideoRepository favoriteVideoRepository;
+
+    private UserVideoStates userVideoStates;
+
+    @BeforeEach
+    void setUp() {
+        userVideoStates = new UserVideoStates(likedVideoRepository, favoriteVideoRepository, 100, 30);
+    }
+
+    @Test
+    @DisplayName("Should answer a batch lookup from one load per user")
+    void lookup() {
+        when(likedVideoRepository.findVideoIdsByUserId(1L)).thenReturn(List.of(9L, 3L));
+        when(favoriteVideoRepository.findVideoIdsByUserId(1L)).thenReturn(List.of(7L));
+
+        Map<Long, UserVideoStates.VideoState> states = userVideoStates.lookup(1L, List.of(3L, 5L, 7L));
+
+        assertEquals(List.of(3L, 5L, 7L), List.copyOf(states.keySet()));
+        assertEquals(new UserVideoStates.VideoState(true, false), states.get(3L));
+        assertEquals(new UserVideoStates.VideoState(false, false), states.get(5L));
+        assertEquals(new UserVideoStates.VideoState(false, true), states.get(7L));
+        assertTrue(userVideoStates.isLiked(1L, 9L));
+        verify(likedVideoRepository, times(1)).findVideoIdsByUserId(1L);
+        verify(favoriteVideoRepository, times(1)).findVideoIdsByUserId(1L);
+    }
+
+    @Test
+    @DisplayName("Should apply committed writes to loaded users")
+    void applyCommittedChanges() {
+        when(likedVideoRepository.findVideoIdsByUserId(1L)).thenReturn(List.of(3L));
+        when(favoriteVideoRepository.findVideoIdsByUserId(1L)).thenReturn(List.of());
+        assertTrue(userVideoStates.isLiked(1L, 3L));
+
+        userVideoStates.onStateChanged(UserVideoStateChangedEvent.unliked(1L, 3L));
+        userVideoStates.onStateChanged(UserVideoStateChangedEvent.favorited(1L, 4L));
+        userVideoStates.onStateChanged(UserVideoStateChangedEvent.favorited(1L, 4L));
+
+        assertFalse(userVideoStates.isLiked(1L, 3L));
+        assertTrue(userVideoStates.isFavorite(1L, 4L));
+        verify(likedVideoRepository, times(1)).findVideoIdsByUserId(1L);
+    }
+
+    @Test
+    @DisplayName("Should leave users that are not loaded to read the committed rows later")
+    void ignoreUnloadedUsers() {
+        userVideoStates.onStateChanged(UserVideoStateChangedEvent.liked(2L, 3L));
+
+        verify(likedVideoRepository, never()).findVideoIdsByUserId(2L);
+        verify(favoriteVideoRepository, never()).findVideoIdsByUserId(2L);
+    }
+
+    @Test
+    @DisplayName("Should apply writes only after the transaction commits")
+    void listenAfterCommit() throws NoSuchMethodException {
+        TransactionalEventListener listener = UserVideoStates.class
+                .getMethod("onStateChanged", UserVideoStateChangedEvent.class)
+                .getAnnotation(TransactionalEventListener.class);
+
+        assertNotNull(listener);
+        assertEquals(TransactionPhase.AFTER_COMMIT, listener.phase());
+    }
+
+    @Test
+    @DisplayName("Should keep video ID sets sorted and free of duplicates")
+    void videoIdSet() {
+        UserVideoStates.VideoIdSet set = UserVideoStates.VideoIdSet.of(List.of(5L, 1L, 5L));
+
+        assertEquals(2, set.size());
+        UserVideoStates.VideoIdSet grown = set.with(3L).with(9L).with(3L);
+        assertEquals(4, grown.size());
+        assertTrue(grown.contains(3L));
+        assertTrue(grown.contains(9L));
+        assertFalse(set.contains(3L));
+
+        UserVideoStates.VideoIdSet shrunk = grown.without(1L).without(2L);
+        assertEquals(3, shrunk.size());
+        assertFalse(shrunk.contains(1L));
+        assertFalse(shrunk.contains(null));
+    }
+}
@@ -0,0 +1,88 @@
+package com.bitzomax.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VideoCachesTest {
+
+    private CaffeineCacheManager cacheManager;
+    private VideoCaches videoCaches;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new CaffeineCacheManager(VideoCaches.BY_ID, VideoCaches.PAGES, VideoCaches.GENRE_PAGES, VideoCaches.GENRES);
+        videoCaches = new VideoCaches(cacheManager, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should only cache the first pages")
+    void isCacheable() {
+        assertTrue(videoCaches.isCacheable(PageRequest.of(0, 12)));
+        assertTrue(videoCaches.isCacheable(PageRequest.of(2, 12)));
+        assertFalse(videoCaches.isCacheable(PageRequest.of(3, 12)));
+        assertFalse(videoCaches.isCacheable(Pageable.unpaged()));
+    }
+
+    @Test
+    @DisplayName("Should report whether a video is cached by ID")
+    void isVideoCached() {
+        // Given
+        cacheManager.getCache(VideoCaches.BY_ID).put(1L, "video 1");
+
+        // Then
+        assertTrue(videoCaches.isVideoCached(1L));
+        assertFalse(videoCaches.isVideoCached(2L));
+        assertFalse(videoCaches.isVideoCached(null));
+    }
+
+    @Test
+    @DisplayName("Should evict the video and all cached pages")
+    void evictVideo() {
+        // Given
+        cacheManager.getCache(VideoCaches.BY_ID).put(1L, "video 1");
+        cacheManager.getCache(VideoCaches.BY_ID).put(2L, "video 2");
+        cacheManager.getCache(VideoCaches.PAGES).put("0:12:UNSORTED:false", "page");
+
+        // When
+        videoCaches.evictVideo(1L);
+
+        // Then
+        assertNull(cacheManager.getCache(VideoCaches.BY_ID).get(1L));
+        assertNotNull(cacheManager.getCache(VideoCaches.BY_ID).get(2L));
+        assertNull(cacheManager.getCache(VideoCaches.PAGES).get("0:12:UNSORTED:false"));
+    }
+
+    @Test
+    @DisplayName("Should evict again once the surrounding transaction completes")
+    void evictAfterCompletion() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        videoCaches.evictVideoById(1L);
+
+        // A concurrent reader caches the pre-commit state
+        cacheManager.getCache(VideoCaches.BY_ID).put(1L, "stale");
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // Then
+        assertNull(cacheManager.getCache(VideoCaches.BY_ID).get(1L));
+    }
+}
@@ -0,0 +1,53 @@
+package com.bitzomax.service;
+
+import com.bitzomax.dto.VideoSummary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VideoCursorTest {
+
+    @Test
+    @DisplayName("Should start from the initial keyset position")
+    void first() {
+        // When
+        VideoCursor cursor = VideoCursor.first("views", "desc");
+
+        // Then
+        assertEquals("views", cursor.getSortField());
+        assertEquals(Sort.Direction.DESC, cursor.getDirection());
+        assertNull(cursor.getLastValue());
+        assertNull(cursor.getLastId());
+    }
+
+    @Test
+    @DisplayName("Should round-trip the position after a video through the opaque cursor")
+    void encodeAndDecode() {
+        // Given
+        VideoSummary video = new VideoSummary();
+        video.setId(42L);
+        video.setUploadDate(LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+
+        // When
+        String encoded = VideoCursor.first("uploadDate", "asc").after(video).encode();
+        VideoCursor decoded = VideoCursor.decode(encoded);
+
+        // Then
+        assertEquals("uploadDate", decoded.getSortField());
+        assertEquals(Sort.Direction.ASC, decoded.getDirection());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 30, 15), decoded.getLastValue());
+        assertEquals(42L, decoded.getLastId());
+    }
+
+    @Test
+    @DisplayName("Should reject unsupported sort fields and malformed cursors")
+    void invalid() {
+        assertThrows(IllegalArgumentException.class, () -> VideoCursor.first("title", "asc"));
+        assertThrows(IllegalArgumentException.class, () -> VideoCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> VideoCursor.decode("dmlld3N8ZGVzY3xhYmN8MQ"));
+    }
+}
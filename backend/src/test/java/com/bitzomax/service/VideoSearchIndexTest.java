@@ -0,0 +1,154 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.VideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class VideoSearchIndexTest {
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private VideoSearchIndex videoSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        videoSearchIndex = new VideoSearchIndex(videoRepository, transactionManager, 3.0, 2.0, 2.0, 1.5, 1.0, 0.8, 60);
+        videoSearchIndex.onVideoChanged(VideoChangedEvent.saved(video(1L, 10L, "Ocean Waves",
+                "A calm evening by the sea", null, Set.of("ambient"))));
+        videoSearchIndex.onVideoChanged(VideoChangedEvent.saved(video(2L, 500L, "City Lights",
+                "Night drive through the city, with the ocean far away", null, Set.of("synthwave"))));
+        videoSearchIndex.onVideoChanged(VideoChangedEvent.saved(video(3L, 50L, "Morning Poem",
+                "Spoken word", "The ocean wakes, the gulls reply", Set.of("ocean", "poetry"))));
+        videoSearchIndex.onVideoChanged(VideoChangedEvent.saved(video(4L, 900L, "Caf\u00e9 Jazz",
+                "Live from the caf\u00e9", null, Set.of("jazz"))));
+    }
+
+    @Test
+    @DisplayName("Should rank title and tag matches above description and poem matches")
+    void searchRanking() {
+        // When
+        VideoSearchIndex.Result result = videoSearchIndex.search("ocean", 0, 10);
+
+        // Then
+        assertEquals(3, result.totalHits());
+        assertEquals(List.of(1L, 3L, 2L), result.hits().stream().map(VideoSearchIndex.Hit::videoId).toList());
+    }
+
+    @Test
+    @DisplayName("Should require all query terms and ignore case and diacritics")
+    void searchAllTerms() {
+        assertEquals(List.of(2L), ids(videoSearchIndex.search("OCEAN city", 0, 10)));
+        assertEquals(List.of(4L), ids(videoSearchIndex.search("cafe", 0, 10)));
+        assertEquals(List.of(), ids(videoSearchIndex.search("ocean jazz", 0, 10)));
+        assertEquals(List.of(), ids(videoSearchIndex.search("  --  ", 0, 10)));
+    }
+
+    @Test
+    @DisplayName("Should page through hits and report the total")
+    void searchPaging() {
+        // When
+        VideoSearchIndex.Result page = videoSearchIndex.search("ocean", 1, 1);
+
+        // Then
+        assertEquals(3, page.totalHits());
+        assertEquals(List.of(3L), ids(page));
+    }
+
+    @Test
+    @DisplayName("Should highlight matches in escaped snippets")
+    void highlight() {
+        // Given
+        videoSearchIndex.onVideoChanged(VideoChangedEvent.saved(video(5L, 0L, "<b>Rain</b> & ocean",
+                "Intro words that are long enough to be cut off before the match, then rain on the roof all night",
+                null, Set.of())));
+
+        // When
+        VideoSearchIndex.Hit hit = videoSearchIndex.search("rain", 0, 10).hits().get(0);
+
+        // Then
+        assertEquals(5L, hit.videoId());
+        assertEquals("&lt;b&gt;<em>Rain</em>&lt;/b&gt; &amp; ocean", hit.highlights().get("title"));
+        String description = hit.highlights().get("description");
+        assertTrue(description.startsWith("\u2026"), description);
+        assertTrue(description.contains("<em>rain</em> on the roof"), description);
+        assertFalse(hit.highlights().containsKey("poemText"));
+    }
+
+    @Test
+    @DisplayName("Should drop deleted and hidden videos from the index")
+    void removeVideos() {
+        // Given
+        Video hidden = video(3L, 50L, "Morning Poem", "Spoken word", "The ocean wakes", Set.of("ocean"));
+        hidden.setIsVisible(false);
+
+        // When
+        videoSearchIndex.onVideoChanged(VideoChangedEvent.saved(hidden));
+        videoSearchIndex.onVideoChanged(VideoChangedEvent.deleted(1L));
+
+        // Then
+        assertEquals(2, videoSearchIndex.size());
+        assertEquals(List.of(2L), ids(videoSearchIndex.search("ocean", 0, 10)));
+    }
+
+    @Test
+    @DisplayName("Should rebuild from the database on the index's own thread after a bulk change")
+    void rebuildOnBulkChange() throws InterruptedException {
+        // Given
+        List<String> threads = new CopyOnWriteArrayList<>();
+        when(videoRepository.findByIsVisibleTrue(any(Pageable.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return new PageImpl<>(List.of(video(5L, 1L, "Desert Wind", "Dunes at dusk", null, Set.of("ambient"))));
+        });
+
+        // When
+        videoSearchIndex.onVideoChanged(VideoChangedEvent.bulk());
+        for (int i = 0; i < 250 && !videoSearchIndex.isReady(); i++) {
+            Thread.sleep(20);
+        }
+
+        // Then
+        assertTrue(videoSearchIndex.isReady());
+        assertEquals(List.of("video-search-index"), threads);
+        assertEquals(List.of(5L), ids(videoSearchIndex.search("desert", 0, 10)));
+        assertEquals(List.of(), ids(videoSearchIndex.search("ocean", 0, 10)));
+    }
+
+    private static List<Long> ids(VideoSearchIndex.Result result) {
+        return result.hits().stream().map(VideoSearchIndex.Hit::videoId).toList();
+    }
+
+    private Video video(Long id, Long views, String title, String description, String poemText, Set<String> tags) {
+        Video video = new Video();
+        video.setId(id);
+        video.setViews(views);
+        video.setTitle(title);
+        video.setDescription(description);
+        video.setPoemText(poemText);
+        video.setTags(new HashSet<>(tags));
+        video.setIsVisible(true);
+        return video;
+    }
+}
@@ -1,6 +1,10 @@
 package com.bitzomax.service;
 
+import com.bitzomax.dto.CursorPage;
 import com.bitzomax.dto.VideoDTO;
+import com.bitzomax.dto.VideoSearchResult;
+import com.bitzomax.dto.VideoSummary;
+import com.bitzomax.event.VideoChangedEvent;
 import com.bitzomax.mapper.VideoMapper;
 import com.bitzomax.model.ConversionStatus;
 import com.bitzomax.model.Genre;
@@ -13,14 +17,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +45,21 @@ public class VideoServiceTest {
     @Mock
     private VideoMapper videoMapper;
 
+    @Mock
+    private RelatedVideoIndex relatedVideoIndex;
+
+    @Mock
+    private VideoSearchIndex videoSearchIndex;
+
+    @Mock
+    private VideoSuggestIndex videoSuggestIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private VideoCaches videoCaches;
+
     @InjectMocks
     private VideoService videoService;
 
@@ -133,9 +157,42 @@ public class VideoServiceTest {
         // Then
         assertTrue(result.isPresent());
         assertEquals("Test Video", result.get().getTitle());
+        assertNotSame(testVideo, result.get());
         verify(videoRepository, times(1)).findById(1L);
     }
 
+    @Test
+    @DisplayName("Should update video details on a freshly loaded entity")
+    void updateVideoDetails() {
+        // Given
+        Video details = new Video();
+        details.setTitle("Edited Title");
+        details.setVideoUrl("/uploads/videos/edited.mp4");
+        details.setIsVisible(true);
+        when(videoRepository.findById(1L)).thenReturn(Optional.of(testVideo));
+        when(videoRepository.save(testVideo)).thenReturn(testVideo);
+
+        // When
+        Optional<Video> result = videoService.updateVideoDetails(1L, details);
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals("Edited Title", testVideo.getTitle());
+        verify(videoCaches).evictVideo(1L);
+    }
+
+    @Test
+    @DisplayName("Should not update details of a missing video")
+    void updateVideoDetailsNotFound() {
+        // Given
+        when(videoRepository.findById(99L)).thenReturn(Optional.empty());
+
+        // When/Then
+        assertTrue(videoService.updateVideoDetails(99L, new Video()).isEmpty());
+        assertFalse(videoService.updateVideoDuration(99L, 120));
+        verify(videoRepository, never()).save(any(Video.class));
+    }
+
     @Test
     @DisplayName("Should save video")
     void saveVideo() {
@@ -238,5 +295,119 @@ public class VideoServiceTest {
 
         // Then
         verify(videoRepository, times(1)).deleteById(1L);
+        verify(videoCaches, times(1)).evictVideo(1L);
+        verify(eventPublisher, times(1)).publishEvent(any(VideoChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should return paged video summaries from the projection query")
+    void getPagedVideoSummaries() {
+        // Given
+        Pageable pageable = Pageable.ofSize(10);
+        Page<VideoSummary> summaryPage = new PageImpl<>(List.of(VideoSummary.fromEntity(testVideo)));
+        when(videoRepository.findVisibleSummaries(pageable)).thenReturn(summaryPage);
+
+        // When
+        Page<VideoSummary> result = videoService.getPagedVideoSummaries(pageable, false);
+
+        // Then
+        assertEquals(1, result.getContent().size());
+        assertEquals("Music", result.getContent().get(0).getGenreName());
+        verify(videoRepository, never()).findByIsVisibleTrue(any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Should return related videos in index order and fill up with popular videos")
+    void findRelatedVideos() {
+        // Given
+        VideoSummary related = new VideoSummary();
+        related.setId(2L);
+        VideoSummary popular = new VideoSummary();
+        popular.setId(3L);
+        when(relatedVideoIndex.findRelated(testVideo, 3)).thenReturn(List.of(2L));
+        when(videoRepository.findVisibleSummariesByIdIn(List.of(2L))).thenReturn(List.of(related));
+        when(videoRepository.findVisibleSummaries(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(Arrays.asList(VideoSummary.fromEntity(testVideo), related, popular)));
+
+        // When
+        List<VideoSummary> result = videoService.findRelatedVideos(testVideo, 3);
+
+        // Then
+        assertEquals(List.of(2L, 3L), result.stream().map(VideoSummary::getId).toList());
+        verify(videoRepository, never()).findByIsVisibleTrue();
+    }
+
+    @Test
+    @DisplayName("Should return search hits in index order with the index's total")
+    void searchVideos() {
+        // Given
+        VideoSummary first = new VideoSummary();
+        first.setId(2L);
+        VideoSummary second = new VideoSummary();
+        second.setId(1L);
+        when(videoSearchIndex.isReady()).thenReturn(true);
+        when(videoSearchIndex.search("ocean", 10, 10)).thenReturn(new VideoSearchIndex.Result(List.of(
+                new VideoSearchIndex.Hit(2L, 3.0, Map.of("title", "<em>Ocean</em>")),
+                new VideoSearchIndex.Hit(1L, 1.0, Map.of())), 23));
+        when(videoRepository.findVisibleSummariesByIdIn(List.of(2L, 1L))).thenReturn(List.of(second, first));
+
+        // When
+        Page<VideoSearchResult> result = videoService.searchVideos("ocean", PageRequest.of(1, 10));
+
+        // Then
+        assertEquals(List.of(2L, 1L), result.getContent().stream().map(r -> r.getVideo().getId()).toList());
+        assertEquals("<em>Ocean</em>", result.getContent().get(0).getHighlights().get("title"));
+        assertEquals(23, result.getTotalElements());
+        assertEquals(3, result.getTotalPages());
+        verify(videoRepository, never()).searchByTitleOrDescription(anyString());
+    }
+
+    @Test
+    @DisplayName("Should leave out hits hidden after indexing without reading past the page")
+    void searchVideosSkipsStaleHits() {
+        // Given
+        VideoSummary first = new VideoSummary();
+        first.setId(1L);
+        when(videoSearchIndex.isReady()).thenReturn(true);
+        when(videoSearchIndex.search("ocean", 0, 2)).thenReturn(new VideoSearchIndex.Result(List.of(
+                new VideoSearchIndex.Hit(1L, 3.0, Map.of()),
+                new VideoSearchIndex.Hit(9L, 2.0, Map.of())), 3));
+        when(videoRepository.findVisibleSummariesByIdIn(List.of(1L, 9L))).thenReturn(List.of(first));
+
+        // When
+        Page<VideoSearchResult> result = videoService.searchVideos("ocean", PageRequest.of(0, 2));
+
+        // Then
+        assertEquals(List.of(1L), result.getContent().stream().map(r -> r.getVideo().getId()).toList());
+        assertEquals(3, result.getTotalElements());
+        // The next page starts at index offset 2, so hit 3 is shown there and only there
+        verify(videoSearchIndex).search("ocean", 0, 2);
+        verify(videoSearchIndex, never()).search(eq("ocean"), eq(2), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should fetch one extra summary to tell whether another cursor window follows")
+    void getVideosByCursor() {
+        // Given
+        List<VideoSummary> rows = new ArrayList<>();
+        for (long id = 3; id >= 1; id--) {
+            VideoSummary summary = new VideoSummary();
+            summary.setId(id);
+            summary.setUploadDate(LocalDateTime.of(2024, 5, (int) id, 0, 0));
+            rows.add(summary);
+        }
+        when(videoRepository.findSummariesAfter(eq("uploadDate"), eq(Sort.Direction.DESC), isNull(), isNull(),
+                isNull(), eq(false), eq(3))).thenReturn(rows);
+
+        // When
+        CursorPage<VideoSummary> result = videoService.getVideosByCursor(null, null, "uploadDate", "desc", 2, false);
+
+        // Then
+        assertEquals(List.of(3L, 2L), result.getContent().stream().map(VideoSummary::getId).toList());
+        assertTrue(result.isHasNext());
+        VideoCursor next = VideoCursor.decode(result.getNextCursor());
+        assertEquals(LocalDateTime.of(2024, 5, 2, 0, 0), next.getLastValue());
+        assertEquals(2L, next.getLastId());
     }
 }
+
@@ -0,0 +1,142 @@
+package com.bitzomax.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VideoStreamingServiceTest {
+
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    private VideoStreamingService videoStreamingService;
+
+    @TempDir
+    Path tempDir;
+
+    private Path videoFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        videoStreamingService = new VideoStreamingService(true);
+        videoFile = tempDir.resolve("test-video.mp4");
+        Files.writeString(videoFile, CONTENT);
+    }
+
+    @Test
+    @DisplayName("Should stream the whole file without a Range header")
+    void streamWholeFile() throws IOException {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        videoStreamingService.stream(videoFile, "public, max-age=60", request, response);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals("video/mp4", response.getContentType());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertNotNull(response.getHeader("ETag"));
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should stream a single byte range as partial content")
+    void streamSingleRange() throws IOException {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=10-15");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        videoStreamingService.stream(videoFile, null, request, response);
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-15/" + CONTENT.length(), response.getHeader("Content-Range"));
+        assertEquals(6, response.getContentLengthLong());
+        assertEquals("abcdef", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should hand single ranges to the container when sendfile is supported")
+    void streamSingleRangeWithSendfile() throws IOException {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=-4");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        videoStreamingService.stream(videoFile, null, request, response);
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertEquals((long) CONTENT.length() - 4, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals((long) CONTENT.length(), request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Should stream multiple ranges as multipart/byteranges")
+    void streamMultipleRanges() throws IOException {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=0-1,10-11");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        videoStreamingService.stream(videoFile, null, request, response);
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString(StandardCharsets.US_ASCII);
+        assertTrue(body.contains("Content-Range: bytes 0-1/" + CONTENT.length() + "\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 10-11/" + CONTENT.length() + "\r\n\r\nab"));
+        assertEquals(response.getContentLengthLong(), response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Should ignore the Range header when If-Range does not match")
+    void streamIgnoresRangeOnStaleIfRange() throws IOException {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=10-15");
+        request.addHeader("If-Range", "\"stale-etag\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        videoStreamingService.stream(videoFile, null, request, response);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should reject ranges beyond the end of the file")
+    void streamUnsatisfiableRange() throws IOException {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        request.addHeader("Range", "bytes=1000-2000");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        videoStreamingService.stream(videoFile, null, request, response);
+
+        // Then
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */" + CONTENT.length(), response.getHeader("Content-Range"));
+    }
+}
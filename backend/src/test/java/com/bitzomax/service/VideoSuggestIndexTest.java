@@ -0,0 +1,145 @@
+package com.bitzomax.service;
+
+import com.bitzomax.event.VideoChangedEvent;
+import com.bitzomax.model.Genre;
+import com.bitzomax.model.Video;
+import com.bitzomax.repository.VideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VideoSuggestIndexTest {
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private VideoSuggestIndex videoSuggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        videoSuggestIndex = new VideoSuggestIndex(videoRepository, transactionManager);
+        videoSuggestIndex.onVideoChanged(VideoChangedEvent.saved(video(1L, 100L, "Ocean Waves", Set.of("ocean", "ambient"), "Relax")));
+        videoSuggestIndex.onVideoChanged(VideoChangedEvent.saved(video(2L, 500L, "October Nights", Set.of("ocean"), "Relax")));
+        videoSuggestIndex.onVideoChanged(VideoChangedEvent.saved(video(3L, 50L, "Caf\u00e9 Jazz", Set.of("jazz"), "Jazz")));
+    }
+
+    @Test
+    @DisplayName("Should suggest titles, tags and genres by prefix, heaviest first")
+    void suggestByPrefix() {
+        // When
+        List<VideoSuggestIndex.Suggestion> suggestions = videoSuggestIndex.suggest("Oc", 10);
+
+        // Then
+        assertEquals(List.of("ocean", "October Nights", "Ocean Waves"), texts(suggestions));
+        VideoSuggestIndex.Suggestion tag = suggestions.get(0);
+        assertEquals(VideoSuggestIndex.Type.TAG, tag.type());
+        assertEquals(600L, tag.weight());
+        assertEquals(2, tag.videoCount());
+        assertNull(tag.videoId());
+        assertEquals(2L, suggestions.get(1).videoId());
+        assertEquals(List.of("ocean"), texts(videoSuggestIndex.suggest("oc", 1)));
+    }
+
+    @Test
+    @DisplayName("Should match across case, diacritics and punctuation")
+    void suggestNormalized() {
+        assertEquals(List.of("Caf\u00e9 Jazz"), texts(videoSuggestIndex.suggest("CAFE j", 10)));
+        assertEquals(List.of("Ocean Waves"), texts(videoSuggestIndex.suggest("ocean-wa", 10)));
+        assertEquals(List.of("Relax"), texts(videoSuggestIndex.suggest("rel", 10)));
+        assertEquals(List.of(), texts(videoSuggestIndex.suggest("xyz", 10)));
+        assertEquals(List.of(), texts(videoSuggestIndex.suggest(" ! ", 10)));
+    }
+
+    @Test
+    @DisplayName("Should update weights and drop suggestions when videos change")
+    void updateVideos() {
+        // Given
+        Video hidden = video(2L, 500L, "October Nights", Set.of("ocean"), "Relax");
+        hidden.setIsVisible(false);
+
+        // When
+        videoSuggestIndex.onVideoChanged(VideoChangedEvent.saved(hidden));
+        videoSuggestIndex.onVideoChanged(VideoChangedEvent.deleted(3L));
+
+        // Then
+        List<VideoSuggestIndex.Suggestion> suggestions = videoSuggestIndex.suggest("oc", 10);
+        assertEquals(List.of("Ocean Waves", "ocean"), texts(suggestions));
+        assertEquals(100L, suggestions.get(1).weight());
+        assertEquals(1, suggestions.get(1).videoCount());
+        assertEquals(List.of(), texts(videoSuggestIndex.suggest("jazz", 10)));
+        // Ocean Waves, ocean, ambient, Relax
+        assertEquals(4, videoSuggestIndex.size());
+    }
+
+    @Test
+    @DisplayName("Should return the same top suggestions as a full scan after random changes")
+    void trieMatchesFullScan() {
+        VideoSuggestIndex.Trie trie = new VideoSuggestIndex.Trie();
+        List<String> keys = new ArrayList<>();
+        List<VideoSuggestIndex.Suggestion> stored = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            if (!stored.isEmpty() && random.nextInt(3) == 0) {
+                int index = random.nextInt(stored.size());
+                assertTrue(trie.remove(keys.remove(index), stored.remove(index)));
+                continue;
+            }
+            StringBuilder key = new StringBuilder();
+            for (int length = 1 + random.nextInt(6); length > 0; length--) {
+                key.append("abc ".charAt(random.nextInt(4)));
+            }
+            VideoSuggestIndex.Suggestion suggestion = new VideoSuggestIndex.Suggestion(
+                    VideoSuggestIndex.Type.TITLE, key.toString(), (long) i, random.nextInt(1000), 1);
+            trie.add(key.toString(), suggestion);
+            keys.add(key.toString());
+            stored.add(suggestion);
+        }
+
+        for (String prefix : List.of("a", "ab", "b c", "cc", "ca b", "c")) {
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < stored.size(); i++) {
+                if (keys.get(i).startsWith(prefix)) {
+                    expected.add(stored.get(i).weight());
+                }
+            }
+            expected.sort(Comparator.reverseOrder());
+            List<Long> actual = trie.top(prefix, 5).stream().map(VideoSuggestIndex.Suggestion::weight).toList();
+            assertEquals(expected.subList(0, Math.min(5, expected.size())), actual, prefix);
+        }
+    }
+
+    private static List<String> texts(List<VideoSuggestIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(VideoSuggestIndex.Suggestion::text).toList();
+    }
+
+    private Video video(Long id, Long views, String title, Set<String> tags, String genreName) {
+        Genre genre = new Genre();
+        genre.setName(genreName);
+        Video video = new Video();
+        video.setId(id);
+        video.setViews(views);
+        video.setTitle(title);
+        video.setTags(new HashSet<>(tags));
+        video.setGenre(genre);
+        video.setIsVisible(true);
+        return video;
+    }
+}
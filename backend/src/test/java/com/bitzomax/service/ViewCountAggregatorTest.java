@@ -0,0 +1,117 @@
+package com.bitzomax.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ViewCountAggregatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private VideoCaches videoCaches;
+
+    @TempDir
+    Path tempDir;
+
+    private Path fallbackLog;
+
+    private ViewCountAggregator viewCountAggregator;
+
+    @BeforeEach
+    void setUp() {
+        fallbackLog = tempDir.resolve("view-counts.log");
+        viewCountAggregator = new ViewCountAggregator(jdbcTemplate, transactionManager, videoCaches, fallbackLog.toString(), 500);
+    }
+
+    @Test
+    @DisplayName("Should aggregate views in memory until flushed")
+    void recordView() {
+        // When
+        viewCountAggregator.recordView(1L);
+        viewCountAggregator.recordView(1L);
+        long pending = viewCountAggregator.recordView(1L);
+
+        // Then
+        assertEquals(3, pending);
+        assertEquals(3, viewCountAggregator.getPendingViews(1L));
+        assertEquals(0, viewCountAggregator.getPendingViews(2L));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Should flush aggregated views as one batch of delta updates")
+    @SuppressWarnings("unchecked")
+    void flush() {
+        // Given
+        viewCountAggregator.recordView(1L);
+        viewCountAggregator.recordView(1L);
+        viewCountAggregator.recordView(2L);
+
+        // When
+        long flushed = viewCountAggregator.flush();
+
+        // Then
+        assertEquals(3, flushed);
+        ArgumentCaptor<List<Object[]>> argsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(
+                eq("UPDATE videos SET views = COALESCE(views, 0) + ? WHERE id = ?"), argsCaptor.capture());
+        List<Object[]> args = argsCaptor.getValue();
+        assertEquals(2, args.size());
+        assertTrue(args.stream().anyMatch(row -> row[0].equals(2L) && row[1].equals(1L)));
+        assertTrue(args.stream().anyMatch(row -> row[0].equals(1L) && row[1].equals(2L)));
+        assertEquals(0, viewCountAggregator.getPendingViews(1L));
+        // Cached counts would otherwise lose the flushed views until they expire
+        verify(videoCaches).evictVideoById(1L);
+        verify(videoCaches).evictVideoById(2L);
+    }
+
+    @Test
+    @DisplayName("Should write deltas to the fallback log when the flush fails and replay them later")
+    void flushFailureUsesFallbackLog() throws IOException {
+        // Given
+        viewCountAggregator.recordView(7L);
+        viewCountAggregator.recordView(7L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database unavailable"))
+                .thenReturn(new int[]{1});
+
+        // When
+        long flushed = viewCountAggregator.flush();
+
+        // Then
+        assertEquals(0, flushed);
+        assertTrue(Files.exists(fallbackLog));
+        assertEquals(List.of("7,2"), Files.readAllLines(fallbackLog));
+
+        // When the database is back
+        viewCountAggregator.scheduledFlush();
+
+        // Then
+        assertFalse(Files.exists(fallbackLog));
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+}
@@ -0,0 +1,137 @@
+package com.bitzomax.service;
+
+import com.bitzomax.model.WatchHistory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WatchProgressBufferTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntityIdAllocator entityIdAllocator;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private WatchProgressBuffer watchProgressBuffer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        watchProgressBuffer = new WatchProgressBuffer(jdbcTemplate, entityIdAllocator, transactionManager, meterRegistry, 500, 3);
+        lenient().when(entityIdAllocator.allocate(eq(WatchHistory.class), anyInt())).thenAnswer(invocation ->
+                LongStream.rangeClosed(101, 100 + invocation.getArgument(1, Integer.class)).toArray());
+    }
+
+    @Test
+    @DisplayName("Should keep only the latest progress per user and video until flushed")
+    void coalesce() {
+        // When
+        watchProgressBuffer.record(1L, 10L, 5, false);
+        watchProgressBuffer.record(1L, 10L, 10, false);
+        watchProgressBuffer.record(1L, 10L, 15, true);
+
+        // Then
+        WatchProgressBuffer.Progress pending = watchProgressBuffer.getPending(1L, 10L);
+        assertEquals(15, pending.watchDuration());
+        assertTrue(pending.completed());
+        assertNull(watchProgressBuffer.getPending(2L, 10L));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Should flush coalesced progress as one batch of upserts")
+    @SuppressWarnings("unchecked")
+    void flush() {
+        // Given
+        watchProgressBuffer.record(1L, 10L, 5, false);
+        watchProgressBuffer.record(1L, 10L, 10, false);
+        watchProgressBuffer.record(1L, 10L, 20, false);
+        watchProgressBuffer.record(2L, 10L, 30, true);
+
+        // When
+        int flushed = watchProgressBuffer.flush();
+
+        // Then
+        assertEquals(2, flushed);
+        ArgumentCaptor<List<Object[]>> argsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("MERGE INTO watch_history"), argsCaptor.capture());
+        List<Object[]> args = argsCaptor.getValue();
+        assertEquals(2, args.size());
+        assertTrue(args.stream().anyMatch(row -> row[0].equals(1L) && row[1].equals(10L) && row[3].equals(20)));
+        assertTrue(args.stream().anyMatch(row -> row[0].equals(2L) && row[4].equals(true)));
+        assertEquals(List.of(101L, 102L), args.stream().map(row -> (Long) row[5]).sorted().toList());
+        assertNull(watchProgressBuffer.getPending(1L, 10L));
+        assertEquals(4.0, meterRegistry.get("watch.progress.pings").counter().count());
+        assertEquals(2.0, meterRegistry.get("watch.progress.writes").counter().count());
+        assertEquals(2.0, meterRegistry.get("watch.progress.coalescing").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should keep the entries when the flush fails, without overwriting newer pings")
+    void flushFailureKeepsEntries() {
+        // Given
+        watchProgressBuffer.record(1L, 10L, 5, false);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database unavailable"));
+
+        // When
+        int flushed = watchProgressBuffer.flush();
+
+        // Then
+        assertEquals(0, flushed);
+        assertEquals(5, watchProgressBuffer.getPending(1L, 10L).watchDuration());
+    }
+
+    @Test
+    @DisplayName("Should flush early when the buffer is full and drop pings if that fails")
+    void boundedBuffer() {
+        // Given
+        watchProgressBuffer.record(1L, 1L, 1, false);
+        watchProgressBuffer.record(1L, 2L, 1, false);
+        watchProgressBuffer.record(1L, 3L, 1, false);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenReturn(new int[]{1, 1, 1})
+                .thenThrow(new DataAccessResourceFailureException("database unavailable"));
+
+        // When the buffer is full and the database is up
+        assertNotNull(watchProgressBuffer.record(1L, 4L, 1, false));
+
+        // Then
+        assertNull(watchProgressBuffer.getPending(1L, 1L));
+        assertNotNull(watchProgressBuffer.getPending(1L, 4L));
+
+        // When the buffer fills up again and the database is down
+        watchProgressBuffer.record(1L, 5L, 1, false);
+        watchProgressBuffer.record(1L, 6L, 1, false);
+        assertNull(watchProgressBuffer.record(1L, 7L, 1, false));
+
+        // Then pairs already buffered are still updated
+        assertNotNull(watchProgressBuffer.record(1L, 5L, 2, false));
+        assertEquals(1.0, meterRegistry.get("watch.progress.dropped").counter().count());
+    }
+}
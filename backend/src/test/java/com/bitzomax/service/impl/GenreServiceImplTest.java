@@ -3,6 +3,7 @@ package com.bitzomax.service.impl;
 import com.bitzomax.model.Genre;
 import com.bitzomax.repository.GenreRepository;
 import com.bitzomax.service.GenreService;
+import com.bitzomax.service.VideoCaches;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -25,6 +26,9 @@ public class GenreServiceImplTest {
     @Mock
     private GenreRepository genreRepository;
 
+    @Mock
+    private VideoCaches videoCaches;
+
     @InjectMocks
     private GenreServiceImpl genreService;
 
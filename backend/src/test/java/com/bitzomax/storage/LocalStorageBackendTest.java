@@ -0,0 +1,66 @@
+package com.bitzomax.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalStorageBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LocalStorageBackend backend;
+    private Path videos;
+
+    @BeforeEach
+    void setUp() {
+        videos = tempDir.resolve("videos");
+        backend = new LocalStorageBackend(Map.of("videos", videos, "thumbnails", tempDir.resolve("thumbnails")));
+    }
+
+    @Test
+    @DisplayName("Should move files to their sharded location and read byte ranges")
+    void putAndReadRange() throws IOException {
+        Path source = Files.write(tempDir.resolve("upload.tmp"), "0123456789".getBytes());
+        String key = StorageKeys.forName("videos", "clip.mp4");
+
+        backend.put(key, source, "video/mp4");
+
+        assertFalse(Files.exists(source));
+        assertEquals(videos.resolve(key.substring("videos/".length())), backend.localPath(key).orElseThrow());
+        assertEquals(10, backend.stat(key).orElseThrow().size());
+        try (InputStream in = backend.getRange(key, 7, 10)) {
+            assertArrayEquals("789".getBytes(), in.readAllBytes());
+        }
+
+        backend.delete(key);
+        assertTrue(backend.stat(key).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject keys outside the storage areas")
+    void rejectInvalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> backend.localPath("videos/../thumbnails/x.jpg"));
+        assertThrows(IllegalArgumentException.class, () -> backend.localPath("/etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> backend.localPath("other/x.mp4"));
+    }
+
+    @Test
+    @DisplayName("Should shard keys over two hashed directory levels")
+    void shardedKeys() {
+        String key = StorageKeys.forName("videos", "clip.mp4");
+
+        assertTrue(key.matches("videos/[0-9a-f]{2}/[0-9a-f]{2}/clip\\.mp4"), key);
+        assertEquals(key, StorageKeys.forName("videos", "clip.mp4"));
+        assertTrue(StorageKeys.forContent("videos", "ab12" + "0".repeat(60), ".mp4").startsWith("videos/ab/12/ab12"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.bitzomax.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the S3 backend against a minimal in-memory object store on a local HTTP server
+ */
+public class S3StorageBackendTest {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private S3StorageBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/media-bucket/", this::handle);
+        server.start();
+        backend = new S3StorageBackend("http://127.0.0.1:" + server.getAddress().getPort(), "media-bucket",
+                "eu-central-1", "test-access", "test-secret", "prod/", Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should upload, stat, read and delete an object")
+    void roundTrip() throws IOException {
+        Path source = Files.write(tempDir.resolve("upload.tmp"), "0123456789".getBytes());
+
+        backend.put("videos/ab/cd/clip one.mp4", source, "video/mp4");
+
+        assertFalse(Files.exists(source), "the source file is consumed");
+        assertArrayEquals("0123456789".getBytes(), objects.get("/media-bucket/prod/videos/ab/cd/clip%20one.mp4"));
+        assertEquals(10, backend.stat("videos/ab/cd/clip one.mp4").orElseThrow().size());
+        try (InputStream in = backend.get("videos/ab/cd/clip one.mp4")) {
+            assertArrayEquals("0123456789".getBytes(), in.readAllBytes());
+        }
+        try (InputStream in = backend.getRange("videos/ab/cd/clip one.mp4", 2, 3)) {
+            assertArrayEquals("234".getBytes(), in.readAllBytes());
+        }
+
+        backend.delete("videos/ab/cd/clip one.mp4");
+        assertTrue(backend.stat("videos/ab/cd/clip one.mp4").isEmpty());
+
+        assertFalse(authorizations.isEmpty());
+        authorizations.forEach(authorization -> assertTrue(authorization.startsWith(
+                "AWS4-HMAC-SHA256 Credential=test-access/"), authorization));
+        assertTrue(authorizations.get(0).contains("/eu-central-1/s3/aws4_request,SignedHeaders=content-type;host;"));
+    }
+
+    @Test
+    @DisplayName("Should report missing objects")
+    void missingObject() throws IOException {
+        assertThrows(NoSuchFileException.class, () -> backend.get("videos/ab/cd/missing.mp4"));
+        assertTrue(backend.stat("videos/ab/cd/missing.mp4").isEmpty());
+        backend.delete("videos/ab/cd/missing.mp4");
+    }
+
+    @Test
+    @DisplayName("Should hand out presigned URLs and no local paths")
+    void presignedUrl() {
+        URI url = backend.presignedUrl("thumbnails/ab/cd/x.jpg", Duration.ofMinutes(5)).orElseThrow();
+
+        assertTrue(url.getPath().endsWith("/media-bucket/prod/thumbnails/ab/cd/x.jpg"));
+        assertTrue(url.getRawQuery().contains("X-Amz-Expires=300"));
+        assertTrue(url.getRawQuery().contains("X-Amz-Signature="));
+        assertTrue(backend.localPath("thumbnails/ab/cd/x.jpg").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject keys that escape the bucket prefix")
+    void rejectInvalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> backend.stat("videos/../../etc/passwd"));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || exchange.getRequestHeaders().getFirst("x-amz-date") == null) {
+            respond(exchange, 403, new byte[0]);
+            return;
+        }
+        authorizations.add(authorization);
+
+        String path = exchange.getRequestURI().getRawPath();
+        byte[] object = objects.get(path);
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                try (InputStream in = exchange.getRequestBody()) {
+                    objects.put(path, in.readAllBytes());
+                }
+                respond(exchange, 200, new byte[0]);
+            }
+            case "DELETE" -> {
+                objects.remove(path);
+                respond(exchange, 204, null);
+            }
+            case "HEAD" -> {
+                if (object == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    exchange.getResponseHeaders().set("Last-Modified", "Wed, 01 Jul 2026 10:00:00 GMT");
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                exchange.close();
+            }
+            case "GET" -> {
+                if (object == null) {
+                    respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>".getBytes());
+                    return;
+                }
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                if (range == null) {
+                    respond(exchange, 200, object);
+                    return;
+                }
+                Matcher matcher = RANGE.matcher(range);
+                assertTrue(matcher.matches(), range);
+                int from = Integer.parseInt(matcher.group(1));
+                int to = Integer.parseInt(matcher.group(2));
+                respond(exchange, 206, Arrays.copyOfRange(object, from, to + 1));
+            }
+            default -> respond(exchange, 405, new byte[0]);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body == null || body.length == 0 ? -1 : body.length);
+        if (body != null && body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,56 @@
+#!/bin/sh
+# Stand-in for ffmpeg in tests: writes a three-segment HLS rendition, two sprite sheets
+# or a WebP header where the real binary would.
+if [ "$1" = "-version" ]; then
+    echo "ffmpeg version stub"
+    exit 0
+fi
+
+previous=""
+pattern=""
+output=""
+for argument in "$@"; do
+    if [ "$previous" = "-hls_segment_filename" ]; then
+        pattern="$argument"
+    fi
+    previous="$argument"
+    output="$argument"
+done
+
+case "$output" in
+    *.webp)
+        printf 'RIFF\000\000\000\000WEBPVP8 ' > "$output"
+        exit 0
+        ;;
+    *%03d.jpg)
+        for index in 0 1; do
+            printf 'sheet %s\n' "$index" > "$(printf "$output" "$index")"
+        done
+        exit 0
+        ;;
+esac
+
+if [ -z "$pattern" ]; then
+    echo "ffmpeg stub: unsupported arguments: $*" >&2
+    exit 1
+fi
+
+{
+    echo "#EXTM3U"
+    echo "#EXT-X-VERSION:3"
+    echo "#EXT-X-TARGETDURATION:4"
+    echo "#EXT-X-MEDIA-SEQUENCE:0"
+    echo "#EXT-X-PLAYLIST-TYPE:VOD"
+    for index in 0 1 2; do
+        segment=$(printf "$pattern" "$index")
+        if [ "$index" = 2 ]; then
+            duration="1.500000"
+        else
+            duration="4.000000"
+        fi
+        printf 'segment %s of %s\n' "$index" "$output" > "$segment"
+        echo "#EXTINF:$duration,"
+        basename "$segment"
+    done
+    echo "#EXT-X-ENDLIST"
+} > "$output"